@@ -4,6 +4,7 @@ import com.restaurant.vip.entity.AuditLog;
 import com.restaurant.vip.entity.Staff;
 import com.restaurant.vip.repository.AuditLogRepository;
 import com.restaurant.vip.service.AuthenticationService;
+import com.restaurant.vip.service.StaffPrincipal;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.AfterReturning;
@@ -13,6 +14,8 @@ import org.aspectj.lang.annotation.Before;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -51,6 +54,10 @@ public class AuditAspect {
     @AfterReturning(pointcut = "@annotation(auditable)", returning = "result")
     public void auditAfterReturning(JoinPoint joinPoint, Auditable auditable, Object result) {
         try {
+            // A 304 only confirms the client's cached copy is current; no data was disclosed
+            if (result instanceof ResponseEntity<?> response && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                return;
+            }
             createAuditLog(joinPoint, auditable, result, null);
         } catch (Exception e) {
             logger.error("Error creating audit log for successful operation", e);
@@ -76,12 +83,19 @@ public class AuditAspect {
         // Get current user information
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.isAuthenticated()) {
-            String email = authentication.getName();
-            Staff staff = authenticationService.findByEmail(email);
-            if (staff != null) {
-                context.setStaffId(staff.getId());
-                context.setStaffEmail(staff.getEmail());
-                context.setStaffRole(staff.getRole().name());
+            if (authentication.getPrincipal() instanceof StaffPrincipal principal) {
+                // Built from the access token by JwtAuthenticationFilter; no staff lookup needed
+                context.setStaffId(principal.getStaffId());
+                context.setStaffEmail(principal.getEmail());
+                context.setStaffRole(principal.getRole().name());
+            } else {
+                String email = authentication.getName();
+                Staff staff = authenticationService.findByEmail(email);
+                if (staff != null) {
+                    context.setStaffId(staff.getId());
+                    context.setStaffEmail(staff.getEmail());
+                    context.setStaffRole(staff.getRole().name());
+                }
             }
         }
         
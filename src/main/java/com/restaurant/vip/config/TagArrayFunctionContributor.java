@@ -0,0 +1,36 @@
+package com.restaurant.vip.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.query.sqm.produce.function.StandardFunctionArgumentTypeResolvers;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers tags_overlap(array, array) for JPQL: true when the arrays share an element.
+ * Renders PostgreSQL's && operator so tag filters and duplicate-candidate lookups can use their
+ * GIN indexes; other databases (H2 in tests) get an equivalent subquery.
+ */
+public class TagArrayFunctionContributor implements FunctionContributor {
+
+    static final String TAGS_OVERLAP = "tags_overlap";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicType<Boolean> booleanType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN);
+        String pattern = functionContributions.getDialect() instanceof PostgreSQLDialect
+                ? "(?1 && ?2)"
+                : "(exists(select 1 from unnest(?2) tag(id) where array_contains(?1, tag.id)))";
+
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(TAGS_OVERLAP, pattern)
+                .setExactArgumentCount(2)
+                .setInvariantType(booleanType)
+                // A bound array parameter takes the type of the array column it is compared with
+                .setArgumentTypeResolver(StandardFunctionArgumentTypeResolvers.argumentsOrImplied(0, 1))
+                .setArgumentListSignature("(ARRAY tags, ARRAY candidates)")
+                .register();
+    }
+}
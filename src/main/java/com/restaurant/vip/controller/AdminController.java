@@ -1,11 +1,23 @@
 package com.restaurant.vip.controller;
 
+import com.restaurant.vip.audit.AuditAction;
+import com.restaurant.vip.audit.Auditable;
+import com.restaurant.vip.dto.DuplicateClusterResponse;
+import com.restaurant.vip.dto.DuplicateSweepStatusResponse;
+import com.restaurant.vip.dto.PagedResponse;
+import com.restaurant.vip.service.DuplicateSweepService;
 import com.restaurant.vip.service.SessionManagementService;
+import com.restaurant.vip.service.VisitRollupBackfill;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.YearMonth;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/admin")
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -14,6 +26,12 @@ public class AdminController {
     @Autowired
     private SessionManagementService sessionManagementService;
 
+    @Autowired
+    private DuplicateSweepService duplicateSweepService;
+
+    @Autowired
+    private VisitRollupBackfill visitRollupBackfill;
+
     @GetMapping("/sessions/statistics")
     @PreAuthorize("hasRole('MANAGER')")
     public ResponseEntity<SessionManagementService.SessionStatistics> getSessionStatistics() {
@@ -34,4 +52,55 @@ public class AdminController {
         long count = sessionManagementService.getActiveSessionCount(staffId);
         return ResponseEntity.ok(count);
     }
-}
\ No newline at end of file
+
+    /**
+     * Start a whole-table duplicate sweep; returns the running sweep if one is in progress
+     * POST /admin/duplicates/sweep
+     */
+    @PostMapping("/duplicates/sweep")
+    @PreAuthorize("hasRole('MANAGER')")
+    @Auditable(action = AuditAction.READ, tableName = "guests", description = "Start duplicate guest sweep")
+    public ResponseEntity<DuplicateSweepStatusResponse> startDuplicateSweep() {
+        DuplicateSweepStatusResponse status = duplicateSweepService.startSweep();
+        return new ResponseEntity<>(status, HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * GET /admin/duplicates/sweep
+     */
+    @GetMapping("/duplicates/sweep")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<DuplicateSweepStatusResponse> getDuplicateSweepStatus() {
+        return ResponseEntity.ok(duplicateSweepService.getStatus());
+    }
+
+    /**
+     * Ranked duplicate clusters from the last completed sweep
+     * GET /admin/duplicates/clusters
+     */
+    @GetMapping("/duplicates/clusters")
+    @PreAuthorize("hasRole('MANAGER')")
+    @Auditable(action = AuditAction.READ, tableName = "guests", description = "Access duplicate guest report")
+    public ResponseEntity<PagedResponse<DuplicateClusterResponse>> getDuplicateClusters(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(duplicateSweepService.getClusters(page, size));
+    }
+
+    /**
+     * Rebuild the visit analytics rollups for a range of months, or for all visit history when no
+     * range is given. Runs one month per transaction and returns when done.
+     * POST /admin/visit-rollups/rebuild?from=2024-01&to=2024-06
+     */
+    @PostMapping("/visit-rollups/rebuild")
+    @PreAuthorize("hasRole('MANAGER')")
+    @Auditable(action = AuditAction.UPDATE, tableName = "visits", description = "Rebuild visit rollups", logParameters = true)
+    public ResponseEntity<Map<String, Integer>> rebuildVisitRollups(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        int months = (from == null && to == null)
+                ? visitRollupBackfill.rebuildAll()
+                : visitRollupBackfill.rebuild(from != null ? from : to, to != null ? to : YearMonth.now());
+        return ResponseEntity.ok(Map.of("monthsRebuilt", months));
+    }
+}
@@ -1,18 +1,31 @@
 package com.restaurant.vip.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.restaurant.vip.audit.Auditable;
 import com.restaurant.vip.audit.AuditAction;
 import com.restaurant.vip.dto.*;
+import com.restaurant.vip.exception.PreconditionFailedException;
 import com.restaurant.vip.service.DuplicateDetectionService;
+import com.restaurant.vip.service.GuestCardService;
+import com.restaurant.vip.service.GuestExportService;
+import com.restaurant.vip.service.GuestFileFormat;
+import com.restaurant.vip.service.GuestImportService;
 import com.restaurant.vip.service.GuestService;
+import com.restaurant.vip.util.GuestETags;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,11 +34,23 @@ import java.util.Optional;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class GuestController {
     
+    private static final String TEXT_CSV = "text/csv";
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final String APPLICATION_MERGE_PATCH_JSON = "application/merge-patch+json";
+    private static final int MAX_CARD_VISITS = 50;
+    
     private final GuestService guestService;
+    private final GuestImportService guestImportService;
+    private final GuestExportService guestExportService;
+    private final GuestCardService guestCardService;
     
     @Autowired
-    public GuestController(GuestService guestService) {
+    public GuestController(GuestService guestService, GuestImportService guestImportService,
+                           GuestExportService guestExportService, GuestCardService guestCardService) {
         this.guestService = guestService;
+        this.guestImportService = guestImportService;
+        this.guestExportService = guestExportService;
+        this.guestCardService = guestCardService;
     }
     
     /**
@@ -41,19 +66,89 @@ public class GuestController {
     }
     
     /**
-     * Get guest by ID
+     * Bulk import guests from a CSV file with a header row, or from NDJSON (one guest per line).
+     * The body is read as a stream; the response reports the outcome of every row.
+     * POST /api/guests/import
+     */
+    @PostMapping(value = "/import", consumes = {TEXT_CSV, APPLICATION_NDJSON})
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<GuestImportResponse> importGuests(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        GuestFileFormat format = MediaType.parseMediaType(TEXT_CSV).isCompatibleWith(MediaType.parseMediaType(contentType))
+                ? GuestFileFormat.CSV
+                : GuestFileFormat.NDJSON;
+        return ResponseEntity.ok(guestImportService.importGuests(body, format));
+    }
+    
+    /**
+     * Export all active guests as a CSV or NDJSON download, optionally gzipped.
+     * Rows are streamed from the database as they are written, so any table size can be exported.
+     * GET /api/guests/export?format=csv&gzip=true
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<StreamingResponseBody> exportGuests(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        GuestFileFormat fileFormat = "csv".equalsIgnoreCase(format) ? GuestFileFormat.CSV : GuestFileFormat.NDJSON;
+        String filename = "guests." + fileFormat.getExtension() + (gzip ? ".gz" : "");
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : fileFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(guestExportService.exportGuests(fileFormat, gzip));
+    }
+    
+    /**
+     * Get guest by ID. The ETag names the guest's version; a matching If-None-Match is answered
+     * with 304 from a version lookup, without loading the profile.
      * GET /api/guests/{id}
      */
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('HOST') or hasRole('SERVER') or hasRole('MANAGER')")
     @Auditable(action = AuditAction.READ, tableName = "guests", description = "Access guest profile")
-    public ResponseEntity<GuestResponse> getGuestById(@PathVariable Long id) {
+    public ResponseEntity<GuestResponse> getGuestById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> currentETag = guestService.getGuestVersion(id).map(version -> GuestETags.of(id, version));
+            if (currentETag.isPresent() && GuestETags.matchesNoneMatch(ifNoneMatch, currentETag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentETag.get()).build();
+            }
+        }
         GuestResponse response = guestService.getGuestById(id);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(GuestETags.of(response.getId(), response.getVersion())).body(response);
+    }
+    
+    /**
+     * Get up to 500 guests by id in one call, in request order; unknown or deleted ids are listed as missing
+     * POST /api/guests/batch
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('HOST') or hasRole('SERVER') or hasRole('MANAGER')")
+    public ResponseEntity<GuestBatchResponse> getGuestsByIds(@Valid @RequestBody GuestBatchRequest request) {
+        return ResponseEntity.ok(guestService.getGuestsByIds(request.getIds()));
+    }
+    
+    /**
+     * Guest card: profile, last visits, visit statistics and the first page of visits with notes in
+     * one response, so opening a guest takes one round trip and one audit record. Further noted visits
+     * come from /api/visits/guest/{guestId}/timeline?notesOnly=true with the card's nextCursor.
+     * GET /api/guests/{id}/card?visits=5
+     */
+    @GetMapping("/{id}/card")
+    @PreAuthorize("hasRole('HOST') or hasRole('SERVER') or hasRole('MANAGER')")
+    @Auditable(action = AuditAction.READ, tableName = "guests", description = "Access guest card")
+    public ResponseEntity<GuestCardResponse> getGuestCard(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "5") int visits) {
+        int recentVisitLimit = Math.max(1, Math.min(visits, MAX_CARD_VISITS));
+        return ResponseEntity.ok(guestCardService.getGuestCard(id, recentVisitLimit));
     }
     
     /**
-     * Update guest
+     * Update guest. With If-Match, the update only applies to the version the client last read.
      * PUT /api/guests/{id}
      */
     @PutMapping("/{id}")
@@ -61,9 +156,34 @@ public class GuestController {
     @Auditable(action = AuditAction.UPDATE, tableName = "guests", description = "Update guest profile", logParameters = true, sensitive = true)
     public ResponseEntity<GuestResponse> updateGuest(
             @PathVariable Long id, 
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody GuestUpdateRequest request) {
-        GuestResponse response = guestService.updateGuest(id, request);
-        return ResponseEntity.ok(response);
+        GuestResponse response = guestService.updateGuest(id, request, expectedVersion(ifMatch, id));
+        return ResponseEntity.ok().eTag(GuestETags.of(response.getId(), response.getVersion())).body(response);
+    }
+    
+    /**
+     * Partially update guest with a JSON Merge Patch: only the fields in the patch are written,
+     * and null clears a field. Honors If-Match like PUT.
+     * PATCH /api/guests/{id}
+     */
+    @PatchMapping(value = "/{id}", consumes = {APPLICATION_MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    @PreAuthorize("hasRole('HOST') or hasRole('SERVER') or hasRole('MANAGER')")
+    @Auditable(action = AuditAction.UPDATE, tableName = "guests", description = "Patch guest profile", logParameters = true, sensitive = true)
+    public ResponseEntity<GuestResponse> patchGuest(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody JsonNode patch) {
+        GuestResponse response = guestService.patchGuest(id, patch, expectedVersion(ifMatch, id));
+        return ResponseEntity.ok().eTag(GuestETags.of(response.getId(), response.getVersion())).body(response);
+    }
+    
+    private static Long expectedVersion(String ifMatch, Long id) {
+        if (ifMatch == null || GuestETags.isAny(ifMatch)) {
+            return null;
+        }
+        return GuestETags.versionFromIfMatch(ifMatch, id)
+                .orElseThrow(() -> new PreconditionFailedException("If-Match does not name a version of guest " + id));
     }
     
     /**
@@ -78,9 +198,23 @@ public class GuestController {
         return ResponseEntity.noContent().build();
     }
     
+    /**
+     * Merge a duplicate profile into this guest; the duplicate is soft-deleted
+     * POST /api/guests/{id}/merge/{duplicateId}
+     */
+    @PostMapping("/{id}/merge/{duplicateId}")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<GuestResponse> mergeGuests(
+            @PathVariable Long id,
+            @PathVariable Long duplicateId) {
+        GuestResponse response = guestService.mergeGuests(id, duplicateId);
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Get all guests with pagination
      * GET /api/guests?page=0&size=20&sortBy=firstName&sortDirection=ASC
+     * Keyset mode: GET /api/guests?cursor=&size=20 for the first page, then pass back nextCursor
      */
     @GetMapping
     @PreAuthorize("hasRole('HOST') or hasRole('SERVER') or hasRole('MANAGER')")
@@ -89,9 +223,12 @@ public class GuestController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "firstName") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) {
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         
-        PagedResponse<GuestResponse> response = guestService.getAllGuests(page, size, sortBy, sortDirection);
+        PagedResponse<GuestResponse> response = guestService.getAllGuests(
+                page, size, sortBy, sortDirection, cursor, includeTotal);
         return ResponseEntity.ok(response);
     }
     
@@ -129,7 +266,7 @@ public class GuestController {
         searchRequest.setSortBy(sortBy);
         searchRequest.setSortDirection(sortDirection);
         
-        PagedResponse<GuestResponse> response = guestService.searchGuests(searchRequest);
+        PagedResponse<GuestResponse> response = guestService.quickSearch(searchRequest);
         return ResponseEntity.ok(response);
     }
     
@@ -141,19 +278,16 @@ public class GuestController {
     @PreAuthorize("hasRole('HOST') or hasRole('SERVER') or hasRole('MANAGER')")
     @Auditable(action = AuditAction.READ, tableName = "guests", description = "Check phone number existence", logParameters = true)
     public ResponseEntity<DuplicateCheckResponse> checkPhoneExists(@RequestParam String phone) {
-        boolean exists = guestService.existsByPhone(phone);
+        Optional<GuestResponse> existingGuest = guestService.findByPhone(phone);
         
         DuplicateCheckResponse response = new DuplicateCheckResponse();
-        response.setExists(exists);
+        response.setExists(existingGuest.isPresent());
         response.setPhone(phone);
         
-        if (exists) {
-            Optional<GuestResponse> existingGuest = guestService.findByPhone(phone);
-            if (existingGuest.isPresent()) {
-                response.setExistingGuest(existingGuest.get());
-                response.setMessage("A guest with this phone number already exists: " + 
-                                  existingGuest.get().getFullName());
-            }
+        if (existingGuest.isPresent()) {
+            response.setExistingGuest(existingGuest.get());
+            response.setMessage("A guest with this phone number already exists: " + 
+                              existingGuest.get().getFullName());
         }
         
         return ResponseEntity.ok(response);
@@ -283,6 +417,27 @@ public class GuestController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Facet counts for the filter sheet, e.g. "Vegan (312)"
+     * GET /api/guests/facets?dietary=Vegan&drinks=Wine,Beer&seating=Window
+     */
+    @GetMapping("/facets")
+    @PreAuthorize("hasRole('HOST') or hasRole('SERVER') or hasRole('MANAGER')")
+    @Auditable(action = AuditAction.READ, tableName = "guests", description = "Access guest facet counts", logParameters = true)
+    public ResponseEntity<GuestFacetCountsResponse> getFacetCounts(
+            @RequestParam(required = false) List<String> dietary,
+            @RequestParam(required = false) List<String> drinks,
+            @RequestParam(required = false) String seating) {
+        
+        GuestSearchRequest searchRequest = new GuestSearchRequest();
+        searchRequest.setDietaryRestrictions(dietary);
+        searchRequest.setFavoriteDrinks(drinks);
+        searchRequest.setSeatingPreference(seating);
+        
+        GuestFacetCountsResponse response = guestService.getFacetCounts(searchRequest);
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Upload photo for guest
      * POST /api/guests/{id}/photo
@@ -2,13 +2,22 @@ package com.restaurant.vip.controller;
 
 import com.restaurant.vip.audit.Auditable;
 import com.restaurant.vip.audit.AuditAction;
+import com.restaurant.vip.dto.DailyVisitVolume;
 import com.restaurant.vip.dto.PagedResponse;
+import com.restaurant.vip.dto.StaffVisitVolume;
+import com.restaurant.vip.dto.TopGuestResponse;
+import com.restaurant.vip.dto.VisitBatchCreateRequest;
+import com.restaurant.vip.dto.VisitBatchCreateResponse;
 import com.restaurant.vip.dto.VisitCreateRequest;
+import com.restaurant.vip.dto.VisitHeatmapResponse;
 import com.restaurant.vip.dto.VisitHistoryResponse;
 import com.restaurant.vip.dto.VisitNotesRequest;
+import com.restaurant.vip.dto.VisitNoteSearchResult;
 import com.restaurant.vip.dto.VisitNotesResponse;
 import com.restaurant.vip.dto.VisitResponse;
+import com.restaurant.vip.dto.VisitTimelineEntry;
 import com.restaurant.vip.dto.VisitUpdateRequest;
+import com.restaurant.vip.service.VisitAnalyticsService;
 import com.restaurant.vip.service.VisitService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,11 +35,17 @@ import java.util.Map;
 @RequestMapping("/api/visits")
 public class VisitController {
     
+    private static final int MAX_TIMELINE_PAGE_SIZE = 100;
+    private static final int MAX_NOTES_SEARCH_PAGE_SIZE = 100;
+    private static final int MAX_ANALYTICS_LIMIT = 100;
+    
     private final VisitService visitService;
+    private final VisitAnalyticsService visitAnalyticsService;
     
     @Autowired
-    public VisitController(VisitService visitService) {
+    public VisitController(VisitService visitService, VisitAnalyticsService visitAnalyticsService) {
         this.visitService = visitService;
+        this.visitAnalyticsService = visitAnalyticsService;
     }
     
     /**
@@ -44,6 +59,17 @@ public class VisitController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
     
+    /**
+     * Log up to 500 visits in one call, typically a shift's tables at close. Each visit is validated
+     * on its own; the response gives the outcome of every visit in request order
+     * POST /api/visits/batch
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyRole('HOST', 'SERVER', 'MANAGER')")
+    public ResponseEntity<VisitBatchCreateResponse> createVisits(@Valid @RequestBody VisitBatchCreateRequest request) {
+        return ResponseEntity.ok(visitService.createVisits(request.getVisits()));
+    }
+    
     /**
      * Get visit by ID
      */
@@ -250,6 +276,25 @@ public class VisitController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Visit timeline for a guest, newest first, in compact entries
+     * GET /api/visits/guest/{guestId}/timeline?cursor=&size=20&notesOnly=false, then pass back nextCursor
+     */
+    @GetMapping("/guest/{guestId}/timeline")
+    @PreAuthorize("hasAnyRole('HOST', 'SERVER', 'MANAGER')")
+    @Auditable(action = AuditAction.READ, tableName = "visits", description = "Access guest visit timeline")
+    public ResponseEntity<PagedResponse<VisitTimelineEntry>> getGuestVisitTimeline(
+            @PathVariable Long guestId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean notesOnly) {
+        
+        int pageSize = Math.max(1, Math.min(size, MAX_TIMELINE_PAGE_SIZE));
+        PagedResponse<VisitTimelineEntry> response =
+            visitService.getGuestVisitTimeline(guestId, cursor, pageSize, notesOnly);
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Get paginated visit history for a guest (timeline format)
      */
@@ -291,6 +336,88 @@ public class VisitController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Days with the most visits in a date range, from the daily rollup
+     * GET /api/visits/analytics/busiest-days?startDate=2024-01-01&endDate=2024-12-31&limit=10
+     */
+    @GetMapping("/analytics/busiest-days")
+    @PreAuthorize("hasRole('MANAGER')")
+    @Auditable(action = AuditAction.READ, tableName = "visits", description = "Access busiest days", logParameters = true)
+    public ResponseEntity<List<DailyVisitVolume>> getBusiestDays(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        List<DailyVisitVolume> response = visitAnalyticsService.getBusiestDays(
+            startDate, endDate, Math.max(1, Math.min(limit, MAX_ANALYTICS_LIMIT)));
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Visits by weekday and hour in a date range, from the hourly rollup
+     * GET /api/visits/analytics/busiest-hours?startDate=2024-01-01&endDate=2024-12-31
+     */
+    @GetMapping("/analytics/busiest-hours")
+    @PreAuthorize("hasRole('MANAGER')")
+    @Auditable(action = AuditAction.READ, tableName = "visits", description = "Access visit heatmap", logParameters = true)
+    public ResponseEntity<VisitHeatmapResponse> getBusiestHours(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        VisitHeatmapResponse response = visitAnalyticsService.getVisitHeatmap(startDate, endDate);
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Guests with the most visits in the months of a date range, from the guest monthly rollup
+     * GET /api/visits/analytics/top-guests?startDate=2024-01-01&endDate=2024-12-31&limit=20
+     */
+    @GetMapping("/analytics/top-guests")
+    @PreAuthorize("hasRole('MANAGER')")
+    @Auditable(action = AuditAction.READ, tableName = "visits", description = "Access top guests", logParameters = true)
+    public ResponseEntity<List<TopGuestResponse>> getTopGuests(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "20") int limit) {
+        
+        List<TopGuestResponse> response = visitAnalyticsService.getTopGuests(
+            startDate, endDate, Math.max(1, Math.min(limit, MAX_ANALYTICS_LIMIT)));
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Visits and covers per staff member in a date range, from the staff daily rollup
+     * GET /api/visits/analytics/staff?startDate=2024-01-01&endDate=2024-01-31
+     */
+    @GetMapping("/analytics/staff")
+    @PreAuthorize("hasRole('MANAGER')")
+    @Auditable(action = AuditAction.READ, tableName = "visits", description = "Access staff visit volumes", logParameters = true)
+    public ResponseEntity<List<StaffVisitVolume>> getStaffVisitVolumes(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        List<StaffVisitVolume> response = visitAnalyticsService.getStaffVolumes(startDate, endDate);
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Ranked full-text search over service notes, with highlighted snippets
+     * GET /api/visits/search/notes/ranked?q="window seat" allerg*&page=0&size=20
+     */
+    @GetMapping("/search/notes/ranked")
+    @PreAuthorize("hasAnyRole('HOST', 'SERVER', 'MANAGER')")
+    @Auditable(action = AuditAction.READ, tableName = "visits", description = "Full-text search of visit notes", logParameters = true)
+    public ResponseEntity<PagedResponse<VisitNoteSearchResult>> searchVisitNotes(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        int pageSize = Math.max(1, Math.min(size, MAX_NOTES_SEARCH_PAGE_SIZE));
+        PagedResponse<VisitNoteSearchResult> response =
+            visitService.searchVisitNotes(query, Math.max(0, page), pageSize);
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * Search visits by service notes
      */
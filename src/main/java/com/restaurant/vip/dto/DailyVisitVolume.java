@@ -0,0 +1,47 @@
+package com.restaurant.vip.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Visits and covers (sum of party sizes) of one day
+ */
+public class DailyVisitVolume {
+
+    private LocalDate visitDate;
+    private long visitCount;
+    private long coverCount;
+
+    // Constructors
+    public DailyVisitVolume() {}
+
+    public DailyVisitVolume(LocalDate visitDate, long visitCount, long coverCount) {
+        this.visitDate = visitDate;
+        this.visitCount = visitCount;
+        this.coverCount = coverCount;
+    }
+
+    // Getters and Setters
+    public LocalDate getVisitDate() {
+        return visitDate;
+    }
+
+    public void setVisitDate(LocalDate visitDate) {
+        this.visitDate = visitDate;
+    }
+
+    public long getVisitCount() {
+        return visitCount;
+    }
+
+    public void setVisitCount(long visitCount) {
+        this.visitCount = visitCount;
+    }
+
+    public long getCoverCount() {
+        return coverCount;
+    }
+
+    public void setCoverCount(long coverCount) {
+        this.coverCount = coverCount;
+    }
+}
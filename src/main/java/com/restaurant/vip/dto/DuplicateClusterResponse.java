@@ -0,0 +1,95 @@
+package com.restaurant.vip.dto;
+
+import java.util.List;
+
+public class DuplicateClusterResponse {
+    
+    private int rank;
+    private double score; // Highest pair score linking the cluster (1.0 for a shared phone number)
+    private List<Member> guests;
+    
+    // Constructors
+    public DuplicateClusterResponse() {}
+    
+    public DuplicateClusterResponse(double score, List<Member> guests) {
+        this.score = score;
+        this.guests = guests;
+    }
+    
+    // Getters and Setters
+    public int getRank() {
+        return rank;
+    }
+    
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+    
+    public double getScore() {
+        return score;
+    }
+    
+    public void setScore(double score) {
+        this.score = score;
+    }
+    
+    public List<Member> getGuests() {
+        return guests;
+    }
+    
+    public void setGuests(List<Member> guests) {
+        this.guests = guests;
+    }
+    
+    /**
+     * A guest in the cluster, as it was when the sweep ran
+     */
+    public static class Member {
+        
+        private Long id;
+        private String firstName;
+        private String lastName;
+        private String phone;
+        
+        public Member() {}
+        
+        public Member(Long id, String firstName, String lastName, String phone) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.phone = phone;
+        }
+        
+        public Long getId() {
+            return id;
+        }
+        
+        public void setId(Long id) {
+            this.id = id;
+        }
+        
+        public String getFirstName() {
+            return firstName;
+        }
+        
+        public void setFirstName(String firstName) {
+            this.firstName = firstName;
+        }
+        
+        public String getLastName() {
+            return lastName;
+        }
+        
+        public void setLastName(String lastName) {
+            this.lastName = lastName;
+        }
+        
+        public String getPhone() {
+            return phone;
+        }
+        
+        public void setPhone(String phone) {
+            this.phone = phone;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.restaurant.vip.dto;
+
+import java.time.LocalDateTime;
+
+public class DuplicateSweepStatusResponse {
+    
+    private String state; // IDLE, RUNNING, COMPLETED or FAILED
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private long rowsScanned;
+    private long blocksScored;
+    private long pairsCompared;
+    private long pairsMatched;
+    private int clusterCount;
+    private String errorMessage;
+    
+    // Constructors
+    public DuplicateSweepStatusResponse() {}
+    
+    public DuplicateSweepStatusResponse(String state) {
+        this.state = state;
+    }
+    
+    // Getters and Setters
+    public String getState() {
+        return state;
+    }
+    
+    public void setState(String state) {
+        this.state = state;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+    
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+    
+    public void setRowsScanned(long rowsScanned) {
+        this.rowsScanned = rowsScanned;
+    }
+    
+    public long getBlocksScored() {
+        return blocksScored;
+    }
+    
+    public void setBlocksScored(long blocksScored) {
+        this.blocksScored = blocksScored;
+    }
+    
+    public long getPairsCompared() {
+        return pairsCompared;
+    }
+    
+    public void setPairsCompared(long pairsCompared) {
+        this.pairsCompared = pairsCompared;
+    }
+    
+    public long getPairsMatched() {
+        return pairsMatched;
+    }
+    
+    public void setPairsMatched(long pairsMatched) {
+        this.pairsMatched = pairsMatched;
+    }
+    
+    public int getClusterCount() {
+        return clusterCount;
+    }
+    
+    public void setClusterCount(int clusterCount) {
+        this.clusterCount = clusterCount;
+    }
+    
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
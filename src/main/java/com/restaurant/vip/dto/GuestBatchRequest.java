@@ -0,0 +1,32 @@
+package com.restaurant.vip.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class GuestBatchRequest {
+    
+    public static final int MAX_IDS = 500;
+    
+    @NotEmpty(message = "At least one guest id is required")
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " guest ids can be requested at once")
+    private List<@NotNull(message = "Guest ids must not be null") Long> ids;
+    
+    // Constructors
+    public GuestBatchRequest() {}
+    
+    public GuestBatchRequest(List<Long> ids) {
+        this.ids = ids;
+    }
+    
+    // Getters and Setters
+    public List<Long> getIds() {
+        return ids;
+    }
+    
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
@@ -0,0 +1,37 @@
+package com.restaurant.vip.dto;
+
+import java.util.List;
+
+/**
+ * Guests of a batch lookup in request order, and the requested ids that matched no active guest
+ */
+public class GuestBatchResponse {
+    
+    private List<GuestResponse> guests;
+    private List<Long> missingIds;
+    
+    // Constructors
+    public GuestBatchResponse() {}
+    
+    public GuestBatchResponse(List<GuestResponse> guests, List<Long> missingIds) {
+        this.guests = guests;
+        this.missingIds = missingIds;
+    }
+    
+    // Getters and Setters
+    public List<GuestResponse> getGuests() {
+        return guests;
+    }
+    
+    public void setGuests(List<GuestResponse> guests) {
+        this.guests = guests;
+    }
+    
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+    
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+}
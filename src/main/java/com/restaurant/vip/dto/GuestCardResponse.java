@@ -0,0 +1,60 @@
+package com.restaurant.vip.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything needed to open a guest: profile, recent visits, visit statistics and the first page of
+ * visits with notes, whose nextCursor continues on the notes-only visit timeline
+ */
+public class GuestCardResponse {
+
+    private GuestResponse guest;
+    private List<VisitResponse> recentVisits;
+    private Map<String, Object> statistics;
+    private PagedResponse<VisitTimelineEntry> visitsWithNotes;
+
+    // Constructors
+    public GuestCardResponse() {}
+
+    public GuestCardResponse(GuestResponse guest, List<VisitResponse> recentVisits,
+                             Map<String, Object> statistics, PagedResponse<VisitTimelineEntry> visitsWithNotes) {
+        this.guest = guest;
+        this.recentVisits = recentVisits;
+        this.statistics = statistics;
+        this.visitsWithNotes = visitsWithNotes;
+    }
+
+    // Getters and Setters
+    public GuestResponse getGuest() {
+        return guest;
+    }
+
+    public void setGuest(GuestResponse guest) {
+        this.guest = guest;
+    }
+
+    public List<VisitResponse> getRecentVisits() {
+        return recentVisits;
+    }
+
+    public void setRecentVisits(List<VisitResponse> recentVisits) {
+        this.recentVisits = recentVisits;
+    }
+
+    public Map<String, Object> getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(Map<String, Object> statistics) {
+        this.statistics = statistics;
+    }
+
+    public PagedResponse<VisitTimelineEntry> getVisitsWithNotes() {
+        return visitsWithNotes;
+    }
+
+    public void setVisitsWithNotes(PagedResponse<VisitTimelineEntry> visitsWithNotes) {
+        this.visitsWithNotes = visitsWithNotes;
+    }
+}
@@ -0,0 +1,87 @@
+package com.restaurant.vip.dto;
+
+import java.util.List;
+
+public class GuestFacetCountsResponse {
+    
+    private long totalMatches;
+    private List<FacetCount> dietaryRestrictions;
+    private List<FacetCount> favoriteDrinks;
+    private List<FacetCount> seatingPreferences;
+    
+    // Constructors
+    public GuestFacetCountsResponse() {}
+    
+    public GuestFacetCountsResponse(long totalMatches, List<FacetCount> dietaryRestrictions,
+                                    List<FacetCount> favoriteDrinks, List<FacetCount> seatingPreferences) {
+        this.totalMatches = totalMatches;
+        this.dietaryRestrictions = dietaryRestrictions;
+        this.favoriteDrinks = favoriteDrinks;
+        this.seatingPreferences = seatingPreferences;
+    }
+    
+    // Getters and Setters
+    public long getTotalMatches() {
+        return totalMatches;
+    }
+    
+    public void setTotalMatches(long totalMatches) {
+        this.totalMatches = totalMatches;
+    }
+    
+    public List<FacetCount> getDietaryRestrictions() {
+        return dietaryRestrictions;
+    }
+    
+    public void setDietaryRestrictions(List<FacetCount> dietaryRestrictions) {
+        this.dietaryRestrictions = dietaryRestrictions;
+    }
+    
+    public List<FacetCount> getFavoriteDrinks() {
+        return favoriteDrinks;
+    }
+    
+    public void setFavoriteDrinks(List<FacetCount> favoriteDrinks) {
+        this.favoriteDrinks = favoriteDrinks;
+    }
+    
+    public List<FacetCount> getSeatingPreferences() {
+        return seatingPreferences;
+    }
+    
+    public void setSeatingPreferences(List<FacetCount> seatingPreferences) {
+        this.seatingPreferences = seatingPreferences;
+    }
+    
+    /**
+     * Guests that would match if this value were added to the facet's selection
+     */
+    public static class FacetCount {
+        
+        private String value;
+        private int count;
+        
+        public FacetCount() {}
+        
+        public FacetCount(String value, int count) {
+            this.value = value;
+            this.count = count;
+        }
+        
+        public String getValue() {
+            return value;
+        }
+        
+        public void setValue(String value) {
+            this.value = value;
+        }
+        
+        public int getCount() {
+            return count;
+        }
+        
+        public void setCount(int count) {
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.restaurant.vip.dto;
+
+import java.util.List;
+
+public class GuestImportResponse {
+
+    private int totalRows;
+    private int importedCount;
+    private int duplicateCount; // Repeated within the file or already held by an active guest
+    private int invalidCount;
+    private int failedCount;
+    private List<RowResult> rows;
+
+    // Constructors
+    public GuestImportResponse() {}
+
+    // Getters and Setters
+    public int getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(int totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public int getImportedCount() {
+        return importedCount;
+    }
+
+    public void setImportedCount(int importedCount) {
+        this.importedCount = importedCount;
+    }
+
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    public void setDuplicateCount(int duplicateCount) {
+        this.duplicateCount = duplicateCount;
+    }
+
+    public int getInvalidCount() {
+        return invalidCount;
+    }
+
+    public void setInvalidCount(int invalidCount) {
+        this.invalidCount = invalidCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(int failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public List<RowResult> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<RowResult> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Outcome of one data row, numbered from 1 (the CSV header row is not counted)
+     */
+    public static class RowResult {
+
+        private int row;
+        private String status; // IMPORTED, DUPLICATE_IN_FILE, DUPLICATE_EXISTING, INVALID or FAILED
+        private Long guestId; // The new guest, or the guest already holding the phone number
+        private String message;
+
+        public RowResult() {}
+
+        public RowResult(int row, String status, Long guestId, String message) {
+            this.row = row;
+            this.status = status;
+            this.guestId = guestId;
+            this.message = message;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public void setRow(int row) {
+            this.row = row;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public Long getGuestId() {
+            return guestId;
+        }
+
+        public void setGuestId(Long guestId) {
+            this.guestId = guestId;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
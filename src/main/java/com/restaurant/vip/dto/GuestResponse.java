@@ -23,6 +23,7 @@ public class GuestResponse {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private String createdByName;
+    private Long version;
     
     // Constructors
     public GuestResponse() {}
@@ -164,6 +165,14 @@ public class GuestResponse {
         this.createdByName = createdByName;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     // Utility methods
     public String getFullName() {
         if (lastName != null && !lastName.trim().isEmpty()) {
@@ -15,6 +15,8 @@ public class GuestSearchRequest {
     private int size = 20;
     private String sortBy = "firstName";
     private String sortDirection = "ASC";
+    private String cursor; // Keyset mode when present; empty for the first page
+    private boolean includeTotal = false; // Count matches in keyset mode
     
     // Constructors
     public GuestSearchRequest() {}
@@ -107,4 +109,20 @@ public class GuestSearchRequest {
     public void setSortDirection(String sortDirection) {
         this.sortDirection = sortDirection;
     }
+    
+    public String getCursor() {
+        return cursor;
+    }
+    
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+    
+    public boolean isIncludeTotal() {
+        return includeTotal;
+    }
+    
+    public void setIncludeTotal(boolean includeTotal) {
+        this.includeTotal = includeTotal;
+    }
 }
\ No newline at end of file
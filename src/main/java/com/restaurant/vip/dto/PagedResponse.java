@@ -12,6 +12,7 @@ public class PagedResponse<T> {
     private boolean first;
     private boolean last;
     private boolean empty;
+    private String nextCursor; // Opaque keyset cursor; null on the last page or in page/size mode
     
     // Constructors
     public PagedResponse() {}
@@ -27,6 +28,21 @@ public class PagedResponse<T> {
         this.empty = content == null || content.isEmpty();
     }
     
+    /**
+     * Cursor (keyset) page. Totals are -1 unless the caller asked for them.
+     */
+    public PagedResponse(List<T> content, int size, boolean first, String nextCursor, long totalElements) {
+        this.content = content;
+        this.page = 0;
+        this.size = size;
+        this.totalElements = totalElements;
+        this.totalPages = totalElements < 0 ? -1 : (int) ((totalElements + size - 1) / size);
+        this.first = first;
+        this.last = nextCursor == null;
+        this.empty = content == null || content.isEmpty();
+        this.nextCursor = nextCursor;
+    }
+    
     // Getters and Setters
     public List<T> getContent() {
         return content;
@@ -94,4 +110,12 @@ public class PagedResponse<T> {
     public void setEmpty(boolean empty) {
         this.empty = empty;
     }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.restaurant.vip.dto;
+
+/**
+ * Visits and covers one staff member recorded over a date range
+ */
+public class StaffVisitVolume {
+
+    private Long staffId;
+    private String staffName;
+    private long visitCount;
+    private long coverCount;
+
+    // Constructors
+    public StaffVisitVolume() {}
+
+    public StaffVisitVolume(Long staffId, String firstName, String lastName, Long visitCount, Long coverCount) {
+        this.staffId = staffId;
+        this.staffName = firstName + " " + lastName;
+        this.visitCount = visitCount;
+        this.coverCount = coverCount;
+    }
+
+    // Getters and Setters
+    public Long getStaffId() {
+        return staffId;
+    }
+
+    public void setStaffId(Long staffId) {
+        this.staffId = staffId;
+    }
+
+    public String getStaffName() {
+        return staffName;
+    }
+
+    public void setStaffName(String staffName) {
+        this.staffName = staffName;
+    }
+
+    public long getVisitCount() {
+        return visitCount;
+    }
+
+    public void setVisitCount(long visitCount) {
+        this.visitCount = visitCount;
+    }
+
+    public long getCoverCount() {
+        return coverCount;
+    }
+
+    public void setCoverCount(long coverCount) {
+        this.coverCount = coverCount;
+    }
+}
@@ -0,0 +1,55 @@
+package com.restaurant.vip.dto;
+
+/**
+ * A guest ranked by visits over a range of months
+ */
+public class TopGuestResponse {
+
+    private Long guestId;
+    private String guestName;
+    private long visitCount;
+    private long coverCount;
+
+    // Constructors
+    public TopGuestResponse() {}
+
+    public TopGuestResponse(Long guestId, String firstName, String lastName, Long visitCount, Long coverCount) {
+        this.guestId = guestId;
+        this.guestName = firstName + (lastName != null ? " " + lastName : "");
+        this.visitCount = visitCount;
+        this.coverCount = coverCount;
+    }
+
+    // Getters and Setters
+    public Long getGuestId() {
+        return guestId;
+    }
+
+    public void setGuestId(Long guestId) {
+        this.guestId = guestId;
+    }
+
+    public String getGuestName() {
+        return guestName;
+    }
+
+    public void setGuestName(String guestName) {
+        this.guestName = guestName;
+    }
+
+    public long getVisitCount() {
+        return visitCount;
+    }
+
+    public void setVisitCount(long visitCount) {
+        this.visitCount = visitCount;
+    }
+
+    public long getCoverCount() {
+        return coverCount;
+    }
+
+    public void setCoverCount(long coverCount) {
+        this.coverCount = coverCount;
+    }
+}
@@ -0,0 +1,36 @@
+package com.restaurant.vip.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Visits logged together, typically a server's tables at the end of a shift. The visits are validated
+ * one by one, so an invalid visit is reported back without rejecting the others.
+ */
+public class VisitBatchCreateRequest {
+    
+    public static final int MAX_VISITS = 500;
+    
+    @NotEmpty(message = "At least one visit is required")
+    @Size(max = MAX_VISITS, message = "At most " + MAX_VISITS + " visits can be logged at once")
+    private List<@NotNull(message = "Visits must not be null") VisitCreateRequest> visits;
+    
+    // Constructors
+    public VisitBatchCreateRequest() {}
+    
+    public VisitBatchCreateRequest(List<VisitCreateRequest> visits) {
+        this.visits = visits;
+    }
+    
+    // Getters and Setters
+    public List<VisitCreateRequest> getVisits() {
+        return visits;
+    }
+    
+    public void setVisits(List<VisitCreateRequest> visits) {
+        this.visits = visits;
+    }
+}
@@ -0,0 +1,96 @@
+package com.restaurant.vip.dto;
+
+import java.util.List;
+
+public class VisitBatchCreateResponse {
+    
+    private int createdCount;
+    private int rejectedCount; // Invalid or for a guest that does not exist
+    private List<ItemResult> items;
+    
+    // Constructors
+    public VisitBatchCreateResponse() {}
+    
+    public VisitBatchCreateResponse(int createdCount, int rejectedCount, List<ItemResult> items) {
+        this.createdCount = createdCount;
+        this.rejectedCount = rejectedCount;
+        this.items = items;
+    }
+    
+    // Getters and Setters
+    public int getCreatedCount() {
+        return createdCount;
+    }
+    
+    public void setCreatedCount(int createdCount) {
+        this.createdCount = createdCount;
+    }
+    
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+    
+    public void setRejectedCount(int rejectedCount) {
+        this.rejectedCount = rejectedCount;
+    }
+    
+    public List<ItemResult> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<ItemResult> items) {
+        this.items = items;
+    }
+    
+    /**
+     * Outcome of one visit of the request, by its position in the request's visits (from 0)
+     */
+    public static class ItemResult {
+        
+        private int index;
+        private String status; // CREATED, INVALID or GUEST_NOT_FOUND
+        private Long visitId;
+        private String message;
+        
+        public ItemResult() {}
+        
+        public ItemResult(int index, String status, Long visitId, String message) {
+            this.index = index;
+            this.status = status;
+            this.visitId = visitId;
+            this.message = message;
+        }
+        
+        public int getIndex() {
+            return index;
+        }
+        
+        public void setIndex(int index) {
+            this.index = index;
+        }
+        
+        public String getStatus() {
+            return status;
+        }
+        
+        public void setStatus(String status) {
+            this.status = status;
+        }
+        
+        public Long getVisitId() {
+            return visitId;
+        }
+        
+        public void setVisitId(Long visitId) {
+            this.visitId = visitId;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.restaurant.vip.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Visits by weekday and hour over a date range; only hours that had visits have a cell
+ */
+public class VisitHeatmapResponse {
+
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private List<Cell> cells;
+
+    // Constructors
+    public VisitHeatmapResponse() {}
+
+    public VisitHeatmapResponse(LocalDate startDate, LocalDate endDate, List<Cell> cells) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.cells = cells;
+    }
+
+    // Getters and Setters
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public List<Cell> getCells() {
+        return cells;
+    }
+
+    public void setCells(List<Cell> cells) {
+        this.cells = cells;
+    }
+
+    /**
+     * Visits and covers of one hour of one weekday, summed over the range
+     */
+    public static class Cell {
+
+        private DayOfWeek dayOfWeek;
+        private int hour;
+        private long visitCount;
+        private long coverCount;
+
+        public Cell() {}
+
+        public Cell(DayOfWeek dayOfWeek, int hour, long visitCount, long coverCount) {
+            this.dayOfWeek = dayOfWeek;
+            this.hour = hour;
+            this.visitCount = visitCount;
+            this.coverCount = coverCount;
+        }
+
+        public DayOfWeek getDayOfWeek() {
+            return dayOfWeek;
+        }
+
+        public void setDayOfWeek(DayOfWeek dayOfWeek) {
+            this.dayOfWeek = dayOfWeek;
+        }
+
+        public int getHour() {
+            return hour;
+        }
+
+        public void setHour(int hour) {
+            this.hour = hour;
+        }
+
+        public long getVisitCount() {
+            return visitCount;
+        }
+
+        public void setVisitCount(long visitCount) {
+            this.visitCount = visitCount;
+        }
+
+        public long getCoverCount() {
+            return coverCount;
+        }
+
+        public void setCoverCount(long coverCount) {
+            this.coverCount = coverCount;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.restaurant.vip.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A visit whose service notes match a full-text search, with its relevance and a snippet of the notes
+ * in which the matched words are wrapped in &lt;mark&gt; tags
+ */
+public class VisitNoteSearchResult {
+
+    private Long visitId;
+    private Long guestId;
+    private String guestName;
+    private LocalDate visitDate;
+    private LocalTime visitTime;
+    private double rank;
+    private String snippet;
+
+    // Constructors
+    public VisitNoteSearchResult() {}
+
+    public VisitNoteSearchResult(Long visitId, Long guestId, String guestName, LocalDate visitDate,
+                                 LocalTime visitTime, double rank, String snippet) {
+        this.visitId = visitId;
+        this.guestId = guestId;
+        this.guestName = guestName;
+        this.visitDate = visitDate;
+        this.visitTime = visitTime;
+        this.rank = rank;
+        this.snippet = snippet;
+    }
+
+    // Getters and Setters
+    public Long getVisitId() {
+        return visitId;
+    }
+
+    public void setVisitId(Long visitId) {
+        this.visitId = visitId;
+    }
+
+    public Long getGuestId() {
+        return guestId;
+    }
+
+    public void setGuestId(Long guestId) {
+        this.guestId = guestId;
+    }
+
+    public String getGuestName() {
+        return guestName;
+    }
+
+    public void setGuestName(String guestName) {
+        this.guestName = guestName;
+    }
+
+    public LocalDate getVisitDate() {
+        return visitDate;
+    }
+
+    public void setVisitDate(LocalDate visitDate) {
+        this.visitDate = visitDate;
+    }
+
+    public LocalTime getVisitTime() {
+        return visitTime;
+    }
+
+    public void setVisitTime(LocalTime visitTime) {
+        this.visitTime = visitTime;
+    }
+
+    public double getRank() {
+        return rank;
+    }
+
+    public void setRank(double rank) {
+        this.rank = rank;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+}
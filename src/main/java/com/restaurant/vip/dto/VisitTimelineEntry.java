@@ -0,0 +1,99 @@
+package com.restaurant.vip.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One visit on a guest's timeline, selected column by column so no Visit or Staff entity is loaded
+ */
+public class VisitTimelineEntry {
+
+    private Long id;
+    private LocalDate visitDate;
+    private LocalTime visitTime;
+    private Integer partySize;
+    private String tableNumber;
+    private String staffName;
+    private String serviceNotes;
+    private boolean hasNotes;
+
+    // Constructors
+    public VisitTimelineEntry() {}
+
+    public VisitTimelineEntry(Long id, LocalDate visitDate, LocalTime visitTime, Integer partySize,
+                              String tableNumber, String staffFirstName, String staffLastName, String serviceNotes) {
+        this.id = id;
+        this.visitDate = visitDate;
+        this.visitTime = visitTime;
+        this.partySize = partySize;
+        this.tableNumber = tableNumber;
+        this.staffName = staffFirstName + " " + staffLastName;
+        this.serviceNotes = serviceNotes;
+        this.hasNotes = serviceNotes != null && !serviceNotes.trim().isEmpty();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getVisitDate() {
+        return visitDate;
+    }
+
+    public void setVisitDate(LocalDate visitDate) {
+        this.visitDate = visitDate;
+    }
+
+    public LocalTime getVisitTime() {
+        return visitTime;
+    }
+
+    public void setVisitTime(LocalTime visitTime) {
+        this.visitTime = visitTime;
+    }
+
+    public Integer getPartySize() {
+        return partySize;
+    }
+
+    public void setPartySize(Integer partySize) {
+        this.partySize = partySize;
+    }
+
+    public String getTableNumber() {
+        return tableNumber;
+    }
+
+    public void setTableNumber(String tableNumber) {
+        this.tableNumber = tableNumber;
+    }
+
+    public String getStaffName() {
+        return staffName;
+    }
+
+    public void setStaffName(String staffName) {
+        this.staffName = staffName;
+    }
+
+    public String getServiceNotes() {
+        return serviceNotes;
+    }
+
+    public void setServiceNotes(String serviceNotes) {
+        this.serviceNotes = serviceNotes;
+    }
+
+    public boolean isHasNotes() {
+        return hasNotes;
+    }
+
+    public void setHasNotes(boolean hasNotes) {
+        this.hasNotes = hasNotes;
+    }
+}
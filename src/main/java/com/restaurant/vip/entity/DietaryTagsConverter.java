@@ -0,0 +1,12 @@
+package com.restaurant.vip.entity;
+
+import com.restaurant.vip.repository.PreferenceTagDictionary;
+import jakarta.persistence.Converter;
+
+@Converter
+public class DietaryTagsConverter extends PreferenceTagsConverter {
+
+    public DietaryTagsConverter(PreferenceTagDictionary dictionary) {
+        super(dictionary, PreferenceTagCategory.DIETARY);
+    }
+}
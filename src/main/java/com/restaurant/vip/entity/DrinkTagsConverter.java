@@ -0,0 +1,12 @@
+package com.restaurant.vip.entity;
+
+import com.restaurant.vip.repository.PreferenceTagDictionary;
+import jakarta.persistence.Converter;
+
+@Converter
+public class DrinkTagsConverter extends PreferenceTagsConverter {
+
+    public DrinkTagsConverter(PreferenceTagDictionary dictionary) {
+        super(dictionary, PreferenceTagCategory.DRINK);
+    }
+}
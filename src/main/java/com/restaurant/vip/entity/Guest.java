@@ -1,25 +1,33 @@
 package com.restaurant.vip.entity;
 
+import com.restaurant.vip.util.GuestMatchKeys;
+import com.restaurant.vip.util.MonthDayWindow;
+import com.restaurant.vip.util.PhoneNumbers;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.annotations.Where;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 
 @Entity
 @Table(name = "guests")
 @Where(clause = "deleted_at IS NULL") // Soft delete filter
+@DynamicUpdate // UPDATE only the changed columns, so a notes edit does not rewrite the tag arrays
 public class Guest {
     
+    // Pooled sequence ids (V10): IDENTITY would force one INSERT per round trip and rule out JDBC batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "guests_id_seq")
+    @SequenceGenerator(name = "guests_id_seq", sequenceName = "guests_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "first_name", nullable = false, length = 100)
@@ -31,7 +39,7 @@ public class Guest {
     @Size(max = 100, message = "Last name must not exceed 100 characters")
     private String lastName;
     
-    @Column(unique = true, nullable = false, length = 20)
+    @Column(nullable = false, length = 20)
     @NotBlank(message = "Phone number is required")
     @Pattern(regexp = "^\\+?[1-9]\\d{1,14}$", message = "Phone number must be valid")
     private String phone;
@@ -47,14 +55,13 @@ public class Guest {
     @Size(max = 100, message = "Seating preference must not exceed 100 characters")
     private String seatingPreference;
     
-    @ElementCollection
-    @CollectionTable(name = "guest_dietary_restrictions", joinColumns = @JoinColumn(name = "guest_id"))
-    @Column(name = "restriction")
+    // Stored as preference tag ids (see PreferenceTagDictionary) so the guest row loads in one select
+    @Convert(converter = DietaryTagsConverter.class)
+    @Column(name = "dietary_tag_ids", nullable = false, columnDefinition = "INTEGER ARRAY")
     private List<String> dietaryRestrictions;
     
-    @ElementCollection
-    @CollectionTable(name = "guest_favorite_drinks", joinColumns = @JoinColumn(name = "guest_id"))
-    @Column(name = "drink")
+    @Convert(converter = DrinkTagsConverter.class)
+    @Column(name = "drink_tag_ids", nullable = false, columnDefinition = "INTEGER ARRAY")
     private List<String> favoriteDrinks;
     
     @Column
@@ -68,6 +75,38 @@ public class Guest {
     
     @Column(name = "deleted_at")
     private LocalDateTime deletedAt;
+
+    // Trigram search keys (V4, stored since V18): lower-cased "first last" and the phone digits, refreshed on every write
+    @Column(name = "search_name")
+    private String searchName;
+
+    @Column(name = "search_phone")
+    private String searchPhone;
+
+    // Month-day (month * 100 + day) of the occasions for upcoming-occasion lookups (V6, stored since V19)
+    @Column(name = "birthday_md")
+    private Short birthdayMonthDay;
+
+    @Column(name = "anniversary_md")
+    private Short anniversaryMonthDay;
+
+    // Raw tag ids, mapped for array-overlap filters only; written through the lists above
+    @Column(name = "dietary_tag_ids", insertable = false, updatable = false, columnDefinition = "INTEGER ARRAY")
+    private Integer[] dietaryTagIds;
+
+    @Column(name = "drink_tag_ids", insertable = false, updatable = false, columnDefinition = "INTEGER ARRAY")
+    private Integer[] drinkTagIds;
+
+    // Duplicate-detection blocking keys (see GuestMatchKeys), refreshed on every write
+    @Column(name = "name_keys", columnDefinition = "VARCHAR(32) ARRAY")
+    private String[] nameKeys;
+
+    @Column(name = "phone_key", length = 20)
+    private String phoneKey;
+
+    // E.164 form of phone (see PhoneNumbers), unique among active guests
+    @Column(name = "phone_normalized", length = 20)
+    private String phoneNormalized;
     
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -77,6 +116,11 @@ public class Guest {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
     
+    // Bumped on every update, and by visit changes shown on the profile; the ETag of GET /api/guests/{id}
+    @Version
+    @Column(nullable = false)
+    private Long version = 0L;
+    
     // Relationships
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by")
@@ -216,6 +260,14 @@ public class Guest {
         this.updatedAt = updatedAt;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public Staff getCreatedBy() {
         return createdBy;
     }
@@ -232,6 +284,51 @@ public class Guest {
         this.visits = visits;
     }
     
+    public String[] getNameKeys() {
+        return nameKeys;
+    }
+    
+    public String getPhoneKey() {
+        return phoneKey;
+    }
+    
+    public String getPhoneNormalized() {
+        return phoneNormalized;
+    }
+    
+    public String getSearchName() {
+        return searchName;
+    }
+    
+    public String getSearchPhone() {
+        return searchPhone;
+    }
+    
+    public Short getBirthdayMonthDay() {
+        return birthdayMonthDay;
+    }
+    
+    public Short getAnniversaryMonthDay() {
+        return anniversaryMonthDay;
+    }
+    
+    // Lifecycle callbacks
+    @PrePersist
+    @PreUpdate
+    public void refreshDerivedColumns() {
+        this.nameKeys = GuestMatchKeys.forGuest(firstName, lastName);
+        this.phoneKey = GuestMatchKeys.phoneKey(phone);
+        this.phoneNormalized = PhoneNumbers.toE164(phone);
+        this.searchName = (firstName + " " + (lastName != null ? lastName : "")).trim().toLowerCase(Locale.ROOT);
+        this.searchPhone = PhoneNumbers.digits(phone);
+        this.birthdayMonthDay = monthDay(birthday);
+        this.anniversaryMonthDay = monthDay(anniversary);
+    }
+    
+    private static Short monthDay(LocalDate date) {
+        return date != null ? (short) MonthDayWindow.monthDay(date) : null;
+    }
+    
     // Utility methods
     public String getFullName() {
         if (lastName != null && !lastName.trim().isEmpty()) {
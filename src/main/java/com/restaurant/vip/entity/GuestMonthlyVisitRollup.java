@@ -0,0 +1,102 @@
+package com.restaurant.vip.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Visits and covers of one guest in one month (V15); visitMonth is the first day of the month.
+ * Guests are referenced by id only.
+ */
+@Entity
+@Table(name = "guest_monthly_visit_rollups")
+@IdClass(GuestMonthlyVisitRollup.Key.class)
+public class GuestMonthlyVisitRollup {
+
+    @Id
+    @Column(name = "guest_id")
+    private Long guestId;
+
+    @Id
+    @Column(name = "visit_month")
+    private LocalDate visitMonth;
+
+    @Column(name = "visit_count", nullable = false)
+    private long visitCount;
+
+    @Column(name = "cover_count", nullable = false)
+    private long coverCount;
+
+    // Constructors
+    public GuestMonthlyVisitRollup() {}
+
+    public GuestMonthlyVisitRollup(Long guestId, LocalDate visitMonth, long visitCount, long coverCount) {
+        this.guestId = guestId;
+        this.visitMonth = visitMonth;
+        this.visitCount = visitCount;
+        this.coverCount = coverCount;
+    }
+
+    // Getters and Setters
+    public Long getGuestId() {
+        return guestId;
+    }
+
+    public void setGuestId(Long guestId) {
+        this.guestId = guestId;
+    }
+
+    public LocalDate getVisitMonth() {
+        return visitMonth;
+    }
+
+    public void setVisitMonth(LocalDate visitMonth) {
+        this.visitMonth = visitMonth;
+    }
+
+    public long getVisitCount() {
+        return visitCount;
+    }
+
+    public void setVisitCount(long visitCount) {
+        this.visitCount = visitCount;
+    }
+
+    public long getCoverCount() {
+        return coverCount;
+    }
+
+    public void setCoverCount(long coverCount) {
+        this.coverCount = coverCount;
+    }
+
+    /**
+     * Primary key: (guest id, first day of the month)
+     */
+    public static class Key implements Serializable {
+
+        private Long guestId;
+        private LocalDate visitMonth;
+
+        public Key() {}
+
+        public Key(Long guestId, LocalDate visitMonth) {
+            this.guestId = guestId;
+            this.visitMonth = visitMonth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(guestId, key.guestId) && Objects.equals(visitMonth, key.visitMonth);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(guestId, visitMonth);
+        }
+    }
+}
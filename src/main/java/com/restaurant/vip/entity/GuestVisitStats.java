@@ -0,0 +1,144 @@
+package com.restaurant.vip.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Visit statistics of one guest (V12), kept in step with the visits table by GuestVisitStatsService.
+ * Visit and staff are referenced by id only, so reading the statistics never loads either.
+ */
+@Entity
+@Table(name = "guest_visit_stats")
+public class GuestVisitStats {
+
+    @Id
+    @Column(name = "guest_id")
+    private Long guestId;
+
+    @Column(name = "total_visits", nullable = false)
+    private long totalVisits;
+
+    @Column(name = "first_visit_date", nullable = false)
+    private LocalDate firstVisitDate;
+
+    @Column(name = "last_visit_date", nullable = false)
+    private LocalDate lastVisitDate;
+
+    @Column(name = "last_visit_time", nullable = false)
+    private LocalTime lastVisitTime;
+
+    @Column(name = "average_party_size")
+    private Double averagePartySize;
+
+    @Column(name = "last_visit_id", nullable = false)
+    private Long lastVisitId;
+
+    @Column(name = "last_table_number", length = 10)
+    private String lastTableNumber;
+
+    @Column(name = "last_staff_id")
+    private Long lastStaffId;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public GuestVisitStats() {}
+
+    public GuestVisitStats(Long guestId) {
+        this.guestId = guestId;
+    }
+
+    /**
+     * Date and time of the latest visit
+     */
+    public LocalDateTime getLastVisitAt() {
+        return lastVisitDate.atTime(lastVisitTime);
+    }
+
+    // Getters and Setters
+    public Long getGuestId() {
+        return guestId;
+    }
+
+    public void setGuestId(Long guestId) {
+        this.guestId = guestId;
+    }
+
+    public long getTotalVisits() {
+        return totalVisits;
+    }
+
+    public void setTotalVisits(long totalVisits) {
+        this.totalVisits = totalVisits;
+    }
+
+    public LocalDate getFirstVisitDate() {
+        return firstVisitDate;
+    }
+
+    public void setFirstVisitDate(LocalDate firstVisitDate) {
+        this.firstVisitDate = firstVisitDate;
+    }
+
+    public LocalDate getLastVisitDate() {
+        return lastVisitDate;
+    }
+
+    public void setLastVisitDate(LocalDate lastVisitDate) {
+        this.lastVisitDate = lastVisitDate;
+    }
+
+    public LocalTime getLastVisitTime() {
+        return lastVisitTime;
+    }
+
+    public void setLastVisitTime(LocalTime lastVisitTime) {
+        this.lastVisitTime = lastVisitTime;
+    }
+
+    public Double getAveragePartySize() {
+        return averagePartySize;
+    }
+
+    public void setAveragePartySize(Double averagePartySize) {
+        this.averagePartySize = averagePartySize;
+    }
+
+    public Long getLastVisitId() {
+        return lastVisitId;
+    }
+
+    public void setLastVisitId(Long lastVisitId) {
+        this.lastVisitId = lastVisitId;
+    }
+
+    public String getLastTableNumber() {
+        return lastTableNumber;
+    }
+
+    public void setLastTableNumber(String lastTableNumber) {
+        this.lastTableNumber = lastTableNumber;
+    }
+
+    public Long getLastStaffId() {
+        return lastStaffId;
+    }
+
+    public void setLastStaffId(Long lastStaffId) {
+        this.lastStaffId = lastStaffId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
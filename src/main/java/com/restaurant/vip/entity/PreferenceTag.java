@@ -0,0 +1,72 @@
+package com.restaurant.vip.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dictionary entry for a guest preference tag. Guests store tag ids, not labels
+ * (see PreferenceTagDictionary).
+ */
+@Entity
+@Table(name = "preference_tags",
+       uniqueConstraints = @UniqueConstraint(name = "uk_preference_tags_category_label", columnNames = {"category", "label"}))
+public class PreferenceTag {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PreferenceTagCategory category;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String label;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public PreferenceTag() {}
+
+    public PreferenceTag(PreferenceTagCategory category, String label) {
+        this.category = category;
+        this.label = label;
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public PreferenceTagCategory getCategory() {
+        return category;
+    }
+
+    public void setCategory(PreferenceTagCategory category) {
+        this.category = category;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
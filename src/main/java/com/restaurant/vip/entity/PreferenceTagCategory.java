@@ -0,0 +1,16 @@
+package com.restaurant.vip.entity;
+
+public enum PreferenceTagCategory {
+    DIETARY("Dietary restriction"),
+    DRINK("Favorite drink");
+
+    private final String displayName;
+
+    PreferenceTagCategory(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,30 @@
+package com.restaurant.vip.entity;
+
+import com.restaurant.vip.repository.PreferenceTagDictionary;
+import jakarta.persistence.AttributeConverter;
+
+import java.util.List;
+
+/**
+ * Stores a list of tag labels as an array of preference tag ids
+ */
+public abstract class PreferenceTagsConverter implements AttributeConverter<List<String>, Integer[]> {
+
+    private final PreferenceTagDictionary dictionary;
+    private final PreferenceTagCategory category;
+
+    protected PreferenceTagsConverter(PreferenceTagDictionary dictionary, PreferenceTagCategory category) {
+        this.dictionary = dictionary;
+        this.category = category;
+    }
+
+    @Override
+    public Integer[] convertToDatabaseColumn(List<String> labels) {
+        return dictionary.encode(category, labels);
+    }
+
+    @Override
+    public List<String> convertToEntityAttribute(Integer[] ids) {
+        return dictionary.decode(category, ids);
+    }
+}
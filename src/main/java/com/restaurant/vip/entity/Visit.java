@@ -16,7 +16,8 @@ import java.time.LocalTime;
 public class Visit {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "visits_id_seq")
+    @SequenceGenerator(name = "visits_id_seq", sequenceName = "visits_id_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "visit_date", nullable = false)
@@ -0,0 +1,57 @@
+package com.restaurant.vip.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Visits and covers (sum of party sizes) of one day (V15), adjusted by VisitRollupService on every visit write
+ */
+@Entity
+@Table(name = "visit_daily_rollups")
+public class VisitDailyRollup {
+
+    @Id
+    @Column(name = "visit_date")
+    private LocalDate visitDate;
+
+    @Column(name = "visit_count", nullable = false)
+    private long visitCount;
+
+    @Column(name = "cover_count", nullable = false)
+    private long coverCount;
+
+    // Constructors
+    public VisitDailyRollup() {}
+
+    public VisitDailyRollup(LocalDate visitDate, long visitCount, long coverCount) {
+        this.visitDate = visitDate;
+        this.visitCount = visitCount;
+        this.coverCount = coverCount;
+    }
+
+    // Getters and Setters
+    public LocalDate getVisitDate() {
+        return visitDate;
+    }
+
+    public void setVisitDate(LocalDate visitDate) {
+        this.visitDate = visitDate;
+    }
+
+    public long getVisitCount() {
+        return visitCount;
+    }
+
+    public void setVisitCount(long visitCount) {
+        this.visitCount = visitCount;
+    }
+
+    public long getCoverCount() {
+        return coverCount;
+    }
+
+    public void setCoverCount(long coverCount) {
+        this.coverCount = coverCount;
+    }
+}
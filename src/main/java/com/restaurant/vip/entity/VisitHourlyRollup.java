@@ -0,0 +1,101 @@
+package com.restaurant.vip.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Visits and covers of one hour of one day (V15), by the hour of the visit time
+ */
+@Entity
+@Table(name = "visit_hourly_rollups")
+@IdClass(VisitHourlyRollup.Key.class)
+public class VisitHourlyRollup {
+
+    @Id
+    @Column(name = "visit_date")
+    private LocalDate visitDate;
+
+    @Id
+    @Column(name = "visit_hour")
+    private Integer visitHour;
+
+    @Column(name = "visit_count", nullable = false)
+    private long visitCount;
+
+    @Column(name = "cover_count", nullable = false)
+    private long coverCount;
+
+    // Constructors
+    public VisitHourlyRollup() {}
+
+    public VisitHourlyRollup(LocalDate visitDate, Integer visitHour, long visitCount, long coverCount) {
+        this.visitDate = visitDate;
+        this.visitHour = visitHour;
+        this.visitCount = visitCount;
+        this.coverCount = coverCount;
+    }
+
+    // Getters and Setters
+    public LocalDate getVisitDate() {
+        return visitDate;
+    }
+
+    public void setVisitDate(LocalDate visitDate) {
+        this.visitDate = visitDate;
+    }
+
+    public Integer getVisitHour() {
+        return visitHour;
+    }
+
+    public void setVisitHour(Integer visitHour) {
+        this.visitHour = visitHour;
+    }
+
+    public long getVisitCount() {
+        return visitCount;
+    }
+
+    public void setVisitCount(long visitCount) {
+        this.visitCount = visitCount;
+    }
+
+    public long getCoverCount() {
+        return coverCount;
+    }
+
+    public void setCoverCount(long coverCount) {
+        this.coverCount = coverCount;
+    }
+
+    /**
+     * Primary key: (visit date, hour of day)
+     */
+    public static class Key implements Serializable {
+
+        private LocalDate visitDate;
+        private Integer visitHour;
+
+        public Key() {}
+
+        public Key(LocalDate visitDate, Integer visitHour) {
+            this.visitDate = visitDate;
+            this.visitHour = visitHour;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(visitDate, key.visitDate) && Objects.equals(visitHour, key.visitHour);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(visitDate, visitHour);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.restaurant.vip.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Visits and covers one staff member recorded on one day (V15). Staff are referenced by id only.
+ */
+@Entity
+@Table(name = "visit_staff_daily_rollups")
+@IdClass(VisitStaffDailyRollup.Key.class)
+public class VisitStaffDailyRollup {
+
+    @Id
+    @Column(name = "staff_id")
+    private Long staffId;
+
+    @Id
+    @Column(name = "visit_date")
+    private LocalDate visitDate;
+
+    @Column(name = "visit_count", nullable = false)
+    private long visitCount;
+
+    @Column(name = "cover_count", nullable = false)
+    private long coverCount;
+
+    // Constructors
+    public VisitStaffDailyRollup() {}
+
+    public VisitStaffDailyRollup(Long staffId, LocalDate visitDate, long visitCount, long coverCount) {
+        this.staffId = staffId;
+        this.visitDate = visitDate;
+        this.visitCount = visitCount;
+        this.coverCount = coverCount;
+    }
+
+    // Getters and Setters
+    public Long getStaffId() {
+        return staffId;
+    }
+
+    public void setStaffId(Long staffId) {
+        this.staffId = staffId;
+    }
+
+    public LocalDate getVisitDate() {
+        return visitDate;
+    }
+
+    public void setVisitDate(LocalDate visitDate) {
+        this.visitDate = visitDate;
+    }
+
+    public long getVisitCount() {
+        return visitCount;
+    }
+
+    public void setVisitCount(long visitCount) {
+        this.visitCount = visitCount;
+    }
+
+    public long getCoverCount() {
+        return coverCount;
+    }
+
+    public void setCoverCount(long coverCount) {
+        this.coverCount = coverCount;
+    }
+
+    /**
+     * Primary key: (staff id, visit date)
+     */
+    public static class Key implements Serializable {
+
+        private Long staffId;
+        private LocalDate visitDate;
+
+        public Key() {}
+
+        public Key(Long staffId, LocalDate visitDate) {
+            this.staffId = staffId;
+            this.visitDate = visitDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(staffId, key.staffId) && Objects.equals(visitDate, key.visitDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(staffId, visitDate);
+        }
+    }
+}
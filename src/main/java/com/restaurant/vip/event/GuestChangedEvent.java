@@ -0,0 +1,73 @@
+package com.restaurant.vip.event;
+
+import com.restaurant.vip.entity.Guest;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Published by GuestService when guest profiles are created, changed or removed.
+ * In-memory search structures listen for it after the transaction commits.
+ *
+ * Upserted guests that existed before the change carry the E.164 phone number they had then, so
+ * listeners can tell a changed number from an unchanged one; guests without one were created.
+ */
+public class GuestChangedEvent {
+
+    private final List<Guest> upserted;
+    private final Map<Long, String> previousPhones;
+    private final List<Long> removedIds;
+
+    /**
+     * Guests created by the change, and guests removed
+     */
+    public GuestChangedEvent(List<Guest> upserted, List<Long> removedIds) {
+        this(upserted, Map.of(), removedIds);
+    }
+
+    /**
+     * Upserted guests, with the previous phone number of those that existed before, by guest id
+     */
+    public GuestChangedEvent(List<Guest> upserted, Map<Long, String> previousPhones, List<Long> removedIds) {
+        this.upserted = List.copyOf(upserted);
+        // Copied into a HashMap since a guest may have had no phone number
+        this.previousPhones = Collections.unmodifiableMap(new HashMap<>(previousPhones));
+        this.removedIds = List.copyOf(removedIds);
+    }
+
+    public static GuestChangedEvent created(Guest guest) {
+        return new GuestChangedEvent(List.of(guest), List.of());
+    }
+
+    public static GuestChangedEvent updated(Guest guest, String previousPhone) {
+        return new GuestChangedEvent(List.of(guest), Collections.singletonMap(guest.getId(), previousPhone), List.of());
+    }
+
+    public static GuestChangedEvent removed(Long guestId) {
+        return new GuestChangedEvent(List.of(), List.of(guestId));
+    }
+
+    public List<Guest> getUpserted() {
+        return upserted;
+    }
+
+    /**
+     * Whether the guest existed before this change, rather than being created by it
+     */
+    public boolean existedBefore(Guest guest) {
+        return previousPhones.containsKey(guest.getId());
+    }
+
+    /**
+     * E.164 phone number the guest had before this change; null when it had none or was created
+     */
+    public String getPreviousPhone(Guest guest) {
+        return previousPhones.get(guest.getId());
+    }
+
+    public List<Long> getRemovedIds() {
+        return removedIds;
+    }
+}
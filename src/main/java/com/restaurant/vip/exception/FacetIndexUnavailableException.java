@@ -0,0 +1,8 @@
+package com.restaurant.vip.exception;
+
+public class FacetIndexUnavailableException extends RuntimeException {
+    
+    public FacetIndexUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.restaurant.vip.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.restaurant.vip.exception;
+
+public class InvalidMergeException extends RuntimeException {
+    
+    public InvalidMergeException(String message) {
+        super(message);
+    }
+}
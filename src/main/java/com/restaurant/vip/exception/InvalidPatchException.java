@@ -0,0 +1,8 @@
+package com.restaurant.vip.exception;
+
+public class InvalidPatchException extends RuntimeException {
+    
+    public InvalidPatchException(String message) {
+        super(message);
+    }
+}
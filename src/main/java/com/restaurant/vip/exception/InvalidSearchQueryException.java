@@ -0,0 +1,8 @@
+package com.restaurant.vip.exception;
+
+public class InvalidSearchQueryException extends RuntimeException {
+    
+    public InvalidSearchQueryException(String message) {
+        super(message);
+    }
+}
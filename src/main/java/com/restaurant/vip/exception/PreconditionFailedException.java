@@ -0,0 +1,8 @@
+package com.restaurant.vip.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -1,9 +1,11 @@
 package com.restaurant.vip.repository;
 
 import com.restaurant.vip.entity.Guest;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,11 +13,12 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface GuestRepository extends JpaRepository<Guest, Long> {
+public interface GuestRepository extends JpaRepository<Guest, Long>, GuestRepositoryCustom {
     
     /**
      * Find guest by phone number (active guests only)
@@ -28,6 +31,52 @@ public interface GuestRepository extends JpaRepository<Guest, Long> {
     @Query("SELECT g FROM Guest g WHERE g.phone = :phone")
     Optional<Guest> findByPhoneIncludingDeleted(@Param("phone") String phone);
     
+    /**
+     * Find active guest by E.164 phone number (a probe of the unique phone_normalized index)
+     */
+    Optional<Guest> findByPhoneNormalized(String phoneNormalized);
+    
+    /**
+     * Id of the active guest holding an E.164 phone number
+     */
+    @Query("SELECT g.id FROM Guest g WHERE g.phoneNormalized = :phoneNormalized")
+    Optional<Long> findIdByPhoneNormalized(@Param("phoneNormalized") String phoneNormalized);
+    
+    /**
+     * (E.164 phone, id) of the active guests holding any of the given numbers
+     */
+    @Query("SELECT g.phoneNormalized, g.id FROM Guest g WHERE g.phoneNormalized IN :phones")
+    List<Object[]> findIdsByPhoneNormalizedIn(@Param("phones") Collection<String> phones);
+    
+    /**
+     * Version of an active guest, for answering conditional requests without loading the profile
+     */
+    @Query("SELECT g.version FROM Guest g WHERE g.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+    
+    /**
+     * Bump the version of a guest whose profile changes outside the guests row (its visits),
+     * so copies cached under the old ETag are no longer treated as current
+     */
+    @Modifying
+    @Query("UPDATE Guest g SET g.version = g.version + 1 WHERE g.id = :id")
+    int incrementVersion(@Param("id") Long id);
+    
+    /**
+     * Active guests whose ids are in the array. One array parameter whatever the batch size,
+     * so every batch shares a single prepared statement; order is not guaranteed.
+     */
+    @Query(value = "SELECT * FROM guests WHERE id = ANY(:ids) AND deleted_at IS NULL", nativeQuery = true)
+    List<Guest> findAllByIdIn(@Param("ids") Long[] ids);
+    
+    /**
+     * Active guests by id, row-locked in id order so concurrent callers locking the same guests cannot deadlock.
+     * Their versions are bumped as well.
+     */
+    @Lock(LockModeType.PESSIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT g FROM Guest g WHERE g.id IN :ids ORDER BY g.id")
+    List<Guest> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+    
     /**
      * Check if phone number exists (for duplicate validation)
      */
@@ -42,46 +91,95 @@ public interface GuestRepository extends JpaRepository<Guest, Long> {
     /**
      * Search guests by name with pagination
      */
-    @Query("SELECT g FROM Guest g WHERE " +
-           "LOWER(CONCAT(g.firstName, ' ', COALESCE(g.lastName, ''))) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(g.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(COALESCE(g.lastName, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+    @Query("SELECT g FROM Guest g WHERE g.searchName LIKE CONCAT('%', LOWER(:searchTerm), '%')")
     Page<Guest> searchByName(@Param("searchTerm") String searchTerm, Pageable pageable);
     
     /**
-     * Search guests by phone number with pagination
+     * Search guests by phone digits with pagination. Expects the digits of the term
+     * (PhoneNumbers.digits); an empty string matches every guest.
      */
-    @Query("SELECT g FROM Guest g WHERE g.phone LIKE CONCAT('%', :phone, '%')")
-    Page<Guest> searchByPhone(@Param("phone") String phone, Pageable pageable);
+    @Query("SELECT g FROM Guest g WHERE g.searchPhone LIKE CONCAT('%', :digits, '%')")
+    Page<Guest> searchByPhone(@Param("digits") String digits, Pageable pageable);
     
     /**
-     * Search guests by name or phone with pagination
+     * Search guests by name or phone with pagination. The phone is matched on the digits of the
+     * term, and not at all when it has none.
      */
     @Query("SELECT g FROM Guest g WHERE " +
-           "LOWER(CONCAT(g.firstName, ' ', COALESCE(g.lastName, ''))) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(g.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(COALESCE(g.lastName, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR g.phone LIKE CONCAT('%', :searchTerm, '%')")
-    Page<Guest> searchByNameOrPhone(@Param("searchTerm") String searchTerm, Pageable pageable);
+           "g.searchName LIKE CONCAT('%', LOWER(:searchTerm), '%') " +
+           "OR (:digits <> '' AND g.searchPhone LIKE CONCAT('%', :digits, '%'))")
+    Page<Guest> searchByNameOrPhone(@Param("searchTerm") String searchTerm, @Param("digits") String digits,
+                                    Pageable pageable);
     
     /**
-     * Find guests with specific dietary restriction
+     * Ranked trigram search over the normalized name and phone digits (terms of 3+ characters).
+     * Expects a lower-cased, whitespace-collapsed term and its digits (empty when it has none).
      */
-    @Query("SELECT g FROM Guest g WHERE :restriction = ANY(g.dietaryRestrictions)")
-    List<Guest> findByDietaryRestriction(@Param("restriction") String restriction);
+    @Query(value = "SELECT g.* FROM guests g WHERE g.deleted_at IS NULL AND (" +
+                   "g.search_name LIKE '%' || :term || '%' " +
+                   "OR :term <% g.search_name " +
+                   "OR (:digits <> '' AND g.search_phone LIKE '%' || :digits || '%')) " +
+                   "ORDER BY GREATEST(" +
+                   "CASE WHEN g.search_name LIKE (:term || '%') THEN 1.0 ELSE 0.0 END, " +
+                   "word_similarity(:term, g.search_name), " +
+                   "CASE WHEN :digits <> '' AND g.search_phone LIKE '%' || :digits || '%' THEN 1.0 ELSE 0.0 END) DESC, " +
+                   "g.search_name, g.id",
+           countQuery = "SELECT COUNT(*) FROM guests g WHERE g.deleted_at IS NULL AND (" +
+                        "g.search_name LIKE '%' || :term || '%' " +
+                        "OR :term <% g.search_name " +
+                        "OR (:digits <> '' AND g.search_phone LIKE '%' || :digits || '%'))",
+           nativeQuery = true)
+    Page<Guest> trigramSearch(@Param("term") String term, @Param("digits") String digits, Pageable pageable);
     
     /**
-     * Find guests with any of the specified dietary restrictions
+     * Prefix search for terms too short to produce trigrams. The term may start any word of the
+     * name, so a last name is found as well; matches at the start of the name rank first.
      */
-    @Query("SELECT DISTINCT g FROM Guest g WHERE EXISTS " +
-           "(SELECT 1 FROM unnest(g.dietaryRestrictions) AS restriction WHERE restriction IN :restrictions)")
-    List<Guest> findByDietaryRestrictionsIn(@Param("restrictions") List<String> restrictions);
+    @Query(value = "SELECT g.* FROM guests g WHERE g.deleted_at IS NULL AND (" +
+                   "g.search_name LIKE (:term || '%') " +
+                   "OR g.search_name LIKE ('% ' || :term || '%') " +
+                   "OR (:digits <> '' AND g.search_phone LIKE (:digits || '%'))) " +
+                   "ORDER BY CASE WHEN g.search_name LIKE (:term || '%') THEN 0 ELSE 1 END, g.search_name, g.id",
+           countQuery = "SELECT COUNT(*) FROM guests g WHERE g.deleted_at IS NULL AND (" +
+                        "g.search_name LIKE (:term || '%') " +
+                        "OR g.search_name LIKE ('% ' || :term || '%') " +
+                        "OR (:digits <> '' AND g.search_phone LIKE (:digits || '%')))",
+           nativeQuery = true)
+    Page<Guest> prefixSearch(@Param("term") String term, @Param("digits") String digits, Pageable pageable);
     
     /**
-     * Find guests with specific favorite drink
+     * Search keys (id, first name, last name) of active guests after the given id, in id order.
+     * Used to rebuild the in-memory type-ahead index in batches.
      */
-    @Query("SELECT g FROM Guest g WHERE :drink = ANY(g.favoriteDrinks)")
-    List<Guest> findByFavoriteDrink(@Param("drink") String drink);
+    @Query("SELECT g.id, g.firstName, g.lastName FROM Guest g WHERE g.id > :afterId ORDER BY g.id")
+    List<Object[]> findSearchKeysAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Facet keys (id, seating preference, dietary restrictions, favorite drinks) of active guests
+     * after the given id, in id order. Used to rebuild the in-memory facet index in batches.
+     */
+    @Query("SELECT g.id, g.seatingPreference, g.dietaryRestrictions, g.favoriteDrinks FROM Guest g " +
+           "WHERE g.id > :afterId ORDER BY g.id")
+    List<Object[]> findFacetKeysAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * E.164 phone numbers of active guests after the given id, in id order, as (id, phone) rows.
+     * Used to rebuild the in-memory phone filter in batches.
+     */
+    @Query("SELECT g.id, g.phoneNormalized FROM Guest g WHERE g.id > :afterId ORDER BY g.id")
+    List<Object[]> findPhoneKeysAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Page through an explicit set of guests, e.g. ids matched by the facet index
+     */
+    Page<Guest> findByIdIn(Collection<Long> ids, Pageable pageable);
+    
+    /**
+     * Duplicate candidates: active guests sharing a phonetic name key or the phone key (see GuestMatchKeys).
+     * Both lookups are index probes, so the cost does not grow with the number of guests.
+     */
+    @Query("SELECT g FROM Guest g WHERE tags_overlap(g.nameKeys, :nameKeys) = true OR g.phoneKey = :phoneKey ORDER BY g.id")
+    List<Guest> findDuplicateCandidates(@Param("nameKeys") String[] nameKeys, @Param("phoneKey") String phoneKey, Pageable pageable);
     
     /**
      * Find guests with specific seating preference
@@ -118,19 +216,6 @@ public interface GuestRepository extends JpaRepository<Guest, Long> {
            "OR (EXTRACT(MONTH FROM g.anniversary) > EXTRACT(MONTH FROM :startDate) AND EXTRACT(MONTH FROM g.anniversary) < EXTRACT(MONTH FROM :endDate))")
     List<Guest> findGuestsWithAnniversaryInRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
     
-    /**
-     * Find guests with upcoming special occasions (next 30 days)
-     */
-    @Query("SELECT g FROM Guest g WHERE " +
-           "g.birthday IS NOT NULL AND " +
-           "((EXTRACT(MONTH FROM g.birthday) = EXTRACT(MONTH FROM CURRENT_DATE) AND EXTRACT(DAY FROM g.birthday) >= EXTRACT(DAY FROM CURRENT_DATE)) " +
-           "OR (EXTRACT(MONTH FROM g.birthday) = EXTRACT(MONTH FROM CURRENT_DATE + INTERVAL '30 days') AND EXTRACT(DAY FROM g.birthday) <= EXTRACT(DAY FROM CURRENT_DATE + INTERVAL '30 days'))) " +
-           "OR " +
-           "g.anniversary IS NOT NULL AND " +
-           "((EXTRACT(MONTH FROM g.anniversary) = EXTRACT(MONTH FROM CURRENT_DATE) AND EXTRACT(DAY FROM g.anniversary) >= EXTRACT(DAY FROM CURRENT_DATE)) " +
-           "OR (EXTRACT(MONTH FROM g.anniversary) = EXTRACT(MONTH FROM CURRENT_DATE + INTERVAL '30 days') AND EXTRACT(DAY FROM g.anniversary) <= EXTRACT(DAY FROM CURRENT_DATE + INTERVAL '30 days')))")
-    List<Guest> findGuestsWithUpcomingOccasions();
-    
     /**
      * Find guests who haven't visited recently (returning guests)
      */
@@ -139,31 +224,27 @@ public interface GuestRepository extends JpaRepository<Guest, Long> {
     List<Guest> findReturningGuests(@Param("cutoffDate") LocalDate cutoffDate);
     
     /**
-     * Find guests with upcoming birthdays (for notifications)
+     * Find guests with birthdays in a month-day window (for notifications)
      */
-    @Query("SELECT g FROM Guest g WHERE g.birthday IS NOT NULL AND " +
-           "((EXTRACT(MONTH FROM g.birthday) = :startMonth AND EXTRACT(DAY FROM g.birthday) >= :startDay) " +
-           "OR (EXTRACT(MONTH FROM g.birthday) = :endMonth AND EXTRACT(DAY FROM g.birthday) <= :endDay) " +
-           "OR (EXTRACT(MONTH FROM g.birthday) > :startMonth AND EXTRACT(MONTH FROM g.birthday) < :endMonth))")
+    @Query("SELECT g FROM Guest g WHERE " +
+           "g.birthdayMonthDay BETWEEN :firstFrom AND :firstTo OR g.birthdayMonthDay BETWEEN :secondFrom AND :secondTo")
     List<Guest> findGuestsWithUpcomingBirthdays(
-        @Param("startMonth") int startMonth, 
-        @Param("startDay") int startDay,
-        @Param("endMonth") int endMonth, 
-        @Param("endDay") int endDay
+        @Param("firstFrom") int firstFrom, 
+        @Param("firstTo") int firstTo,
+        @Param("secondFrom") int secondFrom, 
+        @Param("secondTo") int secondTo
     );
     
     /**
-     * Find guests with upcoming anniversaries (for notifications)
+     * Find guests with anniversaries in a month-day window (for notifications)
      */
-    @Query("SELECT g FROM Guest g WHERE g.anniversary IS NOT NULL AND " +
-           "((EXTRACT(MONTH FROM g.anniversary) = :startMonth AND EXTRACT(DAY FROM g.anniversary) >= :startDay) " +
-           "OR (EXTRACT(MONTH FROM g.anniversary) = :endMonth AND EXTRACT(DAY FROM g.anniversary) <= :endDay) " +
-           "OR (EXTRACT(MONTH FROM g.anniversary) > :startMonth AND EXTRACT(MONTH FROM g.anniversary) < :endMonth))")
+    @Query("SELECT g FROM Guest g WHERE " +
+           "g.anniversaryMonthDay BETWEEN :firstFrom AND :firstTo OR g.anniversaryMonthDay BETWEEN :secondFrom AND :secondTo")
     List<Guest> findGuestsWithUpcomingAnniversaries(
-        @Param("startMonth") int startMonth, 
-        @Param("startDay") int startDay,
-        @Param("endMonth") int endMonth, 
-        @Param("endDay") int endDay
+        @Param("firstFrom") int firstFrom, 
+        @Param("firstTo") int firstTo,
+        @Param("secondFrom") int secondFrom, 
+        @Param("secondTo") int secondTo
     );
     
     /**
@@ -198,62 +279,22 @@ public interface GuestRepository extends JpaRepository<Guest, Long> {
     long countActiveGuests();
     
     /**
-     * Advanced search with multiple filters
+     * Advanced search with multiple filters. The phone is matched on the digits of the search term
+     * (empty when it has none).
      */
     @Query("SELECT g FROM Guest g WHERE " +
            "(:searchTerm IS NULL OR " +
-           "LOWER(CONCAT(g.firstName, ' ', COALESCE(g.lastName, ''))) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(g.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(COALESCE(g.lastName, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR g.phone LIKE CONCAT('%', :searchTerm, '%')) " +
+           "g.searchName LIKE CONCAT('%', LOWER(:searchTerm), '%') " +
+           "OR (:digits <> '' AND g.searchPhone LIKE CONCAT('%', :digits, '%'))) " +
            "AND (:seatingPreference IS NULL OR g.seatingPreference = :seatingPreference) " +
            "AND (:hasBirthday IS NULL OR (:hasBirthday = true AND g.birthday IS NOT NULL) OR (:hasBirthday = false AND g.birthday IS NULL)) " +
            "AND (:hasAnniversary IS NULL OR (:hasAnniversary = true AND g.anniversary IS NOT NULL) OR (:hasAnniversary = false AND g.anniversary IS NULL))")
     Page<Guest> advancedSearch(
         @Param("searchTerm") String searchTerm,
+        @Param("digits") String digits,
         @Param("seatingPreference") String seatingPreference,
         @Param("hasBirthday") Boolean hasBirthday,
         @Param("hasAnniversary") Boolean hasAnniversary,
         Pageable pageable
     );
-    
-    /**
-     * Find guests by multiple dietary restrictions (OR condition)
-     */
-    @Query("SELECT DISTINCT g FROM Guest g WHERE " +
-           "EXISTS (SELECT 1 FROM unnest(g.dietaryRestrictions) AS restriction WHERE restriction IN :restrictions)")
-    Page<Guest> findByDietaryRestrictionsIn(@Param("restrictions") List<String> restrictions, Pageable pageable);
-    
-    /**
-     * Find guests by multiple favorite drinks (OR condition)
-     */
-    @Query("SELECT DISTINCT g FROM Guest g WHERE " +
-           "EXISTS (SELECT 1 FROM unnest(g.favoriteDrinks) AS drink WHERE drink IN :drinks)")
-    Page<Guest> findByFavoriteDrinksIn(@Param("drinks") List<String> drinks, Pageable pageable);
-    
-    /**
-     * Complex search with all possible filters
-     */
-    @Query("SELECT DISTINCT g FROM Guest g WHERE " +
-           "(:searchTerm IS NULL OR " +
-           "LOWER(CONCAT(g.firstName, ' ', COALESCE(g.lastName, ''))) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(g.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(COALESCE(g.lastName, '')) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR g.phone LIKE CONCAT('%', :searchTerm, '%')) " +
-           "AND (:seatingPreference IS NULL OR g.seatingPreference = :seatingPreference) " +
-           "AND (:hasBirthday IS NULL OR (:hasBirthday = true AND g.birthday IS NOT NULL) OR (:hasBirthday = false AND g.birthday IS NULL)) " +
-           "AND (:hasAnniversary IS NULL OR (:hasAnniversary = true AND g.anniversary IS NOT NULL) OR (:hasAnniversary = false AND g.anniversary IS NULL)) " +
-           "AND (:dietaryRestrictions IS NULL OR :dietaryRestrictions IS EMPTY OR " +
-           "EXISTS (SELECT 1 FROM unnest(g.dietaryRestrictions) AS restriction WHERE restriction IN :dietaryRestrictions)) " +
-           "AND (:favoriteDrinks IS NULL OR :favoriteDrinks IS EMPTY OR " +
-           "EXISTS (SELECT 1 FROM unnest(g.favoriteDrinks) AS drink WHERE drink IN :favoriteDrinks))")
-    Page<Guest> complexSearch(
-        @Param("searchTerm") String searchTerm,
-        @Param("seatingPreference") String seatingPreference,
-        @Param("hasBirthday") Boolean hasBirthday,
-        @Param("hasAnniversary") Boolean hasAnniversary,
-        @Param("dietaryRestrictions") List<String> dietaryRestrictions,
-        @Param("favoriteDrinks") List<String> favoriteDrinks,
-        Pageable pageable
-    );
-}
\ No newline at end of file
+}
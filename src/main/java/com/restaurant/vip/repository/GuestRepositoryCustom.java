@@ -0,0 +1,72 @@
+package com.restaurant.vip.repository;
+
+import com.restaurant.vip.dto.GuestSearchRequest;
+import com.restaurant.vip.entity.Guest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Guest queries built at runtime
+ */
+public interface GuestRepositoryCustom {
+    
+    /**
+     * Keyset page: guests matching the request filters that sort after (afterKey, afterId),
+     * ordered by (sortField, id). Pass a null afterId for the first page.
+     */
+    List<Guest> findKeysetPage(GuestSearchRequest filters, GuestSortField sortField, boolean ascending,
+                               Object afterKey, Long afterId, int limit);
+    
+    /**
+     * Guests with a birthday or anniversary in a month-day window, soonest occasion first. The window
+     * is two month-day ranges (see MonthDayWindow); the second covers days after New Year.
+     */
+    Page<Guest> findGuestsWithUpcomingOccasions(int firstFrom, int firstTo, int secondFrom, int secondTo,
+                                                Pageable pageable);
+    
+    /**
+     * Number of guests matching the request filters
+     */
+    long countMatching(GuestSearchRequest filters);
+    
+    /**
+     * Find guests with specific dietary restriction
+     */
+    List<Guest> findByDietaryRestriction(String restriction);
+    
+    /**
+     * Find guests with any of the specified dietary restrictions
+     */
+    List<Guest> findByDietaryRestrictionsIn(List<String> restrictions);
+    
+    /**
+     * Find guests by multiple dietary restrictions (OR condition)
+     */
+    Page<Guest> findByDietaryRestrictionsIn(List<String> restrictions, Pageable pageable);
+    
+    /**
+     * Find guests with specific favorite drink
+     */
+    List<Guest> findByFavoriteDrink(String drink);
+    
+    /**
+     * Find guests by multiple favorite drinks (OR condition)
+     */
+    Page<Guest> findByFavoriteDrinksIn(List<String> drinks, Pageable pageable);
+    
+    /**
+     * Complex search with all possible filters
+     */
+    Page<Guest> complexSearch(String searchTerm, String seatingPreference, Boolean hasBirthday, Boolean hasAnniversary,
+                              List<String> dietaryRestrictions, List<String> favoriteDrinks, Pageable pageable);
+    
+    /**
+     * Insert a new guest unless an active guest already holds its normalized phone number, as a
+     * single statement on PostgreSQL. Returns that guest's id, or empty when the guest was
+     * inserted; its id and timestamps are then set. The guest is not attached to the persistence context.
+     */
+    Optional<Long> insertUnlessPhoneTaken(Guest guest);
+}
@@ -0,0 +1,342 @@
+package com.restaurant.vip.repository;
+
+import com.restaurant.vip.dto.GuestSearchRequest;
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.PreferenceTagCategory;
+import com.restaurant.vip.util.PhoneNumbers;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class GuestRepositoryCustomImpl implements GuestRepositoryCustom {
+
+    private static final String INSERT_COLUMNS =
+        "id, first_name, last_name, phone, phone_normalized, email, photo_url, seating_preference, " +
+        "dietary_tag_ids, drink_tag_ids, birthday, anniversary, notes, name_keys, phone_key, " +
+        "created_by, created_at, updated_at, version, search_name, search_phone, birthday_md, anniversary_md";
+
+    private static final String INSERT =
+        "INSERT INTO guests (" + INSERT_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Returns (new id, true), or (holder id, false) when an active guest already has the number
+    private static final String INSERT_UNLESS_PHONE_TAKEN =
+        "WITH inserted AS (" + INSERT +
+        "  ON CONFLICT (phone_normalized) WHERE deleted_at IS NULL DO NOTHING RETURNING id) " +
+        "SELECT id, TRUE FROM inserted " +
+        "UNION ALL " +
+        "SELECT id, FALSE FROM guests WHERE phone_normalized = ? AND deleted_at IS NULL " +
+        "AND NOT EXISTS (SELECT 1 FROM inserted)";
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    // Added to month-days after New Year so they sort after the rest of a wrapping window
+    private static final int AFTER_NEW_YEAR = 1300;
+
+    private static final String COUNT_UPCOMING_OCCASIONS =
+        "SELECT COUNT(g) FROM Guest g WHERE " +
+        "g.birthdayMonthDay BETWEEN :firstFrom AND :firstTo OR g.birthdayMonthDay BETWEEN :secondFrom AND :secondTo " +
+        "OR g.anniversaryMonthDay BETWEEN :firstFrom AND :firstTo OR g.anniversaryMonthDay BETWEEN :secondFrom AND :secondTo";
+
+    private static final String SELECT_PHONE_HOLDER =
+        "SELECT id FROM guests WHERE phone_normalized = ? AND deleted_at IS NULL";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final PreferenceTagDictionary tagDictionary;
+
+    public GuestRepositoryCustomImpl(PreferenceTagDictionary tagDictionary) {
+        this.tagDictionary = tagDictionary;
+    }
+
+    @Override
+    public List<Guest> findKeysetPage(GuestSearchRequest filters, GuestSortField sortField, boolean ascending,
+                                      Object afterKey, Long afterId, int limit) {
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT g FROM Guest g WHERE 1 = 1");
+        appendFilters(jpql, parameters, filters);
+
+        String key = sortField.getExpression();
+        String direction = ascending ? "ASC" : "DESC";
+        if (afterId != null) {
+            // Seek past the last row of the previous page on (key, id). A row-value comparison is the
+            // start of an index range on the (key, id) index; the equivalent OR form is only a filter
+            String comparison = ascending ? ">" : "<";
+            jpql.append(" AND (").append(key).append(", g.id) ").append(comparison).append(" (:afterKey, :afterId)");
+            parameters.put("afterKey", afterKey);
+            parameters.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY ").append(key).append(" ").append(direction)
+            .append(", g.id ").append(direction);
+
+        TypedQuery<Guest> query = entityManager.createQuery(jpql.toString(), Guest.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Page<Guest> findGuestsWithUpcomingOccasions(int firstFrom, int firstTo, int secondFrom, int secondTo,
+                                                       Pageable pageable) {
+        // Each occasion and range is read in (month-day, id) order from its own index, never more rows
+        // than the page end: a guest listed by the merge is within that many rows of its own range
+        int limit = (int) pageable.getOffset() + pageable.getPageSize();
+        List<Map.Entry<Integer, Guest>> occasions = new ArrayList<>();
+        for (String monthDay : List.of("birthdayMonthDay", "anniversaryMonthDay")) {
+            addOccasions(occasions, monthDay, firstFrom, firstTo, 0, limit);
+            addOccasions(occasions, monthDay, secondFrom, secondTo, AFTER_NEW_YEAR, limit);
+        }
+        occasions.sort(Comparator.<Map.Entry<Integer, Guest>>comparingInt(Map.Entry::getKey)
+            .thenComparing(occasion -> occasion.getValue().getId()));
+
+        // A guest with both occasions in the window is listed at the sooner one
+        Map<Long, Guest> guests = new LinkedHashMap<>();
+        occasions.forEach(occasion -> guests.putIfAbsent(occasion.getValue().getId(), occasion.getValue()));
+        List<Guest> ordered = new ArrayList<>(guests.values());
+        List<Guest> content = ordered.subList(Math.min((int) pageable.getOffset(), ordered.size()),
+            Math.min(limit, ordered.size()));
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> entityManager
+            .createQuery(COUNT_UPCOMING_OCCASIONS, Long.class)
+            .setParameter("firstFrom", firstFrom)
+            .setParameter("firstTo", firstTo)
+            .setParameter("secondFrom", secondFrom)
+            .setParameter("secondTo", secondTo)
+            .getSingleResult());
+    }
+
+    private void addOccasions(List<Map.Entry<Integer, Guest>> occasions, String monthDay, int from, int to,
+                              int offset, int limit) {
+        if (from > to) {
+            return;
+        }
+        List<Guest> guests = entityManager.createQuery(
+                "SELECT g FROM Guest g WHERE g." + monthDay + " BETWEEN :from AND :to ORDER BY g." + monthDay + ", g.id",
+                Guest.class)
+            .setParameter("from", (short) from)
+            .setParameter("to", (short) to)
+            .setMaxResults(limit)
+            .getResultList();
+        for (Guest guest : guests) {
+            Short value = "birthdayMonthDay".equals(monthDay) ? guest.getBirthdayMonthDay() : guest.getAnniversaryMonthDay();
+            occasions.add(Map.entry(value + offset, guest));
+        }
+    }
+
+    @Override
+    public long countMatching(GuestSearchRequest filters) {
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(g) FROM Guest g WHERE 1 = 1");
+        appendFilters(jpql, parameters, filters);
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        parameters.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    @Override
+    public List<Guest> findByDietaryRestriction(String restriction) {
+        return findByDietaryRestrictionsIn(Collections.singletonList(restriction));
+    }
+
+    @Override
+    public List<Guest> findByDietaryRestrictionsIn(List<String> restrictions) {
+        return findByDietaryRestrictionsIn(restrictions, Pageable.unpaged()).getContent();
+    }
+
+    @Override
+    public Page<Guest> findByDietaryRestrictionsIn(List<String> restrictions, Pageable pageable) {
+        if (restrictions == null || restrictions.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        GuestSearchRequest filters = new GuestSearchRequest();
+        filters.setDietaryRestrictions(restrictions);
+        return findPage(filters, pageable);
+    }
+
+    @Override
+    public List<Guest> findByFavoriteDrink(String drink) {
+        return findByFavoriteDrinksIn(Collections.singletonList(drink), Pageable.unpaged()).getContent();
+    }
+
+    @Override
+    public Page<Guest> findByFavoriteDrinksIn(List<String> drinks, Pageable pageable) {
+        if (drinks == null || drinks.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        GuestSearchRequest filters = new GuestSearchRequest();
+        filters.setFavoriteDrinks(drinks);
+        return findPage(filters, pageable);
+    }
+
+    @Override
+    public Page<Guest> complexSearch(String searchTerm, String seatingPreference, Boolean hasBirthday, Boolean hasAnniversary,
+                                     List<String> dietaryRestrictions, List<String> favoriteDrinks, Pageable pageable) {
+        GuestSearchRequest filters = new GuestSearchRequest();
+        filters.setSearchTerm(searchTerm);
+        filters.setSeatingPreference(seatingPreference);
+        filters.setHasBirthday(hasBirthday);
+        filters.setHasAnniversary(hasAnniversary);
+        filters.setDietaryRestrictions(dietaryRestrictions);
+        filters.setFavoriteDrinks(favoriteDrinks);
+        return findPage(filters, pageable);
+    }
+
+    @Override
+    public Optional<Long> insertUnlessPhoneTaken(Guest guest) {
+        guest.refreshDerivedColumns();
+        LocalDateTime now = LocalDateTime.now();
+        guest.setCreatedAt(now);
+        guest.setUpdatedAt(now);
+        guest.setVersion(0L);
+        Integer[] dietaryTagIds = tagDictionary.encode(PreferenceTagCategory.DIETARY, guest.getDietaryRestrictions());
+        Integer[] drinkTagIds = tagDictionary.encode(PreferenceTagCategory.DRINK, guest.getFavoriteDrinks());
+
+        // Ids come from the pooled sequence generator, as for persisted guests; a conflict wastes one
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        guest.setId((Long) session.getEntityPersister(null, guest).getIdentifierGenerator().generate(session, guest));
+
+        return session.doReturningWork(connection -> {
+            if (!POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName())) {
+                return insertAfterProbe(connection, guest, dietaryTagIds, drinkTagIds);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_UNLESS_PHONE_TAKEN)) {
+                bindInsert(connection, statement, guest, dietaryTagIds, drinkTagIds);
+                statement.setString(24, guest.getPhoneNormalized());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        return resultSet.getBoolean(2) ? Optional.<Long>empty() : Optional.of(resultSet.getLong(1));
+                    }
+                }
+            }
+            // The conflicting guest was committed after this statement's snapshot was taken
+            return findPhoneHolder(connection, guest.getPhoneNormalized());
+        });
+    }
+
+    private Page<Guest> findPage(GuestSearchRequest filters, Pageable pageable) {
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT g FROM Guest g WHERE 1 = 1");
+        appendFilters(jpql, parameters, filters);
+
+        String sorted = QueryUtils.applySorting(jpql.toString(), pageable.getSort(), "g");
+        TypedQuery<Guest> query = entityManager.createQuery(sorted, Guest.class);
+        parameters.forEach(query::setParameter);
+        if (pageable.isUnpaged()) {
+            List<Guest> guests = query.getResultList();
+            return new PageImpl<>(guests, pageable, guests.size());
+        }
+        query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> countMatching(filters));
+    }
+
+    private void appendFilters(StringBuilder jpql, Map<String, Object> parameters, GuestSearchRequest filters) {
+        String searchTerm = filters.getSearchTerm();
+        if (searchTerm != null && !searchTerm.isBlank()) {
+            // search_phone holds digits only, so the phone is matched on the digits of the term
+            String digits = PhoneNumbers.digits(searchTerm);
+            if (digits.isEmpty()) {
+                jpql.append(" AND g.searchName LIKE :namePattern");
+            } else {
+                jpql.append(" AND (g.searchName LIKE :namePattern OR g.searchPhone LIKE :phonePattern)");
+                parameters.put("phonePattern", "%" + digits + "%");
+            }
+            parameters.put("namePattern", "%" + searchTerm.trim().toLowerCase() + "%");
+        }
+        if (filters.getSeatingPreference() != null) {
+            jpql.append(" AND g.seatingPreference = :seatingPreference");
+            parameters.put("seatingPreference", filters.getSeatingPreference());
+        }
+        if (filters.getHasBirthday() != null) {
+            jpql.append(filters.getHasBirthday() ? " AND g.birthday IS NOT NULL" : " AND g.birthday IS NULL");
+        }
+        if (filters.getHasAnniversary() != null) {
+            jpql.append(filters.getHasAnniversary() ? " AND g.anniversary IS NOT NULL" : " AND g.anniversary IS NULL");
+        }
+        // Tag filters match on dictionary ids; labels nobody carries resolve to no ids and match nothing
+        if (filters.getDietaryRestrictions() != null && !filters.getDietaryRestrictions().isEmpty()) {
+            jpql.append(" AND tags_overlap(g.dietaryTagIds, :dietaryTagIds) = true");
+            parameters.put("dietaryTagIds", tagDictionary.lookup(PreferenceTagCategory.DIETARY, filters.getDietaryRestrictions()));
+        }
+        if (filters.getFavoriteDrinks() != null && !filters.getFavoriteDrinks().isEmpty()) {
+            jpql.append(" AND tags_overlap(g.drinkTagIds, :drinkTagIds) = true");
+            parameters.put("drinkTagIds", tagDictionary.lookup(PreferenceTagCategory.DRINK, filters.getFavoriteDrinks()));
+        }
+    }
+
+    /**
+     * Check-then-insert for databases without ON CONFLICT (H2 in tests); not safe against concurrent creates
+     */
+    private Optional<Long> insertAfterProbe(Connection connection, Guest guest, Integer[] dietaryTagIds,
+                                            Integer[] drinkTagIds) throws SQLException {
+        Optional<Long> holderId = findPhoneHolder(connection, guest.getPhoneNormalized());
+        if (holderId.isPresent()) {
+            return holderId;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+            bindInsert(connection, statement, guest, dietaryTagIds, drinkTagIds);
+            statement.executeUpdate();
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Long> findPhoneHolder(Connection connection, String phoneNormalized) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_PHONE_HOLDER)) {
+            statement.setString(1, phoneNormalized);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? Optional.of(resultSet.getLong(1)) : Optional.empty();
+            }
+        }
+    }
+
+    private static void bindInsert(Connection connection, PreparedStatement statement, Guest guest,
+                                   Integer[] dietaryTagIds, Integer[] drinkTagIds) throws SQLException {
+        statement.setLong(1, guest.getId());
+        statement.setString(2, guest.getFirstName());
+        statement.setString(3, guest.getLastName());
+        statement.setString(4, guest.getPhone());
+        statement.setString(5, guest.getPhoneNormalized());
+        statement.setString(6, guest.getEmail());
+        statement.setString(7, guest.getPhotoUrl());
+        statement.setString(8, guest.getSeatingPreference());
+        statement.setArray(9, connection.createArrayOf("integer", dietaryTagIds));
+        statement.setArray(10, connection.createArrayOf("integer", drinkTagIds));
+        statement.setObject(11, guest.getBirthday());
+        statement.setObject(12, guest.getAnniversary());
+        statement.setString(13, guest.getNotes());
+        statement.setArray(14, connection.createArrayOf("varchar", guest.getNameKeys()));
+        statement.setString(15, guest.getPhoneKey());
+        if (guest.getCreatedBy() != null) {
+            statement.setLong(16, guest.getCreatedBy().getId());
+        } else {
+            statement.setNull(16, Types.BIGINT);
+        }
+        statement.setObject(17, guest.getCreatedAt());
+        statement.setObject(18, guest.getUpdatedAt());
+        statement.setLong(19, guest.getVersion());
+        statement.setString(20, guest.getSearchName());
+        statement.setString(21, guest.getSearchPhone());
+        statement.setObject(22, guest.getBirthdayMonthDay(), Types.SMALLINT);
+        statement.setObject(23, guest.getAnniversaryMonthDay(), Types.SMALLINT);
+    }
+}
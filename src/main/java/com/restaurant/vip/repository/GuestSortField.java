@@ -0,0 +1,64 @@
+package com.restaurant.vip.repository;
+
+import com.restaurant.vip.entity.Guest;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Sort fields supported by keyset pagination. Each is backed by a (key, id) index
+ * on active guests, see V5__Add_guest_keyset_indexes.sql.
+ */
+public enum GuestSortField {
+    
+    FIRST_NAME("firstName", "g.firstName"),
+    LAST_NAME("lastName", "COALESCE(g.lastName, '')"),
+    CREATED_AT("createdAt", "g.createdAt");
+    
+    private final String property;
+    private final String expression;
+    
+    GuestSortField(String property, String expression) {
+        this.property = property;
+        this.expression = expression;
+    }
+    
+    public String getProperty() {
+        return property;
+    }
+    
+    /**
+     * JPQL expression for the sort key, aligned with the index expression
+     */
+    public String getExpression() {
+        return expression;
+    }
+    
+    public static Optional<GuestSortField> fromProperty(String property) {
+        return Arrays.stream(values())
+                .filter(field -> field.property.equals(property))
+                .findFirst();
+    }
+    
+    /**
+     * Sort key of the guest, as stored in a cursor
+     */
+    public String keyOf(Guest guest) {
+        switch (this) {
+            case LAST_NAME:
+                return guest.getLastName() == null ? "" : guest.getLastName();
+            case CREATED_AT:
+                return guest.getCreatedAt().toString();
+            default:
+                return guest.getFirstName();
+        }
+    }
+    
+    /**
+     * Sort key from a cursor, typed for binding
+     */
+    public Object parseKey(String key) {
+        return this == CREATED_AT ? LocalDateTime.parse(key) : key;
+    }
+}
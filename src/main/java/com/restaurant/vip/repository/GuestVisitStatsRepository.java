@@ -0,0 +1,9 @@
+package com.restaurant.vip.repository;
+
+import com.restaurant.vip.entity.GuestVisitStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GuestVisitStatsRepository extends JpaRepository<GuestVisitStats, Long> {
+}
@@ -0,0 +1,245 @@
+package com.restaurant.vip.repository;
+
+import com.restaurant.vip.entity.PreferenceTagCategory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two-way mapping between preference tag labels and the ids stored on guests.
+ *
+ * The dictionary is small and append-only, so it is cached in full and reloaded when an unknown id
+ * turns up (a tag created by another instance). New labels are inserted on the caller's transaction
+ * connection, so saving a guest never holds a second pooled connection, and only enter the cache once
+ * that transaction commits: a rolled-back tag must not be handed to later guests. Plain JDBC keeps
+ * this usable from the JPA attribute converters, which Hibernate creates while the
+ * EntityManagerFactory is still being built.
+ */
+@Component
+public class PreferenceTagDictionary {
+
+    private static final String SELECT_ALL = "SELECT id, category, label FROM preference_tags";
+    private static final String SELECT_ONE = "SELECT id FROM preference_tags WHERE category = ? AND label = ?";
+    private static final String SELECT_LABEL = "SELECT label FROM preference_tags WHERE category = ? AND id = ?";
+    private static final String INSERT = "INSERT INTO preference_tags (category, label, created_at) VALUES (?, ?, CURRENT_TIMESTAMP)";
+    // A concurrent insert of the label waits for the other transaction instead of failing this one
+    private static final String INSERT_UNLESS_EXISTS = INSERT + " ON CONFLICT (category, label) DO NOTHING RETURNING id";
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private final DataSource dataSource;
+
+    private final Map<PreferenceTagCategory, Map<String, Integer>> idsByLabel = new EnumMap<>(PreferenceTagCategory.class);
+    private final Map<PreferenceTagCategory, Map<Integer, String>> labelsById = new EnumMap<>(PreferenceTagCategory.class);
+
+    private volatile boolean loaded = false;
+
+    public PreferenceTagDictionary(DataSource dataSource) {
+        this.dataSource = dataSource;
+        for (PreferenceTagCategory category : PreferenceTagCategory.values()) {
+            idsByLabel.put(category, new ConcurrentHashMap<>());
+            labelsById.put(category, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Tag ids for the labels, in order and without duplicates, creating tags that do not exist yet
+     */
+    public Integer[] encode(PreferenceTagCategory category, Collection<String> labels) {
+        Set<String> normalized = normalize(labels);
+        Integer[] ids = new Integer[normalized.size()];
+        int i = 0;
+        for (String label : normalized) {
+            Integer id = cachedId(category, label);
+            ids[i++] = id != null ? id : create(category, label);
+        }
+        return ids;
+    }
+
+    /**
+     * Ids of the labels that already exist; unknown labels are skipped since no guest can carry them
+     */
+    public Integer[] lookup(PreferenceTagCategory category, Collection<String> labels) {
+        List<Integer> ids = new ArrayList<>();
+        for (String label : normalize(labels)) {
+            Integer id = cachedId(category, label);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids.toArray(new Integer[0]);
+    }
+
+    /**
+     * Labels for the stored tag ids, in stored order
+     */
+    public List<String> decode(PreferenceTagCategory category, Integer[] ids) {
+        List<String> labels = new ArrayList<>(ids == null ? 0 : ids.length);
+        if (ids == null) {
+            return labels;
+        }
+        ensureLoaded();
+        Map<Integer, String> labelsForCategory = labelsById.get(category);
+        for (Integer id : ids) {
+            String label = labelsForCategory.get(id);
+            if (label == null) {
+                reload();
+                label = labelsForCategory.get(id);
+            }
+            if (label == null) {
+                // Created earlier in the caller's transaction, so not cached until it commits
+                label = uncommittedLabel(category, id);
+            }
+            if (label == null) {
+                throw new IllegalStateException("Unknown " + category + " tag id " + id);
+            }
+            labels.add(label);
+        }
+        return labels;
+    }
+
+    private String uncommittedLabel(PreferenceTagCategory category, Integer id) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement select = connection.prepareStatement(SELECT_LABEL)) {
+            select.setString(1, category.name());
+            select.setInt(2, id);
+            try (ResultSet resultSet = select.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Failed to load " + category + " tag id " + id, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private Integer cachedId(PreferenceTagCategory category, String label) {
+        ensureLoaded();
+        return idsByLabel.get(category).get(label);
+    }
+
+    private Integer create(PreferenceTagCategory category, String label) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        Integer id;
+        try {
+            id = POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName())
+                ? insertUnlessExists(connection, category, label)
+                : insertAfterProbe(connection, category, label);
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Failed to create " + category + " tag '" + label + "'", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        Integer createdId = id;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(category, createdId, label);
+                }
+            });
+        } else {
+            put(category, createdId, label);
+        }
+        return id;
+    }
+
+    private Integer insertUnlessExists(Connection connection, PreferenceTagCategory category, String label)
+            throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_UNLESS_EXISTS)) {
+            insert.setString(1, category.name());
+            insert.setString(2, label);
+            try (ResultSet resultSet = insert.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getInt(1);
+                }
+            }
+        }
+        // Created by another instance, or earlier in this transaction
+        return select(connection, category, label);
+    }
+
+    /**
+     * Databases without ON CONFLICT (H2 in tests): look the label up first, then insert it
+     */
+    private Integer insertAfterProbe(Connection connection, PreferenceTagCategory category, String label)
+            throws SQLException {
+        Integer id = select(connection, category, label);
+        if (id != null) {
+            return id;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+            insert.setString(1, category.name());
+            insert.setString(2, label);
+            insert.executeUpdate();
+        }
+        return select(connection, category, label);
+    }
+
+    private Integer select(Connection connection, PreferenceTagCategory category, String label) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(SELECT_ONE)) {
+            select.setString(1, category.name());
+            select.setString(2, label);
+            try (ResultSet resultSet = select.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : null;
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    private synchronized void reload() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_ALL)) {
+            while (resultSet.next()) {
+                put(PreferenceTagCategory.valueOf(resultSet.getString(2)), resultSet.getInt(1), resultSet.getString(3));
+            }
+            loaded = true;
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Failed to load preference tags", e);
+        }
+    }
+
+    private void put(PreferenceTagCategory category, Integer id, String label) {
+        idsByLabel.get(category).put(label, id);
+        labelsById.get(category).put(id, label);
+    }
+
+    /**
+     * Labels as stored: trimmed, blanks dropped, duplicates removed, in first-seen order
+     */
+    public static Set<String> normalize(Collection<String> labels) {
+        if (labels == null || labels.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String label : labels) {
+            if (label != null && !label.isBlank()) {
+                normalized.add(label.trim());
+            }
+        }
+        return normalized;
+    }
+}
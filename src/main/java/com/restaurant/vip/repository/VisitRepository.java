@@ -1,15 +1,19 @@
 package com.restaurant.vip.repository;
 
+import com.restaurant.vip.dto.VisitTimelineEntry;
 import com.restaurant.vip.entity.Visit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -25,6 +29,50 @@ public interface VisitRepository extends JpaRepository<Visit, Long> {
      */
     Page<Visit> findByGuestIdOrderByVisitDateDescVisitTimeDesc(Long guestId, Pageable pageable);
     
+    /**
+     * Most recent visits for a guest, with their staff, without a count query
+     */
+    @Query("SELECT v FROM Visit v JOIN FETCH v.staff WHERE v.guest.id = :guestId ORDER BY v.visitDate DESC, v.visitTime DESC")
+    List<Visit> findRecentByGuestId(@Param("guestId") Long guestId, Pageable pageable);
+    
+    /**
+     * First page of a guest's visit timeline, newest first, ordered by (visit date, visit time, id).
+     * With notesOnly, visits without service notes are filtered out by the database.
+     */
+    @Query("SELECT new com.restaurant.vip.dto.VisitTimelineEntry(v.id, v.visitDate, v.visitTime, v.partySize, " +
+           "v.tableNumber, s.firstName, s.lastName, v.serviceNotes) " +
+           "FROM Visit v JOIN v.staff s WHERE v.guest.id = :guestId " +
+           "AND (:notesOnly = false OR TRIM(v.serviceNotes) <> '') " +
+           "ORDER BY v.visitDate DESC, v.visitTime DESC, v.id DESC")
+    List<VisitTimelineEntry> findTimeline(@Param("guestId") Long guestId,
+                                          @Param("notesOnly") boolean notesOnly,
+                                          Pageable pageable);
+    
+    /**
+     * Next page of a guest's visit timeline: seeks past the last visit of the previous page on
+     * (visit date, visit time, id) instead of using OFFSET. The row-value comparison is a range
+     * start on idx_visits_guest_timeline, where the equivalent OR form is only a filter.
+     */
+    @Query("SELECT new com.restaurant.vip.dto.VisitTimelineEntry(v.id, v.visitDate, v.visitTime, v.partySize, " +
+           "v.tableNumber, s.firstName, s.lastName, v.serviceNotes) " +
+           "FROM Visit v JOIN v.staff s WHERE v.guest.id = :guestId " +
+           "AND (:notesOnly = false OR TRIM(v.serviceNotes) <> '') " +
+           "AND (v.visitDate, v.visitTime, v.id) < (:afterDate, :afterTime, :afterId) " +
+           "ORDER BY v.visitDate DESC, v.visitTime DESC, v.id DESC")
+    List<VisitTimelineEntry> findTimelineAfter(@Param("guestId") Long guestId,
+                                               @Param("notesOnly") boolean notesOnly,
+                                               @Param("afterDate") LocalDate afterDate,
+                                               @Param("afterTime") LocalTime afterTime,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+    
+    /**
+     * Visits of a guest that have service notes, with their staff, newest first
+     */
+    @Query("SELECT v FROM Visit v JOIN FETCH v.staff WHERE v.guest.id = :guestId AND TRIM(v.serviceNotes) <> '' " +
+           "ORDER BY v.visitDate DESC, v.visitTime DESC")
+    List<Visit> findWithNotesByGuestId(@Param("guestId") Long guestId);
+    
     /**
      * Find visits by staff member
      */
@@ -41,7 +89,9 @@ public interface VisitRepository extends JpaRepository<Visit, Long> {
     List<Visit> findByVisitDateOrderByVisitTimeAsc(LocalDate visitDate);
     
     /**
-     * Find visits in date range
+     * Find visits in date range. Filtering on visitDate lets PostgreSQL skip the monthly partitions
+     * outside the range (V16), also in the generic plan of a prepared statement; keep the date
+     * queries below filtering on visitDate directly rather than on an expression of it.
      */
     @Query("SELECT v FROM Visit v WHERE v.visitDate BETWEEN :startDate AND :endDate ORDER BY v.visitDate DESC, v.visitTime DESC")
     List<Visit> findByVisitDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
@@ -86,6 +136,14 @@ public interface VisitRepository extends JpaRepository<Visit, Long> {
      */
     long countByGuestId(Long guestId);
     
+    /**
+     * Move every visit of one guest to another in a single statement, for guest merges
+     */
+    @Modifying
+    @Query(value = "UPDATE visits SET guest_id = :toGuestId, updated_at = CURRENT_TIMESTAMP WHERE guest_id = :fromGuestId",
+           nativeQuery = true)
+    int reassignVisits(@Param("fromGuestId") Long fromGuestId, @Param("toGuestId") Long toGuestId);
+    
     /**
      * Count visits by staff member
      */
@@ -108,6 +166,25 @@ public interface VisitRepository extends JpaRepository<Visit, Long> {
     @Query("SELECT v FROM Visit v WHERE LOWER(v.serviceNotes) LIKE LOWER(CONCAT('%', :searchTerm, '%')) ORDER BY v.visitDate DESC, v.visitTime DESC")
     List<Visit> findByServiceNotesContaining(@Param("searchTerm") String searchTerm);
     
+    /**
+     * Full-text search of service notes (V14 notes_tsv), best matches first. The query is to_tsquery
+     * syntax (see NotesSearchQuery). Rows are (visit_id, guest_id, first_name, last_name, visit_date,
+     * visit_time, rank, snippet); visits of deleted guests are skipped. PostgreSQL evaluates the costly
+     * ts_headline after the sort and limit, so snippets are only built for the returned page.
+     */
+    @Query(value = "SELECT v.id, v.guest_id, g.first_name, g.last_name, v.visit_date, v.visit_time, " +
+                   "ts_rank_cd(v.notes_tsv, q.query) AS rank, " +
+                   "ts_headline('english', v.service_notes, q.query, " +
+                   "'StartSel=<mark>, StopSel=</mark>, MaxWords=25, MinWords=8, MaxFragments=2, FragmentDelimiter=\" ... \"') AS snippet " +
+                   "FROM visits v JOIN guests g ON g.id = v.guest_id AND g.deleted_at IS NULL " +
+                   "CROSS JOIN to_tsquery('english', :query) AS q(query) " +
+                   "WHERE v.notes_tsv @@ q.query " +
+                   "ORDER BY rank DESC, v.visit_date DESC, v.id DESC",
+           countQuery = "SELECT COUNT(*) FROM visits v JOIN guests g ON g.id = v.guest_id AND g.deleted_at IS NULL " +
+                        "WHERE v.notes_tsv @@ to_tsquery('english', :query)",
+           nativeQuery = true)
+    Page<Object[]> searchServiceNotes(@Param("query") String query, Pageable pageable);
+    
     /**
      * Find visits created by specific staff member in date range
      */
@@ -132,7 +209,23 @@ public interface VisitRepository extends JpaRepository<Visit, Long> {
     Object[] getGuestVisitStatistics(@Param("guestId") Long guestId);
     
     /**
-     * Find frequent guests (guests with more than specified number of visits)
+     * (guest id, visit count, first visit date, average party size) of each of the guests that has visits
+     */
+    @Query("SELECT v.guest.id, COUNT(v), MIN(v.visitDate), AVG(v.partySize) FROM Visit v " +
+           "WHERE v.guest.id IN :guestIds GROUP BY v.guest.id")
+    List<Object[]> getVisitStatisticsByGuestIds(@Param("guestIds") Collection<Long> guestIds);
+    
+    /**
+     * Latest visit of each of the guests; a guest with two visits at its latest date and time has both
+     */
+    @Query("SELECT v FROM Visit v WHERE v.guest.id IN :guestIds AND NOT EXISTS (" +
+           "SELECT w.id FROM Visit w WHERE w.guest = v.guest AND (w.visitDate > v.visitDate " +
+           "OR (w.visitDate = v.visitDate AND w.visitTime > v.visitTime)))")
+    List<Visit> findLastVisitsByGuestIds(@Param("guestIds") Collection<Long> guestIds);
+    
+    /**
+     * Find frequent guests (guests with more than specified number of visits).
+     * Groups every visit on each call; dashboards read VisitRollupRepository.findTopGuests instead.
      */
     @Query("SELECT v.guest, COUNT(v) as visitCount FROM Visit v " +
            "GROUP BY v.guest " +
@@ -141,7 +234,8 @@ public interface VisitRepository extends JpaRepository<Visit, Long> {
     List<Object[]> findFrequentGuests(@Param("minVisits") Long minVisits);
     
     /**
-     * Find busiest days (dates with most visits)
+     * Find busiest days (dates with most visits).
+     * Groups the visits of the range on each call; dashboards read VisitRollupRepository.findBusiestDays instead.
      */
     @Query("SELECT v.visitDate, COUNT(v) as visitCount FROM Visit v " +
            "WHERE v.visitDate BETWEEN :startDate AND :endDate " +
@@ -0,0 +1,68 @@
+package com.restaurant.vip.repository;
+
+import com.restaurant.vip.dto.StaffVisitVolume;
+import com.restaurant.vip.dto.TopGuestResponse;
+import com.restaurant.vip.entity.VisitDailyRollup;
+import com.restaurant.vip.entity.VisitHourlyRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Analytics reads over the V15 rollup tables. Every query reads at most one row per day, hour,
+ * staff member or guest month in the range, however many visits lie behind them.
+ */
+@Repository
+public interface VisitRollupRepository extends JpaRepository<VisitDailyRollup, LocalDate> {
+
+    /**
+     * Days of the range with the most visits, busiest first
+     */
+    @Query("SELECT r FROM VisitDailyRollup r " +
+           "WHERE r.visitDate BETWEEN :startDate AND :endDate AND r.visitCount > 0 " +
+           "ORDER BY r.visitCount DESC, r.visitDate DESC")
+    List<VisitDailyRollup> findBusiestDays(@Param("startDate") LocalDate startDate,
+                                           @Param("endDate") LocalDate endDate,
+                                           Pageable pageable);
+
+    /**
+     * Hours of the range that had visits
+     */
+    @Query("SELECT r FROM VisitHourlyRollup r " +
+           "WHERE r.visitDate BETWEEN :startDate AND :endDate AND r.visitCount > 0")
+    List<VisitHourlyRollup> findHourly(@Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate);
+
+    /**
+     * Guests with the most visits in the months from fromMonth to toMonth (first days of the months);
+     * deleted guests are left out
+     */
+    @Query("SELECT new com.restaurant.vip.dto.TopGuestResponse(g.id, g.firstName, g.lastName, " +
+           "SUM(r.visitCount), SUM(r.coverCount)) " +
+           "FROM GuestMonthlyVisitRollup r JOIN Guest g ON g.id = r.guestId " +
+           "WHERE r.visitMonth BETWEEN :fromMonth AND :toMonth " +
+           "GROUP BY g.id, g.firstName, g.lastName " +
+           "HAVING SUM(r.visitCount) > 0 " +
+           "ORDER BY SUM(r.visitCount) DESC, g.id")
+    List<TopGuestResponse> findTopGuests(@Param("fromMonth") LocalDate fromMonth,
+                                         @Param("toMonth") LocalDate toMonth,
+                                         Pageable pageable);
+
+    /**
+     * Visits and covers per staff member over the range, most visits first
+     */
+    @Query("SELECT new com.restaurant.vip.dto.StaffVisitVolume(s.id, s.firstName, s.lastName, " +
+           "SUM(r.visitCount), SUM(r.coverCount)) " +
+           "FROM VisitStaffDailyRollup r JOIN Staff s ON s.id = r.staffId " +
+           "WHERE r.visitDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY s.id, s.firstName, s.lastName " +
+           "HAVING SUM(r.visitCount) > 0 " +
+           "ORDER BY SUM(r.visitCount) DESC, s.id")
+    List<StaffVisitVolume> findStaffVolumes(@Param("startDate") LocalDate startDate,
+                                            @Param("endDate") LocalDate endDate);
+}
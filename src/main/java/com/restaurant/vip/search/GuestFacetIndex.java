@@ -0,0 +1,310 @@
+package com.restaurant.vip.search;
+
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.event.GuestChangedEvent;
+import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.repository.PreferenceTagDictionary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * In-process facet index over dietary restrictions, favorite drinks and seating preference.
+ *
+ * Each facet value holds a compressed bitmap of guest ids. Values within a facet are OR-ed and
+ * facets are AND-ed. Counts are disjunctive: a facet's counts ignore that facet's own selection,
+ * so the filter sheet shows how many guests each additional value would bring in.
+ * Tag values, indexed and requested, are normalized as PreferenceTagDictionary stores them, so the
+ * index matches the same guests as database filtering.
+ * Callers fall back to the database while the index is not ready.
+ */
+@Component
+public class GuestFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuestFacetIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    public enum Facet {
+        DIETARY_RESTRICTION,
+        FAVORITE_DRINK,
+        SEATING_PREFERENCE
+    }
+
+    private final GuestRepository guestRepository;
+    private final Timer lookupTimer;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RoaringBitmap allGuests = new RoaringBitmap();
+    private final Map<Facet, Map<String, RoaringBitmap>> bitmaps = new EnumMap<>(Facet.class);
+    private final Map<Integer, Map<Facet, List<String>>> guests = new HashMap<>();
+
+    private volatile boolean ready = false;
+
+    public GuestFacetIndex(GuestRepository guestRepository, MeterRegistry meterRegistry) {
+        this.guestRepository = guestRepository;
+        for (Facet facet : Facet.values()) {
+            bitmaps.put(facet, new HashMap<>());
+        }
+        this.lookupTimer = Timer.builder("guest.facets.lookup")
+                .description("Facet index lookup latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("guest.facets.values", this, GuestFacetIndex::valueCount)
+                .description("Distinct facet values held in the facet index")
+                .register(meterRegistry);
+        Gauge.builder("guest.facets.estimated.bytes", this, GuestFacetIndex::sizeInBytes)
+                .description("Serialized size of the facet bitmaps")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("guest.facets.ready", this, index -> index.isReady() ? 1 : 0)
+                .description("Whether the facet index is serving lookups")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Guest ids matching every facet with a selection, or empty when the index is not serving
+     */
+    public Optional<RoaringBitmap> match(Map<Facet, ? extends Collection<String>> selection) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        return Optional.of(lookupTimer.record(() -> read(() -> matchExcept(selection, null))));
+    }
+
+    /**
+     * Match count plus per-value counts for every facet, or empty when the index is not serving
+     */
+    public Optional<FacetCounts> count(Map<Facet, ? extends Collection<String>> selection) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        return Optional.of(lookupTimer.record(() -> read(() -> {
+            Map<Facet, Map<String, Integer>> counts = new EnumMap<>(Facet.class);
+            for (Facet facet : Facet.values()) {
+                RoaringBitmap base = matchExcept(selection, facet);
+                Map<String, Integer> valueCounts = new HashMap<>();
+                bitmaps.get(facet).forEach((value, ids) -> {
+                    int count = RoaringBitmap.andCardinality(ids, base);
+                    if (count > 0) {
+                        valueCounts.put(value, count);
+                    }
+                });
+                counts.put(facet, sortByCount(valueCounts));
+            }
+            return new FacetCounts(matchExcept(selection, null).getLongCardinality(), counts);
+        })));
+    }
+
+    /**
+     * Rebuild the index from the guests table
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            clear();
+
+            long started = System.currentTimeMillis();
+            long afterId = 0L;
+            List<Object[]> batch;
+            do {
+                batch = guestRepository.findFacetKeysAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : batch) {
+                    @SuppressWarnings("unchecked")
+                    boolean added = add((Long) row[0], (List<String>) row[2], (List<String>) row[3], (String) row[1]);
+                    if (!added) {
+                        disable();
+                        return;
+                    }
+                }
+                afterId = (Long) batch.get(batch.size() - 1)[0];
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            ready = true;
+            logger.info("Facet index rebuilt with {} guests and {} values in {} ms",
+                    allGuests.getCardinality(), valueCount(), System.currentTimeMillis() - started);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply committed guest changes incrementally
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onGuestChanged(GuestChangedEvent event) {
+        if (!ready) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            event.getRemovedIds().forEach(this::remove);
+            for (Guest guest : event.getUpserted()) {
+                remove(guest.getId());
+                if (guest.getDeletedAt() == null && !add(guest.getId(), guest.getDietaryRestrictions(),
+                        guest.getFavoriteDrinks(), guest.getSeatingPreference())) {
+                    disable();
+                    return;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private RoaringBitmap matchExcept(Map<Facet, ? extends Collection<String>> selection, Facet skipped) {
+        RoaringBitmap result = allGuests.clone();
+        for (Map.Entry<Facet, ? extends Collection<String>> entry : selection.entrySet()) {
+            Collection<String> values = entry.getValue();
+            if (entry.getKey() == skipped || values == null || values.isEmpty()) {
+                continue;
+            }
+            // Tag labels are looked up as stored; a selection of blank labels only matches nothing,
+            // as the database filter does
+            Collection<String> labels = entry.getKey() == Facet.SEATING_PREFERENCE
+                    ? values : PreferenceTagDictionary.normalize(values);
+            Map<String, RoaringBitmap> facetBitmaps = bitmaps.get(entry.getKey());
+            List<RoaringBitmap> selected = new ArrayList<>();
+            for (String value : labels) {
+                RoaringBitmap ids = facetBitmaps.get(value);
+                if (ids != null) {
+                    selected.add(ids);
+                }
+            }
+            result.and(selected.isEmpty() ? new RoaringBitmap() : FastAggregation.or(selected.iterator()));
+        }
+        return result;
+    }
+
+    private boolean add(Long guestId, List<String> dietary, List<String> drinks, String seating) {
+        if (guestId > Integer.MAX_VALUE) {
+            logger.warn("Guest id {} does not fit the facet index; falling back to database filtering", guestId);
+            return false;
+        }
+        int key = guestId.intValue();
+        Map<Facet, List<String>> values = new EnumMap<>(Facet.class);
+        values.put(Facet.DIETARY_RESTRICTION, List.copyOf(PreferenceTagDictionary.normalize(dietary)));
+        values.put(Facet.FAVORITE_DRINK, List.copyOf(PreferenceTagDictionary.normalize(drinks)));
+        values.put(Facet.SEATING_PREFERENCE, seating == null || seating.isBlank()
+                ? Collections.emptyList() : List.of(seating));
+
+        values.forEach((facet, facetValues) -> facetValues.forEach(value ->
+                bitmaps.get(facet).computeIfAbsent(value, v -> new RoaringBitmap()).add(key)));
+        allGuests.add(key);
+        guests.put(key, values);
+        return true;
+    }
+
+    private void remove(Long guestId) {
+        if (guestId > Integer.MAX_VALUE) {
+            return;
+        }
+        int key = guestId.intValue();
+        Map<Facet, List<String>> values = guests.remove(key);
+        if (values == null) {
+            return;
+        }
+        values.forEach((facet, facetValues) -> facetValues.forEach(value -> {
+            Map<String, RoaringBitmap> facetBitmaps = bitmaps.get(facet);
+            RoaringBitmap ids = facetBitmaps.get(value);
+            if (ids != null) {
+                ids.remove(key);
+                if (ids.isEmpty()) {
+                    facetBitmaps.remove(value);
+                }
+            }
+        }));
+        allGuests.remove(key);
+    }
+
+    private void disable() {
+        ready = false;
+        clear();
+    }
+
+    private void clear() {
+        allGuests.clear();
+        bitmaps.values().forEach(Map::clear);
+        guests.clear();
+    }
+
+    private int valueCount() {
+        return read(() -> bitmaps.values().stream().mapToInt(Map::size).sum());
+    }
+
+    private long sizeInBytes() {
+        return read(() -> bitmaps.values().stream()
+                .flatMap(facetBitmaps -> facetBitmaps.values().stream())
+                .mapToLong(RoaringBitmap::getLongSizeInBytes)
+                .sum() + allGuests.getLongSizeInBytes());
+    }
+
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Map<String, Integer> sortByCount(Map<String, Integer> counts) {
+        Map<String, Integer> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    /**
+     * Result of a facet count: guests matching the full selection and per-value counts, largest first
+     */
+    public static final class FacetCounts {
+        private final long total;
+        private final Map<Facet, Map<String, Integer>> counts;
+
+        private FacetCounts(long total, Map<Facet, Map<String, Integer>> counts) {
+            this.total = total;
+            this.counts = counts;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public Map<String, Integer> getCounts(Facet facet) {
+            return counts.get(facet);
+        }
+    }
+}
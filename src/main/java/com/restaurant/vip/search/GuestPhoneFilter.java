@@ -0,0 +1,310 @@
+package com.restaurant.vip.search;
+
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.event.GuestChangedEvent;
+import com.restaurant.vip.repository.GuestRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.codec.digest.MurmurHash3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * In-process counting Bloom filter over the E.164 phone numbers of active guests.
+ *
+ * Phone checks run while a host is still typing, so numbers the filter rules out are answered
+ * without a database query; any other number is looked up as before. Counters let soft-deleted
+ * guests be removed again. Changes the filter cannot apply exactly (the old number of an updated
+ * guest, writes made on other instances) leave stale entries or gaps until the periodic rebuild,
+ * which is why it only serves pre-checks: createGuest still relies on the unique index.
+ */
+@Component
+public class GuestPhoneFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuestPhoneFilter.class);
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    // Sized for twice the current guests so creates between rebuilds keep the false-positive rate near target
+    private static final long CAPACITY_HEADROOM = 2;
+
+    private final GuestRepository guestRepository;
+    private final double falsePositiveRate;
+    private final long minCapacity;
+    private final Counter ruledOut;
+    private final Counter found;
+    private final Counter falsePositives;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private CountingBloomFilter filter;
+    // Guests deleted before this may already be missing from the filter, so they are not removed from it
+    private LocalDateTime builtAt;
+    // Numbers added while a rebuild is reading the table, replayed onto the rebuilt filter
+    private List<String> addedDuringRebuild;
+
+    private volatile boolean ready = false;
+
+    public GuestPhoneFilter(GuestRepository guestRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.search.phone-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                            @Value("${app.search.phone-filter.min-capacity:10000}") long minCapacity) {
+        this.guestRepository = guestRepository;
+        this.falsePositiveRate = falsePositiveRate;
+        this.minCapacity = minCapacity;
+        this.ruledOut = checks(meterRegistry, "ruled_out");
+        this.found = checks(meterRegistry, "found");
+        this.falsePositives = checks(meterRegistry, "false_positive");
+        Gauge.builder("guest.phone.filter.entries", this, current -> current.measure(CountingBloomFilter::entries))
+                .description("Phone numbers held in the phone filter")
+                .register(meterRegistry);
+        Gauge.builder("guest.phone.filter.estimated.bytes", this, current -> current.measure(CountingBloomFilter::sizeInBytes))
+                .description("Heap used by the phone filter counters")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("guest.phone.filter.false.positive.rate", this,
+                        current -> current.measure(CountingBloomFilter::falsePositiveRate))
+                .description("Expected false-positive rate at the phone filter's current fill")
+                .register(meterRegistry);
+        Gauge.builder("guest.phone.filter.ready", this, current -> current.isReady() ? 1 : 0)
+                .description("Whether the phone filter is answering phone checks")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Run the lookup for an E.164 phone number unless the filter rules the number out.
+     * Every number is looked up while the filter is not ready.
+     */
+    public <T> Optional<T> probe(String phoneNormalized, Function<String, Optional<T>> lookup) {
+        if (!ready) {
+            return lookup.apply(phoneNormalized);
+        }
+        if (!mightContain(phoneNormalized)) {
+            ruledOut.increment();
+            return Optional.empty();
+        }
+        Optional<T> result = lookup.apply(phoneNormalized);
+        (result.isPresent() ? found : falsePositives).increment();
+        return result;
+    }
+
+    /**
+     * Rebuild the filter from the guests table, at startup and periodically to drop stale entries
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.search.phone-filter.rebuild-interval:3600000}",
+               initialDelayString = "${app.search.phone-filter.rebuild-interval:3600000}")
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        write(() -> addedDuringRebuild = new ArrayList<>());
+        CountingBloomFilter rebuilt;
+        try {
+            long capacity = Math.max(minCapacity, guestRepository.count() * CAPACITY_HEADROOM);
+            rebuilt = new CountingBloomFilter(capacity, falsePositiveRate);
+            long afterId = 0L;
+            List<Object[]> batch;
+            do {
+                batch = guestRepository.findPhoneKeysAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (Object[] row : batch) {
+                    afterId = (Long) row[0];
+                    if (row[1] != null) {
+                        rebuilt.add((String) row[1]);
+                    }
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            write(() -> addedDuringRebuild = null);
+            throw e;
+        }
+
+        write(() -> {
+            addedDuringRebuild.forEach(rebuilt::add);
+            addedDuringRebuild = null;
+            filter = rebuilt;
+            builtAt = LocalDateTime.now();
+            ready = true;
+        });
+        logger.info("Phone filter rebuilt with {} numbers in {} bytes in {} ms",
+                rebuilt.entries(), rebuilt.sizeInBytes(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Apply committed guest changes incrementally. A number is added when a guest is created or
+     * changes to it, and removed when its guest is deleted, so each active guest is counted once;
+     * re-adding it on every edit would inflate the entries and saturate its counters.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onGuestChanged(GuestChangedEvent event) {
+        write(() -> {
+            for (Guest guest : event.getUpserted()) {
+                String phone = guest.getPhoneNormalized();
+                String previous = event.getPreviousPhone(guest);
+                if (guest.getDeletedAt() == null) {
+                    if (phone == null || (event.existedBefore(guest) && phone.equals(previous))) {
+                        continue;
+                    }
+                    if (filter != null) {
+                        filter.add(phone);
+                    }
+                    if (addedDuringRebuild != null) {
+                        addedDuringRebuild.add(phone);
+                    }
+                } else if (previous != null && filter != null && !guest.getDeletedAt().isBefore(builtAt)) {
+                    filter.remove(previous);
+                }
+            }
+        });
+    }
+
+    private boolean mightContain(String phoneNormalized) {
+        if (phoneNormalized == null) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return filter.mightContain(phoneNormalized);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private double measure(ToDoubleFunction<CountingBloomFilter> metric) {
+        lock.readLock().lock();
+        try {
+            return filter == null ? 0 : metric.applyAsDouble(filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("guest.phone.filter.checks")
+                .description("Phone checks by phone filter outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Bloom filter with 4-bit counters, two per byte. Saturated counters are never decremented.
+     */
+    private static final class CountingBloomFilter {
+
+        private static final int MAX_COUNT = 15;
+        private static final long MAX_SLOTS = Integer.MAX_VALUE - 1L;
+
+        private final byte[] counters;
+        private final int slots;
+        private final int hashes;
+        private long entries;
+        private long occupied;
+
+        private CountingBloomFilter(long capacity, double falsePositiveRate) {
+            double ln2 = Math.log(2);
+            long optimalSlots = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            this.slots = (int) Math.min(Math.max(optimalSlots, 64), MAX_SLOTS);
+            this.hashes = (int) Math.max(1, Math.round((double) slots / capacity * ln2));
+            this.counters = new byte[(slots + 1) / 2];
+        }
+
+        private void add(String value) {
+            for (int slot : slots(value)) {
+                int count = get(slot);
+                if (count == 0) {
+                    occupied++;
+                }
+                if (count < MAX_COUNT) {
+                    set(slot, count + 1);
+                }
+            }
+            entries++;
+        }
+
+        private void remove(String value) {
+            if (!mightContain(value)) {
+                return;
+            }
+            for (int slot : slots(value)) {
+                int count = get(slot);
+                if (count > 0 && count < MAX_COUNT) {
+                    set(slot, count - 1);
+                    if (count == 1) {
+                        occupied--;
+                    }
+                }
+            }
+            entries--;
+        }
+
+        private boolean mightContain(String value) {
+            for (int slot : slots(value)) {
+                if (get(slot) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long entries() {
+            return entries;
+        }
+
+        private long sizeInBytes() {
+            return counters.length;
+        }
+
+        private double falsePositiveRate() {
+            return Math.pow((double) occupied / slots, hashes);
+        }
+
+        // Double hashing over the two halves of a 128-bit murmur hash
+        private int[] slots(String value) {
+            long[] hash = MurmurHash3.hash128x64(value.getBytes(StandardCharsets.UTF_8));
+            int[] result = new int[hashes];
+            for (int i = 0; i < hashes; i++) {
+                result[i] = (int) Math.floorMod(hash[0] + i * hash[1], (long) slots);
+            }
+            return result;
+        }
+
+        private int get(int slot) {
+            int packed = counters[slot >>> 1];
+            return (slot & 1) == 0 ? packed & 0x0F : (packed >>> 4) & 0x0F;
+        }
+
+        private void set(int slot, int count) {
+            int index = slot >>> 1;
+            counters[index] = (slot & 1) == 0
+                    ? (byte) ((counters[index] & 0xF0) | count)
+                    : (byte) ((counters[index] & 0x0F) | (count << 4));
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.restaurant.vip.search;
+
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.event.GuestChangedEvent;
+import com.restaurant.vip.repository.GuestRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process type-ahead index for the quick guest search.
+ *
+ * Name tokens are indexed for prefix lookups. Queries containing digits are left to the database
+ * search, whose phone match finds the digits anywhere in a number. Lookups are lock-free. A rebuild
+ * reads the table into fresh postings while the current ones keep serving; guest changes committed
+ * meanwhile are applied to both and replayed onto the rebuilt postings before they are swapped in.
+ * When the posting budget is exceeded the index disables itself, callers fall back to the database
+ * search and a rebuild is retried later.
+ */
+@Component
+public class GuestTypeaheadIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuestTypeaheadIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    // Rough per-posting cost of a skip-list node plus a boxed id
+    private static final long ESTIMATED_BYTES_PER_POSTING = 64;
+
+    private final GuestRepository guestRepository;
+    private final long maxPostings;
+    private final Timer lookupTimer;
+
+    // One rebuild at a time; guest changes only wait for the swap at its end
+    private final Object rebuildLock = new Object();
+
+    private volatile Postings postings = new Postings();
+    // Changes committed while a rebuild is reading the table, replayed onto the rebuilt postings
+    private List<GuestChangedEvent> changedDuringRebuild;
+
+    private volatile boolean ready = false;
+
+    public GuestTypeaheadIndex(GuestRepository guestRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.search.typeahead.max-postings:3000000}") long maxPostings) {
+        this.guestRepository = guestRepository;
+        this.maxPostings = maxPostings;
+        this.lookupTimer = Timer.builder("guest.typeahead.lookup")
+                .description("Type-ahead index lookup latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("guest.typeahead.guests", this, index -> index.postings.guests.size())
+                .description("Guests held in the type-ahead index")
+                .register(meterRegistry);
+        Gauge.builder("guest.typeahead.postings", this, index -> index.postings.count.get())
+                .description("Token postings held in the type-ahead index")
+                .register(meterRegistry);
+        Gauge.builder("guest.typeahead.estimated.bytes", this,
+                        index -> index.postings.count.get() * ESTIMATED_BYTES_PER_POSTING)
+                .description("Estimated heap used by the type-ahead index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("guest.typeahead.ready", this, index -> index.isReady() ? 1 : 0)
+                .description("Whether the type-ahead index is serving lookups")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Every guest id matching the query, most relevant first, so callers can page and count exactly.
+     * Returns empty when the index is not serving or the query contains digits, so the caller can
+     * query the database instead.
+     */
+    public Optional<List<Long>> search(String query) {
+        if (!ready || query == null || query.isBlank() || query.chars().anyMatch(Character::isDigit)) {
+            return Optional.empty();
+        }
+        Postings current = postings;
+        return Optional.of(lookupTimer.record(() -> current.lookup(tokenize(query))));
+    }
+
+    /**
+     * Rebuild the index from the guests table
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                changedDuringRebuild = new ArrayList<>();
+            }
+            long started = System.currentTimeMillis();
+            Postings rebuilt = new Postings();
+            boolean fits = true;
+            try {
+                long afterId = 0L;
+                List<Object[]> batch;
+                do {
+                    batch = guestRepository.findSearchKeysAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                    for (Object[] row : batch) {
+                        afterId = (Long) row[0];
+                        fits = fits && rebuilt.add(afterId, (String) row[1], (String) row[2]);
+                    }
+                } while (fits && batch.size() == REBUILD_BATCH_SIZE);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    changedDuringRebuild = null;
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                for (GuestChangedEvent event : changedDuringRebuild) {
+                    fits = fits && rebuilt.apply(event);
+                }
+                changedDuringRebuild = null;
+                if (!fits) {
+                    disable();
+                    return;
+                }
+                postings = rebuilt;
+                ready = true;
+            }
+            logger.info("Type-ahead index rebuilt with {} guests and {} postings in {} ms",
+                    rebuilt.guests.size(), rebuilt.count.get(), System.currentTimeMillis() - started);
+        }
+    }
+
+    /**
+     * Rebuild an index that disabled itself, so it does not stay off until the next restart.
+     * The guests may still exceed the budget; the index then stays disabled until the next try.
+     */
+    @Scheduled(fixedDelayString = "${app.search.typeahead.retry-interval:900000}",
+               initialDelayString = "${app.search.typeahead.retry-interval:900000}")
+    public void retryIfDisabled() {
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Apply committed guest changes incrementally
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onGuestChanged(GuestChangedEvent event) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(event);
+        }
+        if (ready && !postings.apply(event)) {
+            disable();
+        }
+    }
+
+    private void disable() {
+        logger.warn("Type-ahead index exceeded its budget of {} postings; falling back to database search until a rebuild fits",
+                maxPostings);
+        ready = false;
+        postings = new Postings();
+    }
+
+    /**
+     * Lower-case, accent-free name tokens; hyphenated names are split into parts
+     */
+    static List<String> tokenize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String part : normalized.split("[\\s-]+")) {
+            String token = part.replaceAll("[^\\p{L}\\p{Nd}]", "");
+            if (!token.isEmpty() && !tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Name token postings of one build of the index
+     */
+    private final class Postings {
+        private final ConcurrentSkipListMap<String, Set<Long>> nameTokens = new ConcurrentSkipListMap<>();
+        private final Map<Long, String[]> guests = new ConcurrentHashMap<>();
+        private final AtomicLong count = new AtomicLong();
+
+        /**
+         * Walk tokens starting with the first word in key order, so exact and shorter tokens rank
+         * first. Any further words must prefix-match another token of the same guest.
+         */
+        private List<Long> lookup(List<String> words) {
+            if (words.isEmpty()) {
+                return List.of();
+            }
+            String prefix = words.get(0);
+            List<String> otherWords = words.subList(1, words.size());
+            Set<Long> matches = new LinkedHashSet<>();
+            for (Set<Long> ids : nameTokens.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                for (Long id : ids) {
+                    if (otherWords.isEmpty() || matchesAll(id, otherWords)) {
+                        matches.add(id);
+                    }
+                }
+            }
+            return new ArrayList<>(matches);
+        }
+
+        private boolean matchesAll(Long guestId, List<String> words) {
+            String[] tokens = guests.get(guestId);
+            if (tokens == null) {
+                return false;
+            }
+            for (String word : words) {
+                boolean found = false;
+                for (String token : tokens) {
+                    if (token.startsWith(word)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean apply(GuestChangedEvent event) {
+            event.getRemovedIds().forEach(this::remove);
+            for (Guest guest : event.getUpserted()) {
+                remove(guest.getId());
+                if (guest.getDeletedAt() == null && !add(guest.getId(), guest.getFirstName(), guest.getLastName())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean add(Long guestId, String firstName, String lastName) {
+            List<String> tokens = tokenize((firstName == null ? "" : firstName) + " " + (lastName == null ? "" : lastName));
+            if (count.get() + tokens.size() > maxPostings) {
+                return false;
+            }
+            for (String token : tokens) {
+                if (nameTokens.computeIfAbsent(token, k -> new ConcurrentSkipListSet<>()).add(guestId)) {
+                    count.incrementAndGet();
+                }
+            }
+            guests.put(guestId, tokens.toArray(new String[0]));
+            return true;
+        }
+
+        private void remove(Long guestId) {
+            String[] tokens = guests.remove(guestId);
+            if (tokens == null) {
+                return;
+            }
+            for (String token : tokens) {
+                Set<Long> ids = nameTokens.get(token);
+                if (ids != null && ids.remove(guestId)) {
+                    count.decrementAndGet();
+                    if (ids.isEmpty()) {
+                        nameTokens.remove(token, ids);
+                    }
+                }
+            }
+        }
+    }
+}
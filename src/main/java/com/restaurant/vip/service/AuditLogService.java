@@ -16,7 +16,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.net.InetAddress;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -125,6 +127,28 @@ public class AuditLogService {
         auditLogRepository.save(auditLog);
     }
     
+    /**
+     * One VISIT_CREATED entry per visit of a bulk log, saved together so they are inserted as one batch
+     */
+    public void logVisitsCreated(Long staffId, List<Visit> visits) {
+        Staff staff = new Staff();
+        staff.setId(staffId);
+        
+        List<AuditLog> auditLogs = new ArrayList<>();
+        for (Visit visit : visits) {
+            AuditLog auditLog = new AuditLog(staff, "VISIT_CREATED", "visits", visit.getId());
+            Map<String, Object> details = new HashMap<>();
+            details.put("visitId", visit.getId());
+            details.put("guestId", visit.getGuest().getId());
+            details.put("batchSize", visits.size());
+            details.put("message", "New visit record created in bulk");
+            auditLog.setNewValues(details);
+            auditLogs.add(auditLog);
+        }
+        
+        auditLogRepository.saveAll(auditLogs);
+    }
+    
     public void logVisitUpdated(Long staffId, Long visitId, Long guestId) {
         Staff staff = new Staff();
         staff.setId(staffId);
@@ -244,6 +268,21 @@ public class AuditLogService {
         saveAuditLog(auditLog);
     }
     
+    public void logGuestMerged(Staff staff, Guest survivor, Guest merged, int visitsReassigned) {
+        AuditLog auditLog = createBaseAuditLog(staff, "GUEST_MERGED", "guests", survivor.getId());
+        
+        Map<String, Object> details = new HashMap<>();
+        details.put("survivorId", survivor.getId());
+        details.put("mergedGuestId", merged.getId());
+        details.put("guestName", survivor.getFirstName() + " " + (survivor.getLastName() != null ? survivor.getLastName() : ""));
+        details.put("mergedPhone", maskPhoneNumber(merged.getPhone()));
+        details.put("visitsReassigned", visitsReassigned);
+        details.put("message", "Duplicate guest profile merged");
+        auditLog.setNewValues(details);
+        
+        saveAuditLog(auditLog);
+    }
+    
     public void logGuestAccessed(Staff staff, Guest guest) {
         AuditLog auditLog = createBaseAuditLog(staff, "GUEST_ACCESSED", "guests", guest.getId());
         
@@ -256,6 +295,19 @@ public class AuditLogService {
         saveAuditLog(auditLog);
     }
     
+    public void logGuestsAccessed(Staff staff, List<Long> guestIds, int requestedCount) {
+        AuditLog auditLog = createBaseAuditLog(staff, "GUEST_BATCH_ACCESSED", "guests", null);
+        
+        Map<String, Object> details = new HashMap<>();
+        details.put("guestIds", guestIds);
+        details.put("requestedCount", requestedCount);
+        details.put("resultCount", guestIds.size());
+        details.put("message", "Guest profiles accessed in batch");
+        auditLog.setNewValues(details);
+        
+        saveAuditLog(auditLog);
+    }
+    
     public void logGuestSearch(Staff staff, String searchQuery, int resultCount) {
         AuditLog auditLog = createBaseAuditLog(staff, "GUEST_SEARCH", "guests", null);
         
@@ -268,6 +320,22 @@ public class AuditLogService {
         saveAuditLog(auditLog);
     }
     
+    public void logGuestImport(Staff staff, String format, int totalRows, int importedCount,
+                               int duplicateCount, int rejectedCount) {
+        AuditLog auditLog = createBaseAuditLog(staff, "GUEST_IMPORT", "guests", null);
+        
+        Map<String, Object> details = new HashMap<>();
+        details.put("format", format);
+        details.put("totalRows", totalRows);
+        details.put("importedCount", importedCount);
+        details.put("duplicateCount", duplicateCount);
+        details.put("rejectedCount", rejectedCount);
+        details.put("message", "Bulk guest import performed");
+        auditLog.setNewValues(details);
+        
+        saveAuditLog(auditLog);
+    }
+    
     // Security-related audit logging
     
     public void logSecurityViolation(Staff staff, String violationType, String details, InetAddress ipAddress) {
@@ -316,8 +384,9 @@ public class AuditLogService {
         
         saveAuditLog(auditLog);
         
-        logger.info("DATA EXPORT: {} exported {} records of type {} by {}", 
-            recordCount, dataType, staff.getEmail());
+        // Staff id only: the staff may be an unloaded reference, and exports finish after the request
+        logger.info("DATA EXPORT: staff {} exported {} records of type {}", 
+            staff.getId(), recordCount, dataType);
     }
     
     // Query methods for audit logs
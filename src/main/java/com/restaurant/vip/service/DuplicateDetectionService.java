@@ -5,39 +5,60 @@ import com.restaurant.vip.dto.GuestCreateRequest;
 import com.restaurant.vip.dto.GuestResponse;
 import com.restaurant.vip.dto.GuestUpdateRequest;
 import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.GuestVisitStats;
 import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.search.GuestPhoneFilter;
+import com.restaurant.vip.util.GuestMatchKeys;
+import com.restaurant.vip.util.PhoneNumbers;
+import com.restaurant.vip.util.StringSimilarity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 @Transactional(readOnly = true)
 public class DuplicateDetectionService {
     
+    // Guests fetched by key lookup per check, and reported after scoring
+    private static final int CANDIDATE_LIMIT = 50;
+    private static final int MAX_POTENTIAL_DUPLICATES = 10;
+    
+    // Name similarity (see StringSimilarity.similarity) at which a guest counts as a potential duplicate
+    static final double NAME_MATCH_THRESHOLD = 0.85;
+    
     private final GuestRepository guestRepository;
+    private final GuestPhoneFilter phoneFilter;
+    private final GuestVisitStatsService visitStatsService;
     
     @Autowired
-    public DuplicateDetectionService(GuestRepository guestRepository) {
+    public DuplicateDetectionService(GuestRepository guestRepository, GuestPhoneFilter phoneFilter,
+                                     GuestVisitStatsService visitStatsService) {
         this.guestRepository = guestRepository;
+        this.phoneFilter = phoneFilter;
+        this.visitStatsService = visitStatsService;
     }
     
     /**
-     * Check for exact duplicate by phone number
+     * Check for exact duplicate by phone number, in any format of the same number
      */
     public DuplicateCheckResponse checkExactDuplicate(String phone) {
         DuplicateCheckResponse response = new DuplicateCheckResponse();
         response.setPhone(phone);
         
-        Optional<Guest> existingGuest = guestRepository.findByPhone(phone);
+        Optional<Guest> existingGuest = phoneFilter.probe(PhoneNumbers.toE164(phone), guestRepository::findByPhoneNormalized);
         if (existingGuest.isPresent()) {
             Guest guest = existingGuest.get();
             response.setExists(true);
             response.setMessage("A guest with this phone number already exists: " + guest.getFullName());
-            response.setExistingGuest(mapGuestToResponse(guest));
+            response.setExistingGuest(mapGuestsToResponses(List.of(guest)).get(0));
         } else {
             response.setExists(false);
             response.setMessage("No guest found with this phone number");
@@ -53,15 +74,13 @@ public class DuplicateDetectionService {
         DuplicateCheckResponse response = new DuplicateCheckResponse();
         response.setPhone(phone);
         
-        boolean exists = guestRepository.existsByPhoneAndIdNot(phone, currentGuestId);
-        if (exists) {
-            Optional<Guest> existingGuest = guestRepository.findByPhone(phone);
-            if (existingGuest.isPresent()) {
-                Guest guest = existingGuest.get();
-                response.setExists(true);
-                response.setMessage("Another guest with this phone number already exists: " + guest.getFullName());
-                response.setExistingGuest(mapGuestToResponse(guest));
-            }
+        Optional<Guest> existingGuest = phoneFilter.probe(PhoneNumbers.toE164(phone), guestRepository::findByPhoneNormalized)
+                .filter(guest -> !guest.getId().equals(currentGuestId));
+        if (existingGuest.isPresent()) {
+            Guest guest = existingGuest.get();
+            response.setExists(true);
+            response.setMessage("Another guest with this phone number already exists: " + guest.getFullName());
+            response.setExistingGuest(mapGuestsToResponses(List.of(guest)).get(0));
         } else {
             response.setExists(false);
             response.setMessage("No other guest found with this phone number");
@@ -71,84 +90,18 @@ public class DuplicateDetectionService {
     }
     
     /**
-     * Check for potential duplicates based on name similarity
+     * Check for potential duplicates: guests with a phonetically matching name or the same
+     * phone number in another format, most similar first
      */
     public List<GuestResponse> findPotentialDuplicates(GuestCreateRequest request) {
-        List<Guest> potentialDuplicates = new ArrayList<>();
-        
-        // Search by similar names
-        String searchTerm = request.getFirstName();
-        if (request.getLastName() != null && !request.getLastName().trim().isEmpty()) {
-            searchTerm += " " + request.getLastName();
-        }
-        
-        // Find guests with similar names (case-insensitive partial match)
-        List<Guest> nameMatches = guestRepository.searchByName(searchTerm, 
-                org.springframework.data.domain.PageRequest.of(0, 10)).getContent();
-        
-        // Filter out exact phone matches (those will be caught by exact duplicate check)
-        for (Guest guest : nameMatches) {
-            if (!guest.getPhone().equals(request.getPhone())) {
-                // Check name similarity
-                if (isNameSimilar(request.getFirstName(), request.getLastName(), 
-                                guest.getFirstName(), guest.getLastName())) {
-                    potentialDuplicates.add(guest);
-                }
-            }
-        }
-        
-        // Also check for similar phone numbers (different formatting)
-        if (request.getPhone() != null) {
-            String normalizedPhone = normalizePhoneNumber(request.getPhone());
-            List<Guest> phoneMatches = guestRepository.searchByPhone(normalizedPhone, 
-                    org.springframework.data.domain.PageRequest.of(0, 5)).getContent();
-            
-            for (Guest guest : phoneMatches) {
-                if (!guest.getPhone().equals(request.getPhone()) && 
-                    !potentialDuplicates.contains(guest)) {
-                    String existingNormalized = normalizePhoneNumber(guest.getPhone());
-                    if (existingNormalized.equals(normalizedPhone)) {
-                        potentialDuplicates.add(guest);
-                    }
-                }
-            }
-        }
-        
-        return potentialDuplicates.stream()
-                .map(this::mapGuestToResponse)
-                .toList();
+        return findPotentialDuplicates(request.getFirstName(), request.getLastName(), request.getPhone(), null);
     }
     
     /**
      * Check for potential duplicates for update
      */
     public List<GuestResponse> findPotentialDuplicatesForUpdate(GuestUpdateRequest request, Long currentGuestId) {
-        List<Guest> potentialDuplicates = new ArrayList<>();
-        
-        // Search by similar names
-        String searchTerm = request.getFirstName();
-        if (request.getLastName() != null && !request.getLastName().trim().isEmpty()) {
-            searchTerm += " " + request.getLastName();
-        }
-        
-        // Find guests with similar names (case-insensitive partial match)
-        List<Guest> nameMatches = guestRepository.searchByName(searchTerm, 
-                org.springframework.data.domain.PageRequest.of(0, 10)).getContent();
-        
-        // Filter out current guest and exact phone matches
-        for (Guest guest : nameMatches) {
-            if (!guest.getId().equals(currentGuestId) && !guest.getPhone().equals(request.getPhone())) {
-                // Check name similarity
-                if (isNameSimilar(request.getFirstName(), request.getLastName(), 
-                                guest.getFirstName(), guest.getLastName())) {
-                    potentialDuplicates.add(guest);
-                }
-            }
-        }
-        
-        return potentialDuplicates.stream()
-                .map(this::mapGuestToResponse)
-                .toList();
+        return findPotentialDuplicates(request.getFirstName(), request.getLastName(), request.getPhone(), currentGuestId);
     }
     
     /**
@@ -183,46 +136,66 @@ public class DuplicateDetectionService {
     
     // Private helper methods
     
-    private boolean isNameSimilar(String firstName1, String lastName1, String firstName2, String lastName2) {
-        // Simple similarity check - can be enhanced with more sophisticated algorithms
-        String name1 = (firstName1 + " " + (lastName1 != null ? lastName1 : "")).trim().toLowerCase();
-        String name2 = (firstName2 + " " + (lastName2 != null ? lastName2 : "")).trim().toLowerCase();
-        
-        // Check if names are exactly the same
-        if (name1.equals(name2)) {
-            return true;
-        }
-        
-        // Check if first names match exactly
-        if (firstName1.toLowerCase().equals(firstName2.toLowerCase())) {
-            return true;
-        }
-        
-        // Check if full names have significant overlap
-        String[] words1 = name1.split("\\s+");
-        String[] words2 = name2.split("\\s+");
-        
-        int matches = 0;
-        for (String word1 : words1) {
-            for (String word2 : words2) {
-                if (word1.equals(word2) && word1.length() > 2) { // Only count meaningful words
-                    matches++;
-                    break;
-                }
+    private List<GuestResponse> findPotentialDuplicates(String firstName, String lastName, String phone, Long excludedGuestId) {
+        String[] nameKeys = GuestMatchKeys.forLookup(firstName, lastName);
+        String phoneKey = GuestMatchKeys.phoneKey(phone);
+        String phoneNormalized = PhoneNumbers.toE164(phone);
+        List<Guest> candidates = guestRepository.findDuplicateCandidates(nameKeys, phoneKey,
+                PageRequest.of(0, CANDIDATE_LIMIT));
+        
+        List<ScoredGuest> matches = new ArrayList<>();
+        for (Guest candidate : candidates) {
+            // Skip the guest being edited and exact phone matches (those are caught by the exact duplicate check)
+            if (candidate.getId().equals(excludedGuestId)
+                    || Objects.equals(phoneNormalized, PhoneNumbers.toE164(candidate.getPhone()))) {
+                continue;
+            }
+            double score = phoneKey != null && phoneKey.equals(GuestMatchKeys.phoneKey(candidate.getPhone()))
+                    ? 1.0
+                    : nameScore(firstName, lastName, candidate.getFirstName(), candidate.getLastName());
+            if (score >= NAME_MATCH_THRESHOLD) {
+                matches.add(new ScoredGuest(candidate, score));
             }
         }
         
-        // Consider similar if at least 2 words match or if it's a single name match with length > 3
-        return matches >= 2 || (matches >= 1 && firstName1.length() > 3);
+        return mapGuestsToResponses(matches.stream()
+                .sorted(Comparator.comparingDouble(ScoredGuest::getScore).reversed())
+                .limit(MAX_POTENTIAL_DUPLICATES)
+                .map(ScoredGuest::getGuest)
+                .toList());
     }
     
-    private String normalizePhoneNumber(String phone) {
-        if (phone == null) return "";
-        // Remove all non-digit characters except +
-        return phone.replaceAll("[^+\\d]", "");
+    /**
+     * Mean similarity of first and last names; first name only when either side has no last name
+     */
+    static double nameScore(String firstName, String lastName, String otherFirstName, String otherLastName) {
+        double score = StringSimilarity.similarity(trimmed(firstName), trimmed(otherFirstName));
+        String otherLast = trimmed(otherLastName);
+        if (lastName == null || lastName.isBlank() || otherLast.isEmpty()) {
+            return score;
+        }
+        return (score + StringSimilarity.similarity(lastName.trim(), otherLast)) / 2;
+    }
+    
+    private static String trimmed(String value) {
+        return value == null ? "" : value.trim();
     }
     
-    private GuestResponse mapGuestToResponse(Guest guest) {
+    /**
+     * Visit counts come from guest_visit_stats in one query for all guests, rather than from each
+     * guest's lazy visits collection
+     */
+    private List<GuestResponse> mapGuestsToResponses(List<Guest> guests) {
+        if (guests.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, GuestVisitStats> stats = visitStatsService.getStats(guests.stream().map(Guest::getId).toList());
+        return guests.stream()
+                .map(guest -> mapGuestToResponse(guest, stats.get(guest.getId())))
+                .toList();
+    }
+    
+    private GuestResponse mapGuestToResponse(Guest guest, GuestVisitStats stats) {
         GuestResponse response = new GuestResponse();
         response.setId(guest.getId());
         response.setFirstName(guest.getFirstName());
@@ -238,7 +211,7 @@ public class DuplicateDetectionService {
         response.setNotes(guest.getNotes());
         response.setCreatedAt(guest.getCreatedAt());
         response.setUpdatedAt(guest.getUpdatedAt());
-        response.setVisitCount(guest.getVisitCount());
+        response.setVisitCount(stats != null ? (int) stats.getTotalVisits() : 0);
         
         if (guest.getCreatedBy() != null) {
             response.setCreatedByName(guest.getCreatedBy().getFirstName() + " " + guest.getCreatedBy().getLastName());
@@ -246,4 +219,22 @@ public class DuplicateDetectionService {
         
         return response;
     }
+    
+    private static final class ScoredGuest {
+        private final Guest guest;
+        private final double score;
+        
+        private ScoredGuest(Guest guest, double score) {
+            this.guest = guest;
+            this.score = score;
+        }
+        
+        Guest getGuest() {
+            return guest;
+        }
+        
+        double getScore() {
+            return score;
+        }
+    }
 }
\ No newline at end of file
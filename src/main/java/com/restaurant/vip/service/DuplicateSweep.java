@@ -0,0 +1,286 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.dto.DuplicateClusterResponse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One run of the whole-table duplicate sweep. Guests arrive grouped by blocking key, pairs
+ * within a block are scored on a fork-join pool, and matched pairs are linked into clusters.
+ *
+ * Name blocks arrive sorted by name, so each guest is only compared with the next WINDOW guests
+ * of its block (sorted neighbourhood); small blocks therefore compare every pair. Blocks are
+ * buffered into chunks and a chunk is scored while the next one is read, so memory is bounded by
+ * two chunks plus the matches found. Not thread-safe: rows must come from a single reader.
+ */
+class DuplicateSweep {
+
+    static final int WINDOW = 50;
+
+    // Rows buffered before a chunk is handed to the pool
+    static final int CHUNK_ROWS = 20_000;
+
+    // Longest block segment held at once; longer blocks continue in a segment overlapping by WINDOW rows
+    static final int MAX_BLOCK_ROWS = 5_000;
+
+    // Anchor rows one fork-join task scores without splitting further
+    private static final int SEQUENTIAL_ANCHORS = 256;
+
+    private final ForkJoinPool pool;
+
+    // Best score per pair (see pairKey) and the guests appearing in any match
+    private final Map<Long, Double> matchedPairs = new ConcurrentHashMap<>();
+    private final Map<Long, Row> matchedGuests = new ConcurrentHashMap<>();
+
+    private final AtomicLong rowsScanned = new AtomicLong();
+    private final AtomicLong blocksScored = new AtomicLong();
+    private final AtomicLong pairsCompared = new AtomicLong();
+
+    private boolean samePhone;
+    private String blockKey;
+    private List<Row> block = new ArrayList<>();
+    private List<Segment> chunk = new ArrayList<>();
+    private int chunkRows = 0;
+    private ForkJoinTask<?> pending;
+
+    DuplicateSweep(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Start a pass over blocks of one kind: guests sharing a phone key always match, guests
+     * sharing a name key match when their names score at or above the duplicate threshold
+     */
+    void beginPass(boolean samePhone) {
+        this.samePhone = samePhone;
+        this.blockKey = null;
+    }
+
+    /**
+     * Next guest in block key order
+     */
+    void add(String key, long id, String firstName, String lastName, String phone) {
+        rowsScanned.incrementAndGet();
+        if (!key.equals(blockKey)) {
+            endBlock();
+            blockKey = key;
+        } else if (block.size() == MAX_BLOCK_ROWS) {
+            List<Row> overlap = new ArrayList<>(block.subList(block.size() - WINDOW, block.size()));
+            endBlock();
+            block = overlap;
+        }
+        block.add(new Row(id, firstName, lastName, phone));
+    }
+
+    /**
+     * Score everything read in this pass and wait for it
+     */
+    void endPass() {
+        endBlock();
+        submitChunk();
+        awaitPending();
+    }
+
+    /**
+     * Clusters of linked guests, most confident first and then largest first
+     */
+    List<DuplicateClusterResponse> clusters() {
+        Map<Long, Long> parent = new HashMap<>();
+        matchedPairs.keySet().forEach(pair -> union(parent, pair >>> 32, pair & 0xFFFFFFFFL));
+
+        Map<Long, List<Long>> members = new HashMap<>();
+        Map<Long, Double> scores = new HashMap<>();
+        for (Long id : parent.keySet()) {
+            members.computeIfAbsent(find(parent, id), root -> new ArrayList<>()).add(id);
+        }
+        matchedPairs.forEach((pair, score) -> scores.merge(find(parent, pair >>> 32), score, Math::max));
+
+        List<DuplicateClusterResponse> clusters = new ArrayList<>(members.size());
+        members.forEach((root, ids) -> {
+            ids.sort(null);
+            List<DuplicateClusterResponse.Member> guests = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                Row row = matchedGuests.get(id);
+                guests.add(new DuplicateClusterResponse.Member(id, row.firstName, row.lastName, row.phone));
+            }
+            clusters.add(new DuplicateClusterResponse(scores.get(root), guests));
+        });
+
+        clusters.sort(Comparator.comparingDouble(DuplicateClusterResponse::getScore).reversed()
+                .thenComparing(cluster -> cluster.getGuests().size(), Comparator.reverseOrder())
+                .thenComparing(cluster -> cluster.getGuests().get(0).getId()));
+        for (int i = 0; i < clusters.size(); i++) {
+            clusters.get(i).setRank(i + 1);
+        }
+        return clusters;
+    }
+
+    long getRowsScanned() {
+        return rowsScanned.get();
+    }
+
+    long getBlocksScored() {
+        return blocksScored.get();
+    }
+
+    long getPairsCompared() {
+        return pairsCompared.get();
+    }
+
+    long getPairsMatched() {
+        return matchedPairs.size();
+    }
+
+    private void endBlock() {
+        if (block.size() > 1) {
+            Row[] rows = block.toArray(new Row[0]);
+            // Guests sharing a phone key all match, so linking each to the next is enough
+            int anchors = samePhone ? rows.length - 1 : rows.length;
+            for (int from = 0; from < anchors; from += SEQUENTIAL_ANCHORS) {
+                chunk.add(new Segment(rows, samePhone, from, Math.min(anchors, from + SEQUENTIAL_ANCHORS)));
+            }
+            chunkRows += rows.length;
+            blocksScored.incrementAndGet();
+        }
+        block = new ArrayList<>();
+        if (chunkRows >= CHUNK_ROWS) {
+            submitChunk();
+        }
+    }
+
+    private void submitChunk() {
+        awaitPending();
+        if (!chunk.isEmpty()) {
+            pending = pool.submit(new ScoreSegments(chunk, 0, chunk.size()));
+        }
+        chunk = new ArrayList<>();
+        chunkRows = 0;
+    }
+
+    private void awaitPending() {
+        if (pending != null) {
+            pending.join();
+            pending = null;
+        }
+    }
+
+    private void score(Segment segment) {
+        Row[] rows = segment.rows;
+        long compared = 0;
+        for (int i = segment.anchorFrom; i < segment.anchorTo; i++) {
+            Row row = rows[i];
+            if (segment.samePhone) {
+                match(row, rows[i + 1], 1.0);
+                compared++;
+                continue;
+            }
+            int last = Math.min(rows.length - 1, i + WINDOW);
+            for (int j = i + 1; j <= last; j++) {
+                Row other = rows[j];
+                if (row.id == other.id) {
+                    continue;
+                }
+                double score = DuplicateDetectionService.nameScore(
+                        row.firstName, row.lastName, other.firstName, other.lastName);
+                if (score >= DuplicateDetectionService.NAME_MATCH_THRESHOLD) {
+                    match(row, other, score);
+                }
+                compared++;
+            }
+        }
+        pairsCompared.addAndGet(compared);
+    }
+
+    private void match(Row a, Row b, double score) {
+        matchedPairs.merge(pairKey(a.id, b.id), score, Math::max);
+        matchedGuests.putIfAbsent(a.id, a);
+        matchedGuests.putIfAbsent(b.id, b);
+    }
+
+    // guests.id is a SERIAL, so both ids fit in 32 bits
+    private static long pairKey(long a, long b) {
+        return Math.min(a, b) << 32 | Math.max(a, b);
+    }
+
+    private static void union(Map<Long, Long> parent, long a, long b) {
+        long rootA = find(parent, a);
+        long rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent.put(Math.max(rootA, rootB), Math.min(rootA, rootB));
+        }
+    }
+
+    private static long find(Map<Long, Long> parent, long id) {
+        long root = id;
+        Long next;
+        while ((next = parent.putIfAbsent(root, root)) != null && next != root) {
+            // Path halving
+            Long grandparent = parent.get(next);
+            parent.put(root, grandparent);
+            root = grandparent;
+        }
+        return root;
+    }
+
+    private static final class Row {
+        private final long id;
+        private final String firstName;
+        private final String lastName;
+        private final String phone;
+
+        private Row(long id, String firstName, String lastName, String phone) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.phone = phone;
+        }
+    }
+
+    /**
+     * Anchor rows [anchorFrom, anchorTo) of a block, each compared with the rows after it
+     */
+    private static final class Segment {
+        private final Row[] rows;
+        private final boolean samePhone;
+        private final int anchorFrom;
+        private final int anchorTo;
+
+        private Segment(Row[] rows, boolean samePhone, int anchorFrom, int anchorTo) {
+            this.rows = rows;
+            this.samePhone = samePhone;
+            this.anchorFrom = anchorFrom;
+            this.anchorTo = anchorTo;
+        }
+    }
+
+    private final class ScoreSegments extends RecursiveAction {
+        private final List<Segment> segments;
+        private final int from;
+        private final int to;
+
+        private ScoreSegments(List<Segment> segments, int from, int to) {
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                score(segments.get(from));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScoreSegments(segments, from, middle), new ScoreSegments(segments, middle, to));
+        }
+    }
+}
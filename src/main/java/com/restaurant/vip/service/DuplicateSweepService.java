@@ -0,0 +1,170 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.dto.DuplicateClusterResponse;
+import com.restaurant.vip.dto.DuplicateSweepStatusResponse;
+import com.restaurant.vip.dto.PagedResponse;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Manager-triggered sweep for duplicates already in the guests table.
+ *
+ * The database sorts guests by the blocking keys stored for duplicate detection (V8): first the
+ * full-name phonetic keys, then phone keys shared by more than one guest. Rows are streamed with a
+ * server-side cursor into DuplicateSweep, which scores them in parallel. First-name-only keys are
+ * skipped: they block every "John" together and would not say much on their own.
+ * The latest report is kept in memory until the next sweep completes.
+ */
+@Service
+public class DuplicateSweepService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateSweepService.class);
+
+    private static final int FETCH_SIZE = 5_000;
+
+    private static final String NAME_BLOCKS =
+        "WITH keys AS (" +
+        "  SELECT g.id, k.name_key FROM guests g CROSS JOIN LATERAL unnest(g.name_keys) AS k(name_key)" +
+        "  WHERE g.deleted_at IS NULL AND k.name_key NOT LIKE '%:'" +
+        "), shared AS (" +
+        "  SELECT name_key FROM keys GROUP BY name_key HAVING COUNT(*) > 1" +
+        ") " +
+        "SELECT k.name_key AS block_key, g.id, g.first_name, g.last_name, g.phone " +
+        "FROM keys k JOIN shared s ON s.name_key = k.name_key JOIN guests g ON g.id = k.id " +
+        "ORDER BY k.name_key, lower(g.last_name), lower(g.first_name), g.id";
+
+    private static final String PHONE_BLOCKS =
+        "SELECT g.phone_key AS block_key, g.id, g.first_name, g.last_name, g.phone " +
+        "FROM guests g " +
+        "WHERE g.deleted_at IS NULL AND g.phone_key IN (" +
+        "  SELECT phone_key FROM guests WHERE deleted_at IS NULL AND phone_key IS NOT NULL" +
+        "  GROUP BY phone_key HAVING COUNT(*) > 1) " +
+        "ORDER BY g.phone_key, g.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService runner;
+    private final ForkJoinPool scoringPool;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile DuplicateSweep current;
+    private volatile String state = "IDLE";
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime completedAt;
+    private volatile String errorMessage;
+    private volatile List<DuplicateClusterResponse> report = List.of();
+
+    public DuplicateSweepService(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                 @Value("${app.duplicates.sweep.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        // PostgreSQL only streams with a fetch size inside a transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.runner = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "duplicate-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scoringPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Start a sweep in the background unless one is already running
+     */
+    public DuplicateSweepStatusResponse startSweep() {
+        if (running.compareAndSet(false, true)) {
+            current = new DuplicateSweep(scoringPool);
+            state = "RUNNING";
+            startedAt = LocalDateTime.now();
+            completedAt = null;
+            errorMessage = null;
+            runner.execute(this::runSweep);
+        }
+        return getStatus();
+    }
+
+    /**
+     * Progress of the running sweep, or the outcome of the last one
+     */
+    public DuplicateSweepStatusResponse getStatus() {
+        DuplicateSweepStatusResponse status = new DuplicateSweepStatusResponse(state);
+        status.setStartedAt(startedAt);
+        status.setCompletedAt(completedAt);
+        status.setErrorMessage(errorMessage);
+        status.setClusterCount(report.size());
+        DuplicateSweep sweep = current;
+        if (sweep != null) {
+            status.setRowsScanned(sweep.getRowsScanned());
+            status.setBlocksScored(sweep.getBlocksScored());
+            status.setPairsCompared(sweep.getPairsCompared());
+            status.setPairsMatched(sweep.getPairsMatched());
+        }
+        return status;
+    }
+
+    /**
+     * Page of the last completed report, in rank order
+     */
+    public PagedResponse<DuplicateClusterResponse> getClusters(int page, int size) {
+        List<DuplicateClusterResponse> clusters = report;
+        page = Math.max(page, 0);
+        size = Math.max(size, 1);
+        int from = (int) Math.min((long) page * size, clusters.size());
+        int to = Math.min(from + size, clusters.size());
+        int totalPages = (clusters.size() + size - 1) / size;
+        return new PagedResponse<>(clusters.subList(from, to), page, size, clusters.size(), totalPages);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        scoringPool.shutdownNow();
+    }
+
+    private void runSweep() {
+        DuplicateSweep sweep = current;
+        long started = System.currentTimeMillis();
+        try {
+            stream(sweep, NAME_BLOCKS, false);
+            stream(sweep, PHONE_BLOCKS, true);
+            report = sweep.clusters();
+            state = "COMPLETED";
+            logger.info("Duplicate sweep scanned {} rows, compared {} pairs and found {} clusters in {} ms",
+                    sweep.getRowsScanned(), sweep.getPairsCompared(), report.size(),
+                    System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            logger.error("Duplicate sweep failed", e);
+            state = "FAILED";
+            errorMessage = e.getMessage();
+        } finally {
+            completedAt = LocalDateTime.now();
+            running.set(false);
+        }
+    }
+
+    private void stream(DuplicateSweep sweep, String sql, boolean samePhone) {
+        sweep.beginPass(samePhone);
+        transactionTemplate.executeWithoutResult(transaction ->
+                jdbcTemplate.query(sql, (RowCallbackHandler) resultSet ->
+                        sweep.add(resultSet.getString("block_key"), resultSet.getLong("id"),
+                                resultSet.getString("first_name"), resultSet.getString("last_name"),
+                                resultSet.getString("phone"))));
+        sweep.endPass();
+    }
+}
@@ -0,0 +1,90 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.dto.GuestCardResponse;
+import com.restaurant.vip.dto.GuestResponse;
+import com.restaurant.vip.dto.PagedResponse;
+import com.restaurant.vip.dto.VisitResponse;
+import com.restaurant.vip.dto.VisitTimelineEntry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the guest card: the profile and the visit reads the app needs to open a guest, in one call.
+ *
+ * The four reads are independent, so they run concurrently, each in its own read-only transaction.
+ * The executor is shared and bounded: it caps how many pooled connections card reads hold at once,
+ * and when its queue is full the request thread runs the read itself instead of failing.
+ * Nothing here audits; the endpoint records one access for the whole card.
+ */
+@Service
+public class GuestCardService {
+
+    private final GuestService guestService;
+    private final VisitService visitService;
+    private final int notesPageSize;
+    private final ThreadPoolExecutor executor;
+
+    public GuestCardService(GuestService guestService,
+                            VisitService visitService,
+                            @Value("${app.guests.card.notes-page-size:10}") int notesPageSize,
+                            @Value("${app.guests.card.parallelism:4}") int parallelism,
+                            @Value("${app.guests.card.queue-capacity:100}") int queueCapacity) {
+        this.guestService = guestService;
+        this.visitService = visitService;
+        this.notesPageSize = notesPageSize;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "guest-card-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Profile, last visits (newest first), visit statistics and the first page of the guest's
+     * notes-only visit timeline, so a guest with years of noted visits still costs one bounded read
+     */
+    public GuestCardResponse getGuestCard(Long guestId, int recentVisitLimit) {
+        CompletableFuture<GuestResponse> guest =
+                CompletableFuture.supplyAsync(() -> guestService.getGuestProfile(guestId), executor);
+        CompletableFuture<List<VisitResponse>> recentVisits =
+                CompletableFuture.supplyAsync(() -> visitService.getRecentGuestVisits(guestId, recentVisitLimit), executor);
+        CompletableFuture<Map<String, Object>> statistics =
+                CompletableFuture.supplyAsync(() -> visitService.getGuestVisitStatistics(guestId), executor);
+        CompletableFuture<PagedResponse<VisitTimelineEntry>> visitsWithNotes = CompletableFuture.supplyAsync(
+                () -> visitService.getGuestVisitTimeline(guestId, null, notesPageSize, true), executor);
+
+        // The profile first, so an unknown guest is reported as such rather than by whichever read failed first
+        return new GuestCardResponse(join(guest), join(recentVisits), join(statistics), join(visitsWithNotes));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.restaurant.vip.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.restaurant.vip.entity.PreferenceTagCategory;
+import com.restaurant.vip.entity.Staff;
+import com.restaurant.vip.repository.PreferenceTagDictionary;
+import com.restaurant.vip.repository.StaffRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Full guest export as CSV or NDJSON, in the layout the bulk import reads back.
+ *
+ * Active guests are streamed from a server-side cursor and written straight to the response one
+ * row at a time, so memory stays flat whatever the size of the table. The output is flushed every
+ * FLUSH_INTERVAL rows to keep bytes moving to the client; optional gzip uses sync flushes so each
+ * chunk leaves the compressor too. One audit entry records the export once it has completed.
+ */
+@Service
+public class GuestExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuestExportService.class);
+
+    private static final int FETCH_SIZE = 1_000;
+    static final int FLUSH_INTERVAL = 1_000;
+
+    private static final String SELECT_GUESTS =
+        "SELECT id, first_name, last_name, phone, email, seating_preference, dietary_tag_ids, drink_tag_ids, " +
+        "birthday, anniversary, notes, created_at " +
+        "FROM guests WHERE deleted_at IS NULL ORDER BY id";
+
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+            .addNumberColumn("id")
+            .addColumn("firstName")
+            .addColumn("lastName")
+            .addColumn("phone")
+            .addColumn("email")
+            .addColumn("seatingPreference")
+            .addArrayColumn("dietaryRestrictions", ";")
+            .addArrayColumn("favoriteDrinks", ";")
+            .addColumn("birthday")
+            .addColumn("anniversary")
+            .addColumn("notes")
+            .addColumn("createdAt")
+            .build()
+            .withHeader();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PreferenceTagDictionary preferenceTagDictionary;
+    private final StaffRepository staffRepository;
+    private final AuditLogService auditLogService;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    public GuestExportService(DataSource dataSource,
+                              PlatformTransactionManager transactionManager,
+                              PreferenceTagDictionary preferenceTagDictionary,
+                              StaffRepository staffRepository,
+                              AuditLogService auditLogService) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        // PostgreSQL only streams with a fetch size inside a transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.preferenceTagDictionary = preferenceTagDictionary;
+        this.staffRepository = staffRepository;
+        this.auditLogService = auditLogService;
+    }
+
+    /**
+     * Response body that streams every active guest. The current staff member is resolved here,
+     * on the request thread, since the body is written after the controller has returned.
+     */
+    public StreamingResponseBody exportGuests(GuestFileFormat format, boolean gzip) {
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
+        return output -> {
+            long started = System.currentTimeMillis();
+            long rows = export(output, format, gzip);
+            auditLogService.logDataExport(currentStaff, "guests", (int) rows);
+            logger.info("Guest export of {} rows as {}{} in {} ms", rows, format, gzip ? " (gzip)" : "",
+                    System.currentTimeMillis() - started);
+        };
+    }
+
+    /**
+     * Write every active guest to the output and return the number of rows written
+     */
+    long export(OutputStream output, GuestFileFormat format, boolean gzip) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(output, true) : null;
+        try (JsonGenerator generator = createGenerator(compressed != null ? compressed : output, format)) {
+            long[] rows = {0};
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(SELECT_GUESTS, (RowCallbackHandler) resultSet -> {
+                    try {
+                        writeGuest(generator, format, resultSet);
+                        if (++rows[0] % FLUSH_INTERVAL == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            } catch (UncheckedIOException e) {
+                // The client went away; stop reading the cursor
+                throw e.getCause();
+            }
+            generator.flush();
+            if (compressed != null) {
+                compressed.finish();
+            }
+            return rows[0];
+        }
+    }
+
+    private JsonGenerator createGenerator(OutputStream output, GuestFileFormat format) throws IOException {
+        JsonGenerator generator;
+        if (format == GuestFileFormat.CSV) {
+            generator = csvMapper.getFactory().createGenerator(output);
+            generator.setSchema(CSV_SCHEMA);
+        } else {
+            generator = jsonFactory.createGenerator(output);
+            generator.setRootValueSeparator(null);
+        }
+        // The servlet container owns the response stream
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private void writeGuest(JsonGenerator generator, GuestFileFormat format, ResultSet resultSet)
+            throws IOException, SQLException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", resultSet.getLong("id"));
+        writeString(generator, "firstName", resultSet.getString("first_name"));
+        writeString(generator, "lastName", resultSet.getString("last_name"));
+        writeString(generator, "phone", resultSet.getString("phone"));
+        writeString(generator, "email", resultSet.getString("email"));
+        writeString(generator, "seatingPreference", resultSet.getString("seating_preference"));
+        writeLabels(generator, "dietaryRestrictions", PreferenceTagCategory.DIETARY, resultSet.getArray("dietary_tag_ids"));
+        writeLabels(generator, "favoriteDrinks", PreferenceTagCategory.DRINK, resultSet.getArray("drink_tag_ids"));
+        writeString(generator, "birthday", toString(resultSet.getObject("birthday", LocalDate.class)));
+        writeString(generator, "anniversary", toString(resultSet.getObject("anniversary", LocalDate.class)));
+        writeString(generator, "notes", resultSet.getString("notes"));
+        writeString(generator, "createdAt", toString(resultSet.getObject("created_at", LocalDateTime.class)));
+        generator.writeEndObject();
+        if (format == GuestFileFormat.NDJSON) {
+            generator.writeRaw('\n');
+        }
+    }
+
+    private void writeLabels(JsonGenerator generator, String field, PreferenceTagCategory category, Array ids)
+            throws IOException, SQLException {
+        generator.writeArrayFieldStart(field);
+        if (ids != null) {
+            for (String label : preferenceTagDictionary.decode(category, toIntegers((Object[]) ids.getArray()))) {
+                generator.writeString(label);
+            }
+            ids.free();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeString(JsonGenerator generator, String field, String value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeStringField(field, value);
+        }
+    }
+
+    private static String toString(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    // PostgreSQL returns Integer[] for INTEGER[] columns, H2 returns Object[]
+    private static Integer[] toIntegers(Object[] values) {
+        if (values instanceof Integer[] integers) {
+            return integers;
+        }
+        Integer[] integers = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            integers[i] = ((Number) values[i]).intValue();
+        }
+        return integers;
+    }
+}
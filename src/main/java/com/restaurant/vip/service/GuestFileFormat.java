@@ -0,0 +1,26 @@
+package com.restaurant.vip.service;
+
+/**
+ * File layouts for bulk guest import and export. CSV files start with a header row and hold
+ * list values (dietaryRestrictions, favoriteDrinks) separated by ';'; NDJSON has one guest per line.
+ */
+public enum GuestFileFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String mediaType;
+    private final String extension;
+
+    GuestFileFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,338 @@
+package com.restaurant.vip.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.restaurant.vip.dto.GuestCreateRequest;
+import com.restaurant.vip.dto.GuestImportResponse;
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.Staff;
+import com.restaurant.vip.event.GuestChangedEvent;
+import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.repository.StaffRepository;
+import com.restaurant.vip.util.PhoneNumbers;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk guest import for onboarding a location from a CSV (with a header row) or NDJSON export.
+ *
+ * Rows are read one at a time from the request stream, trimmed, validated and stored with E.164
+ * phone numbers. A number already seen earlier in the file or held by an active guest is reported
+ * instead of imported. Accepted rows are written in chunks, one transaction each, which Hibernate
+ * sends as JDBC batches thanks to the pooled guest ids. One audit entry summarizes the import.
+ */
+@Service
+public class GuestImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuestImportService.class);
+
+    static final String IMPORTED = "IMPORTED";
+    static final String DUPLICATE_IN_FILE = "DUPLICATE_IN_FILE";
+    static final String DUPLICATE_EXISTING = "DUPLICATE_EXISTING";
+    static final String INVALID = "INVALID";
+    static final String FAILED = "FAILED";
+
+    private final GuestRepository guestRepository;
+    private final StaffRepository staffRepository;
+    private final AuditLogService auditLogService;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
+    private final int chunkSize;
+
+    public GuestImportService(GuestRepository guestRepository,
+                              StaffRepository staffRepository,
+                              AuditLogService auditLogService,
+                              Validator validator,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${app.guests.import.chunk-size:500}") int chunkSize) {
+        this.guestRepository = guestRepository;
+        this.staffRepository = staffRepository;
+        this.auditLogService = auditLogService;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        // A new transaction, and so a fresh persistence context, per chunk: imported guests are not
+        // kept in the request's open-in-view context for the rest of the import
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ndjsonReader = objectMapper.readerFor(GuestCreateRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.csvReader = CsvMapper.builder().findAndAddModules().build()
+                .readerFor(GuestCreateRequest.class)
+                .with(CsvSchema.emptySchema().withHeader().withArrayElementSeparator(";"))
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Import every row of the stream and report the outcome of each one
+     */
+    public GuestImportResponse importGuests(InputStream input, GuestFileFormat format) throws IOException {
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
+        Import run = new Import(currentStaff);
+        long started = System.currentTimeMillis();
+
+        if (format == GuestFileFormat.CSV) {
+            readCsv(input, run);
+        } else {
+            readNdjson(input, run);
+        }
+        run.flush();
+
+        GuestImportResponse response = run.toResponse();
+        auditLogService.logGuestImport(currentStaff, format.name(), response.getTotalRows(),
+                response.getImportedCount(), response.getDuplicateCount(),
+                response.getInvalidCount() + response.getFailedCount());
+        logger.info("Guest import of {} rows: {} imported, {} duplicates, {} invalid, {} failed in {} ms",
+                response.getTotalRows(), response.getImportedCount(), response.getDuplicateCount(),
+                response.getInvalidCount(), response.getFailedCount(), System.currentTimeMillis() - started);
+        return response;
+    }
+
+    private void readCsv(InputStream input, Import run) throws IOException {
+        try (MappingIterator<GuestCreateRequest> rows = csvReader.readValues(input)) {
+            while (rows.hasNextValue()) {
+                int row = run.nextRow();
+                try {
+                    run.accept(row, rows.nextValue());
+                } catch (JsonProcessingException e) {
+                    run.record(row, INVALID, null, e.getOriginalMessage());
+                }
+            }
+        }
+    }
+
+    private void readNdjson(InputStream input, Import run) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                int row = run.nextRow();
+                try {
+                    run.accept(row, ndjsonReader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    run.record(row, INVALID, null, e.getOriginalMessage());
+                }
+            }
+        }
+    }
+
+    private static void normalize(GuestCreateRequest request) {
+        request.setFirstName(trimToNull(request.getFirstName()));
+        request.setLastName(trimToNull(request.getLastName()));
+        request.setPhone(trimToNull(request.getPhone()));
+        String email = trimToNull(request.getEmail());
+        request.setEmail(email == null ? null : email.toLowerCase(Locale.ROOT));
+        request.setSeatingPreference(trimToNull(request.getSeatingPreference()));
+        request.setDietaryRestrictions(trimAll(request.getDietaryRestrictions()));
+        request.setFavoriteDrinks(trimAll(request.getFavoriteDrinks()));
+        request.setNotes(trimToNull(request.getNotes()));
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static List<String> trimAll(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        return values.stream()
+                .map(GuestImportService::trimToNull)
+                .filter(value -> value != null)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static String describe(Set<? extends ConstraintViolation<?>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * State of one import: phone numbers seen so far, the chunk waiting to be written and row results
+     */
+    private final class Import {
+
+        private final Staff staff;
+        private final Set<String> seenPhones = new HashSet<>();
+        private final Map<String, Integer> pendingRows = new HashMap<>();
+        private final List<Guest> pending = new ArrayList<>();
+        private final List<GuestImportResponse.RowResult> results = new ArrayList<>();
+        private int rowCount;
+
+        private Import(Staff staff) {
+            this.staff = staff;
+        }
+
+        private int nextRow() {
+            return ++rowCount;
+        }
+
+        private void accept(int row, GuestCreateRequest request) {
+            normalize(request);
+            Set<ConstraintViolation<GuestCreateRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                record(row, INVALID, null, describe(violations));
+                return;
+            }
+
+            Guest guest = new Guest();
+            guest.setFirstName(request.getFirstName());
+            guest.setLastName(request.getLastName());
+            guest.setPhone(PhoneNumbers.toE164(request.getPhone()));
+            guest.setEmail(request.getEmail());
+            guest.setSeatingPreference(request.getSeatingPreference());
+            guest.setDietaryRestrictions(request.getDietaryRestrictions());
+            guest.setFavoriteDrinks(request.getFavoriteDrinks());
+            guest.setBirthday(request.getBirthday());
+            guest.setAnniversary(request.getAnniversary());
+            guest.setNotes(request.getNotes());
+            guest.setCreatedBy(staff);
+            guest.refreshDerivedColumns();
+
+            Set<ConstraintViolation<Guest>> guestViolations = validator.validate(guest);
+            if (!guestViolations.isEmpty()) {
+                record(row, INVALID, null, describe(guestViolations));
+                return;
+            }
+            if (!seenPhones.add(guest.getPhoneNormalized())) {
+                record(row, DUPLICATE_IN_FILE, null, "Phone number appears earlier in the file");
+                return;
+            }
+
+            pending.add(guest);
+            pendingRows.put(guest.getPhoneNormalized(), row);
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void record(int row, String status, Long guestId, String message) {
+            results.add(new GuestImportResponse.RowResult(row, status, guestId, message));
+        }
+
+        /**
+         * Write the pending chunk, skipping numbers active guests already hold
+         */
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<String, Long> existing = new HashMap<>();
+            for (Object[] holder : guestRepository.findIdsByPhoneNormalizedIn(pendingRows.keySet())) {
+                existing.put((String) holder[0], (Long) holder[1]);
+            }
+
+            List<Guest> chunk = new ArrayList<>();
+            for (Guest guest : pending) {
+                Long existingId = existing.get(guest.getPhoneNormalized());
+                if (existingId != null) {
+                    record(rowOf(guest), DUPLICATE_EXISTING, existingId, "A guest with this phone number already exists");
+                } else {
+                    chunk.add(guest);
+                }
+            }
+
+            try {
+                List<Guest> saved = transactionTemplate.execute(status -> {
+                    List<Guest> guests = guestRepository.saveAll(chunk);
+                    guestRepository.flush();
+                    eventPublisher.publishEvent(new GuestChangedEvent(guests, List.of()));
+                    return guests;
+                });
+                saved.forEach(guest -> record(rowOf(guest), IMPORTED, guest.getId(), null));
+            } catch (DataIntegrityViolationException e) {
+                // A guest with one of these numbers was created while the chunk was being written
+                logger.debug("Guest import chunk hit a phone conflict; retrying its rows one at a time", e);
+                chunk.forEach(this::insertOne);
+            }
+
+            pending.clear();
+            pendingRows.clear();
+        }
+
+        private void insertOne(Guest guest) {
+            int row = rowOf(guest);
+            try {
+                Optional<Long> existingId = transactionTemplate.execute(status -> {
+                    Optional<Long> holderId = guestRepository.insertUnlessPhoneTaken(guest);
+                    if (holderId.isEmpty()) {
+                        eventPublisher.publishEvent(GuestChangedEvent.created(guest));
+                    }
+                    return holderId;
+                });
+                if (existingId.isPresent()) {
+                    record(row, DUPLICATE_EXISTING, existingId.get(), "A guest with this phone number already exists");
+                } else {
+                    record(row, IMPORTED, guest.getId(), null);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Guest import failed for row {}", row, e);
+                record(row, FAILED, null, "Guest could not be saved");
+            }
+        }
+
+        private int rowOf(Guest guest) {
+            return pendingRows.get(guest.getPhoneNormalized());
+        }
+
+        private GuestImportResponse toResponse() {
+            results.sort(Comparator.comparingInt(GuestImportResponse.RowResult::getRow));
+            GuestImportResponse response = new GuestImportResponse();
+            response.setTotalRows(rowCount);
+            response.setImportedCount(count(IMPORTED));
+            response.setDuplicateCount(count(DUPLICATE_IN_FILE) + count(DUPLICATE_EXISTING));
+            response.setInvalidCount(count(INVALID));
+            response.setFailedCount(count(FAILED));
+            response.setRows(results);
+            return response;
+        }
+
+        private int count(String status) {
+            return (int) results.stream().filter(result -> result.getStatus().equals(status)).count();
+        }
+    }
+}
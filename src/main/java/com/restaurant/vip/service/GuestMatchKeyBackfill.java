@@ -0,0 +1,64 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.util.GuestMatchKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fills duplicate-detection keys for guests written before they existed (V8), in id batches.
+ * Runs at startup; guests saved afterwards get their keys from Guest.refreshDerivedColumns().
+ */
+@Component
+public class GuestMatchKeyBackfill {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GuestMatchKeyBackfill.class);
+    
+    private static final int BATCH_SIZE = 1000;
+    
+    private static final String SELECT_MISSING =
+        "SELECT id, first_name, last_name, phone FROM guests WHERE phone_key IS NULL AND id > ? ORDER BY id LIMIT ?";
+    
+    private static final String UPDATE_KEYS =
+        "UPDATE guests SET name_keys = ?, phone_key = ? WHERE id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public GuestMatchKeyBackfill(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long started = System.currentTimeMillis();
+        long afterId = 0L;
+        int updated = 0;
+        List<Object[]> batch;
+        do {
+            batch = jdbcTemplate.query(SELECT_MISSING, (rs, rowNum) -> new Object[] {
+                    rs.getLong("id"), rs.getString("first_name"), rs.getString("last_name"), rs.getString("phone")},
+                    afterId, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            jdbcTemplate.batchUpdate(UPDATE_KEYS, batch, BATCH_SIZE, (ps, row) -> {
+                String[] nameKeys = GuestMatchKeys.forGuest((String) row[1], (String) row[2]);
+                ps.setArray(1, ps.getConnection().createArrayOf("varchar", nameKeys));
+                ps.setString(2, GuestMatchKeys.phoneKey((String) row[3]));
+                ps.setLong(3, (Long) row[0]);
+            });
+            updated += batch.size();
+            afterId = (Long) batch.get(batch.size() - 1)[0];
+        } while (batch.size() == BATCH_SIZE);
+        
+        if (updated > 0) {
+            logger.info("Backfilled duplicate-detection keys for {} guests in {} ms",
+                    updated, System.currentTimeMillis() - started);
+        }
+    }
+}
@@ -1,83 +1,154 @@
 package com.restaurant.vip.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.restaurant.vip.dto.*;
 import com.restaurant.vip.service.FileUploadService;
 import com.restaurant.vip.service.DuplicateDetectionService;
 import com.restaurant.vip.entity.Guest;
 import com.restaurant.vip.entity.Staff;
-import com.restaurant.vip.entity.Visit;
+import com.restaurant.vip.event.GuestChangedEvent;
 import com.restaurant.vip.exception.DuplicateGuestException;
+import com.restaurant.vip.exception.FacetIndexUnavailableException;
+import com.restaurant.vip.exception.InvalidCursorException;
+import com.restaurant.vip.exception.InvalidMergeException;
+import com.restaurant.vip.exception.InvalidPatchException;
+import com.restaurant.vip.exception.PreconditionFailedException;
 import com.restaurant.vip.exception.ResourceNotFoundException;
 import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.repository.GuestSortField;
 import com.restaurant.vip.repository.StaffRepository;
+import com.restaurant.vip.repository.VisitRepository;
+import com.restaurant.vip.search.GuestFacetIndex;
+import com.restaurant.vip.search.GuestPhoneFilter;
+import com.restaurant.vip.search.GuestTypeaheadIndex;
+import com.restaurant.vip.util.CursorCodec;
+import com.restaurant.vip.util.MonthDayWindow;
+import com.restaurant.vip.util.PhoneNumbers;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class GuestService {
     
+    private static final int TRIGRAM_LENGTH = 3;
+    private static final int UPCOMING_OCCASION_DAYS = 30;
+    // Largest facet match handed to the database as an id list for sorting and paging
+    private static final int FACET_MATCH_LIMIT = 1000;
+    
     private final GuestRepository guestRepository;
     private final StaffRepository staffRepository;
     private final AuditLogService auditLogService;
     private final FileUploadService fileUploadService;
     private final DuplicateDetectionService duplicateDetectionService;
+    private final VisitRepository visitRepository;
+    private final GuestVisitStatsService visitStatsService;
+    private final VisitRollupService visitRollupService;
+    private final GuestTypeaheadIndex typeaheadIndex;
+    private final GuestFacetIndex facetIndex;
+    private final GuestPhoneFilter phoneFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    // Merge patches name only the fields they change; a field GuestUpdateRequest lacks is a client error
+    private final ObjectReader patchReader;
     
     @Autowired
     public GuestService(GuestRepository guestRepository, 
                        StaffRepository staffRepository,
                        AuditLogService auditLogService,
                        FileUploadService fileUploadService,
-                       DuplicateDetectionService duplicateDetectionService) {
+                       DuplicateDetectionService duplicateDetectionService,
+                       VisitRepository visitRepository,
+                       GuestVisitStatsService visitStatsService,
+                       VisitRollupService visitRollupService,
+                       GuestTypeaheadIndex typeaheadIndex,
+                       GuestFacetIndex facetIndex,
+                       GuestPhoneFilter phoneFilter,
+                       ApplicationEventPublisher eventPublisher,
+                       Validator validator,
+                       ObjectMapper objectMapper) {
         this.guestRepository = guestRepository;
         this.staffRepository = staffRepository;
         this.auditLogService = auditLogService;
         this.fileUploadService = fileUploadService;
         this.duplicateDetectionService = duplicateDetectionService;
+        this.visitRepository = visitRepository;
+        this.visitStatsService = visitStatsService;
+        this.visitRollupService = visitRollupService;
+        this.typeaheadIndex = typeaheadIndex;
+        this.facetIndex = facetIndex;
+        this.phoneFilter = phoneFilter;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.patchReader = objectMapper.readerFor(GuestUpdateRequest.class)
+                .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     }
     
     /**
      * Create a new guest
      */
     public GuestResponse createGuest(GuestCreateRequest request) {
-        // Check for duplicate phone number
-        if (guestRepository.existsByPhone(request.getPhone())) {
-            Optional<Guest> existingGuest = guestRepository.findByPhone(request.getPhone());
-            if (existingGuest.isPresent()) {
-                throw new DuplicateGuestException(request.getPhone(), existingGuest.get().getId());
-            }
-        }
-        
         // Get current authenticated staff
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         
         // Create new guest entity
         Guest guest = new Guest();
         mapRequestToEntity(request, guest);
         guest.setCreatedBy(currentStaff);
         
-        // Save guest
-        Guest savedGuest = guestRepository.save(guest);
+        // Save guest; the duplicate phone check is part of the insert, so concurrent creates cannot both pass it
+        Optional<Long> existingGuestId = guestRepository.insertUnlessPhoneTaken(guest);
+        if (existingGuestId.isPresent()) {
+            throw new DuplicateGuestException(request.getPhone(), existingGuestId.get());
+        }
         
         // Log the action
-        auditLogService.logGuestCreated(currentStaff, savedGuest);
+        auditLogService.logGuestCreated(currentStaff, guest);
+        eventPublisher.publishEvent(GuestChangedEvent.created(guest));
         
-        return mapEntityToResponse(savedGuest);
+        return mapEntityToResponse(guest);
+    }
+    
+    /**
+     * Version of an active guest, read without loading the profile, for conditional GETs
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> getGuestVersion(Long id) {
+        return guestRepository.findVersionById(id);
     }
     
     /**
@@ -89,49 +160,169 @@ public class GuestService {
                 .orElseThrow(() -> new ResourceNotFoundException("Guest", "id", id));
         
         // Log the access
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         auditLogService.logGuestAccessed(currentStaff, guest);
         
         return mapEntityToResponse(guest);
     }
     
+    /**
+     * Get several guests in one query, in request order, with one grouped query for their visit
+     * summaries. Ids that match no active guest are reported back; one audit entry covers the batch.
+     */
+    @Transactional(readOnly = true)
+    public GuestBatchResponse getGuestsByIds(List<Long> ids) {
+        List<Long> requestedIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, Guest> guestsById = guestRepository.findAllByIdIn(requestedIds.toArray(new Long[0])).stream()
+                .collect(Collectors.toMap(Guest::getId, guest -> guest));
+        
+        List<Guest> found = new ArrayList<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requestedIds) {
+            Guest guest = guestsById.get(id);
+            if (guest != null) {
+                found.add(guest);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
+        auditLogService.logGuestsAccessed(currentStaff,
+                found.stream().map(Guest::getId).collect(Collectors.toList()), requestedIds.size());
+        
+        return new GuestBatchResponse(mapEntitiesToResponses(found), missingIds);
+    }
+    
+    /**
+     * Get guest by ID without recording the access, for callers that audit the read themselves
+     */
+    @Transactional(readOnly = true)
+    public GuestResponse getGuestProfile(Long id) {
+        Guest guest = guestRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Guest", "id", id));
+        return mapEntityToResponse(guest);
+    }
+    
     /**
      * Update guest
      */
     public GuestResponse updateGuest(Long id, GuestUpdateRequest request) {
+        return updateGuest(id, request, null);
+    }
+    
+    /**
+     * Update guest only if it is still at the expected version (from If-Match); null skips the check.
+     * A change committed between the check and this update's flush fails on the version column.
+     */
+    public GuestResponse updateGuest(Long id, GuestUpdateRequest request, Long expectedVersion) {
         Guest guest = guestRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Guest", "id", id));
+        checkVersion(guest, expectedVersion);
         
-        // Check for duplicate phone number (excluding current guest)
-        if (!guest.getPhone().equals(request.getPhone()) && 
-            guestRepository.existsByPhoneAndIdNot(request.getPhone(), id)) {
-            Optional<Guest> existingGuest = guestRepository.findByPhone(request.getPhone());
-            if (existingGuest.isPresent()) {
-                throw new DuplicateGuestException(request.getPhone(), existingGuest.get().getId());
-            }
-        }
+        // Check for duplicate phone number (excluding current guest) when the normalized number changes
+        checkPhoneAvailable(guest, request.getPhone());
         
         // Capture original state for audit logging
-        Guest originalGuest = new Guest();
-        originalGuest.setId(guest.getId());
-        originalGuest.setFirstName(guest.getFirstName());
-        originalGuest.setLastName(guest.getLastName());
-        originalGuest.setPhone(guest.getPhone());
-        originalGuest.setEmail(guest.getEmail());
+        Guest originalGuest = snapshotForAudit(guest);
+        String previousPhone = guest.getPhoneNormalized();
         
         // Update guest entity
         mapRequestToEntity(request, guest);
         
-        // Save updated guest
+        // Save updated guest, flushing so the response carries the new version
         Guest updatedGuest = guestRepository.save(guest);
+        guestRepository.flush();
         
         // Log the action
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
+        auditLogService.logGuestUpdated(currentStaff, originalGuest, updatedGuest);
+        eventPublisher.publishEvent(GuestChangedEvent.updated(updatedGuest, previousPhone));
+        
+        return mapEntityToResponse(updatedGuest);
+    }
+    
+    /**
+     * Apply a JSON Merge Patch (RFC 7396) to a guest. Only the fields named in the patch are set, and
+     * null clears one. The result must still be a valid update request. Dietary restrictions and
+     * favorite drinks are diffed against the current tags and left alone when they end up the same,
+     * so with dynamic updates the UPDATE writes only the columns that actually changed. A patch that
+     * changes nothing writes, audits and announces nothing.
+     */
+    public GuestResponse patchGuest(Long id, JsonNode patch, Long expectedVersion) {
+        if (patch == null || !patch.isObject()) {
+            throw new InvalidPatchException("A merge patch for a guest must be a JSON object");
+        }
+        Guest guest = guestRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Guest", "id", id));
+        checkVersion(guest, expectedVersion);
+        
+        // Merge the patch into the current profile, then validate the result as a whole
+        GuestUpdateRequest merged = toUpdateRequest(guest);
+        try {
+            patchReader.withValueToUpdate(merged).readValue(patch);
+        } catch (JsonProcessingException e) {
+            throw new InvalidPatchException(e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Set<ConstraintViolation<GuestUpdateRequest>> violations = validator.validate(merged);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        if (patch.has("phone")) {
+            checkPhoneAvailable(guest, merged.getPhone());
+        }
+        
+        Guest originalGuest = snapshotForAudit(guest);
+        String previousPhone = guest.getPhoneNormalized();
+        boolean changed = false;
+        Iterator<String> fields = patch.fieldNames();
+        while (fields.hasNext()) {
+            changed |= applyPatchedField(fields.next(), merged, guest);
+        }
+        if (!changed) {
+            return mapEntityToResponse(guest);
+        }
+        
+        // Flush so the response carries the new version
+        Guest updatedGuest = guestRepository.save(guest);
+        guestRepository.flush();
+        
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         auditLogService.logGuestUpdated(currentStaff, originalGuest, updatedGuest);
+        eventPublisher.publishEvent(GuestChangedEvent.updated(updatedGuest, previousPhone));
         
         return mapEntityToResponse(updatedGuest);
     }
     
+    private void checkVersion(Guest guest, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(guest.getVersion())) {
+            throw new PreconditionFailedException(
+                    "Guest " + guest.getId() + " is at version " + guest.getVersion() + ", not " + expectedVersion);
+        }
+    }
+    
+    private void checkPhoneAvailable(Guest guest, String phone) {
+        String phoneNormalized = PhoneNumbers.toE164(phone);
+        if (!Objects.equals(phoneNormalized, guest.getPhoneNormalized())) {
+            Optional<Long> existingGuestId = guestRepository.findIdByPhoneNormalized(phoneNormalized);
+            if (existingGuestId.isPresent() && !existingGuestId.get().equals(guest.getId())) {
+                throw new DuplicateGuestException(phone, existingGuestId.get());
+            }
+        }
+    }
+    
+    private static Guest snapshotForAudit(Guest guest) {
+        Guest snapshot = new Guest();
+        snapshot.setId(guest.getId());
+        snapshot.setFirstName(guest.getFirstName());
+        snapshot.setLastName(guest.getLastName());
+        snapshot.setPhone(guest.getPhone());
+        snapshot.setEmail(guest.getEmail());
+        return snapshot;
+    }
+    
     /**
      * Soft delete guest
      */
@@ -144,8 +335,111 @@ public class GuestService {
         guestRepository.save(guest);
         
         // Log the action
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         auditLogService.logGuestDeleted(currentStaff, guest);
+        // Published with the deleted guest rather than its id, so the phone filter can drop its number
+        eventPublisher.publishEvent(GuestChangedEvent.updated(guest, guest.getPhoneNormalized()));
+    }
+    
+    /**
+     * Merge a duplicate profile into the surviving guest. The duplicate's visits move over in one
+     * UPDATE, its dietary restrictions and favorite drinks are added to the survivor's, and contact
+     * details or dates the survivor lacks are copied. The duplicate is then soft-deleted.
+     */
+    public GuestResponse mergeGuests(Long survivorId, Long duplicateId) {
+        if (survivorId.equals(duplicateId)) {
+            throw new InvalidMergeException("A guest cannot be merged into itself");
+        }
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
+        
+        Map<Long, Guest> guests = guestRepository.findAllByIdForUpdate(List.of(survivorId, duplicateId)).stream()
+                .collect(Collectors.toMap(Guest::getId, guest -> guest));
+        Guest survivor = guests.get(survivorId);
+        if (survivor == null) {
+            throw new ResourceNotFoundException("Guest", "id", survivorId);
+        }
+        Guest duplicate = guests.get(duplicateId);
+        if (duplicate == null) {
+            throw new ResourceNotFoundException("Guest", "id", duplicateId);
+        }
+        
+        survivor.setDietaryRestrictions(union(survivor.getDietaryRestrictions(), duplicate.getDietaryRestrictions()));
+        survivor.setFavoriteDrinks(union(survivor.getFavoriteDrinks(), duplicate.getFavoriteDrinks()));
+        if (survivor.getEmail() == null) {
+            survivor.setEmail(duplicate.getEmail());
+        }
+        if (survivor.getSeatingPreference() == null) {
+            survivor.setSeatingPreference(duplicate.getSeatingPreference());
+        }
+        if (survivor.getBirthday() == null) {
+            survivor.setBirthday(duplicate.getBirthday());
+        }
+        if (survivor.getAnniversary() == null) {
+            survivor.setAnniversary(duplicate.getAnniversary());
+        }
+        duplicate.softDelete();
+        int visitsReassigned = visitRepository.reassignVisits(duplicateId, survivorId);
+        guestRepository.flush();
+        visitStatsService.refresh(survivorId);
+        visitStatsService.refresh(duplicateId);
+        visitRollupService.moveGuest(duplicateId, survivorId);
+        
+        auditLogService.logGuestMerged(currentStaff, survivor, duplicate, visitsReassigned);
+        // One event for both guests; the deleted duplicate drops out of the search structures
+        Map<Long, String> previousPhones = new HashMap<>();
+        previousPhones.put(survivorId, survivor.getPhoneNormalized());
+        previousPhones.put(duplicateId, duplicate.getPhoneNormalized());
+        eventPublisher.publishEvent(new GuestChangedEvent(List.of(survivor, duplicate), previousPhones, List.of()));
+        
+        return mapEntityToResponse(survivor);
+    }
+    
+    /**
+     * Quick search for the type-ahead box. Name queries are served from the in-memory index when it
+     * is ready, ordered by relevance; phone queries and an index that is not serving fall back to the
+     * database search. totalElements is exact either way.
+     */
+    @Transactional(readOnly = true)
+    public PagedResponse<GuestResponse> quickSearch(GuestSearchRequest searchRequest) {
+        String term = searchRequest.getSearchTerm();
+        if (term == null || term.isBlank()) {
+            return searchGuests(searchRequest);
+        }
+        
+        int page = searchRequest.getPage();
+        int size = searchRequest.getSize();
+        Optional<List<Long>> matches = typeaheadIndex.search(term);
+        if (matches.isEmpty()) {
+            return searchGuests(searchRequest);
+        }
+        
+        List<Long> ids = matches.get();
+        List<Long> pageIds = ids.subList(Math.min(page * size, ids.size()), Math.min((page + 1) * size, ids.size()));
+        Map<Long, Guest> guestsById = guestRepository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Guest::getId, guest -> guest));
+        List<GuestResponse> guestResponses = mapEntitiesToResponses(pageIds.stream()
+                .map(guestsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+        
+        int totalPages = (ids.size() + size - 1) / size;
+        return new PagedResponse<>(guestResponses, page, size, ids.size(), totalPages);
+    }
+    
+    /**
+     * Facet counts for the guest filter sheet, answered from the in-memory facet index
+     * without touching the database
+     */
+    @Transactional(readOnly = true)
+    public GuestFacetCountsResponse getFacetCounts(GuestSearchRequest searchRequest) {
+        GuestFacetIndex.FacetCounts counts = facetIndex.count(facetSelection(searchRequest))
+                .orElseThrow(() -> new FacetIndexUnavailableException("Guest facet counts are not available yet, please retry shortly"));
+        return new GuestFacetCountsResponse(
+                counts.getTotal(),
+                toFacetCounts(counts.getCounts(GuestFacetIndex.Facet.DIETARY_RESTRICTION)),
+                toFacetCounts(counts.getCounts(GuestFacetIndex.Facet.FAVORITE_DRINK)),
+                toFacetCounts(counts.getCounts(GuestFacetIndex.Facet.SEATING_PREFERENCE))
+        );
     }
     
     /**
@@ -153,18 +447,31 @@ public class GuestService {
      */
     @Transactional(readOnly = true)
     public PagedResponse<GuestResponse> searchGuests(GuestSearchRequest searchRequest) {
+        // Keyset mode when a cursor is supplied (upcoming occasions keep their own ordering)
+        if (searchRequest.getCursor() != null && !Boolean.TRUE.equals(searchRequest.getUpcomingOccasions())) {
+            return searchGuestsByCursor(searchRequest);
+        }
+        
         // Create pageable
         Sort sort = Sort.by(Sort.Direction.fromString(searchRequest.getSortDirection()), 
                            searchRequest.getSortBy());
         Pageable pageable = PageRequest.of(searchRequest.getPage(), searchRequest.getSize(), sort);
         
         Page<Guest> guestPage;
+        Optional<Page<Guest>> facetPage = searchByFacets(searchRequest, pageable);
         
         // Handle different search scenarios
         if (searchRequest.getUpcomingOccasions() != null && searchRequest.getUpcomingOccasions()) {
-            // Search for guests with upcoming occasions
-            List<Guest> upcomingGuests = guestRepository.findGuestsWithUpcomingOccasions();
-            guestPage = convertListToPage(upcomingGuests, pageable);
+            // Search for guests with upcoming occasions, paged and ordered by date in the database
+            MonthDayWindow window = MonthDayWindow.of(LocalDate.now(), UPCOMING_OCCASION_DAYS);
+            guestPage = guestRepository.findGuestsWithUpcomingOccasions(
+                window.getFirstFrom(), window.getFirstTo(),
+                window.getSecondFrom(), window.getSecondTo(),
+                PageRequest.of(searchRequest.getPage(), searchRequest.getSize())
+            );
+        } else if (facetPage.isPresent()) {
+            // Dietary, drink and seating filters matched by the facet index
+            guestPage = facetPage.get();
         } else if (hasComplexFilters(searchRequest)) {
             // Use complex search with all filters including dietary restrictions and drinks
             guestPage = guestRepository.complexSearch(
@@ -180,23 +487,22 @@ public class GuestService {
             // Use advanced search with basic filters
             guestPage = guestRepository.advancedSearch(
                 searchRequest.getSearchTerm(),
+                PhoneNumbers.digits(searchRequest.getSearchTerm()),
                 searchRequest.getSeatingPreference(),
                 searchRequest.getHasBirthday(),
                 searchRequest.getHasAnniversary(),
                 pageable
             );
         } else if (searchRequest.getSearchTerm() != null && !searchRequest.getSearchTerm().trim().isEmpty()) {
-            // Simple search by name or phone
-            guestPage = guestRepository.searchByNameOrPhone(searchRequest.getSearchTerm().trim(), pageable);
+            // Simple search by name or phone, ranked by relevance
+            guestPage = searchByTerm(searchRequest.getSearchTerm(), searchRequest.getPage(), searchRequest.getSize());
         } else {
             // Get all guests with pagination
             guestPage = guestRepository.findAll(pageable);
         }
         
         // Convert to response DTOs
-        List<GuestResponse> guestResponses = guestPage.getContent().stream()
-                .map(this::mapEntityToResponse)
-                .collect(Collectors.toList());
+        List<GuestResponse> guestResponses = mapEntitiesToResponses(guestPage.getContent());
         
         return new PagedResponse<>(
             guestResponses,
@@ -207,19 +513,97 @@ public class GuestService {
         );
     }
     
+    /**
+     * Ranked name/phone search backed by the trigram indexes.
+     * Results are ordered by relevance, so the requested sort is not applied.
+     */
+    private Page<Guest> searchByTerm(String searchTerm, int page, int size) {
+        String term = searchTerm.trim().toLowerCase().replaceAll("\\s+", " ");
+        String digits = PhoneNumbers.digits(term);
+        Pageable pageable = PageRequest.of(page, size);
+        
+        // Terms shorter than a trigram can only be matched by prefix
+        if (term.length() < TRIGRAM_LENGTH) {
+            return guestRepository.prefixSearch(term, digits, pageable);
+        }
+        return guestRepository.trigramSearch(term, digits.length() < TRIGRAM_LENGTH ? "" : digits, pageable);
+    }
+    
+    /**
+     * Keyset page ordered by (sort field, id). Seeks past the cursor position instead of
+     * using OFFSET, and only counts matches when includeTotal is set.
+     */
+    private PagedResponse<GuestResponse> searchGuestsByCursor(GuestSearchRequest searchRequest) {
+        GuestSortField sortField = GuestSortField.fromProperty(searchRequest.getSortBy())
+                .orElseThrow(() -> new InvalidCursorException(
+                        "Cursor pagination supports sorting by firstName, lastName or createdAt"));
+        String direction = Sort.Direction.fromString(searchRequest.getSortDirection()).name();
+        
+        Object afterKey = null;
+        Long afterId = null;
+        boolean first = searchRequest.getCursor().isEmpty();
+        if (!first) {
+            String[] position = CursorCodec.decode(searchRequest.getCursor(), 4);
+            if (!position[0].equals(sortField.getProperty()) || !position[1].equals(direction)) {
+                throw new InvalidCursorException("Cursor does not match the requested sort order");
+            }
+            try {
+                afterKey = sortField.parseKey(position[2]);
+                afterId = Long.valueOf(position[3]);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new InvalidCursorException("Malformed cursor");
+            }
+        }
+        
+        // Fetch one extra row to know whether another page exists
+        int size = searchRequest.getSize();
+        List<Guest> guests = guestRepository.findKeysetPage(
+                searchRequest, sortField, direction.equals("ASC"), afterKey, afterId, size + 1);
+        
+        String nextCursor = null;
+        if (guests.size() > size) {
+            guests = guests.subList(0, size);
+            Guest last = guests.get(size - 1);
+            nextCursor = CursorCodec.encode(sortField.getProperty(), direction, sortField.keyOf(last), last.getId().toString());
+        }
+        
+        long totalElements = searchRequest.isIncludeTotal() ? guestRepository.countMatching(searchRequest) : -1;
+        
+        List<GuestResponse> guestResponses = mapEntitiesToResponses(guests);
+        
+        return new PagedResponse<>(guestResponses, size, first, nextCursor, totalElements);
+    }
+    
     /**
      * Get all guests (for simple listing)
      */
     @Transactional(readOnly = true)
     public PagedResponse<GuestResponse> getAllGuests(int page, int size, String sortBy, String sortDirection) {
+        return getAllGuests(page, size, sortBy, sortDirection, null, false);
+    }
+    
+    /**
+     * Get all guests, in keyset mode when a cursor is supplied (empty for the first page)
+     */
+    @Transactional(readOnly = true)
+    public PagedResponse<GuestResponse> getAllGuests(int page, int size, String sortBy, String sortDirection,
+                                                     String cursor, boolean includeTotal) {
+        if (cursor != null) {
+            GuestSearchRequest searchRequest = new GuestSearchRequest();
+            searchRequest.setSize(size);
+            searchRequest.setSortBy(sortBy);
+            searchRequest.setSortDirection(sortDirection);
+            searchRequest.setCursor(cursor);
+            searchRequest.setIncludeTotal(includeTotal);
+            return searchGuestsByCursor(searchRequest);
+        }
+        
         Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortBy);
         Pageable pageable = PageRequest.of(page, size, sort);
         
         Page<Guest> guestPage = guestRepository.findAll(pageable);
         
-        List<GuestResponse> guestResponses = guestPage.getContent().stream()
-                .map(this::mapEntityToResponse)
-                .collect(Collectors.toList());
+        List<GuestResponse> guestResponses = mapEntitiesToResponses(guestPage.getContent());
         
         return new PagedResponse<>(
             guestResponses,
@@ -235,15 +619,15 @@ public class GuestService {
      */
     @Transactional(readOnly = true)
     public boolean existsByPhone(String phone) {
-        return guestRepository.existsByPhone(phone);
+        return phoneFilter.probe(PhoneNumbers.toE164(phone), guestRepository::findIdByPhoneNormalized).isPresent();
     }
     
     /**
-     * Find guest by phone
+     * Find guest by phone, in any format of the same number
      */
     @Transactional(readOnly = true)
     public Optional<GuestResponse> findByPhone(String phone) {
-        return guestRepository.findByPhone(phone)
+        return phoneFilter.probe(PhoneNumbers.toE164(phone), guestRepository::findByPhoneNormalized)
                 .map(this::mapEntityToResponse);
     }
     
@@ -268,7 +652,7 @@ public class GuestService {
             Guest updatedGuest = guestRepository.save(guest);
             
             // Log the action
-            Staff currentStaff = getCurrentStaff();
+            Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
             auditLogService.logDataModification(currentStaff, "guests", guest.getId(), 
                                                "UPLOAD_PHOTO", null, 
                                                Map.of("message", "Photo uploaded for guest: " + guest.getFullName()));
@@ -297,7 +681,7 @@ public class GuestService {
         Guest updatedGuest = guestRepository.save(guest);
         
         // Log the action
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         auditLogService.logDataModification(currentStaff, "guests", guest.getId(), 
                                            "DELETE_PHOTO", null, 
                                            Map.of("message", "Photo deleted for guest: " + guest.getFullName()));
@@ -349,13 +733,6 @@ public class GuestService {
     
     // Private helper methods
     
-    private Staff getCurrentStaff() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return staffRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("Staff", "email", email));
-    }
-    
     private void mapRequestToEntity(GuestCreateRequest request, Guest guest) {
         guest.setFirstName(request.getFirstName());
         guest.setLastName(request.getLastName());
@@ -382,7 +759,110 @@ public class GuestService {
         guest.setNotes(request.getNotes());
     }
     
+    private static GuestUpdateRequest toUpdateRequest(Guest guest) {
+        GuestUpdateRequest request = new GuestUpdateRequest();
+        request.setFirstName(guest.getFirstName());
+        request.setLastName(guest.getLastName());
+        request.setPhone(guest.getPhone());
+        request.setEmail(guest.getEmail());
+        request.setSeatingPreference(guest.getSeatingPreference());
+        request.setDietaryRestrictions(guest.getDietaryRestrictions());
+        request.setFavoriteDrinks(guest.getFavoriteDrinks());
+        request.setBirthday(guest.getBirthday());
+        request.setAnniversary(guest.getAnniversary());
+        request.setNotes(guest.getNotes());
+        return request;
+    }
+    
+    /**
+     * Set a patched field from the merged request; false when it already had that value
+     */
+    private static boolean applyPatchedField(String field, GuestUpdateRequest merged, Guest guest) {
+        switch (field) {
+            case "firstName":
+                return setIfChanged(guest.getFirstName(), merged.getFirstName(), guest::setFirstName);
+            case "lastName":
+                return setIfChanged(guest.getLastName(), merged.getLastName(), guest::setLastName);
+            case "phone":
+                return setIfChanged(guest.getPhone(), merged.getPhone(), guest::setPhone);
+            case "email":
+                return setIfChanged(guest.getEmail(), merged.getEmail(), guest::setEmail);
+            case "seatingPreference":
+                return setIfChanged(guest.getSeatingPreference(), merged.getSeatingPreference(),
+                        guest::setSeatingPreference);
+            case "dietaryRestrictions":
+                Optional<List<String>> dietaryRestrictions =
+                        diffTags(guest.getDietaryRestrictions(), merged.getDietaryRestrictions());
+                dietaryRestrictions.ifPresent(guest::setDietaryRestrictions);
+                return dietaryRestrictions.isPresent();
+            case "favoriteDrinks":
+                Optional<List<String>> favoriteDrinks = diffTags(guest.getFavoriteDrinks(), merged.getFavoriteDrinks());
+                favoriteDrinks.ifPresent(guest::setFavoriteDrinks);
+                return favoriteDrinks.isPresent();
+            case "birthday":
+                return setIfChanged(guest.getBirthday(), merged.getBirthday(), guest::setBirthday);
+            case "anniversary":
+                return setIfChanged(guest.getAnniversary(), merged.getAnniversary(), guest::setAnniversary);
+            case "notes":
+                return setIfChanged(guest.getNotes(), merged.getNotes(), guest::setNotes);
+            default:
+                // Unknown fields are rejected when the patch is read
+                return false;
+        }
+    }
+    
+    private static <T> boolean setIfChanged(T current, T wanted, Consumer<T> setter) {
+        if (Objects.equals(current, wanted)) {
+            return false;
+        }
+        setter.accept(wanted);
+        return true;
+    }
+    
+    /**
+     * Edit the current tags into the wanted ones: tags no longer wanted are dropped, new ones appended
+     * and the rest keep their place. Empty when that leaves the tags as they are.
+     */
+    private static Optional<List<String>> diffTags(List<String> current, List<String> wanted) {
+        List<String> before = current != null ? current : List.of();
+        List<String> target = wanted != null ? wanted : List.of();
+        List<String> edited = new ArrayList<>(before);
+        edited.removeIf(tag -> !target.contains(tag));
+        for (String tag : target) {
+            if (!edited.contains(tag)) {
+                edited.add(tag);
+            }
+        }
+        return edited.equals(before) ? Optional.empty() : Optional.of(edited);
+    }
+    
     private GuestResponse mapEntityToResponse(Guest guest) {
+        return mapEntityToResponse(guest, loadVisitSummaries(List.of(guest.getId())).get(guest.getId()));
+    }
+    
+    /**
+     * Map a page of guests with one read of their visit statistics rows,
+     * so the statement count does not grow with visit history
+     */
+    private List<GuestResponse> mapEntitiesToResponses(List<Guest> guests) {
+        if (guests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, VisitSummary> summaries = loadVisitSummaries(
+                guests.stream().map(Guest::getId).collect(Collectors.toList()));
+        return guests.stream()
+                .map(guest -> mapEntityToResponse(guest, summaries.get(guest.getId())))
+                .collect(Collectors.toList());
+    }
+    
+    private Map<Long, VisitSummary> loadVisitSummaries(List<Long> guestIds) {
+        Map<Long, VisitSummary> summaries = new HashMap<>();
+        visitStatsService.getStats(guestIds).forEach((guestId, stats) ->
+                summaries.put(guestId, new VisitSummary((int) stats.getTotalVisits(), stats.getLastVisitAt())));
+        return summaries;
+    }
+    
+    private GuestResponse mapEntityToResponse(Guest guest, VisitSummary visitSummary) {
         GuestResponse response = new GuestResponse();
         response.setId(guest.getId());
         response.setFirstName(guest.getFirstName());
@@ -391,20 +871,24 @@ public class GuestService {
         response.setEmail(guest.getEmail());
         response.setPhotoUrl(guest.getPhotoUrl());
         response.setSeatingPreference(guest.getSeatingPreference());
-        response.setDietaryRestrictions(guest.getDietaryRestrictions());
-        response.setFavoriteDrinks(guest.getFavoriteDrinks());
+        // Copy while the session is open so the collections of a page are fetched in batches,
+        // not one guest at a time during serialization
+        response.setDietaryRestrictions(copyOf(guest.getDietaryRestrictions()));
+        response.setFavoriteDrinks(copyOf(guest.getFavoriteDrinks()));
         response.setBirthday(guest.getBirthday());
         response.setAnniversary(guest.getAnniversary());
         response.setNotes(guest.getNotes());
         response.setCreatedAt(guest.getCreatedAt());
         response.setUpdatedAt(guest.getUpdatedAt());
+        response.setVersion(guest.getVersion());
         
-        // Set visit information
-        Visit lastVisit = guest.getLastVisit();
-        if (lastVisit != null) {
-            response.setLastVisit(lastVisit.getCreatedAt());
+        // Set visit information from the guest's visit statistics, never from the lazy visits collection
+        if (visitSummary != null) {
+            response.setLastVisit(visitSummary.lastVisitAt);
+            response.setVisitCount(visitSummary.visitCount);
+        } else {
+            response.setVisitCount(0);
         }
-        response.setVisitCount(guest.getVisitCount());
         
         // Set created by information
         if (guest.getCreatedBy() != null) {
@@ -414,6 +898,68 @@ public class GuestService {
         return response;
     }
     
+    private static List<String> copyOf(List<String> values) {
+        return values != null ? new ArrayList<>(values) : null;
+    }
+
+    private static List<String> union(List<String> first, List<String> second) {
+        LinkedHashSet<String> values = new LinkedHashSet<>();
+        if (first != null) {
+            values.addAll(first);
+        }
+        if (second != null) {
+            values.addAll(second);
+        }
+        return new ArrayList<>(values);
+    }
+
+    /**
+     * Match facet-only filters against the facet index; the database then sorts and pages the matched ids.
+     * Empty when other filters apply, the index is not ready or the match is too large for an id list.
+     */
+    private Optional<Page<Guest>> searchByFacets(GuestSearchRequest request, Pageable pageable) {
+        if (!hasOnlyFacetFilters(request)) {
+            return Optional.empty();
+        }
+        Optional<RoaringBitmap> matches = facetIndex.match(facetSelection(request));
+        if (matches.isEmpty() || matches.get().getLongCardinality() > FACET_MATCH_LIMIT) {
+            return Optional.empty();
+        }
+        if (matches.get().isEmpty()) {
+            return Optional.of(Page.empty(pageable));
+        }
+        List<Long> ids = new ArrayList<>(matches.get().getCardinality());
+        matches.get().forEach((int id) -> ids.add((long) id));
+        return Optional.of(guestRepository.findByIdIn(ids, pageable));
+    }
+    
+    private boolean hasOnlyFacetFilters(GuestSearchRequest request) {
+        boolean hasFacetFilter = request.getSeatingPreference() != null ||
+               (request.getDietaryRestrictions() != null && !request.getDietaryRestrictions().isEmpty()) ||
+               (request.getFavoriteDrinks() != null && !request.getFavoriteDrinks().isEmpty());
+        return hasFacetFilter &&
+               (request.getSearchTerm() == null || request.getSearchTerm().trim().isEmpty()) &&
+               request.getHasBirthday() == null &&
+               request.getHasAnniversary() == null &&
+               !Boolean.TRUE.equals(request.getUpcomingOccasions());
+    }
+    
+    private static Map<GuestFacetIndex.Facet, List<String>> facetSelection(GuestSearchRequest request) {
+        Map<GuestFacetIndex.Facet, List<String>> selection = new EnumMap<>(GuestFacetIndex.Facet.class);
+        selection.put(GuestFacetIndex.Facet.DIETARY_RESTRICTION, request.getDietaryRestrictions());
+        selection.put(GuestFacetIndex.Facet.FAVORITE_DRINK, request.getFavoriteDrinks());
+        if (request.getSeatingPreference() != null) {
+            selection.put(GuestFacetIndex.Facet.SEATING_PREFERENCE, List.of(request.getSeatingPreference()));
+        }
+        return selection;
+    }
+    
+    private static List<GuestFacetCountsResponse.FacetCount> toFacetCounts(Map<String, Integer> counts) {
+        return counts.entrySet().stream()
+                .map(entry -> new GuestFacetCountsResponse.FacetCount(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+    
     private boolean hasAdvancedFilters(GuestSearchRequest request) {
         return request.getSeatingPreference() != null ||
                request.getHasBirthday() != null ||
@@ -426,14 +972,6 @@ public class GuestService {
                (request.getFavoriteDrinks() != null && !request.getFavoriteDrinks().isEmpty());
     }
     
-    private Page<Guest> convertListToPage(List<Guest> guests, Pageable pageable) {
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), guests.size());
-        
-        List<Guest> pageContent = guests.subList(start, end);
-        return new org.springframework.data.domain.PageImpl<>(pageContent, pageable, guests.size());
-    }
-    
     private void deleteOldPhoto(String photoUrl) {
         try {
             // Extract filename from URL
@@ -448,4 +986,14 @@ public class GuestService {
             System.err.println("Failed to delete old photo: " + e.getMessage());
         }
     }
+    
+    private static class VisitSummary {
+        private final int visitCount;
+        private final LocalDateTime lastVisitAt;
+        
+        VisitSummary(int visitCount, LocalDateTime lastVisitAt) {
+            this.visitCount = visitCount;
+            this.lastVisitAt = lastVisitAt;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.restaurant.vip.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compares guest_visit_stats with the visits table in guest id batches and refreshes the rows that
+ * drifted: visits written around VisitService (scripts, manual fixes) or a refresh lost to a bug.
+ * Visit count and first/last visit date are compared; a drifted row is recomputed as a whole.
+ */
+@Component
+public class GuestVisitStatsReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(GuestVisitStatsReconciler.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String SELECT_GUEST_IDS =
+        "SELECT id FROM guests WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_ACTUAL =
+        "SELECT guest_id, COUNT(*), MIN(visit_date), MAX(visit_date) FROM visits " +
+        "WHERE guest_id BETWEEN ? AND ? GROUP BY guest_id";
+
+    private static final String SELECT_STORED =
+        "SELECT guest_id, total_visits, first_visit_date, last_visit_date FROM guest_visit_stats " +
+        "WHERE guest_id BETWEEN ? AND ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GuestVisitStatsService statsService;
+
+    public GuestVisitStatsReconciler(JdbcTemplate jdbcTemplate, GuestVisitStatsService statsService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statsService = statsService;
+    }
+
+    /**
+     * Refresh every drifted row; returns how many there were
+     */
+    @Scheduled(fixedDelayString = "${app.visits.stats.reconcile-interval:21600000}",
+               initialDelayString = "${app.visits.stats.reconcile-interval:21600000}")
+    public int reconcile() {
+        long started = System.currentTimeMillis();
+        long afterId = 0L;
+        int repaired = 0;
+        List<Long> guestIds;
+        do {
+            guestIds = jdbcTemplate.queryForList(SELECT_GUEST_IDS, Long.class, afterId, BATCH_SIZE);
+            if (guestIds.isEmpty()) {
+                break;
+            }
+            long lastId = guestIds.get(guestIds.size() - 1);
+            Map<Long, List<Object>> actual = load(SELECT_ACTUAL, afterId + 1, lastId);
+            Map<Long, List<Object>> stored = load(SELECT_STORED, afterId + 1, lastId);
+
+            Set<Long> candidates = new HashSet<>(actual.keySet());
+            candidates.addAll(stored.keySet());
+            for (Long guestId : candidates) {
+                if (!Objects.equals(actual.get(guestId), stored.get(guestId))) {
+                    // Each repair runs in its own transaction, holding only that guest's row lock
+                    statsService.repair(guestId);
+                    repaired++;
+                }
+            }
+            afterId = lastId;
+        } while (guestIds.size() == BATCH_SIZE);
+
+        if (repaired > 0) {
+            logger.warn("Repaired visit statistics of {} guests in {} ms",
+                    repaired, System.currentTimeMillis() - started);
+        }
+        return repaired;
+    }
+
+    // guest id -> (visit count, first visit date, last visit date)
+    private Map<Long, List<Object>> load(String sql, long fromId, long toId) {
+        Map<Long, List<Object>> rows = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            rows.put(rs.getLong(1), Arrays.asList(
+                    rs.getLong(2), rs.getObject(3, LocalDate.class), rs.getObject(4, LocalDate.class)));
+        }, fromId, toId);
+        return rows;
+    }
+}
@@ -0,0 +1,134 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.entity.GuestVisitStats;
+import com.restaurant.vip.entity.Visit;
+import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.repository.GuestVisitStatsRepository;
+import com.restaurant.vip.repository.VisitRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the guest_visit_stats row of a guest in step with its visits.
+ *
+ * Every visit write calls refresh() within the writer's own transaction, after the guest's version
+ * was bumped: that UPDATE row-locks the guest until commit, so concurrent writers for one guest
+ * refresh one after the other and the last one sees every committed visit. The row is recomputed rather than adjusted, since
+ * editing or deleting a visit can move the first and last visit; the cost stays on the write path
+ * and is bounded by one guest's visits.
+ */
+@Service
+@Transactional
+public class GuestVisitStatsService {
+
+    private final GuestVisitStatsRepository statsRepository;
+    private final VisitRepository visitRepository;
+    private final GuestRepository guestRepository;
+
+    public GuestVisitStatsService(GuestVisitStatsRepository statsRepository, VisitRepository visitRepository,
+                                  GuestRepository guestRepository) {
+        this.statsRepository = statsRepository;
+        this.visitRepository = visitRepository;
+        this.guestRepository = guestRepository;
+    }
+
+    /**
+     * Recompute a guest's statistics from its visits; a guest left without visits loses its row
+     */
+    public void refresh(Long guestId) {
+        Visit lastVisit = visitRepository.findLastVisitByGuestId(guestId);
+        Optional<GuestVisitStats> existing = statsRepository.findById(guestId);
+        if (lastVisit == null) {
+            existing.ifPresent(statsRepository::delete);
+            return;
+        }
+
+        Object[] totals = visitRepository.getGuestVisitStatistics(guestId);
+        GuestVisitStats stats = existing.orElseGet(() -> new GuestVisitStats(guestId));
+        stats.setTotalVisits(((Number) totals[0]).longValue());
+        stats.setFirstVisitDate((LocalDate) totals[2]);
+        stats.setAveragePartySize(totals[3] != null ? ((Number) totals[3]).doubleValue() : null);
+        stats.setLastVisitDate(lastVisit.getVisitDate());
+        stats.setLastVisitTime(lastVisit.getVisitTime());
+        stats.setLastVisitId(lastVisit.getId());
+        stats.setLastTableNumber(lastVisit.getTableNumber());
+        stats.setLastStaffId(lastVisit.getStaff() != null ? lastVisit.getStaff().getId() : null);
+        statsRepository.save(stats);
+    }
+
+    /**
+     * Recompute a guest's statistics outside a visit write (reconciliation). Bumps the guest's
+     * version first, as the visit writers do, so the refresh waits for a writer in flight and one
+     * that starts later waits for it; the bump also changes the guest's ETag, whose visit figures
+     * this may change.
+     */
+    public void repair(Long guestId) {
+        guestRepository.incrementVersion(guestId);
+        refresh(guestId);
+    }
+
+    /**
+     * Recompute the statistics of several guests with one grouped query per figure instead of a
+     * refresh per guest, for writes that touch many guests at once (bulk visit logging). The caller
+     * holds the guests' row locks, as with refresh().
+     */
+    public void refresh(Collection<Long> guestIds) {
+        if (guestIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Object[]> totals = visitRepository.getVisitStatisticsByGuestIds(guestIds).stream()
+            .collect(Collectors.toMap(row -> (Long) row[0], Function.identity()));
+        // Of two visits at the same latest date and time, the later recorded one is the last visit
+        Map<Long, Visit> lastVisits = visitRepository.findLastVisitsByGuestIds(guestIds).stream()
+            .collect(Collectors.toMap(visit -> visit.getGuest().getId(), Function.identity(),
+                (a, b) -> a.getId() > b.getId() ? a : b));
+        Map<Long, GuestVisitStats> existing = getStats(guestIds);
+
+        List<GuestVisitStats> changed = new ArrayList<>();
+        for (Long guestId : guestIds) {
+            Object[] row = totals.get(guestId);
+            Visit lastVisit = lastVisits.get(guestId);
+            if (row == null || lastVisit == null) {
+                Optional.ofNullable(existing.get(guestId)).ifPresent(statsRepository::delete);
+                continue;
+            }
+            GuestVisitStats stats = existing.getOrDefault(guestId, new GuestVisitStats(guestId));
+            stats.setTotalVisits(((Number) row[1]).longValue());
+            stats.setFirstVisitDate((LocalDate) row[2]);
+            stats.setAveragePartySize(row[3] != null ? ((Number) row[3]).doubleValue() : null);
+            stats.setLastVisitDate(lastVisit.getVisitDate());
+            stats.setLastVisitTime(lastVisit.getVisitTime());
+            stats.setLastVisitId(lastVisit.getId());
+            stats.setLastTableNumber(lastVisit.getTableNumber());
+            stats.setLastStaffId(lastVisit.getStaff() != null ? lastVisit.getStaff().getId() : null);
+            changed.add(stats);
+        }
+        statsRepository.saveAll(changed);
+    }
+
+    /**
+     * Statistics of a guest; empty when it has no visits
+     */
+    @Transactional(readOnly = true)
+    public Optional<GuestVisitStats> getStats(Long guestId) {
+        return statsRepository.findById(guestId);
+    }
+
+    /**
+     * Statistics of several guests in one statement, by guest id; guests without visits are absent
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, GuestVisitStats> getStats(Collection<Long> guestIds) {
+        return statsRepository.findAllById(guestIds).stream()
+            .collect(Collectors.toMap(GuestVisitStats::getGuestId, Function.identity()));
+    }
+}
@@ -107,6 +107,21 @@ public class JwtService {
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
+    /**
+     * The staff member an access token was issued to, from its claims alone. Parses and verifies
+     * the token once; expired or tampered tokens throw.
+     */
+    public StaffPrincipal extractPrincipal(String token) {
+        Claims claims = extractAllClaims(token);
+        return new StaffPrincipal(
+                claims.get("staffId", Long.class),
+                claims.getSubject(),
+                StaffRole.valueOf(claims.get("role", String.class)),
+                claims.get("firstName", String.class),
+                claims.get("lastName", String.class)
+        );
+    }
+
     public Long extractStaffId(String token) {
         Claims claims = extractAllClaims(token);
         return claims.get("staffId", Long.class);
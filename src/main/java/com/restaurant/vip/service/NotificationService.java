@@ -6,6 +6,7 @@ import com.restaurant.vip.entity.Guest;
 import com.restaurant.vip.entity.Visit;
 import com.restaurant.vip.repository.GuestRepository;
 import com.restaurant.vip.repository.VisitRepository;
+import com.restaurant.vip.util.MonthDayWindow;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -75,9 +76,10 @@ public class NotificationService {
         LocalDate today = LocalDate.now();
         
         // Get guests with birthdays today or within next 7 days
+        MonthDayWindow window = MonthDayWindow.of(today, 7);
         List<Guest> birthdayGuests = guestRepository.findGuestsWithUpcomingBirthdays(
-            today.getMonthValue(), today.getDayOfMonth(),
-            today.plusDays(7).getMonthValue(), today.plusDays(7).getDayOfMonth()
+            window.getFirstFrom(), window.getFirstTo(),
+            window.getSecondFrom(), window.getSecondTo()
         );
         
         for (Guest guest : birthdayGuests) {
@@ -96,8 +98,8 @@ public class NotificationService {
         
         // Get guests with anniversaries today or within next 7 days
         List<Guest> anniversaryGuests = guestRepository.findGuestsWithUpcomingAnniversaries(
-            today.getMonthValue(), today.getDayOfMonth(),
-            today.plusDays(7).getMonthValue(), today.plusDays(7).getDayOfMonth()
+            window.getFirstFrom(), window.getFirstTo(),
+            window.getSecondFrom(), window.getSecondTo()
         );
         
         for (Guest guest : anniversaryGuests) {
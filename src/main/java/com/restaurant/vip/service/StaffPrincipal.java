@@ -0,0 +1,156 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.entity.Staff;
+import com.restaurant.vip.entity.StaffRole;
+import com.restaurant.vip.exception.ResourceNotFoundException;
+import com.restaurant.vip.repository.StaffRepository;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The authenticated staff member of a request, built from the access token's claims by
+ * JwtAuthenticationFilter. Services and the audit aspect read it instead of loading the staff row;
+ * the staff table is only consulted at login and token refresh.
+ */
+public class StaffPrincipal implements UserDetails {
+
+    private final Long staffId;
+    private final String email;
+    private final StaffRole role;
+    private final String firstName;
+    private final String lastName;
+    private final List<GrantedAuthority> authorities;
+
+    public StaffPrincipal(Long staffId, String email, StaffRole role, String firstName, String lastName) {
+        this.staffId = staffId;
+        this.email = email;
+        this.role = role;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.authorities = Collections.unmodifiableList(authoritiesFor(role));
+    }
+
+    /**
+     * The principal of the current request, when it was authenticated with an access token
+     */
+    public static Optional<StaffPrincipal> current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof StaffPrincipal principal) {
+            return Optional.of(principal);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The staff member the current request acts as, for attributing changes. Token-authenticated
+     * requests carry the staff id, so a reference is enough; other authentications are looked up
+     * by email.
+     */
+    public static Staff currentStaff(StaffRepository staffRepository) {
+        Optional<StaffPrincipal> principal = current();
+        if (principal.isPresent()) {
+            return staffRepository.getReferenceById(principal.get().getStaffId());
+        }
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        return staffRepository.findByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("Staff", "email", email));
+    }
+
+    /**
+     * Role authority plus the permissions the role grants; managers hold everything servers do,
+     * servers everything hosts do
+     */
+    public static List<GrantedAuthority> authoritiesFor(StaffRole role) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+
+        // Add role-based authorities
+        authorities.add(new SimpleGrantedAuthority("ROLE_" + role.name()));
+
+        // Add specific permissions based on role
+        switch (role) {
+            case MANAGER:
+                authorities.add(new SimpleGrantedAuthority("PERMISSION_MANAGE_STAFF"));
+                authorities.add(new SimpleGrantedAuthority("PERMISSION_VIEW_AUDIT_LOGS"));
+                authorities.add(new SimpleGrantedAuthority("PERMISSION_EDIT_ALL_GUESTS"));
+                authorities.add(new SimpleGrantedAuthority("PERMISSION_EDIT_ALL_VISITS"));
+                // Fall through to include all lower-level permissions
+            case SERVER:
+                authorities.add(new SimpleGrantedAuthority("PERMISSION_LOG_VISITS"));
+                authorities.add(new SimpleGrantedAuthority("PERMISSION_EDIT_OWN_VISITS"));
+                // Fall through to include all lower-level permissions
+            case HOST:
+                authorities.add(new SimpleGrantedAuthority("PERMISSION_VIEW_GUESTS"));
+                authorities.add(new SimpleGrantedAuthority("PERMISSION_CREATE_GUESTS"));
+                authorities.add(new SimpleGrantedAuthority("PERMISSION_EDIT_BASIC_GUEST_INFO"));
+                authorities.add(new SimpleGrantedAuthority("PERMISSION_VIEW_NOTIFICATIONS"));
+                break;
+        }
+
+        return authorities;
+    }
+
+    public Long getStaffId() {
+        return staffId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public StaffRole getRole() {
+        return role;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    // Token-authenticated: there is no password, and locking an account ends its sessions instead
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
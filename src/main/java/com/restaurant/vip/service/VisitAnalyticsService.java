@@ -0,0 +1,81 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.dto.DailyVisitVolume;
+import com.restaurant.vip.dto.StaffVisitVolume;
+import com.restaurant.vip.dto.TopGuestResponse;
+import com.restaurant.vip.dto.VisitHeatmapResponse;
+import com.restaurant.vip.entity.VisitHourlyRollup;
+import com.restaurant.vip.repository.VisitRollupRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Dashboard analytics, read from the visit rollups (see VisitRollupService) so their cost follows
+ * the length of the requested range rather than the number of visits in it
+ */
+@Service
+@Transactional(readOnly = true)
+public class VisitAnalyticsService {
+
+    private static final int HOURS_PER_DAY = 24;
+
+    private final VisitRollupRepository rollupRepository;
+
+    public VisitAnalyticsService(VisitRollupRepository rollupRepository) {
+        this.rollupRepository = rollupRepository;
+    }
+
+    /**
+     * Days of the range with the most visits, busiest first
+     */
+    public List<DailyVisitVolume> getBusiestDays(LocalDate startDate, LocalDate endDate, int limit) {
+        return rollupRepository.findBusiestDays(startDate, endDate, PageRequest.of(0, limit)).stream()
+            .map(day -> new DailyVisitVolume(day.getVisitDate(), day.getVisitCount(), day.getCoverCount()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Visits by weekday and hour over the range, Monday first, from one hourly row per open hour
+     */
+    public VisitHeatmapResponse getVisitHeatmap(LocalDate startDate, LocalDate endDate) {
+        long[] visits = new long[7 * HOURS_PER_DAY];
+        long[] covers = new long[7 * HOURS_PER_DAY];
+        for (VisitHourlyRollup hour : rollupRepository.findHourly(startDate, endDate)) {
+            int cell = (hour.getVisitDate().getDayOfWeek().getValue() - 1) * HOURS_PER_DAY + hour.getVisitHour();
+            visits[cell] += hour.getVisitCount();
+            covers[cell] += hour.getCoverCount();
+        }
+
+        List<VisitHeatmapResponse.Cell> cells = new ArrayList<>();
+        for (int cell = 0; cell < visits.length; cell++) {
+            if (visits[cell] > 0) {
+                cells.add(new VisitHeatmapResponse.Cell(DayOfWeek.of(cell / HOURS_PER_DAY + 1),
+                    cell % HOURS_PER_DAY, visits[cell], covers[cell]));
+            }
+        }
+        return new VisitHeatmapResponse(startDate, endDate, cells);
+    }
+
+    /**
+     * Guests with the most visits; guests are counted by month, so the range covers the whole
+     * months of its start and end dates
+     */
+    public List<TopGuestResponse> getTopGuests(LocalDate startDate, LocalDate endDate, int limit) {
+        return rollupRepository.findTopGuests(startDate.withDayOfMonth(1), endDate.withDayOfMonth(1),
+            PageRequest.of(0, limit));
+    }
+
+    /**
+     * Visits and covers per staff member over the range
+     */
+    public List<StaffVisitVolume> getStaffVolumes(LocalDate startDate, LocalDate endDate) {
+        return rollupRepository.findStaffVolumes(startDate, endDate);
+    }
+}
@@ -0,0 +1,108 @@
+package com.restaurant.vip.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of visits (V16) ahead of the calendar: the partitions of the coming
+ * months are created before any visit needs them, so new visits never land in visits_default.
+ *
+ * With a retention configured, months older than that are detached. A detached partition stays in the
+ * database as a plain table (visits_2019_03) for archiving, but its visits drop out of every query,
+ * guest history and the statistics the reconcilers recompute. Retention 0, the default, keeps every
+ * month attached.
+ */
+@Component
+public class VisitPartitionMaintenance {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitPartitionMaintenance.class);
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile("visits_(\\d{4})_(\\d{2})");
+
+    private static final String SELECT_PARTITIONS =
+        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+        "WHERE i.inhparent = 'visits'::regclass";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public VisitPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                     @Value("${app.visits.partitions.months-ahead:3}") int monthsAhead,
+                                     @Value("${app.visits.partitions.retention-months:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Create missing partitions up to monthsAhead, then detach the ones past retention
+     */
+    @Scheduled(fixedDelayString = "${app.visits.partitions.maintenance-interval:86400000}",
+               initialDelayString = "${app.visits.partitions.initial-delay:60000}")
+    public void maintain() {
+        // Partitioning lives in the PostgreSQL migrations; the H2 test schema has a plain visits table
+        if (!Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName())))) {
+            return;
+        }
+
+        YearMonth current = YearMonth.now();
+        List<String> attached = jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class);
+        for (YearMonth month = current; !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            if (!attached.contains(partitionName(month))) {
+                createPartition(month);
+            }
+        }
+        if (retentionMonths > 0) {
+            detachBefore(current.minusMonths(retentionMonths));
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        String sql = "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF visits " +
+            "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+        try {
+            jdbcTemplate.execute(sql);
+            logger.info("Created visits partition {}", partitionName(month));
+        } catch (DataAccessException e) {
+            // Typically visits of that month already sit in visits_default; they have to be moved by hand
+            logger.warn("Could not create visits partition {}: {}", partitionName(month), e.getMessage());
+        }
+    }
+
+    private void detachBefore(YearMonth oldestKept) {
+        List<String> detachable = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class)) {
+            Matcher matcher = MONTHLY_PARTITION.matcher(name);
+            if (matcher.matches()
+                    && YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))).isBefore(oldestKept)) {
+                detachable.add(name);
+            }
+        }
+        for (String name : detachable) {
+            jdbcTemplate.execute("ALTER TABLE visits DETACH PARTITION " + name);
+            logger.info("Detached visits partition {}", name);
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "visits_" + month.format(PARTITION_SUFFIX);
+    }
+}
@@ -0,0 +1,72 @@
+package com.restaurant.vip.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Rebuilds the visit rollups from the visits table one month at a time, each month in its own
+ * transaction so a full-history backfill never holds locks for long. Runs on a schedule over the
+ * most recent months, which catches visits written around VisitService (scripts, manual fixes),
+ * and on demand for any range from the admin API.
+ */
+@Component
+public class VisitRollupBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitRollupBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VisitRollupService rollupService;
+    private final int recentMonths;
+
+    public VisitRollupBackfill(JdbcTemplate jdbcTemplate, VisitRollupService rollupService,
+                               @Value("${app.visits.rollups.recent-months:2}") int recentMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rollupService = rollupService;
+        this.recentMonths = recentMonths;
+    }
+
+    /**
+     * Rebuild the current month and the ones just before it
+     */
+    @Scheduled(fixedDelayString = "${app.visits.rollups.rebuild-interval:86400000}",
+               initialDelayString = "${app.visits.rollups.rebuild-interval:86400000}")
+    public int rebuildRecent() {
+        YearMonth current = YearMonth.now();
+        return rebuild(current.minusMonths(recentMonths - 1L), current);
+    }
+
+    /**
+     * Rebuild every month from the first to the last visit on record; returns the months rebuilt
+     */
+    public int rebuildAll() {
+        LocalDate first = jdbcTemplate.queryForObject("SELECT MIN(visit_date) FROM visits", LocalDate.class);
+        LocalDate last = jdbcTemplate.queryForObject("SELECT MAX(visit_date) FROM visits", LocalDate.class);
+        if (first == null) {
+            return 0;
+        }
+        return rebuild(YearMonth.from(first), YearMonth.from(last));
+    }
+
+    /**
+     * Rebuild the months from first to last inclusive; returns the months rebuilt
+     */
+    public int rebuild(YearMonth first, YearMonth last) {
+        long started = System.currentTimeMillis();
+        int months = 0;
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            // Each call runs in its own transaction
+            rollupService.rebuildMonth(month);
+            months++;
+        }
+        logger.info("Rebuilt visit rollups for {} months ({} to {}) in {} ms",
+                months, first, last, System.currentTimeMillis() - started);
+        return months;
+    }
+}
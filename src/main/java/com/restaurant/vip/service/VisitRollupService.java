@@ -0,0 +1,292 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.entity.Visit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Maintains the V15 visit rollups. VisitService hands over what a visit contributes when it writes
+ * one, and the four bucket rows are adjusted by that delta in the same transaction. Adjusting rather
+ * than recounting keeps concurrent writers correct: each one adds to the row under its lock, so two
+ * visits on the same evening both count. rebuildMonth() recounts a month from the visits for the
+ * backfill and to repair drift.
+ */
+@Service
+@Transactional
+public class VisitRollupService {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    @SuppressWarnings("unchecked")
+    private static final Comparator<List<Object>> KEY_ORDER = (a, b) -> {
+        for (int i = 0; i < a.size(); i++) {
+            int order = ((Comparable<Object>) a.get(i)).compareTo(b.get(i));
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VisitRollupService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Count a new visit
+     */
+    public void add(Contribution contribution) {
+        apply(List.of(contribution), List.of(1));
+    }
+
+    /**
+     * Count several new visits. Visits sharing a bucket (one evening, hour or server) are summed first,
+     * so each bucket row is adjusted once, and the adjustments of a rollup go out as one JDBC batch.
+     */
+    public void addAll(List<Contribution> contributions) {
+        Map<Rollup, Map<List<Object>, long[]>> buckets = new EnumMap<>(Rollup.class);
+        for (Contribution contribution : contributions) {
+            count(buckets, Rollup.DAILY, contribution, contribution.visitDate);
+            count(buckets, Rollup.HOURLY, contribution, contribution.visitDate, contribution.hour);
+            count(buckets, Rollup.STAFF_DAILY, contribution, contribution.staffId, contribution.visitDate);
+            count(buckets, Rollup.GUEST_MONTHLY, contribution, contribution.guestId, contribution.visitMonth);
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean upsert = POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName());
+            for (Map.Entry<Rollup, Map<List<Object>, long[]>> rollup : buckets.entrySet()) {
+                rollup.getKey().addAll(connection, upsert, rollup.getValue());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Uncount a deleted visit
+     */
+    public void remove(Contribution contribution) {
+        apply(List.of(contribution), List.of(-1));
+    }
+
+    /**
+     * Move an edited visit from the buckets it was counted in to the ones it belongs to now
+     */
+    public void replace(Contribution before, Contribution after) {
+        if (!before.equals(after)) {
+            apply(List.of(before, after), List.of(-1, 1));
+        }
+    }
+
+    /**
+     * Move a merged guest's monthly rows onto the surviving guest, after its visits were reassigned
+     */
+    public void moveGuest(Long fromGuestId, Long toGuestId) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean upsert = POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName());
+            List<Object[]> rows = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT visit_month, visit_count, cover_count FROM guest_monthly_visit_rollups WHERE guest_id = ?")) {
+                statement.setLong(1, fromGuestId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        rows.add(new Object[] {resultSet.getObject(1, LocalDate.class), resultSet.getLong(2), resultSet.getLong(3)});
+                    }
+                }
+            }
+            for (Object[] row : rows) {
+                Rollup.GUEST_MONTHLY.add(connection, upsert, new Object[] {toGuestId, row[0]}, (Long) row[1], (Long) row[2]);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM guest_monthly_visit_rollups WHERE guest_id = ?")) {
+                statement.setLong(1, fromGuestId);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Recount every rollup row of a month from the visits table
+     */
+    public void rebuildMonth(YearMonth month) {
+        LocalDate first = month.atDay(1);
+        LocalDate last = month.atEndOfMonth();
+        for (Rollup rollup : Rollup.values()) {
+            jdbcTemplate.update(rollup.deleteMonthSql, first, last);
+        }
+        jdbcTemplate.update(
+            "INSERT INTO visit_daily_rollups (visit_date, visit_count, cover_count) " +
+            "SELECT visit_date, COUNT(*), COALESCE(SUM(party_size), 0) FROM visits " +
+            "WHERE visit_date BETWEEN ? AND ? GROUP BY visit_date", first, last);
+        jdbcTemplate.update(
+            "INSERT INTO visit_hourly_rollups (visit_date, visit_hour, visit_count, cover_count) " +
+            "SELECT visit_date, CAST(EXTRACT(HOUR FROM visit_time) AS INTEGER), COUNT(*), COALESCE(SUM(party_size), 0) " +
+            "FROM visits WHERE visit_date BETWEEN ? AND ? " +
+            "GROUP BY visit_date, CAST(EXTRACT(HOUR FROM visit_time) AS INTEGER)", first, last);
+        jdbcTemplate.update(
+            "INSERT INTO visit_staff_daily_rollups (staff_id, visit_date, visit_count, cover_count) " +
+            "SELECT staff_id, visit_date, COUNT(*), COALESCE(SUM(party_size), 0) FROM visits " +
+            "WHERE visit_date BETWEEN ? AND ? GROUP BY staff_id, visit_date", first, last);
+        jdbcTemplate.update(
+            "INSERT INTO guest_monthly_visit_rollups (guest_id, visit_month, visit_count, cover_count) " +
+            "SELECT guest_id, CAST(? AS DATE), COUNT(*), COALESCE(SUM(party_size), 0) FROM visits " +
+            "WHERE visit_date BETWEEN ? AND ? GROUP BY guest_id", first, first, last);
+    }
+
+    private void apply(List<Contribution> contributions, List<Integer> deltas) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean upsert = POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName());
+            for (int i = 0; i < contributions.size(); i++) {
+                Contribution contribution = contributions.get(i);
+                long visits = deltas.get(i);
+                long covers = visits * contribution.covers;
+                Rollup.DAILY.add(connection, upsert, new Object[] {contribution.visitDate}, visits, covers);
+                Rollup.HOURLY.add(connection, upsert, new Object[] {contribution.visitDate, contribution.hour}, visits, covers);
+                Rollup.STAFF_DAILY.add(connection, upsert, new Object[] {contribution.staffId, contribution.visitDate}, visits, covers);
+                Rollup.GUEST_MONTHLY.add(connection, upsert, new Object[] {contribution.guestId, contribution.visitMonth}, visits, covers);
+            }
+            return null;
+        });
+    }
+
+    private static void count(Map<Rollup, Map<List<Object>, long[]>> buckets, Rollup rollup,
+                              Contribution contribution, Object... key) {
+        // Kept in key order, so concurrent batches adjust the rows they share in the same order
+        long[] counts = buckets.computeIfAbsent(rollup, r -> new TreeMap<>(KEY_ORDER))
+            .computeIfAbsent(List.of(key), k -> new long[2]);
+        counts[0]++;
+        counts[1] += contribution.covers;
+    }
+
+    /**
+     * The buckets one visit is counted in, and the covers it adds to each
+     */
+    public static final class Contribution {
+
+        private final Long guestId;
+        private final Long staffId;
+        private final LocalDate visitDate;
+        private final LocalDate visitMonth;
+        private final int hour;
+        private final int covers;
+
+        private Contribution(Long guestId, Long staffId, LocalDate visitDate, int hour, int covers) {
+            this.guestId = guestId;
+            this.staffId = staffId;
+            this.visitDate = visitDate;
+            this.visitMonth = visitDate.withDayOfMonth(1);
+            this.hour = hour;
+            this.covers = covers;
+        }
+
+        public static Contribution of(Visit visit) {
+            return new Contribution(visit.getGuest().getId(), visit.getStaff().getId(), visit.getVisitDate(),
+                visit.getVisitTime().getHour(), visit.getPartySize() != null ? visit.getPartySize() : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Contribution that)) return false;
+            return hour == that.hour && covers == that.covers && Objects.equals(guestId, that.guestId)
+                && Objects.equals(staffId, that.staffId) && Objects.equals(visitDate, that.visitDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(guestId, staffId, visitDate, hour, covers);
+        }
+    }
+
+    private enum Rollup {
+        DAILY("visit_daily_rollups", "visit_date"),
+        HOURLY("visit_hourly_rollups", "visit_date", "visit_hour"),
+        STAFF_DAILY("visit_staff_daily_rollups", "staff_id", "visit_date"),
+        GUEST_MONTHLY("guest_monthly_visit_rollups", "guest_id", "visit_month");
+
+        private final String upsertSql;
+        private final String updateSql;
+        private final String insertSql;
+        private final String deleteMonthSql;
+
+        Rollup(String table, String... keyColumns) {
+            String keys = String.join(", ", keyColumns);
+            String placeholders = String.join(", ", Collections.nCopies(keyColumns.length, "?"));
+            String keyMatch = String.join(" = ? AND ", keyColumns) + " = ?";
+            this.insertSql = "INSERT INTO " + table + " (" + keys + ", visit_count, cover_count) VALUES (" + placeholders + ", ?, ?)";
+            this.upsertSql = insertSql + " ON CONFLICT (" + keys + ") DO UPDATE SET " +
+                "visit_count = " + table + ".visit_count + EXCLUDED.visit_count, " +
+                "cover_count = " + table + ".cover_count + EXCLUDED.cover_count";
+            this.updateSql = "UPDATE " + table + " SET visit_count = visit_count + ?, cover_count = cover_count + ? WHERE " + keyMatch;
+            this.deleteMonthSql = "DELETE FROM " + table + " WHERE " +
+                (keyColumns[keyColumns.length - 1].equals("visit_month") ? "visit_month" : "visit_date") + " BETWEEN ? AND ?";
+        }
+
+        void add(Connection connection, boolean upsert, Object[] key, long visits, long covers) throws SQLException {
+            if (upsert) {
+                try (PreparedStatement statement = connection.prepareStatement(upsertSql)) {
+                    bindInsert(statement, key, visits, covers);
+                    statement.executeUpdate();
+                }
+                return;
+            }
+            // Update-then-insert for databases without ON CONFLICT (H2 in tests); not safe against concurrent writers
+            try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+                statement.setLong(1, visits);
+                statement.setLong(2, covers);
+                for (int i = 0; i < key.length; i++) {
+                    statement.setObject(i + 3, key[i]);
+                }
+                if (statement.executeUpdate() > 0) {
+                    return;
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+                bindInsert(statement, key, visits, covers);
+                statement.executeUpdate();
+            }
+        }
+
+        void addAll(Connection connection, boolean upsert, Map<List<Object>, long[]> counts) throws SQLException {
+            if (!upsert) {
+                for (Map.Entry<List<Object>, long[]> bucket : counts.entrySet()) {
+                    add(connection, false, bucket.getKey().toArray(), bucket.getValue()[0], bucket.getValue()[1]);
+                }
+                return;
+            }
+            try (PreparedStatement statement = connection.prepareStatement(upsertSql)) {
+                for (Map.Entry<List<Object>, long[]> bucket : counts.entrySet()) {
+                    bindInsert(statement, bucket.getKey().toArray(), bucket.getValue()[0], bucket.getValue()[1]);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+
+        private static void bindInsert(PreparedStatement statement, Object[] key, long visits, long covers) throws SQLException {
+            for (int i = 0; i < key.length; i++) {
+                statement.setObject(i + 1, key[i]);
+            }
+            statement.setLong(key.length + 1, visits);
+            statement.setLong(key.length + 2, covers);
+        }
+    }
+}
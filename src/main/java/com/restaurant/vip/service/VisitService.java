@@ -1,54 +1,82 @@
 package com.restaurant.vip.service;
 
 import com.restaurant.vip.dto.PagedResponse;
+import com.restaurant.vip.dto.VisitBatchCreateResponse;
 import com.restaurant.vip.dto.VisitCreateRequest;
 import com.restaurant.vip.dto.VisitHistoryResponse;
+import com.restaurant.vip.dto.VisitNoteSearchResult;
 import com.restaurant.vip.dto.VisitNotesResponse;
 import com.restaurant.vip.dto.VisitResponse;
+import com.restaurant.vip.dto.VisitTimelineEntry;
 import com.restaurant.vip.dto.VisitUpdateRequest;
 import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.GuestVisitStats;
 import com.restaurant.vip.entity.Staff;
 import com.restaurant.vip.entity.StaffRole;
 import com.restaurant.vip.entity.Visit;
+import com.restaurant.vip.exception.InvalidCursorException;
+import com.restaurant.vip.exception.InvalidSearchQueryException;
 import com.restaurant.vip.exception.ResourceNotFoundException;
 import com.restaurant.vip.repository.GuestRepository;
 import com.restaurant.vip.repository.StaffRepository;
 import com.restaurant.vip.repository.VisitRepository;
+import com.restaurant.vip.util.CursorCodec;
+import com.restaurant.vip.util.NotesSearchQuery;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class VisitService {
     
+    static final String CREATED = "CREATED";
+    static final String INVALID = "INVALID";
+    static final String GUEST_NOT_FOUND = "GUEST_NOT_FOUND";
+    
     private final VisitRepository visitRepository;
     private final GuestRepository guestRepository;
     private final StaffRepository staffRepository;
     private final AuditLogService auditLogService;
+    private final GuestVisitStatsService visitStatsService;
+    private final VisitRollupService visitRollupService;
+    private final Validator validator;
     
     @Autowired
     public VisitService(VisitRepository visitRepository, 
                        GuestRepository guestRepository,
                        StaffRepository staffRepository,
-                       AuditLogService auditLogService) {
+                       AuditLogService auditLogService,
+                       GuestVisitStatsService visitStatsService,
+                       VisitRollupService visitRollupService,
+                       Validator validator) {
         this.visitRepository = visitRepository;
         this.guestRepository = guestRepository;
         this.staffRepository = staffRepository;
         this.auditLogService = auditLogService;
+        this.visitStatsService = visitStatsService;
+        this.visitRollupService = visitRollupService;
+        this.validator = validator;
     }
     
     /**
@@ -56,7 +84,7 @@ public class VisitService {
      */
     public VisitResponse createVisit(VisitCreateRequest request) {
         // Get current authenticated staff member
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         
         // Validate guest exists
         Guest guest = guestRepository.findById(request.getGuestId())
@@ -72,8 +100,11 @@ public class VisitService {
         visit.setTableNumber(request.getTableNumber());
         visit.setServiceNotes(request.getServiceNotes());
         
-        // Save visit
+        // Save visit; the guest's visit count and last visit change, and with them its ETag
         Visit savedVisit = visitRepository.save(visit);
+        guestRepository.incrementVersion(guest.getId());
+        visitStatsService.refresh(guest.getId());
+        visitRollupService.add(VisitRollupService.Contribution.of(savedVisit));
         
         // Log audit event
         auditLogService.logVisitCreated(currentStaff.getId(), savedVisit.getId(), guest.getId());
@@ -81,12 +112,82 @@ public class VisitService {
         return new VisitResponse(savedVisit);
     }
     
+    /**
+     * Log many visits in one transaction, typically a server's tables at the end of a shift. Every
+     * visit is validated on its own, and one query checks all guests. The visits and their audit
+     * entries are inserted as JDBC batches. Guest statistics and rollups are updated once for the
+     * whole batch. A visit that is invalid or names an unknown guest is reported and skipped.
+     */
+    public VisitBatchCreateResponse createVisits(List<VisitCreateRequest> requests) {
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
+        
+        VisitBatchCreateResponse.ItemResult[] results = new VisitBatchCreateResponse.ItemResult[requests.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Set<ConstraintViolation<VisitCreateRequest>> violations = validator.validate(requests.get(i));
+            if (violations.isEmpty()) {
+                validIndexes.add(i);
+            } else {
+                results[i] = new VisitBatchCreateResponse.ItemResult(i, INVALID, null, describe(violations));
+            }
+        }
+        
+        // One query for all guests; it row-locks them in id order and bumps their versions, as
+        // incrementVersion does for a single visit
+        Set<Long> guestIds = validIndexes.stream()
+            .map(i -> requests.get(i).getGuestId())
+            .collect(Collectors.toCollection(TreeSet::new));
+        Map<Long, Guest> guests = guestIds.isEmpty() ? Map.of() : guestRepository.findAllByIdForUpdate(guestIds).stream()
+            .collect(Collectors.toMap(Guest::getId, guest -> guest));
+        
+        List<Visit> visits = new ArrayList<>();
+        List<Integer> visitIndexes = new ArrayList<>();
+        for (Integer i : validIndexes) {
+            VisitCreateRequest request = requests.get(i);
+            Guest guest = guests.get(request.getGuestId());
+            if (guest == null) {
+                results[i] = new VisitBatchCreateResponse.ItemResult(i, GUEST_NOT_FOUND, null,
+                    "Guest not found with ID: " + request.getGuestId());
+                continue;
+            }
+            Visit visit = new Visit();
+            visit.setGuest(guest);
+            visit.setStaff(currentStaff);
+            visit.setVisitDate(request.getVisitDate());
+            visit.setVisitTime(request.getVisitTime());
+            visit.setPartySize(request.getPartySize());
+            visit.setTableNumber(request.getTableNumber());
+            visit.setServiceNotes(request.getServiceNotes());
+            visits.add(visit);
+            visitIndexes.add(i);
+        }
+        
+        if (!visits.isEmpty()) {
+            // Pooled ids let Hibernate send the inserts as batches when the statistics queries flush them
+            List<Visit> savedVisits = visitRepository.saveAll(visits);
+            visitStatsService.refresh(savedVisits.stream()
+                .map(visit -> visit.getGuest().getId())
+                .collect(Collectors.toCollection(TreeSet::new)));
+            visitRollupService.addAll(savedVisits.stream()
+                .map(VisitRollupService.Contribution::of)
+                .collect(Collectors.toList()));
+            auditLogService.logVisitsCreated(currentStaff.getId(), savedVisits);
+            
+            for (int v = 0; v < savedVisits.size(); v++) {
+                int i = visitIndexes.get(v);
+                results[i] = new VisitBatchCreateResponse.ItemResult(i, CREATED, savedVisits.get(v).getId(), null);
+            }
+        }
+        
+        return new VisitBatchCreateResponse(visits.size(), requests.size() - visits.size(), Arrays.asList(results));
+    }
+    
     /**
      * Update an existing visit record
      */
     public VisitResponse updateVisit(Long visitId, VisitUpdateRequest request) {
         // Get current authenticated staff member
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         
         // Find existing visit
         Visit visit = visitRepository.findById(visitId)
@@ -97,15 +198,19 @@ public class VisitService {
             throw new AccessDeniedException("You don't have permission to edit this visit");
         }
         
-        // Update visit fields
+        // Update visit fields; the rollups move the visit from the buckets it was counted in
+        VisitRollupService.Contribution previous = VisitRollupService.Contribution.of(visit);
         visit.setVisitDate(request.getVisitDate());
         visit.setVisitTime(request.getVisitTime());
         visit.setPartySize(request.getPartySize());
         visit.setTableNumber(request.getTableNumber());
         visit.setServiceNotes(request.getServiceNotes());
         
-        // Save updated visit
+        // Save updated visit; its date and time may change the guest's last visit
         Visit updatedVisit = visitRepository.save(visit);
+        guestRepository.incrementVersion(visit.getGuest().getId());
+        visitStatsService.refresh(visit.getGuest().getId());
+        visitRollupService.replace(previous, VisitRollupService.Contribution.of(updatedVisit));
         
         // Log audit event
         auditLogService.logVisitUpdated(currentStaff.getId(), visitId, visit.getGuest().getId());
@@ -217,13 +322,13 @@ public class VisitService {
      * Delete a visit (soft delete by setting notes to indicate deletion)
      */
     public void deleteVisit(Long visitId) {
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         
         Visit visit = visitRepository.findById(visitId)
             .orElseThrow(() -> new ResourceNotFoundException("Visit not found with ID: " + visitId));
         
         // Only managers can delete visits
-        if (!currentStaff.getRole().equals(StaffRole.MANAGER)) {
+        if (!isManager(currentStaff)) {
             throw new AccessDeniedException("Only managers can delete visits");
         }
         
@@ -232,13 +337,16 @@ public class VisitService {
         
         // Delete the visit
         visitRepository.delete(visit);
+        guestRepository.incrementVersion(visit.getGuest().getId());
+        visitStatsService.refresh(visit.getGuest().getId());
+        visitRollupService.remove(VisitRollupService.Contribution.of(visit));
     }
     
     /**
      * Update visit notes only
      */
     public VisitResponse updateVisitNotes(Long visitId, String notes) {
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         
         Visit visit = visitRepository.findById(visitId)
             .orElseThrow(() -> new ResourceNotFoundException("Visit not found with ID: " + visitId));
@@ -262,7 +370,7 @@ public class VisitService {
      */
     @Transactional(readOnly = true)
     public VisitNotesResponse getVisitNotes(Long visitId) {
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         
         Visit visit = visitRepository.findById(visitId)
             .orElseThrow(() -> new ResourceNotFoundException("Visit not found with ID: " + visitId));
@@ -276,7 +384,7 @@ public class VisitService {
      * Add notes to a visit (for visits without existing notes)
      */
     public VisitNotesResponse addVisitNotes(Long visitId, String notes) {
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         
         Visit visit = visitRepository.findById(visitId)
             .orElseThrow(() -> new ResourceNotFoundException("Visit not found with ID: " + visitId));
@@ -305,7 +413,7 @@ public class VisitService {
      * Update existing visit notes
      */
     public VisitNotesResponse updateVisitNotesEnhanced(Long visitId, String notes) {
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         
         Visit visit = visitRepository.findById(visitId)
             .orElseThrow(() -> new ResourceNotFoundException("Visit not found with ID: " + visitId));
@@ -337,13 +445,13 @@ public class VisitService {
      * Clear visit notes (set to empty)
      */
     public VisitNotesResponse clearVisitNotes(Long visitId) {
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         
         Visit visit = visitRepository.findById(visitId)
             .orElseThrow(() -> new ResourceNotFoundException("Visit not found with ID: " + visitId));
         
         // Only managers can clear notes
-        if (!currentStaff.getRole().equals(StaffRole.MANAGER)) {
+        if (!isManager(currentStaff)) {
             throw new AccessDeniedException("Only managers can clear visit notes");
         }
         
@@ -375,10 +483,10 @@ public class VisitService {
             throw new ResourceNotFoundException("Guest not found with ID: " + guestId);
         }
         
-        List<Visit> visits = visitRepository.findByGuestIdOrderByVisitDateDescVisitTimeDesc(guestId);
+        // The notes filter runs in the database, and staff come with the visits
+        List<Visit> visits = visitRepository.findWithNotesByGuestId(guestId);
         
         return visits.stream()
-            .filter(visit -> visit.getServiceNotes() != null && !visit.getServiceNotes().trim().isEmpty())
             .map(VisitResponse::new)
             .collect(Collectors.toList());
     }
@@ -388,7 +496,7 @@ public class VisitService {
      */
     @Transactional(readOnly = true)
     public boolean canCurrentStaffEditVisitNotes(Long visitId) {
-        Staff currentStaff = getCurrentStaff();
+        Staff currentStaff = StaffPrincipal.currentStaff(staffRepository);
         
         Visit visit = visitRepository.findById(visitId)
             .orElseThrow(() -> new ResourceNotFoundException("Visit not found with ID: " + visitId));
@@ -401,19 +509,30 @@ public class VisitService {
      */
     @Transactional(readOnly = true)
     public long getGuestVisitCount(Long guestId) {
-        return visitRepository.countByGuestId(guestId);
+        return visitStatsService.getStats(guestId)
+            .map(GuestVisitStats::getTotalVisits)
+            .orElse(0L);
     }
     
     /**
-     * Get last visit for a guest
+     * Get last visit for a guest, by the id its statistics hold
      */
     @Transactional(readOnly = true)
     public VisitResponse getLastVisitForGuest(Long guestId) {
-        Visit lastVisit = visitRepository.findLastVisitByGuestId(guestId);
-        if (lastVisit == null) {
-            return null;
-        }
-        return new VisitResponse(lastVisit);
+        return visitStatsService.getStats(guestId)
+            .flatMap(stats -> visitRepository.findById(stats.getLastVisitId()))
+            .map(VisitResponse::new)
+            .orElse(null);
+    }
+    
+    /**
+     * Get the most recent visits for a guest
+     */
+    @Transactional(readOnly = true)
+    public List<VisitResponse> getRecentGuestVisits(Long guestId, int limit) {
+        return visitRepository.findRecentByGuestId(guestId, PageRequest.of(0, limit)).stream()
+            .map(VisitResponse::new)
+            .collect(Collectors.toList());
     }
     
     /**
@@ -433,12 +552,11 @@ public class VisitService {
             .map(VisitHistoryResponse.VisitSummary::new)
             .collect(Collectors.toList());
         
-        // Calculate statistics
-        long totalVisits = visits.size();
-        LocalDate firstVisitDate = visits.isEmpty() ? null : 
-            visits.get(visits.size() - 1).getVisitDate();
-        LocalDate lastVisitDate = visits.isEmpty() ? null : 
-            visits.get(0).getVisitDate();
+        // Totals and first/last visit come from the guest's statistics
+        Optional<GuestVisitStats> stats = visitStatsService.getStats(guestId);
+        long totalVisits = stats.map(GuestVisitStats::getTotalVisits).orElse(0L);
+        LocalDate firstVisitDate = stats.map(GuestVisitStats::getFirstVisitDate).orElse(null);
+        LocalDate lastVisitDate = stats.map(GuestVisitStats::getLastVisitDate).orElse(null);
         
         String guestName = guest.getFirstName() + 
                           (guest.getLastName() != null ? " " + guest.getLastName() : "");
@@ -447,6 +565,50 @@ public class VisitService {
                                        firstVisitDate, lastVisitDate, visitSummaries);
     }
     
+    /**
+     * One page of a guest's visit timeline, newest first, as compact entries. Pass an empty cursor
+     * for the first page, then the returned nextCursor; each page costs one query bounded by its size.
+     * With notesOnly, only visits with service notes are returned.
+     */
+    @Transactional(readOnly = true)
+    public PagedResponse<VisitTimelineEntry> getGuestVisitTimeline(Long guestId, String cursor, int size,
+                                                                   boolean notesOnly) {
+        String mode = notesOnly ? "notes" : "all";
+        boolean first = cursor == null || cursor.isEmpty();
+        
+        // Fetch one extra entry to know whether another page exists
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<VisitTimelineEntry> entries;
+        if (first) {
+            // Later pages carry the guest id in their cursor, so only the first checks the guest
+            if (!guestRepository.existsById(guestId)) {
+                throw new ResourceNotFoundException("Guest not found with ID: " + guestId);
+            }
+            entries = visitRepository.findTimeline(guestId, notesOnly, limit);
+        } else {
+            String[] position = CursorCodec.decode(cursor, 5);
+            if (!position[0].equals(guestId.toString()) || !position[1].equals(mode)) {
+                throw new InvalidCursorException("Cursor does not match the requested timeline");
+            }
+            try {
+                entries = visitRepository.findTimelineAfter(guestId, notesOnly, LocalDate.parse(position[2]),
+                    LocalTime.parse(position[3]), Long.valueOf(position[4]), limit);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new InvalidCursorException("Malformed cursor");
+            }
+        }
+        
+        String nextCursor = null;
+        if (entries.size() > size) {
+            entries = entries.subList(0, size);
+            VisitTimelineEntry last = entries.get(size - 1);
+            nextCursor = CursorCodec.encode(guestId.toString(), mode, last.getVisitDate().toString(),
+                last.getVisitTime().toString(), last.getId().toString());
+        }
+        
+        return new PagedResponse<>(entries, size, first, nextCursor, -1);
+    }
+    
     /**
      * Get paginated visit history for a guest (timeline format)
      */
@@ -495,19 +657,24 @@ public class VisitService {
             throw new ResourceNotFoundException("Guest not found with ID: " + guestId);
         }
         
-        Object[] stats = visitRepository.getGuestVisitStatistics(guestId);
+        Optional<GuestVisitStats> stats = visitStatsService.getStats(guestId);
         
         Map<String, Object> statistics = new HashMap<>();
-        if (stats != null && stats.length > 0) {
-            statistics.put("totalVisits", stats[0] != null ? ((Number) stats[0]).longValue() : 0L);
-            statistics.put("lastVisitDate", stats[1]);
-            statistics.put("firstVisitDate", stats[2]);
-            statistics.put("averagePartySize", stats[3] != null ? ((Number) stats[3]).doubleValue() : 0.0);
+        if (stats.isPresent()) {
+            statistics.put("totalVisits", stats.get().getTotalVisits());
+            statistics.put("lastVisitDate", stats.get().getLastVisitDate());
+            statistics.put("firstVisitDate", stats.get().getFirstVisitDate());
+            statistics.put("averagePartySize",
+                stats.get().getAveragePartySize() != null ? stats.get().getAveragePartySize() : 0.0);
+            statistics.put("lastTableNumber", stats.get().getLastTableNumber());
+            statistics.put("lastStaffId", stats.get().getLastStaffId());
         } else {
             statistics.put("totalVisits", 0L);
             statistics.put("lastVisitDate", null);
             statistics.put("firstVisitDate", null);
             statistics.put("averagePartySize", 0.0);
+            statistics.put("lastTableNumber", null);
+            statistics.put("lastStaffId", null);
         }
         
         return statistics;
@@ -527,7 +694,33 @@ public class VisitService {
     }
     
     /**
-     * Search visits by service notes
+     * Ranked full-text search over service notes, a page at a time. Terms must all match;
+     * "quoted words" match as a phrase and a trailing * by prefix.
+     */
+    @Transactional(readOnly = true)
+    public PagedResponse<VisitNoteSearchResult> searchVisitNotes(String query, int page, int size) {
+        String tsQuery = NotesSearchQuery.toTsQuery(query);
+        if (tsQuery == null) {
+            throw new InvalidSearchQueryException("Search query must contain at least one word");
+        }
+        
+        Page<Object[]> resultPage = visitRepository.searchServiceNotes(tsQuery, PageRequest.of(page, size));
+        
+        List<VisitNoteSearchResult> results = resultPage.getContent().stream()
+            .map(VisitService::toNoteSearchResult)
+            .collect(Collectors.toList());
+        
+        return new PagedResponse<VisitNoteSearchResult>(
+            results,
+            resultPage.getNumber(),
+            resultPage.getSize(),
+            resultPage.getTotalElements(),
+            resultPage.getTotalPages()
+        );
+    }
+    
+    /**
+     * Search visits by service notes (substring match over every visit; see searchVisitNotes)
      */
     @Transactional(readOnly = true)
     public List<VisitResponse> searchVisitsByNotes(String searchTerm) {
@@ -540,17 +733,31 @@ public class VisitService {
     
     // Helper methods
     
-    private Staff getCurrentStaff() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        
-        return staffRepository.findByEmail(email)
-            .orElseThrow(() -> new ResourceNotFoundException("Staff member not found"));
+    private static VisitNoteSearchResult toNoteSearchResult(Object[] row) {
+        String guestName = row[2] + (row[3] != null ? " " + row[3] : "");
+        LocalDate visitDate = row[4] instanceof java.sql.Date ? ((java.sql.Date) row[4]).toLocalDate() : (LocalDate) row[4];
+        LocalTime visitTime = row[5] instanceof java.sql.Time ? ((java.sql.Time) row[5]).toLocalTime() : (LocalTime) row[5];
+        return new VisitNoteSearchResult(((Number) row[0]).longValue(), ((Number) row[1]).longValue(), guestName,
+            visitDate, visitTime, ((Number) row[6]).doubleValue(), (String) row[7]);
+    }
+    
+    private static String describe(Set<? extends ConstraintViolation<?>> violations) {
+        return violations.stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining("; "));
+    }
+    
+    // The role comes from the token when there is one, so the staff reference is not loaded to check it
+    private boolean isManager(Staff staff) {
+        return StaffPrincipal.current()
+            .map(principal -> principal.getRole() == StaffRole.MANAGER)
+            .orElseGet(() -> staff.getRole().equals(StaffRole.MANAGER));
     }
     
     private boolean canEditVisit(Staff staff, Visit visit) {
         // Managers can edit any visit
-        if (staff.getRole().equals(StaffRole.MANAGER)) {
+        if (isManager(staff)) {
             return true;
         }
         
@@ -560,7 +767,7 @@ public class VisitService {
     
     private boolean canEditVisitNotes(Staff staff, Visit visit) {
         // Managers can edit any visit notes
-        if (staff.getRole().equals(StaffRole.MANAGER)) {
+        if (isManager(staff)) {
             return true;
         }
         
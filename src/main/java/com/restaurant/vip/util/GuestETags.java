@@ -0,0 +1,61 @@
+package com.restaurant.vip.util;
+
+import java.util.Optional;
+
+/**
+ * Strong entity tags for guest profiles, built from the guest id and version: "42-7"
+ */
+public final class GuestETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private GuestETags() {
+    }
+
+    public static String of(Long id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * Whether an If-None-Match header lists the tag. Weak comparison, as If-None-Match requires.
+     */
+    public static boolean matchesNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith(WEAK_PREFIX)) {
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (tag.equals(ANY) || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Version of this guest named by an If-Match header. Strong comparison: weak tags never match.
+     * Empty when no listed tag is a version of the guest.
+     */
+    public static Optional<Long> versionFromIfMatch(String ifMatch, Long id) {
+        String prefix = "\"" + id + "-";
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                try {
+                    return Optional.of(Long.parseLong(tag.substring(prefix.length(), tag.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // Not one of our tags; keep looking
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    public static boolean isAny(String ifMatch) {
+        return ANY.equals(ifMatch.trim());
+    }
+}
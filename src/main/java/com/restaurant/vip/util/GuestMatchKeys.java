@@ -0,0 +1,88 @@
+package com.restaurant.vip.util;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Blocking keys for duplicate detection, stored on guests (guests.name_keys, guests.phone_key)
+ * so candidates are found by index lookup instead of scanning names.
+ *
+ * Name keys are Double Metaphone codes of the first and last name joined as "first:last", for
+ * every primary/alternate combination, so Jon/John and Smyth/Smith share a key. Every guest also
+ * carries first-name-only keys ("first:") for lookups without a last name.
+ */
+public final class GuestMatchKeys {
+    
+    private static final DoubleMetaphone DOUBLE_METAPHONE = new DoubleMetaphone();
+    
+    // National significant number: ignores country codes and trunk prefixes
+    private static final int PHONE_KEY_DIGITS = 10;
+    
+    private GuestMatchKeys() {
+    }
+    
+    /**
+     * Keys stored on a guest
+     */
+    public static String[] forGuest(String firstName, String lastName) {
+        Set<String> firstCodes = phonetic(firstName);
+        Set<String> keys = new LinkedHashSet<>();
+        for (String first : firstCodes) {
+            for (String last : phonetic(lastName)) {
+                keys.add(first + ":" + last);
+            }
+            keys.add(first + ":");
+        }
+        return keys.toArray(new String[0]);
+    }
+    
+    /**
+     * Keys to look up for a name being entered: full-name keys when a last name is given,
+     * first-name-only keys otherwise
+     */
+    public static String[] forLookup(String firstName, String lastName) {
+        Set<String> lastCodes = phonetic(lastName);
+        Set<String> keys = new LinkedHashSet<>();
+        for (String first : phonetic(firstName)) {
+            if (lastCodes.isEmpty()) {
+                keys.add(first + ":");
+            }
+            for (String last : lastCodes) {
+                keys.add(first + ":" + last);
+            }
+        }
+        return keys.toArray(new String[0]);
+    }
+    
+    /**
+     * Last ten digits of the phone number, so +1 555-123-4567 and 5551234567 share a key
+     */
+    public static String phoneKey(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String digits = phone.replaceAll("[^\\d]", "");
+        if (digits.isEmpty()) {
+            return null;
+        }
+        return digits.length() > PHONE_KEY_DIGITS ? digits.substring(digits.length() - PHONE_KEY_DIGITS) : digits;
+    }
+    
+    private static Set<String> phonetic(String name) {
+        Set<String> codes = new LinkedHashSet<>();
+        if (name == null || name.isBlank()) {
+            return codes;
+        }
+        String primary = DOUBLE_METAPHONE.doubleMetaphone(name.trim(), false);
+        String alternate = DOUBLE_METAPHONE.doubleMetaphone(name.trim(), true);
+        if (primary != null && !primary.isEmpty()) {
+            codes.add(primary);
+        }
+        if (alternate != null && !alternate.isEmpty()) {
+            codes.add(alternate);
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,70 @@
+package com.restaurant.vip.util;
+
+import java.time.LocalDate;
+
+/**
+ * A run of calendar days as month-day numbers (month * 100 + day), the form of the
+ * guests.birthday_md and guests.anniversary_md columns. A window crossing New Year
+ * is split into two ascending ranges so each side stays an index range scan.
+ */
+public final class MonthDayWindow {
+    
+    private static final int FIRST_DAY = 101;
+    private static final int LAST_DAY = 1231;
+    private static final int LEAP_DAY = 229;
+    
+    private final int firstFrom;
+    private final int firstTo;
+    private final int secondFrom;
+    private final int secondTo;
+    
+    private MonthDayWindow(int firstFrom, int firstTo, int secondFrom, int secondTo) {
+        this.firstFrom = firstFrom;
+        this.firstTo = firstTo;
+        this.secondFrom = secondFrom;
+        this.secondTo = secondTo;
+    }
+    
+    /**
+     * Window from start through start + days, inclusive
+     */
+    public static MonthDayWindow of(LocalDate start, int days) {
+        if (days >= 365) {
+            return new MonthDayWindow(FIRST_DAY, LAST_DAY, 1, 0);
+        }
+        LocalDate end = start.plusDays(days);
+        int from = monthDay(start);
+        int to = monthDay(end);
+        // Feb 29 occasions are celebrated on Feb 28 in common years
+        if (to == 228 && !end.isLeapYear()) {
+            to = LEAP_DAY;
+        }
+        if (from <= to) {
+            return new MonthDayWindow(from, to, 1, 0);
+        }
+        return new MonthDayWindow(from, LAST_DAY, FIRST_DAY, to);
+    }
+    
+    public static int monthDay(LocalDate date) {
+        return date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+    
+    public int getFirstFrom() {
+        return firstFrom;
+    }
+    
+    public int getFirstTo() {
+        return firstTo;
+    }
+    
+    /**
+     * Start of the range after New Year; greater than {@link #getSecondTo()} when the window does not wrap
+     */
+    public int getSecondFrom() {
+        return secondFrom;
+    }
+    
+    public int getSecondTo() {
+        return secondTo;
+    }
+}
@@ -0,0 +1,54 @@
+package com.restaurant.vip.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Turns what staff type into the notes search box into PostgreSQL to_tsquery syntax:
+ * every term must match, "quoted words" match as a phrase and a trailing * matches by prefix
+ * (propos* finds proposal and proposed). Only letters and digits reach the query, so no input
+ * can produce tsquery syntax errors; words joined by punctuation (gluten-free) match as a phrase.
+ */
+public final class NotesSearchQuery {
+
+    private static final Pattern TERM = Pattern.compile("\"([^\"]*)\"?|(\\S+)");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private NotesSearchQuery() {
+    }
+
+    /**
+     * The to_tsquery expression for the input, or null when it has no searchable words
+     */
+    public static String toTsQuery(String input) {
+        if (input == null) {
+            return null;
+        }
+        List<String> parts = new ArrayList<>();
+        Matcher matcher = TERM.matcher(input);
+        while (matcher.find()) {
+            boolean phrase = matcher.group(1) != null;
+            String term = phrase ? matcher.group(1) : matcher.group(2);
+            List<String> words = words(term);
+            if (words.isEmpty()) {
+                continue;
+            }
+            if (!phrase && term.endsWith("*")) {
+                words.set(words.size() - 1, words.get(words.size() - 1) + ":*");
+            }
+            parts.add(words.size() == 1 ? words.get(0) : "(" + String.join(" <-> ", words) + ")");
+        }
+        return parts.isEmpty() ? null : String.join(" & ", parts);
+    }
+
+    private static List<String> words(String term) {
+        return Arrays.stream(NON_WORD.split(term.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+}
@@ -0,0 +1,40 @@
+package com.restaurant.vip.util;
+
+/**
+ * E.164 form of the phone numbers guests are stored with (guests.phone_normalized), so one
+ * number entered as +15551234567 or 5551234567 maps to a single unique index entry.
+ * V9__Add_guest_phone_normalized.sql applies the same rules to existing rows.
+ */
+public final class PhoneNumbers {
+    
+    // Ten-digit numbers without a country code are North American, as ValidPhoneNumberValidator assumes
+    private static final String DEFAULT_COUNTRY_CODE = "1";
+    private static final int NATIONAL_NUMBER_DIGITS = 10;
+    
+    private PhoneNumbers() {
+    }
+    
+    /**
+     * The digits of a search term, as compared with guests.search_phone; empty when it has none
+     */
+    public static String digits(String term) {
+        return term == null ? "" : term.replaceAll("[^\\d]", "");
+    }
+    
+    /**
+     * "+" followed by the country code and number, or null when the input has no digits
+     */
+    public static String toE164(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String digits = phone.replaceAll("[^\\d]", "");
+        if (digits.isEmpty()) {
+            return null;
+        }
+        if (!phone.trim().startsWith("+") && digits.length() == NATIONAL_NUMBER_DIGITS) {
+            return "+" + DEFAULT_COUNTRY_CODE + digits;
+        }
+        return "+" + digits;
+    }
+}
@@ -0,0 +1,166 @@
+package com.restaurant.vip.util;
+
+import java.util.Arrays;
+
+/**
+ * Case-insensitive Jaro-Winkler and Levenshtein measures for comparing guest names.
+ *
+ * Both run on per-thread scratch buffers, so scoring a page of candidates allocates nothing
+ * once the buffers have grown to the longest name seen.
+ */
+public final class StringSimilarity {
+    
+    private static final int WINKLER_PREFIX = 4;
+    private static final double WINKLER_SCALE = 0.1;
+    
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+    
+    private StringSimilarity() {
+    }
+    
+    /**
+     * Jaro-Winkler similarity from 0 (nothing in common) to 1 (equal ignoring case)
+     */
+    public static double jaroWinkler(CharSequence a, CharSequence b) {
+        int aLength = a.length();
+        int bLength = b.length();
+        if (aLength == 0 || bLength == 0) {
+            return aLength == bLength ? 1.0 : 0.0;
+        }
+        
+        Workspace workspace = WORKSPACE.get();
+        boolean[] aMatched = workspace.aMatched(aLength);
+        boolean[] bMatched = workspace.bMatched(bLength);
+        
+        // Characters match when equal and no further apart than half the longer length
+        int window = Math.max(0, Math.max(aLength, bLength) / 2 - 1);
+        int matches = 0;
+        for (int i = 0; i < aLength; i++) {
+            char c = fold(a.charAt(i));
+            int to = Math.min(bLength - 1, i + window);
+            for (int j = Math.max(0, i - window); j <= to; j++) {
+                if (!bMatched[j] && fold(b.charAt(j)) == c) {
+                    aMatched[i] = true;
+                    bMatched[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0.0;
+        }
+        
+        // Matched characters that appear in a different order
+        int halfTranspositions = 0;
+        for (int i = 0, j = 0; i < aLength; i++) {
+            if (!aMatched[i]) {
+                continue;
+            }
+            while (!bMatched[j]) {
+                j++;
+            }
+            if (fold(a.charAt(i)) != fold(b.charAt(j))) {
+                halfTranspositions++;
+            }
+            j++;
+        }
+        
+        double m = matches;
+        double jaro = (m / aLength + m / bLength + (m - halfTranspositions / 2.0) / m) / 3.0;
+        
+        int prefix = 0;
+        int prefixLimit = Math.min(WINKLER_PREFIX, Math.min(aLength, bLength));
+        while (prefix < prefixLimit && fold(a.charAt(prefix)) == fold(b.charAt(prefix))) {
+            prefix++;
+        }
+        return jaro + prefix * WINKLER_SCALE * (1.0 - jaro);
+    }
+    
+    /**
+     * Levenshtein edit distance (insertions, deletions and substitutions), ignoring case
+     */
+    public static int levenshtein(CharSequence a, CharSequence b) {
+        int aLength = a.length();
+        int bLength = b.length();
+        if (aLength == 0 || bLength == 0) {
+            return Math.max(aLength, bLength);
+        }
+        
+        Workspace workspace = WORKSPACE.get();
+        int[] previous = workspace.previousRow(bLength + 1);
+        int[] current = workspace.currentRow(bLength + 1);
+        for (int j = 0; j <= bLength; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= aLength; i++) {
+            current[0] = i;
+            char c = fold(a.charAt(i - 1));
+            for (int j = 1; j <= bLength; j++) {
+                int substitution = previous[j - 1] + (c == fold(b.charAt(j - 1)) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[bLength];
+    }
+    
+    /**
+     * Best of Jaro-Winkler and length-normalized Levenshtein similarity, from 0 to 1.
+     * Jaro-Winkler favours shared prefixes (Jon/John); Levenshtein catches single edits
+     * further into the name (Smyth/Smith).
+     */
+    public static double similarity(CharSequence a, CharSequence b) {
+        int longest = Math.max(a.length(), b.length());
+        if (longest == 0) {
+            return 1.0;
+        }
+        double edit = 1.0 - (double) levenshtein(a, b) / longest;
+        return Math.max(jaroWinkler(a, b), edit);
+    }
+    
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+    
+    private static final class Workspace {
+        private boolean[] aMatched = new boolean[32];
+        private boolean[] bMatched = new boolean[32];
+        private int[] previousRow = new int[33];
+        private int[] currentRow = new int[33];
+        
+        boolean[] aMatched(int length) {
+            aMatched = cleared(aMatched, length);
+            return aMatched;
+        }
+        
+        boolean[] bMatched(int length) {
+            bMatched = cleared(bMatched, length);
+            return bMatched;
+        }
+        
+        int[] previousRow(int length) {
+            if (previousRow.length < length) {
+                previousRow = new int[length];
+            }
+            return previousRow;
+        }
+        
+        int[] currentRow(int length) {
+            if (currentRow.length < length) {
+                currentRow = new int[length];
+            }
+            return currentRow;
+        }
+        
+        private static boolean[] cleared(boolean[] flags, int length) {
+            if (flags.length < length) {
+                return new boolean[length];
+            }
+            Arrays.fill(flags, 0, length, false);
+            return flags;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+-- Guest ids come from guests_id_seq in blocks of 50 (Hibernate pooled optimizer) instead of the
+-- SERIAL column default, so inserts are no longer forced into one round trip each and Hibernate
+-- can send them as JDBC batches (bulk import). The increment must match allocationSize on Guest.id.
+
+ALTER SEQUENCE guests_id_seq INCREMENT BY 50;
+
+-- The next block starts above every existing id
+SELECT setval('guests_id_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM guests;
+
+-- Every insert now takes its id from the application; a column default stepping by 50 would
+-- hand out ids inside blocks already allocated to running instances
+ALTER TABLE guests ALTER COLUMN id DROP DEFAULT;
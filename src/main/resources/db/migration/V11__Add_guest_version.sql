@@ -0,0 +1,4 @@
+-- Optimistic locking for guest profiles. The version also names a profile state in ETags, so
+-- GET /api/guests/{id} can answer If-None-Match from this column alone and PUT can honor If-Match.
+
+ALTER TABLE guests ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
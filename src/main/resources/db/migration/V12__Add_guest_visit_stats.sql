@@ -0,0 +1,28 @@
+-- Per-guest visit statistics, maintained by VisitService in the transaction that writes the visit,
+-- so visit counts, first/last visit and the guest list summaries are read from one row instead of
+-- aggregating the visits table. GuestVisitStatsReconciler repairs rows that drift from the visits.
+-- Guests without visits have no row.
+
+CREATE TABLE guest_visit_stats (
+    guest_id INTEGER PRIMARY KEY REFERENCES guests(id) ON DELETE CASCADE,
+    total_visits BIGINT NOT NULL,
+    first_visit_date DATE NOT NULL,
+    last_visit_date DATE NOT NULL,
+    last_visit_time TIME NOT NULL,
+    average_party_size DOUBLE PRECISION,
+    last_visit_id INTEGER NOT NULL,
+    last_table_number VARCHAR(10),
+    last_staff_id INTEGER REFERENCES staff(id),
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO guest_visit_stats (guest_id, total_visits, first_visit_date, last_visit_date, last_visit_time,
+                               average_party_size, last_visit_id, last_table_number, last_staff_id)
+SELECT totals.guest_id, totals.total_visits, totals.first_visit_date, last.visit_date, last.visit_time,
+       totals.average_party_size, last.id, last.table_number, last.staff_id
+FROM (SELECT guest_id, COUNT(*) AS total_visits, MIN(visit_date) AS first_visit_date,
+             AVG(party_size) AS average_party_size
+      FROM visits GROUP BY guest_id) totals
+JOIN (SELECT DISTINCT ON (guest_id) id, guest_id, visit_date, visit_time, table_number, staff_id
+      FROM visits ORDER BY guest_id, visit_date DESC, visit_time DESC, id DESC) last
+  ON last.guest_id = totals.guest_id;
@@ -0,0 +1,6 @@
+-- Keyset index for the visit timeline, matching its (visit_date, visit_time, id) order within a guest so
+-- each page is an index range scan. It covers idx_visits_recent, which it replaces.
+
+CREATE INDEX idx_visits_guest_timeline ON visits (guest_id, visit_date DESC, visit_time DESC, id DESC);
+
+DROP INDEX idx_visits_recent;
@@ -0,0 +1,7 @@
+-- Full-text search over visit service notes. Replaces LOWER(service_notes) LIKE '%term%' scans of the
+-- whole visits table with a GIN-indexed tsvector the database keeps in step with the notes.
+
+ALTER TABLE visits
+    ADD COLUMN notes_tsv TSVECTOR GENERATED ALWAYS AS (to_tsvector('english', coalesce(service_notes, ''))) STORED;
+
+CREATE INDEX idx_visits_notes_tsv ON visits USING GIN (notes_tsv);
@@ -0,0 +1,56 @@
+-- Visit rollups for the analytics endpoints: visits and covers (guests served, the sum of party sizes)
+-- per day, per day and hour, per staff member and day, and per guest and month. VisitService adjusts
+-- the rows when it writes a visit, so dashboards read a few hundred rows per year of history instead
+-- of grouping the visits table. VisitRollupBackfill rebuilds them month by month from the visits.
+-- A bucket that loses its last visit keeps its row with zero counts.
+
+CREATE TABLE visit_daily_rollups (
+    visit_date DATE PRIMARY KEY,
+    visit_count BIGINT NOT NULL,
+    cover_count BIGINT NOT NULL
+);
+
+CREATE TABLE visit_hourly_rollups (
+    visit_date DATE NOT NULL,
+    visit_hour INTEGER NOT NULL CHECK (visit_hour BETWEEN 0 AND 23),
+    visit_count BIGINT NOT NULL,
+    cover_count BIGINT NOT NULL,
+    PRIMARY KEY (visit_date, visit_hour)
+);
+
+CREATE TABLE visit_staff_daily_rollups (
+    staff_id INTEGER NOT NULL REFERENCES staff(id) ON DELETE CASCADE,
+    visit_date DATE NOT NULL,
+    visit_count BIGINT NOT NULL,
+    cover_count BIGINT NOT NULL,
+    PRIMARY KEY (staff_id, visit_date)
+);
+
+-- visit_month is the first day of the month
+CREATE TABLE guest_monthly_visit_rollups (
+    guest_id INTEGER NOT NULL REFERENCES guests(id) ON DELETE CASCADE,
+    visit_month DATE NOT NULL,
+    visit_count BIGINT NOT NULL,
+    cover_count BIGINT NOT NULL,
+    PRIMARY KEY (guest_id, visit_month)
+);
+
+-- Date range reads; the daily and hourly tables are already led by visit_date
+CREATE INDEX idx_visit_staff_daily_rollups_date ON visit_staff_daily_rollups(visit_date);
+CREATE INDEX idx_guest_monthly_visit_rollups_month ON guest_monthly_visit_rollups(visit_month, guest_id);
+
+INSERT INTO visit_daily_rollups (visit_date, visit_count, cover_count)
+SELECT visit_date, COUNT(*), COALESCE(SUM(party_size), 0)
+FROM visits GROUP BY visit_date;
+
+INSERT INTO visit_hourly_rollups (visit_date, visit_hour, visit_count, cover_count)
+SELECT visit_date, EXTRACT(HOUR FROM visit_time), COUNT(*), COALESCE(SUM(party_size), 0)
+FROM visits GROUP BY visit_date, EXTRACT(HOUR FROM visit_time);
+
+INSERT INTO visit_staff_daily_rollups (staff_id, visit_date, visit_count, cover_count)
+SELECT staff_id, visit_date, COUNT(*), COALESCE(SUM(party_size), 0)
+FROM visits GROUP BY staff_id, visit_date;
+
+INSERT INTO guest_monthly_visit_rollups (guest_id, visit_month, visit_count, cover_count)
+SELECT guest_id, date_trunc('month', visit_date)::date, COUNT(*), COALESCE(SUM(party_size), 0)
+FROM visits GROUP BY guest_id, date_trunc('month', visit_date);
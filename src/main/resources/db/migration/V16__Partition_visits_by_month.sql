@@ -0,0 +1,64 @@
+-- Range-partition visits by month of visit_date. Date-filtered reads (date range, today, recent) then
+-- scan only the partitions of their range, and old months can be detached instead of deleted.
+-- VisitPartitionMaintenance creates upcoming months ahead of time; visit dates without a monthly
+-- partition land in visits_default.
+--
+-- The primary key has to include the partition key, so it becomes (id, visit_date); ids stay unique
+-- because they all come from visits_id_seq. Nothing references visits(id) by foreign key.
+-- The table is rebuilt and copied in this migration's transaction, so it is locked for the duration.
+
+ALTER TABLE visits RENAME TO visits_unpartitioned;
+
+CREATE TABLE visits (
+    id INTEGER NOT NULL DEFAULT nextval('visits_id_seq'),
+    guest_id INTEGER NOT NULL REFERENCES guests(id) ON DELETE CASCADE,
+    staff_id INTEGER NOT NULL REFERENCES staff(id),
+    visit_date DATE NOT NULL,
+    visit_time TIME NOT NULL,
+    party_size INTEGER DEFAULT 1 CHECK (party_size > 0),
+    table_number VARCHAR(10),
+    service_notes TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    notes_tsv TSVECTOR GENERATED ALWAYS AS (to_tsvector('english', coalesce(service_notes, ''))) STORED
+) PARTITION BY RANGE (visit_date);
+
+-- One partition per month from the first visit on record to three months ahead
+DO $$
+DECLARE
+    partition_start DATE := date_trunc('month', COALESCE((SELECT MIN(visit_date) FROM visits_unpartitioned), CURRENT_DATE));
+    last_month DATE := GREATEST(date_trunc('month', CURRENT_DATE) + INTERVAL '3 months',
+                                date_trunc('month', COALESCE((SELECT MAX(visit_date) FROM visits_unpartitioned), CURRENT_DATE)));
+BEGIN
+    WHILE partition_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF visits FOR VALUES FROM (%L) TO (%L)',
+                       'visits_' || to_char(partition_start, 'YYYY_MM'), partition_start,
+                       (partition_start + INTERVAL '1 month')::date);
+        partition_start := (partition_start + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+CREATE TABLE visits_default PARTITION OF visits DEFAULT;
+
+INSERT INTO visits (id, guest_id, staff_id, visit_date, visit_time, party_size, table_number, service_notes,
+                    created_at, updated_at)
+SELECT id, guest_id, staff_id, visit_date, visit_time, party_size, table_number, service_notes,
+       created_at, updated_at
+FROM visits_unpartitioned;
+
+-- Keep the id sequence when the old table goes
+ALTER SEQUENCE visits_id_seq OWNED BY NONE;
+DROP TABLE visits_unpartitioned;
+ALTER SEQUENCE visits_id_seq OWNED BY visits.id;
+
+ALTER TABLE visits ADD PRIMARY KEY (id, visit_date);
+
+-- Indexes are created on every partition. idx_visits_guest_timeline also serves the former guest_id and
+-- (guest_id, visit_date) indexes, and idx_visits_date_time the former visit_date one, so those are not
+-- recreated.
+CREATE INDEX idx_visits_staff_id ON visits(staff_id);
+CREATE INDEX idx_visits_date_time ON visits(visit_date, visit_time);
+CREATE INDEX idx_visits_guest_timeline ON visits (guest_id, visit_date DESC, visit_time DESC, id DESC);
+CREATE INDEX idx_visits_notes_tsv ON visits USING GIN (notes_tsv);
+
+ANALYZE visits;
@@ -0,0 +1,12 @@
+-- Visit and audit log ids come from their sequences in blocks of 50 (Hibernate pooled optimizer),
+-- like guest ids since V10, so the visits of a bulk log and their audit entries go out as JDBC
+-- batches instead of one round trip per row. The increments must match allocationSize on
+-- Visit.id and AuditLog.id.
+
+ALTER SEQUENCE visits_id_seq INCREMENT BY 50;
+SELECT setval('visits_id_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM visits;
+ALTER TABLE visits ALTER COLUMN id DROP DEFAULT;
+
+ALTER SEQUENCE audit_log_id_seq INCREMENT BY 50;
+SELECT setval('audit_log_id_seq', GREATEST(COALESCE(MAX(id), 0), 1)) FROM audit_log;
+ALTER TABLE audit_log ALTER COLUMN id DROP DEFAULT;
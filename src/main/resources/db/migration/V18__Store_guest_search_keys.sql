@@ -0,0 +1,8 @@
+-- VIP Guest Memory System - Application-maintained search keys
+-- search_name and search_phone (V4) become plain columns written by Guest.refreshDerivedColumns,
+-- so every database the entity runs on holds them. Existing values and the trigram and prefix
+-- indexes over them are kept.
+
+ALTER TABLE guests
+    ALTER COLUMN search_name DROP EXPRESSION,
+    ALTER COLUMN search_phone DROP EXPRESSION;
@@ -0,0 +1,7 @@
+-- VIP Guest Memory System - Application-maintained occasion month-days
+-- birthday_md and anniversary_md (V6) become plain columns written by Guest.refreshDerivedColumns,
+-- as search_name and search_phone did in V18. Existing values and their indexes are kept.
+
+ALTER TABLE guests
+    ALTER COLUMN birthday_md DROP EXPRESSION,
+    ALTER COLUMN anniversary_md DROP EXPRESSION;
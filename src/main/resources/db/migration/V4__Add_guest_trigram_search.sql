@@ -0,0 +1,21 @@
+-- VIP Guest Memory System - Trigram guest search
+-- Replaces leading-wildcard LIKE scans over guests with pg_trgm GIN indexes
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Normalized search keys maintained by the database
+-- search_name: lower-cased "first last"; search_phone: digits only
+ALTER TABLE guests
+    ADD COLUMN search_name TEXT GENERATED ALWAYS AS (lower(trim(first_name || ' ' || coalesce(last_name, '')))) STORED,
+    ADD COLUMN search_phone TEXT GENERATED ALWAYS AS (regexp_replace(phone, '[^0-9]', '', 'g')) STORED;
+
+-- Trigram indexes serve substring (LIKE '%term%') and word-similarity (<%) lookups
+CREATE INDEX idx_guests_search_name_trgm ON guests USING GIN (search_name gin_trgm_ops) WHERE deleted_at IS NULL;
+CREATE INDEX idx_guests_search_phone_trgm ON guests USING GIN (search_phone gin_trgm_ops) WHERE deleted_at IS NULL;
+
+-- B-tree pattern indexes serve prefix lookups for terms shorter than a trigram
+CREATE INDEX idx_guests_search_name_prefix ON guests (search_name text_pattern_ops) WHERE deleted_at IS NULL;
+CREATE INDEX idx_guests_search_phone_prefix ON guests (search_phone text_pattern_ops) WHERE deleted_at IS NULL;
+
+-- Superseded by the trigram indexes
+DROP INDEX IF EXISTS idx_guests_search;
@@ -0,0 +1,7 @@
+-- VIP Guest Memory System - Keyset pagination indexes
+-- One (sort key, id) index per sort field allowed in cursor mode (GuestSortField),
+-- so each page is an index seek instead of an OFFSET scan
+
+CREATE INDEX idx_guests_keyset_first_name ON guests (first_name, id) WHERE deleted_at IS NULL;
+CREATE INDEX idx_guests_keyset_last_name ON guests ((COALESCE(last_name, '')), id) WHERE deleted_at IS NULL;
+CREATE INDEX idx_guests_keyset_created_at ON guests (created_at, id) WHERE deleted_at IS NULL;
@@ -0,0 +1,13 @@
+-- VIP Guest Memory System - Upcoming occasion lookups
+-- Birthdays and anniversaries as month-day numbers (month * 100 + day), so a
+-- window of calendar days is one or two index range scans regardless of year
+
+ALTER TABLE guests
+    ADD COLUMN birthday_md SMALLINT GENERATED ALWAYS AS
+        ((EXTRACT(MONTH FROM birthday) * 100 + EXTRACT(DAY FROM birthday))::SMALLINT) STORED,
+    ADD COLUMN anniversary_md SMALLINT GENERATED ALWAYS AS
+        ((EXTRACT(MONTH FROM anniversary) * 100 + EXTRACT(DAY FROM anniversary))::SMALLINT) STORED;
+
+CREATE INDEX idx_guests_birthday_md ON guests (birthday_md, id) WHERE deleted_at IS NULL AND birthday_md IS NOT NULL;
+CREATE INDEX idx_guests_anniversary_md ON guests (anniversary_md, id) WHERE deleted_at IS NULL AND anniversary_md IS NOT NULL;
+
@@ -0,0 +1,90 @@
+-- Dictionary-encoded dietary restriction and favorite drink tags.
+-- Guests keep tag ids in INTEGER[] columns, so a guest loads in one select and tag
+-- filters use the array overlap operator (&&) backed by GIN indexes.
+
+CREATE TABLE preference_tags (
+    id SERIAL PRIMARY KEY,
+    category VARCHAR(20) NOT NULL CHECK (category IN ('DIETARY', 'DRINK')),
+    label TEXT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_preference_tags_category_label UNIQUE (category, label)
+);
+
+ALTER TABLE guests
+    ADD COLUMN dietary_tag_ids INTEGER[] NOT NULL DEFAULT '{}',
+    ADD COLUMN drink_tag_ids INTEGER[] NOT NULL DEFAULT '{}';
+
+-- Existing tags in their original order: the TEXT[] columns from V1 and, on databases
+-- where they were created, the guest_dietary_restrictions / guest_favorite_drinks tables
+CREATE TEMPORARY TABLE guest_tag_source (
+    guest_id INTEGER NOT NULL,
+    category VARCHAR(20) NOT NULL,
+    label TEXT NOT NULL,
+    position BIGINT NOT NULL
+) ON COMMIT DROP;
+
+INSERT INTO guest_tag_source (guest_id, category, label, position)
+SELECT g.id, 'DIETARY', btrim(t.label), t.position
+FROM guests g, unnest(g.dietary_restrictions) WITH ORDINALITY AS t(label, position)
+WHERE t.label IS NOT NULL;
+
+INSERT INTO guest_tag_source (guest_id, category, label, position)
+SELECT g.id, 'DRINK', btrim(t.label), t.position
+FROM guests g, unnest(g.favorite_drinks) WITH ORDINALITY AS t(label, position)
+WHERE t.label IS NOT NULL;
+
+DO $$
+BEGIN
+    IF to_regclass('guest_dietary_restrictions') IS NOT NULL THEN
+        INSERT INTO guest_tag_source (guest_id, category, label, position)
+        SELECT guest_id, 'DIETARY', btrim(restriction), 1000000 + row_number() OVER (PARTITION BY guest_id)
+        FROM guest_dietary_restrictions
+        WHERE restriction IS NOT NULL;
+    END IF;
+    IF to_regclass('guest_favorite_drinks') IS NOT NULL THEN
+        INSERT INTO guest_tag_source (guest_id, category, label, position)
+        SELECT guest_id, 'DRINK', btrim(drink), 1000000 + row_number() OVER (PARTITION BY guest_id)
+        FROM guest_favorite_drinks
+        WHERE drink IS NOT NULL;
+    END IF;
+END $$;
+
+DELETE FROM guest_tag_source WHERE label = '';
+
+INSERT INTO preference_tags (category, label)
+SELECT category, label FROM guest_tag_source GROUP BY category, label ORDER BY category, label;
+
+-- One id per tag, in the position it first appeared for the guest
+UPDATE guests g SET dietary_tag_ids = tags.ids
+FROM (
+    SELECT s.guest_id, array_agg(p.id ORDER BY s.position) AS ids
+    FROM (SELECT guest_id, category, label, MIN(position) AS position
+          FROM guest_tag_source GROUP BY guest_id, category, label) s
+    JOIN preference_tags p ON p.category = s.category AND p.label = s.label
+    WHERE s.category = 'DIETARY'
+    GROUP BY s.guest_id
+) tags
+WHERE g.id = tags.guest_id;
+
+UPDATE guests g SET drink_tag_ids = tags.ids
+FROM (
+    SELECT s.guest_id, array_agg(p.id ORDER BY s.position) AS ids
+    FROM (SELECT guest_id, category, label, MIN(position) AS position
+          FROM guest_tag_source GROUP BY guest_id, category, label) s
+    JOIN preference_tags p ON p.category = s.category AND p.label = s.label
+    WHERE s.category = 'DRINK'
+    GROUP BY s.guest_id
+) tags
+WHERE g.id = tags.guest_id;
+
+CREATE INDEX idx_guests_dietary_tag_ids ON guests USING GIN (dietary_tag_ids) WHERE deleted_at IS NULL;
+CREATE INDEX idx_guests_drink_tag_ids ON guests USING GIN (drink_tag_ids) WHERE deleted_at IS NULL;
+
+ALTER TABLE guests
+    DROP COLUMN dietary_restrictions,
+    DROP COLUMN favorite_drinks;
+
+DROP TABLE IF EXISTS guest_dietary_restrictions;
+DROP TABLE IF EXISTS guest_favorite_drinks;
+
+ANALYZE guests;
@@ -0,0 +1,14 @@
+-- Blocking keys for duplicate detection (see GuestMatchKeys):
+-- name_keys holds Double Metaphone codes as 'first:last' and 'first:', phone_key the last ten phone digits.
+-- Keys are computed by the application on every write; existing guests are backfilled at startup
+-- (GuestMatchKeyBackfill) so the phonetic codes come from the same implementation.
+
+ALTER TABLE guests
+    ADD COLUMN name_keys VARCHAR(32)[],
+    ADD COLUMN phone_key VARCHAR(20);
+
+CREATE INDEX idx_guests_name_keys ON guests USING GIN (name_keys) WHERE deleted_at IS NULL;
+CREATE INDEX idx_guests_phone_key ON guests (phone_key) WHERE deleted_at IS NULL;
+
+-- Rows still waiting for the backfill
+CREATE INDEX idx_guests_match_keys_missing ON guests (id) WHERE phone_key IS NULL;
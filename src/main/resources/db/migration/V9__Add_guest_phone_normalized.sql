@@ -0,0 +1,27 @@
+-- E.164 phone numbers (see PhoneNumbers.toE164) with a unique index over active guests.
+-- Guest creation inserts with ON CONFLICT on this index, so the duplicate check and the insert
+-- are one statement and concurrent creates cannot both succeed. Replaces the UNIQUE constraint
+-- on the raw phone column, which let +15551234567 and 5551234567 coexist.
+
+ALTER TABLE guests ADD COLUMN phone_normalized VARCHAR(20);
+
+-- search_phone (V4) already holds the digits
+UPDATE guests SET phone_normalized = CASE
+    WHEN btrim(phone) NOT LIKE '+%' AND length(search_phone) = 10 THEN '+1' || search_phone
+    ELSE '+' || search_phone
+END
+WHERE search_phone <> '';
+
+-- Active guests whose numbers only differed in format: the oldest keeps the number and the
+-- others are left without one until merged (the duplicate sweep reports them by phone key)
+UPDATE guests g SET phone_normalized = NULL
+FROM (
+    SELECT id, row_number() OVER (PARTITION BY phone_normalized ORDER BY id) AS position
+    FROM guests
+    WHERE deleted_at IS NULL AND phone_normalized IS NOT NULL
+) ranked
+WHERE g.id = ranked.id AND ranked.position > 1;
+
+CREATE UNIQUE INDEX uk_guests_phone_normalized ON guests (phone_normalized) WHERE deleted_at IS NULL;
+
+ALTER TABLE guests DROP CONSTRAINT IF EXISTS guests_phone_key;
@@ -0,0 +1,59 @@
+package com.restaurant.vip.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shared helpers for the opt-in PostgreSQL benchmarks.
+ * Benchmarks run only when -Dbenchmark.jdbc.url is set, e.g.
+ * mvn test -Dtest='*Benchmark' -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/vip_guest_db
+ */
+final class BenchmarkSupport {
+
+    static final String JDBC_URL_PROPERTY = "benchmark.jdbc.url";
+
+    private BenchmarkSupport() {
+    }
+
+    static Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(
+            System.getProperty(JDBC_URL_PROPERTY),
+            System.getProperty("benchmark.jdbc.user", "vip_user"),
+            System.getProperty("benchmark.jdbc.password", "vip_password")
+        );
+    }
+
+    static int intProperty(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty(name, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * Run each statement in order, e.g. to build a scratch schema
+     */
+    static void execute(Connection connection, List<String> statements) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * Percentile over raw nanosecond samples, returned in milliseconds
+     */
+    static double percentileMillis(long[] samples, double percentile) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+
+    static void report(String name, long[] samples) {
+        System.out.printf("%-40s n=%-6d p50=%8.3f ms  p99=%8.3f ms%n",
+            name, samples.length, percentileMillis(samples, 50), percentileMillis(samples, 99));
+    }
+}
@@ -0,0 +1,141 @@
+package com.restaurant.vip.benchmark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the keyset seek of GuestRepositoryCustomImpl.findKeysetPage starts an index range on
+ * the V5 (key, id) indexes, and compares it with the OR form it replaced, which the planner can
+ * only apply as a filter over every row before the cursor. Prints both plans and times a first
+ * and a deep page. Runs in a scratch schema that is dropped afterwards.
+ *
+ * Options: -Dbenchmark.guests (default 500000), -Dbenchmark.iterations (default 50)
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = BenchmarkSupport.JDBC_URL_PROPERTY, matches = ".+")
+class GuestKeysetBenchmark {
+
+    private static final String SCHEMA = "bench_guest_keyset";
+
+    // As Hibernate renders the seek for GuestSortField.LAST_NAME in each direction
+    private static final String ROW_VALUE_PAGE =
+        "SELECT * FROM guests g WHERE g.deleted_at IS NULL AND (COALESCE(g.last_name, ''), g.id) %s (?, ?) " +
+        "ORDER BY COALESCE(g.last_name, '') %s, g.id %s LIMIT 20";
+
+    private static final String OR_FORM_PAGE =
+        "SELECT * FROM guests g WHERE g.deleted_at IS NULL AND (COALESCE(g.last_name, '') > ? " +
+        "OR (COALESCE(g.last_name, '') = ? AND g.id > ?)) ORDER BY COALESCE(g.last_name, ''), g.id LIMIT 20";
+
+    private Connection connection;
+    private int guests;
+
+    @BeforeAll
+    void createDataset() throws SQLException {
+        connection = BenchmarkSupport.openConnection();
+        guests = BenchmarkSupport.intProperty("benchmark.guests", 500_000);
+
+        BenchmarkSupport.execute(connection, List.of(
+            "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE",
+            "CREATE SCHEMA " + SCHEMA,
+            "SET search_path TO " + SCHEMA + ", public",
+            "CREATE TABLE guests (id BIGINT PRIMARY KEY, first_name VARCHAR(100) NOT NULL, " +
+            "last_name VARCHAR(100), created_at TIMESTAMP NOT NULL, deleted_at TIMESTAMP)",
+            "INSERT INTO guests SELECT i, 'First' || (i % 997), " +
+            "CASE WHEN i % 50 = 0 THEN NULL ELSE 'Last' || lpad((i % 20011)::text, 5, '0') END, " +
+            "now() - i * INTERVAL '1 minute', CASE WHEN i % 100 = 0 THEN now() END " +
+            "FROM generate_series(1, " + guests + ") AS i",
+            "CREATE INDEX idx_guests_keyset_last_name ON guests ((COALESCE(last_name, '')), id) WHERE deleted_at IS NULL",
+            "VACUUM ANALYZE guests"
+        ));
+    }
+
+    @AfterAll
+    void dropDataset() throws SQLException {
+        if (connection != null) {
+            BenchmarkSupport.execute(connection, List.of("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE"));
+            connection.close();
+        }
+    }
+
+    @Test
+    void rowValueSeekIsAnIndexRangeStart() throws SQLException {
+        for (boolean ascending : new boolean[] {true, false}) {
+            String plan = explain(rowValuePage(ascending), "'Last15000'", String.valueOf(guests / 2));
+            System.out.println("=== row-value seek, " + (ascending ? "ascending" : "descending") + " ===\n" + plan);
+            assertTrue(plan.contains("Index Cond") && plan.contains("ROW("), "seek is not an index condition:\n" + plan);
+            assertFalse(plan.contains("Rows Removed by Filter"), "seek rows were filtered:\n" + plan);
+        }
+        System.out.println("=== OR form ===\n" + explain(OR_FORM_PAGE, "'Last15000'", "'Last15000'", String.valueOf(guests / 2)));
+    }
+
+    @Test
+    void compareFirstAndDeepPages() throws SQLException {
+        int iterations = BenchmarkSupport.intProperty("benchmark.iterations", 50);
+        BenchmarkSupport.report("row-value seek, first page", measure(rowValuePage(true), iterations, "", 0L));
+        BenchmarkSupport.report("row-value seek, deep page", measure(rowValuePage(true), iterations, "Last19000", 0L));
+        BenchmarkSupport.report("OR form, first page", measure(OR_FORM_PAGE, iterations, "", "", 0L));
+        BenchmarkSupport.report("OR form, deep page", measure(OR_FORM_PAGE, iterations, "Last19000", "Last19000", 0L));
+    }
+
+    private static String rowValuePage(boolean ascending) {
+        String direction = ascending ? "ASC" : "DESC";
+        return String.format(ROW_VALUE_PAGE, ascending ? ">" : "<", direction, direction);
+    }
+
+    /**
+     * Generic plan, as the JDBC driver runs the statement after its prepare threshold
+     */
+    private String explain(String sql, String... literals) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        String prepared = sql;
+        for (int i = 1; i <= literals.length; i++) {
+            prepared = prepared.replaceFirst("\\?", "\\$" + i);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET plan_cache_mode = force_generic_plan");
+            statement.execute("PREPARE bench_query AS " + prepared);
+            try (ResultSet resultSet = statement.executeQuery(
+                    "EXPLAIN (ANALYZE, COSTS OFF, TIMING OFF, SUMMARY OFF) EXECUTE bench_query(" +
+                    String.join(", ", literals) + ")")) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            } finally {
+                statement.execute("DEALLOCATE bench_query");
+                statement.execute("RESET plan_cache_mode");
+            }
+        }
+        return plan.toString();
+    }
+
+    private long[] measure(String sql, int iterations, Object... parameters) throws SQLException {
+        long[] samples = new long[iterations];
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        resultSet.getLong(1);
+                    }
+                }
+                samples[i] = System.nanoTime() - start;
+            }
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,192 @@
+package com.restaurant.vip.benchmark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the legacy leading-wildcard LIKE guest search with the trigram search (V4)
+ * on a generated dataset. Runs in a scratch schema that is dropped afterwards.
+ *
+ * Options: -Dbenchmark.guests (default 200000), -Dbenchmark.iterations (default 50)
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = BenchmarkSupport.JDBC_URL_PROPERTY, matches = ".+")
+class GuestSearchBenchmark {
+
+    private static final String SCHEMA = "bench_guest_search";
+
+    // Terms as staff type them: prefixes, full names, surnames, misspellings and phone fragments
+    private static final List<String> TERMS = List.of(
+        "jo", "joh", "john", "john sm", "john smith", "smith", "smiht", "garcia", "maria g", "55512", "5551234"
+    );
+
+    private static final String LEGACY_WHERE =
+        "deleted_at IS NULL AND (" +
+        "LOWER(first_name || ' ' || COALESCE(last_name, '')) LIKE LOWER('%' || ? || '%') " +
+        "OR LOWER(first_name) LIKE LOWER('%' || ? || '%') " +
+        "OR LOWER(COALESCE(last_name, '')) LIKE LOWER('%' || ? || '%') " +
+        "OR phone LIKE '%' || ? || '%')";
+
+    private static final String LEGACY_PAGE =
+        "SELECT * FROM guests WHERE " + LEGACY_WHERE + " ORDER BY first_name LIMIT 20";
+
+    private static final String LEGACY_COUNT =
+        "SELECT COUNT(*) FROM guests WHERE " + LEGACY_WHERE;
+
+    private static final String TRIGRAM_WHERE =
+        "g.deleted_at IS NULL AND (" +
+        "g.search_name LIKE '%' || ? || '%' " +
+        "OR ? <% g.search_name " +
+        "OR (? <> '' AND g.search_phone LIKE '%' || ? || '%'))";
+
+    private static final String TRIGRAM_PAGE =
+        "SELECT g.* FROM guests g WHERE " + TRIGRAM_WHERE + " ORDER BY GREATEST(" +
+        "CASE WHEN g.search_name LIKE (? || '%') THEN 1.0 ELSE 0.0 END, " +
+        "word_similarity(?, g.search_name), " +
+        "CASE WHEN ? <> '' AND g.search_phone LIKE '%' || ? || '%' THEN 1.0 ELSE 0.0 END) DESC, " +
+        "g.search_name, g.id LIMIT 20";
+
+    private static final String TRIGRAM_COUNT =
+        "SELECT COUNT(*) FROM guests g WHERE " + TRIGRAM_WHERE;
+
+    private Connection connection;
+
+    @BeforeAll
+    void createDataset() throws SQLException {
+        connection = BenchmarkSupport.openConnection();
+        int guests = BenchmarkSupport.intProperty("benchmark.guests", 200_000);
+
+        BenchmarkSupport.execute(connection, List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE",
+            "CREATE SCHEMA " + SCHEMA,
+            "SET search_path TO " + SCHEMA + ", public",
+            "CREATE TABLE guests (" +
+            "  id SERIAL PRIMARY KEY," +
+            "  first_name VARCHAR(100) NOT NULL," +
+            "  last_name VARCHAR(100)," +
+            "  phone VARCHAR(20) UNIQUE NOT NULL," +
+            "  deleted_at TIMESTAMP NULL," +
+            "  search_name TEXT GENERATED ALWAYS AS (lower(trim(first_name || ' ' || coalesce(last_name, '')))) STORED," +
+            "  search_phone TEXT GENERATED ALWAYS AS (regexp_replace(phone, '[^0-9]', '', 'g')) STORED)",
+            "INSERT INTO guests (first_name, last_name, phone, deleted_at) " +
+            "SELECT (ARRAY['John','Jane','Maria','Michael','Sarah','David','Emma','Luis','Olivia','Noah'])[1 + i % 10] || (i % 997)," +
+            "       (ARRAY['Smith','Garcia','Johnson','Brown','Nguyen','Miller','Davis','Lopez','Wilson','Taylor'])[1 + (i / 10) % 10] || (i % 769)," +
+            "       '+1555' || lpad(i::text, 7, '0')," +
+            "       CASE WHEN i % 50 = 0 THEN now() END " +
+            "FROM generate_series(1, " + guests + ") AS i",
+            // Indexes from V2 that the legacy queries had available
+            "CREATE INDEX idx_guests_name ON guests(first_name, last_name)",
+            "CREATE INDEX idx_guests_search ON guests(first_name, last_name, phone) WHERE deleted_at IS NULL",
+            // Indexes from V4
+            "CREATE INDEX idx_guests_search_name_trgm ON guests USING GIN (search_name gin_trgm_ops) WHERE deleted_at IS NULL",
+            "CREATE INDEX idx_guests_search_phone_trgm ON guests USING GIN (search_phone gin_trgm_ops) WHERE deleted_at IS NULL",
+            "ANALYZE guests"
+        ));
+    }
+
+    @AfterAll
+    void dropDataset() throws SQLException {
+        if (connection != null) {
+            BenchmarkSupport.execute(connection, List.of("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE"));
+            connection.close();
+        }
+    }
+
+    @Test
+    void compareLegacyLikeWithTrigramSearch() throws SQLException {
+        int iterations = BenchmarkSupport.intProperty("benchmark.iterations", 50);
+
+        // Warm up both paths before measuring
+        measure(this::runLegacy, 5);
+        measure(this::runTrigram, 5);
+
+        long[] legacy = measure(this::runLegacy, iterations);
+        long[] trigram = measure(this::runTrigram, iterations);
+
+        BenchmarkSupport.report("legacy LIKE (page + count)", legacy);
+        BenchmarkSupport.report("trigram (page + count)", trigram);
+
+        // Sanity check: the trigram search still finds substring matches
+        assertTrue(runTrigram("john") > 0);
+    }
+
+    private long[] measure(SearchRunner runner, int iterations) throws SQLException {
+        long[] samples = new long[iterations * TERMS.size()];
+        int sample = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (String term : TERMS) {
+                long start = System.nanoTime();
+                runner.run(term);
+                samples[sample++] = System.nanoTime() - start;
+            }
+        }
+        return samples;
+    }
+
+    private long runLegacy(String term) throws SQLException {
+        try (PreparedStatement page = connection.prepareStatement(LEGACY_PAGE);
+             PreparedStatement count = connection.prepareStatement(LEGACY_COUNT)) {
+            for (PreparedStatement statement : List.of(page, count)) {
+                for (int i = 1; i <= 4; i++) {
+                    statement.setString(i, term);
+                }
+            }
+            drain(page);
+            return single(count);
+        }
+    }
+
+    private long runTrigram(String term) throws SQLException {
+        String digits = term.replaceAll("[^0-9]", "");
+        try (PreparedStatement page = connection.prepareStatement(TRIGRAM_PAGE);
+             PreparedStatement count = connection.prepareStatement(TRIGRAM_COUNT)) {
+            bindTrigramWhere(page, term, digits);
+            page.setString(5, term);
+            page.setString(6, term);
+            page.setString(7, digits);
+            page.setString(8, digits);
+            bindTrigramWhere(count, term, digits);
+            drain(page);
+            return single(count);
+        }
+    }
+
+    private static void bindTrigramWhere(PreparedStatement statement, String term, String digits) throws SQLException {
+        statement.setString(1, term);
+        statement.setString(2, term);
+        statement.setString(3, digits);
+        statement.setString(4, digits);
+    }
+
+    private static void drain(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                resultSet.getLong("id");
+            }
+        }
+    }
+
+    private static long single(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SearchRunner {
+        long run(String term) throws SQLException;
+    }
+}
@@ -0,0 +1,315 @@
+package com.restaurant.vip.benchmark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares guest tags stored in element-collection tables (one row per tag) with the
+ * dictionary-encoded INTEGER[] columns from V7, for single guest loads and tag filters.
+ * Runs in a scratch schema that is dropped afterwards.
+ *
+ * Options: -Dbenchmark.guests (default 200000), -Dbenchmark.iterations (default 50)
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = BenchmarkSupport.JDBC_URL_PROPERTY, matches = ".+")
+class PreferenceTagBenchmark {
+
+    private static final String SCHEMA = "bench_preference_tags";
+
+    private static final int GUEST_LOADS = 200;
+
+    // Filter sheet selections as (dietary restrictions, favorite drinks): common, rare and multi-value
+    private static final List<List<List<String>>> SELECTIONS = List.of(
+        List.of(List.of("Dietary 3"), List.of("Drink 7")),
+        List.of(List.of("Dietary 1", "Dietary 5"), List.of("Drink 2", "Drink 9", "Drink 11")),
+        List.of(List.of("Dietary 12"), List.of("Drink 40")),
+        List.of(List.of("Dietary 2", "Dietary 4", "Dietary 6"), List.of("Drink 1"))
+    );
+
+    // Legacy mapping: the guest row plus one select per tag collection
+    private static final String LEGACY_LOAD_GUEST = "SELECT * FROM guests WHERE id = ?";
+    private static final String LEGACY_LOAD_DIETARY = "SELECT restriction FROM guest_dietary_restrictions WHERE guest_id = ?";
+    private static final String LEGACY_LOAD_DRINKS = "SELECT drink FROM guest_favorite_drinks WHERE guest_id = ?";
+
+    private static final String LEGACY_WHERE =
+        "g.deleted_at IS NULL " +
+        "AND EXISTS (SELECT 1 FROM guest_dietary_restrictions r WHERE r.guest_id = g.id AND r.restriction = ANY(?)) " +
+        "AND EXISTS (SELECT 1 FROM guest_favorite_drinks d WHERE d.guest_id = g.id AND d.drink = ANY(?))";
+
+    private static final String LEGACY_PAGE =
+        "SELECT g.id, g.first_name, g.phone FROM guests g WHERE " + LEGACY_WHERE + " ORDER BY g.id LIMIT 20";
+
+    private static final String LEGACY_COUNT =
+        "SELECT COUNT(*) FROM guests g WHERE " + LEGACY_WHERE;
+
+    // Tag mapping: tags load with the row and filter through the GIN indexes
+    private static final String TAG_LOAD_GUEST = "SELECT * FROM guests WHERE id = ?";
+
+    private static final String TAG_WHERE =
+        "g.deleted_at IS NULL AND g.dietary_tag_ids && ? AND g.drink_tag_ids && ?";
+
+    private static final String TAG_PAGE =
+        "SELECT g.id, g.first_name, g.phone FROM guests g WHERE " + TAG_WHERE + " ORDER BY g.id LIMIT 20";
+
+    private static final String TAG_COUNT =
+        "SELECT COUNT(*) FROM guests g WHERE " + TAG_WHERE;
+
+    private Connection connection;
+    private int guests;
+
+    // Both directions per category, as PreferenceTagDictionary caches them in the application
+    private final Map<String, Map<String, Integer>> idsByLabel = new HashMap<>();
+    private final Map<String, Map<Integer, String>> labelsById = new HashMap<>();
+
+    @BeforeAll
+    void createDataset() throws SQLException {
+        connection = BenchmarkSupport.openConnection();
+        guests = BenchmarkSupport.intProperty("benchmark.guests", 200_000);
+
+        BenchmarkSupport.execute(connection, List.of(
+            "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE",
+            "CREATE SCHEMA " + SCHEMA,
+            "SET search_path TO " + SCHEMA + ", public",
+            "CREATE TABLE preference_tags (" +
+            "  id SERIAL PRIMARY KEY," +
+            "  category VARCHAR(20) NOT NULL," +
+            "  label TEXT NOT NULL," +
+            "  UNIQUE (category, label))",
+            "INSERT INTO preference_tags (category, label) SELECT 'DIETARY', 'Dietary ' || i FROM generate_series(1, 12) AS i",
+            "INSERT INTO preference_tags (category, label) SELECT 'DRINK', 'Drink ' || i FROM generate_series(1, 40) AS i",
+            "CREATE TABLE guests (" +
+            "  id SERIAL PRIMARY KEY," +
+            "  first_name VARCHAR(100) NOT NULL," +
+            "  phone VARCHAR(20) UNIQUE NOT NULL," +
+            "  notes TEXT," +
+            "  deleted_at TIMESTAMP NULL," +
+            "  dietary_tag_ids INTEGER[] NOT NULL DEFAULT '{}'," +
+            "  drink_tag_ids INTEGER[] NOT NULL DEFAULT '{}')",
+            "INSERT INTO guests (first_name, phone, notes, deleted_at) " +
+            "SELECT 'Guest' || i, '+1555' || lpad(i::text, 7, '0'), repeat('note ', i % 40), " +
+            "       CASE WHEN i % 50 = 0 THEN now() END " +
+            "FROM generate_series(1, " + guests + ") AS i",
+            // 0-3 dietary restrictions and 0-4 favorite drinks per guest, no repeats within a guest
+            "CREATE TABLE guest_dietary_restrictions (guest_id INTEGER NOT NULL REFERENCES guests(id), restriction VARCHAR(255))",
+            "INSERT INTO guest_dietary_restrictions (guest_id, restriction) " +
+            "SELECT g.id, 'Dietary ' || (1 + (g.id * 7 + k * 5) % 12) FROM guests g, generate_series(1, g.id % 4) AS k",
+            "CREATE TABLE guest_favorite_drinks (guest_id INTEGER NOT NULL REFERENCES guests(id), drink VARCHAR(255))",
+            "INSERT INTO guest_favorite_drinks (guest_id, drink) " +
+            "SELECT g.id, 'Drink ' || (1 + (g.id * 11 + k * 7) % 40) FROM guests g, generate_series(1, g.id % 5) AS k",
+            // Give the legacy layout the indexes it would need to be competitive
+            "CREATE INDEX idx_bench_dietary_guest ON guest_dietary_restrictions(guest_id, restriction)",
+            "CREATE INDEX idx_bench_dietary_restriction ON guest_dietary_restrictions(restriction, guest_id)",
+            "CREATE INDEX idx_bench_drinks_guest ON guest_favorite_drinks(guest_id, drink)",
+            "CREATE INDEX idx_bench_drinks_drink ON guest_favorite_drinks(drink, guest_id)",
+            // Same encoding as the V7 data migration
+            "UPDATE guests g SET " +
+            "  dietary_tag_ids = COALESCE((SELECT array_agg(p.id) FROM guest_dietary_restrictions r " +
+            "    JOIN preference_tags p ON p.category = 'DIETARY' AND p.label = r.restriction WHERE r.guest_id = g.id), '{}')," +
+            "  drink_tag_ids = COALESCE((SELECT array_agg(p.id) FROM guest_favorite_drinks d " +
+            "    JOIN preference_tags p ON p.category = 'DRINK' AND p.label = d.drink WHERE d.guest_id = g.id), '{}')",
+            "CREATE INDEX idx_guests_dietary_tag_ids ON guests USING GIN (dietary_tag_ids) WHERE deleted_at IS NULL",
+            "CREATE INDEX idx_guests_drink_tag_ids ON guests USING GIN (drink_tag_ids) WHERE deleted_at IS NULL",
+            "VACUUM ANALYZE guests",
+            "ANALYZE guest_dietary_restrictions",
+            "ANALYZE guest_favorite_drinks"
+        ));
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT id, category, label FROM preference_tags");
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                String category = resultSet.getString(2);
+                idsByLabel.computeIfAbsent(category, c -> new HashMap<>()).put(resultSet.getString(3), resultSet.getInt(1));
+                labelsById.computeIfAbsent(category, c -> new HashMap<>()).put(resultSet.getInt(1), resultSet.getString(3));
+            }
+        }
+    }
+
+    @AfterAll
+    void dropDataset() throws SQLException {
+        if (connection != null) {
+            BenchmarkSupport.execute(connection, List.of("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE"));
+            connection.close();
+        }
+    }
+
+    @Test
+    void compareGuestLoads() throws SQLException {
+        int iterations = BenchmarkSupport.intProperty("benchmark.iterations", 50);
+
+        // Warm up both paths before measuring
+        measureLoads(this::loadLegacy, 2);
+        measureLoads(this::loadTagged, 2);
+
+        long[] legacy = measureLoads(this::loadLegacy, iterations);
+        long[] tagged = measureLoads(this::loadTagged, iterations);
+
+        BenchmarkSupport.report("element collections (3 selects)", legacy);
+        BenchmarkSupport.report("tag id arrays (1 select)", tagged);
+
+        // Sanity check: both layouts hold the same tags
+        for (long id = 1; id <= 20; id++) {
+            assertEquals(loadLegacy(id), loadTagged(id));
+        }
+    }
+
+    @Test
+    void compareTagFilters() throws SQLException {
+        int iterations = BenchmarkSupport.intProperty("benchmark.iterations", 50);
+
+        measureFilters(this::filterLegacy, 5);
+        measureFilters(this::filterTagged, 5);
+
+        long[] legacy = measureFilters(this::filterLegacy, iterations);
+        long[] tagged = measureFilters(this::filterTagged, iterations);
+
+        BenchmarkSupport.report("EXISTS over tag rows (page + count)", legacy);
+        BenchmarkSupport.report("GIN && on tag ids (page + count)", tagged);
+
+        // Sanity check: both filters match the same guests
+        for (List<List<String>> selection : SELECTIONS) {
+            assertEquals(filterLegacy(selection), filterTagged(selection));
+        }
+    }
+
+    private long[] measureLoads(LoadRunner runner, int iterations) throws SQLException {
+        long[] samples = new long[iterations * GUEST_LOADS];
+        int sample = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (int load = 0; load < GUEST_LOADS; load++) {
+                // Spread loads over the whole table so they are not all cache-hot neighbours
+                long id = 1 + ((long) (i * GUEST_LOADS + load) * 7919) % guests;
+                long start = System.nanoTime();
+                runner.load(id);
+                samples[sample++] = System.nanoTime() - start;
+            }
+        }
+        return samples;
+    }
+
+    private long[] measureFilters(FilterRunner runner, int iterations) throws SQLException {
+        long[] samples = new long[iterations * SELECTIONS.size()];
+        int sample = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (List<List<String>> selection : SELECTIONS) {
+                long start = System.nanoTime();
+                runner.filter(selection);
+                samples[sample++] = System.nanoTime() - start;
+            }
+        }
+        return samples;
+    }
+
+    private List<List<String>> loadLegacy(long id) throws SQLException {
+        try (PreparedStatement guest = connection.prepareStatement(LEGACY_LOAD_GUEST);
+             PreparedStatement dietary = connection.prepareStatement(LEGACY_LOAD_DIETARY);
+             PreparedStatement drinks = connection.prepareStatement(LEGACY_LOAD_DRINKS)) {
+            guest.setLong(1, id);
+            dietary.setLong(1, id);
+            drinks.setLong(1, id);
+            try (ResultSet resultSet = guest.executeQuery()) {
+                resultSet.next();
+            }
+            return List.of(sorted(strings(dietary)), sorted(strings(drinks)));
+        }
+    }
+
+    private List<List<String>> loadTagged(long id) throws SQLException {
+        try (PreparedStatement guest = connection.prepareStatement(TAG_LOAD_GUEST)) {
+            guest.setLong(1, id);
+            try (ResultSet resultSet = guest.executeQuery()) {
+                resultSet.next();
+                return List.of(sorted(labels("DIETARY", resultSet.getArray("dietary_tag_ids"))),
+                               sorted(labels("DRINK", resultSet.getArray("drink_tag_ids"))));
+            }
+        }
+    }
+
+    private List<Long> filterLegacy(List<List<String>> selection) throws SQLException {
+        try (PreparedStatement page = connection.prepareStatement(LEGACY_PAGE);
+             PreparedStatement count = connection.prepareStatement(LEGACY_COUNT)) {
+            for (PreparedStatement statement : List.of(page, count)) {
+                statement.setArray(1, connection.createArrayOf("text", selection.get(0).toArray()));
+                statement.setArray(2, connection.createArrayOf("text", selection.get(1).toArray()));
+            }
+            return pageAndCount(page, count);
+        }
+    }
+
+    private List<Long> filterTagged(List<List<String>> selection) throws SQLException {
+        try (PreparedStatement page = connection.prepareStatement(TAG_PAGE);
+             PreparedStatement count = connection.prepareStatement(TAG_COUNT)) {
+            for (PreparedStatement statement : List.of(page, count)) {
+                statement.setArray(1, connection.createArrayOf("integer", ids("DIETARY", selection.get(0))));
+                statement.setArray(2, connection.createArrayOf("integer", ids("DRINK", selection.get(1))));
+            }
+            return pageAndCount(page, count);
+        }
+    }
+
+    private Integer[] ids(String category, List<String> labels) {
+        return labels.stream().map(idsByLabel.get(category)::get).toArray(Integer[]::new);
+    }
+
+    private List<String> labels(String category, Array array) throws SQLException {
+        Map<Integer, String> labels = labelsById.get(category);
+        List<String> values = new ArrayList<>();
+        for (Integer id : (Integer[]) array.getArray()) {
+            values.add(labels.get(id));
+        }
+        return values;
+    }
+
+    private static List<Long> pageAndCount(PreparedStatement page, PreparedStatement count) throws SQLException {
+        List<Long> result = new ArrayList<>();
+        try (ResultSet resultSet = page.executeQuery()) {
+            while (resultSet.next()) {
+                result.add(resultSet.getLong("id"));
+            }
+        }
+        try (ResultSet resultSet = count.executeQuery()) {
+            resultSet.next();
+            result.add(resultSet.getLong(1));
+        }
+        return result;
+    }
+
+    private static List<String> strings(PreparedStatement statement) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                values.add(resultSet.getString(1));
+            }
+        }
+        return values;
+    }
+
+    private static List<String> sorted(List<String> values) {
+        values.sort(null);
+        return values;
+    }
+
+    @FunctionalInterface
+    private interface LoadRunner {
+        List<List<String>> load(long id) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface FilterRunner {
+        List<Long> filter(List<List<String>> selection) throws SQLException;
+    }
+}
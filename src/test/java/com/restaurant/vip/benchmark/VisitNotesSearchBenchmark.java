@@ -0,0 +1,162 @@
+package com.restaurant.vip.benchmark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the substring notes search (LOWER(service_notes) LIKE over every visit) with the V14
+ * tsvector + GIN full-text search: one ranked page of 20 with snippets plus its count.
+ * Runs in a scratch schema that is dropped afterwards.
+ *
+ * Options: -Dbenchmark.visits (default 10000000), -Dbenchmark.iterations (default 20)
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = BenchmarkSupport.JDBC_URL_PROPERTY, matches = ".+")
+class VisitNotesSearchBenchmark {
+
+    private static final String SCHEMA = "bench_visit_notes";
+
+    // What staff type into the search box, with the tsquery NotesSearchQuery turns it into
+    private static final List<List<String>> SEARCHES = List.of(
+        List.of("allergic", "allergic"),
+        List.of("proposal", "proposal"),
+        List.of("window seat", "(window <-> seat)"),
+        List.of("birthday", "birth:*")
+    );
+
+    private static final String LEGACY_SEARCH =
+        "SELECT v.id FROM visits v WHERE LOWER(v.service_notes) LIKE ? ORDER BY v.visit_date DESC, v.visit_time DESC";
+
+    private static final String FULL_TEXT_PAGE =
+        "SELECT v.id, ts_rank_cd(v.notes_tsv, q.query) AS rank, " +
+        "ts_headline('english', v.service_notes, q.query, 'StartSel=<mark>, StopSel=</mark>, MaxWords=25, MinWords=8') " +
+        "FROM visits v CROSS JOIN to_tsquery('english', ?) AS q(query) " +
+        "WHERE v.notes_tsv @@ q.query ORDER BY rank DESC, v.visit_date DESC, v.id DESC LIMIT 20";
+
+    private static final String FULL_TEXT_COUNT =
+        "SELECT COUNT(*) FROM visits v WHERE v.notes_tsv @@ to_tsquery('english', ?)";
+
+    private Connection connection;
+
+    @BeforeAll
+    void createDataset() throws SQLException {
+        connection = BenchmarkSupport.openConnection();
+        int visits = BenchmarkSupport.intProperty("benchmark.visits", 10_000_000);
+
+        BenchmarkSupport.execute(connection, List.of(
+            "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE",
+            "CREATE SCHEMA " + SCHEMA,
+            "SET search_path TO " + SCHEMA + ", public",
+            "CREATE TABLE visits (" +
+            "  id BIGSERIAL PRIMARY KEY," +
+            "  guest_id BIGINT NOT NULL," +
+            "  visit_date DATE NOT NULL," +
+            "  visit_time TIME NOT NULL," +
+            "  service_notes TEXT)",
+            // Two everyday phrases per visit, a third of visits without notes, and rare phrases
+            // (one visit in 500 and one in 20000) so searches range from selective to broad
+            "INSERT INTO visits (guest_id, visit_date, visit_time, service_notes) " +
+            "SELECT 1 + i % 500000, DATE '2015-01-01' + (i % 3650), TIME '17:00' + (i % 300) * INTERVAL '1 minute', " +
+            "       CASE WHEN i % 3 = 0 THEN NULL ELSE " +
+            "         (ARRAY['Requested the window seat again', 'Ordered the tasting menu', 'Celebrating a birthday with family', " +
+            "                'Prefers still water, no ice', 'Sent the steak back, asked for medium rare', " +
+            "                'Quiet table near the garden', 'Brought their own wine, corkage charged'])[1 + i % 7] || '. ' || " +
+            "         (ARRAY['Very pleasant evening.', 'Asked about the private room.', 'Left a generous tip.', " +
+            "                'Complained about the noise.', 'Wants to book for the holidays.'])[1 + i % 5] || " +
+            "         CASE WHEN i % 500 = 0 THEN ' Guest is allergic to shellfish.' ELSE '' END || " +
+            "         CASE WHEN i % 20000 = 0 THEN ' Planning a proposal next month, keep it quiet.' ELSE '' END " +
+            "       END " +
+            "FROM generate_series(1, " + visits + ") AS i",
+            "ALTER TABLE visits ADD COLUMN notes_tsv TSVECTOR " +
+            "  GENERATED ALWAYS AS (to_tsvector('english', coalesce(service_notes, ''))) STORED",
+            "CREATE INDEX idx_visits_notes_tsv ON visits USING GIN (notes_tsv)",
+            "VACUUM ANALYZE visits"
+        ));
+    }
+
+    @AfterAll
+    void dropDataset() throws SQLException {
+        if (connection != null) {
+            BenchmarkSupport.execute(connection, List.of("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE"));
+            connection.close();
+        }
+    }
+
+    @Test
+    void compareNotesSearch() throws SQLException {
+        int iterations = BenchmarkSupport.intProperty("benchmark.iterations", 20);
+
+        measure(this::searchLegacy, 1);
+        measure(this::searchFullText, 2);
+
+        long[] legacy = measure(this::searchLegacy, iterations);
+        long[] fullText = measure(this::searchFullText, iterations);
+
+        BenchmarkSupport.report("LIKE '%term%' (all matches)", legacy);
+        BenchmarkSupport.report("tsvector GIN (ranked page + count)", fullText);
+
+        // Sanity check: for single words both searches find the same number of visits
+        assertEquals(searchLegacy(SEARCHES.get(0)), searchFullText(SEARCHES.get(0)));
+        assertEquals(searchLegacy(SEARCHES.get(1)), searchFullText(SEARCHES.get(1)));
+    }
+
+    private long[] measure(SearchRunner runner, int iterations) throws SQLException {
+        long[] samples = new long[iterations * SEARCHES.size()];
+        int sample = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (List<String> search : SEARCHES) {
+                long start = System.nanoTime();
+                runner.search(search);
+                samples[sample++] = System.nanoTime() - start;
+            }
+        }
+        return samples;
+    }
+
+    // The legacy endpoint returns every match, so the whole result is read
+    private long searchLegacy(List<String> search) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(LEGACY_SEARCH)) {
+            statement.setString(1, "%" + search.get(0).toLowerCase() + "%");
+            long matches = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    matches++;
+                }
+            }
+            return matches;
+        }
+    }
+
+    private long searchFullText(List<String> search) throws SQLException {
+        try (PreparedStatement page = connection.prepareStatement(FULL_TEXT_PAGE);
+             PreparedStatement count = connection.prepareStatement(FULL_TEXT_COUNT)) {
+            page.setString(1, search.get(1));
+            count.setString(1, search.get(1));
+            try (ResultSet resultSet = page.executeQuery()) {
+                while (resultSet.next()) {
+                    resultSet.getString(3);
+                }
+            }
+            try (ResultSet resultSet = count.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface SearchRunner {
+        long search(List<String> search) throws SQLException;
+    }
+}
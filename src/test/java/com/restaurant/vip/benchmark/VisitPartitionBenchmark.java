@@ -0,0 +1,227 @@
+package com.restaurant.vip.benchmark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the unpartitioned visits table with the V16 monthly range partitions on a multi-year
+ * dataset: the date-filtered VisitRepository queries (findByVisitDateBetween, findTodaysVisits,
+ * findRecentVisits) and, for contrast, a guest timeline page, which has no date filter and probes
+ * every partition. Prints the generic plan of each query on both layouts, as the JDBC driver runs
+ * them after its prepare threshold, and checks that the partitioned plans only touch the months
+ * of the filter. Runs in a scratch schema that is dropped afterwards.
+ *
+ * Options: -Dbenchmark.visits (default 5000000), -Dbenchmark.years (default 6),
+ * -Dbenchmark.iterations (default 50)
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = BenchmarkSupport.JDBC_URL_PROPERTY, matches = ".+")
+class VisitPartitionBenchmark {
+
+    private static final String SCHEMA = "bench_visit_partitions";
+
+    private static final String COLUMNS =
+        "id INTEGER NOT NULL, guest_id INTEGER NOT NULL, staff_id INTEGER NOT NULL, visit_date DATE NOT NULL, " +
+        "visit_time TIME NOT NULL, party_size INTEGER, table_number VARCHAR(10), service_notes TEXT, " +
+        "created_at TIMESTAMP, updated_at TIMESTAMP";
+
+    private static final Pattern PARTITION = Pattern.compile("visits_\\d{4}_\\d{2}|visits_default");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private Connection connection;
+
+    @BeforeAll
+    void createDataset() throws SQLException {
+        connection = BenchmarkSupport.openConnection();
+        int visits = BenchmarkSupport.intProperty("benchmark.visits", 5_000_000);
+        int years = BenchmarkSupport.intProperty("benchmark.years", 6);
+        int days = years * 365;
+
+        List<String> statements = new ArrayList<>(List.of(
+            "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE",
+            "CREATE SCHEMA " + SCHEMA,
+            "SET search_path TO " + SCHEMA + ", public",
+            // Before V16: one heap with the V2/V13 indexes
+            "CREATE TABLE visits_flat (" + COLUMNS + ", PRIMARY KEY (id))",
+            "INSERT INTO visits_flat " +
+            "SELECT i, 1 + (i * 7919) % 200000, 1 + i % 25, CURRENT_DATE - (i % " + days + "), " +
+            "       TIME '17:00' + (i % 300) * INTERVAL '1 minute', 1 + i % 6, 'T' || (i % 40), " +
+            "       CASE WHEN i % 3 = 0 THEN 'Regular, prefers the window' END, now(), now() " +
+            "FROM generate_series(1, " + visits + ") AS i",
+            "CREATE INDEX ON visits_flat (guest_id)",
+            "CREATE INDEX ON visits_flat (staff_id)",
+            "CREATE INDEX ON visits_flat (guest_id, visit_date DESC)",
+            "CREATE INDEX ON visits_flat (visit_date DESC)",
+            "CREATE INDEX ON visits_flat (visit_date, visit_time)",
+            "CREATE INDEX ON visits_flat (guest_id, visit_date DESC, visit_time DESC, id DESC)",
+            // After V16: monthly partitions with the V16 indexes
+            "CREATE TABLE visits (" + COLUMNS + ", PRIMARY KEY (id, visit_date)) PARTITION BY RANGE (visit_date)"
+        ));
+        YearMonth last = YearMonth.from(TODAY).plusMonths(3);
+        for (YearMonth month = YearMonth.from(TODAY.minusDays(days)); !month.isAfter(last); month = month.plusMonths(1)) {
+            statements.add("CREATE TABLE " + partitionName(month) + " PARTITION OF visits " +
+                "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        }
+        statements.addAll(List.of(
+            "CREATE TABLE visits_default PARTITION OF visits DEFAULT",
+            "INSERT INTO visits SELECT * FROM visits_flat",
+            "CREATE INDEX ON visits (staff_id)",
+            "CREATE INDEX ON visits (visit_date, visit_time)",
+            "CREATE INDEX ON visits (guest_id, visit_date DESC, visit_time DESC, id DESC)",
+            "VACUUM ANALYZE visits_flat",
+            "VACUUM ANALYZE visits"
+        ));
+        BenchmarkSupport.execute(connection, statements);
+    }
+
+    @AfterAll
+    void dropDataset() throws SQLException {
+        if (connection != null) {
+            BenchmarkSupport.execute(connection, List.of("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE"));
+            connection.close();
+        }
+    }
+
+    @Test
+    void compareDateRange() throws SQLException {
+        // findByVisitDateBetween over one week
+        LocalDate from = TODAY.minusDays(400);
+        LocalDate to = from.plusDays(6);
+        compare("date range (1 week)",
+            "SELECT * FROM %s WHERE visit_date BETWEEN $1 AND $2 ORDER BY visit_date DESC, visit_time DESC",
+            List.of(from, to), monthsBetween(from, to));
+    }
+
+    @Test
+    void compareTodaysVisits() throws SQLException {
+        // findTodaysVisits; CURRENT_DATE is pruned when the executor starts
+        compare("today",
+            "SELECT * FROM %s WHERE visit_date = CURRENT_DATE ORDER BY visit_time DESC",
+            List.of(), monthsBetween(TODAY, TODAY));
+    }
+
+    @Test
+    void compareRecentVisits() throws SQLException {
+        // findRecentVisits for the last 7 days
+        LocalDate cutoff = TODAY.minusDays(7);
+        compare("recent (7 days)",
+            "SELECT * FROM %s WHERE visit_date >= $1 ORDER BY visit_date DESC, visit_time DESC",
+            List.of(cutoff), monthsBetween(cutoff, TODAY.plusMonths(3)));
+    }
+
+    @Test
+    void compareGuestTimeline() throws SQLException {
+        // No date filter: every partition is probed, which is what partitioning costs guest reads
+        compare("guest timeline page (no pruning)",
+            "SELECT * FROM %s WHERE guest_id = $1 ORDER BY visit_date DESC, visit_time DESC, id DESC LIMIT 20",
+            List.of(4242), null);
+    }
+
+    /**
+     * Print the generic plans of the query on both layouts, check partition pruning when expected
+     * partitions are given, then time both through JDBC prepared statements
+     */
+    private void compare(String name, String sql, List<Object> parameters, Set<String> expectedPartitions)
+            throws SQLException {
+        String flatPlan = genericPlan(String.format(sql, "visits_flat"), parameters);
+        String partitionedPlan = genericPlan(String.format(sql, "visits"), parameters);
+        System.out.println("=== " + name + ": unpartitioned ===\n" + flatPlan);
+        System.out.println("=== " + name + ": partitioned ===\n" + partitionedPlan);
+
+        if (expectedPartitions != null) {
+            Set<String> scanned = new TreeSet<>();
+            Matcher matcher = PARTITION.matcher(partitionedPlan);
+            while (matcher.find()) {
+                scanned.add(matcher.group());
+            }
+            scanned.remove("visits_default");
+            assertFalse(scanned.isEmpty(), "no partition scanned for " + name);
+            assertTrue(expectedPartitions.containsAll(scanned), "partitions outside the filter scanned: " + scanned);
+        }
+
+        int iterations = BenchmarkSupport.intProperty("benchmark.iterations", 50);
+        String jdbcSql = sql.replaceAll("\\$\\d", "?");
+        measure(String.format(jdbcSql, "visits_flat"), parameters, 5);
+        measure(String.format(jdbcSql, "visits"), parameters, 5);
+        BenchmarkSupport.report(name + " unpartitioned", measure(String.format(jdbcSql, "visits_flat"), parameters, iterations));
+        BenchmarkSupport.report(name + " partitioned", measure(String.format(jdbcSql, "visits"), parameters, iterations));
+    }
+
+    private String genericPlan(String sql, List<Object> parameters) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET plan_cache_mode = force_generic_plan");
+            statement.execute("PREPARE bench_query AS " + sql);
+            List<String> literals = new ArrayList<>();
+            for (Object parameter : parameters) {
+                literals.add(parameter instanceof LocalDate ? "DATE '" + parameter + "'" : String.valueOf(parameter));
+            }
+            String execute = "EXECUTE bench_query" + (literals.isEmpty() ? "" : "(" + String.join(", ", literals) + ")");
+            try (ResultSet resultSet = statement.executeQuery(
+                    "EXPLAIN (ANALYZE, COSTS OFF, TIMING OFF, SUMMARY OFF) " + execute)) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            } finally {
+                statement.execute("DEALLOCATE bench_query");
+                statement.execute("RESET plan_cache_mode");
+            }
+        }
+        return plan.toString();
+    }
+
+    private long[] measure(String sql, List<Object> parameters, int iterations) throws SQLException {
+        long[] samples = new long[iterations];
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                Object parameter = parameters.get(i);
+                statement.setObject(i + 1, parameter instanceof LocalDate ? Date.valueOf((LocalDate) parameter) : parameter);
+            }
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        resultSet.getLong(1);
+                    }
+                }
+                samples[i] = System.nanoTime() - start;
+            }
+        }
+        return samples;
+    }
+
+    private static Set<String> monthsBetween(LocalDate from, LocalDate to) {
+        Set<String> names = new TreeSet<>();
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+            names.add(partitionName(month));
+        }
+        return names;
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "visits_" + month.format(PARTITION_SUFFIX);
+    }
+}
@@ -0,0 +1,112 @@
+package com.restaurant.vip.integration;
+
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.Staff;
+import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.repository.StaffRepository;
+import com.restaurant.vip.search.GuestFacetIndex;
+import com.restaurant.vip.search.GuestFacetIndex.Facet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The facet index must match the same guests as database filtering (complexSearch), however the
+ * requested labels are spelled. Runs without a test transaction so new tags are committed and
+ * cached before either side resolves them.
+ */
+@DisplayName("Guest Facet Index Tests")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GuestFacetIndexIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private GuestRepository guestRepository;
+
+    @Autowired
+    private StaffRepository staffRepository;
+
+    @Autowired
+    private GuestFacetIndex facetIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    protected void setupTestData() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Staff staff = staffRepository.save(TestDataBuilder.createManagerStaff());
+            saveGuest(staff, "+15550100001", "Window", List.of("Vegan"), List.of("Red wine"));
+            saveGuest(staff, "+15550100002", "Window", List.of(" Vegan ", "Gluten-free"), List.of("Beer"));
+            saveGuest(staff, "+15550100003", "Patio", List.of("Gluten-free"), List.of());
+            saveGuest(staff, "+15550100004", null, List.of(), List.of("Red wine", " Beer"));
+        });
+        facetIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("Should match the guests the database filter matches")
+    void match_AgreesWithDatabaseFiltering() {
+        List<Map<Facet, List<String>>> selections = List.of(
+                selection(List.of("Vegan"), null, null),
+                selection(List.of(" Vegan ", "Vegan"), null, null),
+                selection(List.of("Gluten-free ", "Vegan"), List.of("Beer"), null),
+                selection(null, List.of("  Red wine"), "Window"),
+                selection(Arrays.asList(" ", null), null, null),
+                selection(List.of("Pescatarian"), null, null),
+                selection(null, null, "Patio"));
+
+        for (Map<Facet, List<String>> selection : selections) {
+            // Given
+            Set<Long> fromDatabase = guestRepository.complexSearch(null,
+                            first(selection.get(Facet.SEATING_PREFERENCE)), null, null,
+                            selection.get(Facet.DIETARY_RESTRICTION), selection.get(Facet.FAVORITE_DRINK),
+                            PageRequest.of(0, 100))
+                    .map(Guest::getId).stream().collect(Collectors.toCollection(TreeSet::new));
+
+            // When & Then
+            Set<Long> fromIndex = facetIndex.match(selection).orElseThrow().stream()
+                    .mapToObj(Long::valueOf).collect(Collectors.toCollection(TreeSet::new));
+            assertThat(fromIndex).as("selection %s", selection).isEqualTo(fromDatabase);
+        }
+    }
+
+    private void saveGuest(Staff staff, String phone, String seating, List<String> dietary, List<String> drinks) {
+        Guest guest = new Guest();
+        guest.setFirstName("Facet");
+        guest.setLastName("Guest" + phone.substring(phone.length() - 1));
+        guest.setPhone(phone);
+        guest.setSeatingPreference(seating);
+        guest.setDietaryRestrictions(new ArrayList<>(dietary));
+        guest.setFavoriteDrinks(new ArrayList<>(drinks));
+        guest.setCreatedBy(staff);
+        guestRepository.save(guest);
+    }
+
+    private static Map<Facet, List<String>> selection(List<String> dietary, List<String> drinks, String seating) {
+        Map<Facet, List<String>> selection = new EnumMap<>(Facet.class);
+        selection.put(Facet.DIETARY_RESTRICTION, dietary);
+        selection.put(Facet.FAVORITE_DRINK, drinks);
+        selection.put(Facet.SEATING_PREFERENCE, seating == null ? null : List.of(seating));
+        return selection;
+    }
+
+    private static String first(List<String> values) {
+        return values == null ? null : values.get(0);
+    }
+}
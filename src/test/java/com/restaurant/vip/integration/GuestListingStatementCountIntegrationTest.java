@@ -0,0 +1,132 @@
+package com.restaurant.vip.integration;
+
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.Staff;
+import com.restaurant.vip.entity.Visit;
+import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.repository.StaffRepository;
+import com.restaurant.vip.repository.VisitRepository;
+import com.restaurant.vip.service.GuestVisitStatsService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards against N+1 loading on the guest listing: a page must cost the same
+ * number of SQL statements however many visits its guests have.
+ * Runs without a test transaction so every request starts with an empty persistence context.
+ */
+@DisplayName("Guest Listing Statement Count Tests")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GuestListingStatementCountIntegrationTest extends BaseIntegrationTest {
+
+    private static final int PAGE_SIZE = 20;
+    // Guest page (tags load with the row), count, visit statistics, audit staff lookup and insert,
+    // plus one createdBy batch when the creators are not already in the persistence context
+    private static final long MAX_STATEMENTS_PER_PAGE = 6;
+
+    @Autowired
+    private GuestRepository guestRepository;
+
+    @Autowired
+    private StaffRepository staffRepository;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private GuestVisitStatsService visitStatsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Staff testStaff;
+    private List<Guest> guests;
+
+    @Override
+    protected void setupTestData() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            testStaff = staffRepository.save(TestDataBuilder.createManagerStaff());
+            guests = new ArrayList<>();
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                Guest guest = new Guest();
+                guest.setFirstName("Guest" + i);
+                guest.setLastName("Listing");
+                guest.setPhone("+1555010" + String.format("%04d", i));
+                guest.setDietaryRestrictions(new ArrayList<>(List.of("Vegetarian")));
+                guest.setFavoriteDrinks(new ArrayList<>(List.of("Red wine")));
+                guest.setCreatedBy(testStaff);
+                guests.add(guestRepository.save(guest));
+            }
+        });
+    }
+
+    @Test
+    @WithMockUser(username = "manager@restaurant.com", roles = "MANAGER")
+    @DisplayName("Should list a guest page in a constant number of statements")
+    void getAllGuests_StatementCountIndependentOfVisitHistory() throws Exception {
+        addVisitsPerGuest(1);
+        long withOneVisit = countStatementsForGuestPage();
+
+        addVisitsPerGuest(9);
+        long withTenVisits = countStatementsForGuestPage();
+
+        assertThat(withTenVisits).isEqualTo(withOneVisit);
+        assertThat(withOneVisit).isLessThanOrEqualTo(MAX_STATEMENTS_PER_PAGE);
+    }
+
+    private long countStatementsForGuestPage() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/guests")
+                        .param("page", "0")
+                        .param("size", String.valueOf(PAGE_SIZE)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(PAGE_SIZE))
+                .andExpect(jsonPath("$.content[0].visitCount").value(greaterThan(0)));
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void addVisitsPerGuest(int visitsPerGuest) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (Guest guest : guests) {
+                for (int i = 0; i < visitsPerGuest; i++) {
+                    Visit visit = new Visit();
+                    visit.setGuest(guest);
+                    visit.setStaff(testStaff);
+                    visit.setVisitDate(LocalDate.now().minusDays(i));
+                    visit.setVisitTime(LocalTime.of(19, 0));
+                    visit.setPartySize(2);
+                    visitRepository.save(visit);
+                }
+                visitStatsService.refresh(guest.getId());
+            }
+        });
+    }
+}
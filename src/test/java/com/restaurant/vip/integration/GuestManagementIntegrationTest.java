@@ -5,10 +5,12 @@ import com.restaurant.vip.entity.Guest;
 import com.restaurant.vip.entity.Staff;
 import com.restaurant.vip.repository.GuestRepository;
 import com.restaurant.vip.repository.StaffRepository;
+import com.restaurant.vip.util.GuestETags;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureWebMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -170,6 +172,42 @@ class GuestManagementIntegrationTest extends BaseIntegrationTest {
         assertThat(updatedGuest.getSeatingPreference()).isEqualTo(request.getSeatingPreference());
     }
 
+    @Test
+    @WithMockUser(roles = "HOST")
+    @DisplayName("Should answer 304 when the guest ETag still matches")
+    void shouldReturnNotModifiedForMatchingETag() throws Exception {
+        // Given
+        String etag = GuestETags.of(testGuest.getId(), testGuest.getVersion());
+
+        // When & Then
+        mockMvc.perform(get("/api/guests/{id}", testGuest.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @WithMockUser(roles = "SERVER")
+    @DisplayName("Should reject an update made against a stale ETag")
+    void shouldRejectUpdateWithStaleETag() throws Exception {
+        // Given
+        GuestUpdateRequest request = TestDataBuilder.createGuestUpdateRequest();
+        String staleEtag = GuestETags.of(testGuest.getId(), testGuest.getVersion() + 1);
+
+        // When & Then
+        mockMvc.perform(put("/api/guests/{id}", testGuest.getId())
+                .header(HttpHeaders.IF_MATCH, staleEtag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(request)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.error").value("PRECONDITION_FAILED"));
+
+        Guest unchangedGuest = guestRepository.findById(testGuest.getId()).orElse(null);
+        assertThat(unchangedGuest).isNotNull();
+        assertThat(unchangedGuest.getFirstName()).isEqualTo(testGuest.getFirstName());
+    }
+
     @Test
     @WithMockUser(roles = "MANAGER")
     @DisplayName("Should delete guest successfully")
@@ -0,0 +1,178 @@
+package com.restaurant.vip.integration;
+
+import com.restaurant.vip.dto.GuestUpdateRequest;
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.Staff;
+import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.repository.StaffRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks what a guest edit writes: a merge patch must only UPDATE the columns it changes,
+ * and cost no more statements than the equivalent full PUT.
+ * Runs without a test transaction so every request starts with an empty persistence context.
+ */
+@DisplayName("Guest Patch Integration Tests")
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.restaurant.vip.integration.GuestPatchIntegrationTest$GuestUpdateRecorder"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GuestPatchIntegrationTest extends BaseIntegrationTest {
+
+    private static final MediaType MERGE_PATCH_JSON = MediaType.parseMediaType("application/merge-patch+json");
+
+    @Autowired
+    private GuestRepository guestRepository;
+
+    @Autowired
+    private StaffRepository staffRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Guest testGuest;
+
+    /**
+     * Records the UPDATE statements issued against the guests table
+     */
+    public static class GuestUpdateRecorder implements StatementInspector {
+
+        static final List<String> UPDATES = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.toLowerCase(Locale.ROOT).startsWith("update guests ")) {
+                UPDATES.add(sql);
+            }
+            return sql;
+        }
+    }
+
+    @Override
+    protected void setupTestData() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Staff testStaff = staffRepository.save(TestDataBuilder.createManagerStaff());
+            Guest guest = TestDataBuilder.createBasicGuest();
+            guest.setCreatedBy(testStaff);
+            testGuest = guestRepository.save(guest);
+        });
+    }
+
+    @Test
+    @WithMockUser(username = "manager@restaurant.com", roles = "MANAGER")
+    @DisplayName("Should write only the notes column for a notes-only patch")
+    void patchNotes_UpdatesOnlyChangedColumns() throws Exception {
+        // When
+        long statements = countStatements(patch("/api/guests/{id}", testGuest.getId())
+                .contentType(MERGE_PATCH_JSON)
+                .content("{\"notes\": \"Celebrating an anniversary tonight\"}"));
+
+        // Then
+        assertThat(GuestUpdateRecorder.UPDATES).hasSize(1);
+        assertThat(updatedColumns(GuestUpdateRecorder.UPDATES.get(0)))
+                .containsExactlyInAnyOrder("notes", "updated_at", "version");
+
+        // And a full PUT carrying the same edit costs at least as many statements
+        GuestUpdateRequest request = TestDataBuilder.createGuestUpdateRequest();
+        request.setFirstName(testGuest.getFirstName());
+        request.setLastName(testGuest.getLastName());
+        request.setPhone(testGuest.getPhone());
+        request.setEmail(testGuest.getEmail());
+        request.setSeatingPreference(testGuest.getSeatingPreference());
+        request.setDietaryRestrictions(testGuest.getDietaryRestrictions());
+        request.setFavoriteDrinks(testGuest.getFavoriteDrinks());
+        request.setBirthday(testGuest.getBirthday());
+        request.setAnniversary(testGuest.getAnniversary());
+        request.setNotes("Celebrating a birthday tonight");
+        long putStatements = countStatements(put("/api/guests/{id}", testGuest.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(request)));
+
+        assertThat(statements).isLessThanOrEqualTo(putStatements);
+    }
+
+    @Test
+    @WithMockUser(username = "manager@restaurant.com", roles = "MANAGER")
+    @DisplayName("Should apply tag changes as a diff and skip unchanged tag columns")
+    void patchTags_WritesOnlyChangedTagColumn() throws Exception {
+        // When: the drinks are resent unchanged, one dietary restriction is swapped
+        countStatements(patch("/api/guests/{id}", testGuest.getId())
+                .contentType(MERGE_PATCH_JSON)
+                .content("{\"dietaryRestrictions\": [\"Vegetarian\", \"Gluten free\"], " +
+                        "\"favoriteDrinks\": [\"Red wine\", \"Sparkling water\"]}"));
+
+        // Then
+        assertThat(GuestUpdateRecorder.UPDATES).hasSize(1);
+        assertThat(updatedColumns(GuestUpdateRecorder.UPDATES.get(0)))
+                .contains("dietary_tag_ids")
+                .doesNotContain("drink_tag_ids", "notes", "first_name", "phone");
+        Guest patched = guestRepository.findById(testGuest.getId()).orElseThrow();
+        assertThat(patched.getDietaryRestrictions()).containsExactly("Vegetarian", "Gluten free");
+        assertThat(patched.getNotes()).isEqualTo(testGuest.getNotes());
+    }
+
+    @Test
+    @WithMockUser(username = "manager@restaurant.com", roles = "MANAGER")
+    @DisplayName("Should not write anything for a patch that changes nothing")
+    void patchWithCurrentValues_WritesNothing() throws Exception {
+        // When
+        countStatements(patch("/api/guests/{id}", testGuest.getId())
+                .contentType(MERGE_PATCH_JSON)
+                .content("{\"seatingPreference\": \"" + testGuest.getSeatingPreference() + "\"}"));
+
+        // Then
+        assertThat(GuestUpdateRecorder.UPDATES).isEmpty();
+    }
+
+    private long countStatements(RequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        GuestUpdateRecorder.UPDATES.clear();
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(testGuest.getId()));
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static List<String> updatedColumns(String sql) {
+        String lower = sql.toLowerCase(Locale.ROOT);
+        String assignments = lower.substring(lower.indexOf(" set ") + 5, lower.indexOf(" where "));
+        return Arrays.stream(assignments.split(","))
+                .map(assignment -> assignment.substring(0, assignment.indexOf('=')).trim())
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+}
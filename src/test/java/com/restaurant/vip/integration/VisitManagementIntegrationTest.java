@@ -4,9 +4,14 @@ import com.restaurant.vip.dto.*;
 import com.restaurant.vip.entity.Guest;
 import com.restaurant.vip.entity.Staff;
 import com.restaurant.vip.entity.Visit;
+import com.restaurant.vip.entity.VisitDailyRollup;
 import com.restaurant.vip.repository.GuestRepository;
 import com.restaurant.vip.repository.StaffRepository;
 import com.restaurant.vip.repository.VisitRepository;
+import com.restaurant.vip.repository.VisitRollupRepository;
+import com.restaurant.vip.service.GuestVisitStatsReconciler;
+import com.restaurant.vip.service.GuestVisitStatsService;
+import com.restaurant.vip.service.VisitRollupBackfill;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +22,8 @@ import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -37,6 +44,18 @@ class VisitManagementIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private GuestRepository guestRepository;
 
+    @Autowired
+    private GuestVisitStatsService visitStatsService;
+
+    @Autowired
+    private GuestVisitStatsReconciler visitStatsReconciler;
+
+    @Autowired
+    private VisitRollupRepository visitRollupRepository;
+
+    @Autowired
+    private VisitRollupBackfill visitRollupBackfill;
+
     @Autowired
     private StaffRepository staffRepository;
 
@@ -62,6 +81,7 @@ class VisitManagementIntegrationTest extends BaseIntegrationTest {
         // Create test visit
         testVisit = TestDataBuilder.createBasicVisit(testGuest, testStaff);
         testVisit = visitRepository.save(testVisit);
+        visitStatsService.refresh(testGuest.getId());
     }
 
     @Test
@@ -408,6 +428,127 @@ class VisitManagementIntegrationTest extends BaseIntegrationTest {
                 .andExpect(jsonPath("$.lastVisitDate").exists());
     }
 
+    @Test
+    @WithMockUser(roles = "HOST")
+    @DisplayName("Should repair visit statistics that drifted from the visits")
+    void shouldReconcileDriftedVisitStatistics() throws Exception {
+        // Given - a visit written around VisitService leaves the statistics behind
+        Visit additionalVisit = TestDataBuilder.createVisitWithSpecialNotes(testGuest, serverStaff);
+        additionalVisit.setVisitDate(LocalDate.now().plusDays(1));
+        visitRepository.saveAndFlush(additionalVisit);
+
+        // When
+        int repaired = visitStatsReconciler.reconcile();
+
+        // Then
+        assertThat(repaired).isPositive();
+        mockMvc.perform(get("/api/visits/guest/{guestId}/statistics", testGuest.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalVisits").value(2))
+                .andExpect(jsonPath("$.lastVisitDate").value(additionalVisit.getVisitDate().toString()));
+        assertThat(visitStatsReconciler.reconcile()).isZero();
+    }
+
+    @Test
+    @WithMockUser(roles = "SERVER")
+    @DisplayName("Should count a new visit in the rollups")
+    void shouldCountNewVisitInRollups() throws Exception {
+        // Given
+        VisitCreateRequest request = TestDataBuilder.createVisitCreateRequest(
+            testGuest.getId(), serverStaff.getId());
+
+        // When
+        mockMvc.perform(post("/api/visits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(request)))
+                .andExpect(status().isCreated());
+
+        // Then - the setup visit was written around VisitService and is not counted
+        VisitDailyRollup day = visitRollupRepository.findById(request.getVisitDate()).orElseThrow();
+        assertThat(day.getVisitCount()).isEqualTo(1);
+        assertThat(day.getCoverCount()).isEqualTo(request.getPartySize());
+    }
+
+    @Test
+    @WithMockUser(roles = "SERVER")
+    @DisplayName("Should log a shift's visits in bulk with a result per visit")
+    void shouldLogVisitsInBulk() throws Exception {
+        // Given - two tables for the guest, one for an unknown guest and one invalid
+        LocalDate shift = LocalDate.now().minusDays(1);
+        VisitCreateRequest first = new VisitCreateRequest(testGuest.getId(), shift, LocalTime.of(19, 0));
+        first.setPartySize(2);
+        VisitCreateRequest second = new VisitCreateRequest(testGuest.getId(), shift, LocalTime.of(21, 30));
+        second.setPartySize(4);
+        VisitCreateRequest unknownGuest = new VisitCreateRequest(999999L, shift, LocalTime.of(20, 0));
+        VisitCreateRequest invalid = new VisitCreateRequest(testGuest.getId(), shift, LocalTime.of(20, 15));
+        invalid.setPartySize(0);
+        VisitBatchCreateRequest request = new VisitBatchCreateRequest(List.of(first, unknownGuest, second, invalid));
+
+        // When & Then
+        mockMvc.perform(post("/api/visits/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.createdCount").value(2))
+                .andExpect(jsonPath("$.rejectedCount").value(2))
+                .andExpect(jsonPath("$.items[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.items[0].visitId").exists())
+                .andExpect(jsonPath("$.items[1].status").value("GUEST_NOT_FOUND"))
+                .andExpect(jsonPath("$.items[2].status").value("CREATED"))
+                .andExpect(jsonPath("$.items[3].status").value("INVALID"));
+
+        // Statistics include the setup visit; the rollups count what went through VisitService
+        assertThat(visitStatsService.getStats(testGuest.getId()).orElseThrow().getTotalVisits()).isEqualTo(3);
+        VisitDailyRollup day = visitRollupRepository.findById(shift).orElseThrow();
+        assertThat(day.getVisitCount()).isEqualTo(2);
+        assertThat(day.getCoverCount()).isEqualTo(6);
+    }
+
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    @DisplayName("Should serve visit analytics from rebuilt rollups")
+    void shouldServeVisitAnalyticsFromRollups() throws Exception {
+        // Given
+        visitRepository.flush();
+        visitRollupBackfill.rebuild(YearMonth.now(), YearMonth.now());
+        String today = LocalDate.now().toString();
+
+        // When & Then
+        mockMvc.perform(get("/api/visits/analytics/busiest-days")
+                .param("startDate", today)
+                .param("endDate", today))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].visitDate").value(today))
+                .andExpect(jsonPath("$[0].visitCount").value(1))
+                .andExpect(jsonPath("$[0].coverCount").value(testVisit.getPartySize()));
+
+        mockMvc.perform(get("/api/visits/analytics/busiest-hours")
+                .param("startDate", today)
+                .param("endDate", today))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cells.length()").value(1))
+                .andExpect(jsonPath("$.cells[0].dayOfWeek").value(LocalDate.now().getDayOfWeek().name()))
+                .andExpect(jsonPath("$.cells[0].hour").value(testVisit.getVisitTime().getHour()));
+
+        mockMvc.perform(get("/api/visits/analytics/top-guests")
+                .param("startDate", today)
+                .param("endDate", today))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].guestId").value(testGuest.getId()))
+                .andExpect(jsonPath("$[0].visitCount").value(1));
+    }
+
+    @Test
+    @WithMockUser(roles = "SERVER")
+    @DisplayName("Should restrict visit analytics to managers")
+    void shouldRestrictVisitAnalyticsToManagers() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/visits/analytics/busiest-days")
+                .param("startDate", LocalDate.now().toString())
+                .param("endDate", LocalDate.now().toString()))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     @WithMockUser(roles = "MANAGER")
     @DisplayName("Should get recent visits")
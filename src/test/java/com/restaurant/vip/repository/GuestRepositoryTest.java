@@ -1,8 +1,10 @@
 package com.restaurant.vip.repository;
 
+import com.restaurant.vip.dto.GuestSearchRequest;
 import com.restaurant.vip.entity.Guest;
 import com.restaurant.vip.entity.Staff;
 import com.restaurant.vip.entity.StaffRole;
+import com.restaurant.vip.util.MonthDayWindow;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -197,7 +199,7 @@ class GuestRepositoryTest {
         Pageable pageable = PageRequest.of(0, 10);
 
         // Act
-        Page<Guest> result = guestRepository.searchByNameOrPhone("Jane", pageable);
+        Page<Guest> result = guestRepository.searchByNameOrPhone("Jane", "", pageable);
 
         // Assert
         assertNotNull(result);
@@ -211,7 +213,7 @@ class GuestRepositoryTest {
         Pageable pageable = PageRequest.of(0, 10);
 
         // Act
-        Page<Guest> result = guestRepository.searchByNameOrPhone("1987", pageable);
+        Page<Guest> result = guestRepository.searchByNameOrPhone("1987", "1987", pageable);
 
         // Assert
         assertNotNull(result);
@@ -219,6 +221,33 @@ class GuestRepositoryTest {
         assertEquals(testGuest2.getId(), result.getContent().get(0).getId());
     }
 
+    @Test
+    void searchByNameOrPhone_ByFormattedPhone() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 10);
+
+        // Act
+        Page<Guest> result = guestRepository.searchByNameOrPhone("(198) 765", "198765", pageable);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(1, result.getContent().size());
+        assertEquals(testGuest2.getId(), result.getContent().get(0).getId());
+    }
+
+    @Test
+    void prefixSearch_MatchesStartOfLastName() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 10);
+
+        // Act
+        Page<Guest> result = guestRepository.prefixSearch("sm", "", pageable);
+
+        // Assert
+        assertEquals(1, result.getContent().size());
+        assertEquals(testGuest2.getId(), result.getContent().get(0).getId());
+    }
+
     @Test
     void findByDietaryRestriction_Success() {
         // Act
@@ -295,13 +324,12 @@ class GuestRepositoryTest {
     @Test
     void findGuestsWithUpcomingBirthdays_Success() {
         // Arrange
-        LocalDate today = LocalDate.now();
-        LocalDate futureDate = today.plusDays(7);
+        MonthDayWindow window = MonthDayWindow.of(LocalDate.now(), 7);
 
         // Act
         List<Guest> result = guestRepository.findGuestsWithUpcomingBirthdays(
-                today.getMonthValue(), today.getDayOfMonth(),
-                futureDate.getMonthValue(), futureDate.getDayOfMonth()
+                window.getFirstFrom(), window.getFirstTo(),
+                window.getSecondFrom(), window.getSecondTo()
         );
 
         // Assert
@@ -313,13 +341,12 @@ class GuestRepositoryTest {
     @Test
     void findGuestsWithUpcomingAnniversaries_Success() {
         // Arrange
-        LocalDate today = LocalDate.now();
-        LocalDate futureDate = today.plusDays(15);
+        MonthDayWindow window = MonthDayWindow.of(LocalDate.now(), 15);
 
         // Act
         List<Guest> result = guestRepository.findGuestsWithUpcomingAnniversaries(
-                today.getMonthValue(), today.getDayOfMonth(),
-                futureDate.getMonthValue(), futureDate.getDayOfMonth()
+                window.getFirstFrom(), window.getFirstTo(),
+                window.getSecondFrom(), window.getSecondTo()
         );
 
         // Assert
@@ -328,6 +355,33 @@ class GuestRepositoryTest {
         assertTrue(result.stream().anyMatch(g -> g.getId().equals(testGuest3.getId())));
     }
 
+    @Test
+    void findGuestsWithUpcomingOccasions_ListsEachGuestAtSoonestOccasion() {
+        // Arrange
+        Guest bothOccasions = new Guest("Ann", "Both", "+15550001111");
+        bothOccasions.setBirthday(LocalDate.now().plusDays(12).minusYears(30));
+        bothOccasions.setAnniversary(LocalDate.now().plusDays(2).minusYears(3));
+        bothOccasions.setCreatedBy(testStaff);
+        bothOccasions = entityManager.persistAndFlush(bothOccasions);
+        MonthDayWindow window = MonthDayWindow.of(LocalDate.now(), 15);
+
+        // Act
+        Page<Guest> result = guestRepository.findGuestsWithUpcomingOccasions(
+                window.getFirstFrom(), window.getFirstTo(),
+                window.getSecondFrom(), window.getSecondTo(), PageRequest.of(0, 10));
+        Page<Guest> secondPage = guestRepository.findGuestsWithUpcomingOccasions(
+                window.getFirstFrom(), window.getFirstTo(),
+                window.getSecondFrom(), window.getSecondTo(), PageRequest.of(1, 1));
+
+        // Assert
+        List<Long> expected = List.of(bothOccasions.getId(), testGuest2.getId(), testGuest3.getId());
+        List<Long> ids = result.getContent().stream().map(Guest::getId).filter(expected::contains).toList();
+        assertEquals(expected, ids);
+        assertEquals(result.getContent().size(), result.getTotalElements());
+        assertEquals(result.getContent().get(1).getId(), secondPage.getContent().get(0).getId());
+        assertEquals(result.getTotalElements(), secondPage.getTotalElements());
+    }
+
     @Test
     void findByCreatedById_Success() {
         // Act
@@ -366,7 +420,7 @@ class GuestRepositoryTest {
         Pageable pageable = PageRequest.of(0, 10);
 
         // Act
-        Page<Guest> result = guestRepository.advancedSearch("John", null, null, null, pageable);
+        Page<Guest> result = guestRepository.advancedSearch("John", "", null, null, null, pageable);
 
         // Assert
         assertNotNull(result);
@@ -380,7 +434,7 @@ class GuestRepositoryTest {
         Pageable pageable = PageRequest.of(0, 10);
 
         // Act
-        Page<Guest> result = guestRepository.advancedSearch(null, "Window table", null, null, pageable);
+        Page<Guest> result = guestRepository.advancedSearch(null, "", "Window table", null, null, pageable);
 
         // Assert
         assertNotNull(result);
@@ -394,7 +448,7 @@ class GuestRepositoryTest {
         Pageable pageable = PageRequest.of(0, 10);
 
         // Act
-        Page<Guest> result = guestRepository.advancedSearch(null, null, true, null, pageable);
+        Page<Guest> result = guestRepository.advancedSearch(null, "", null, true, null, pageable);
 
         // Assert
         assertNotNull(result);
@@ -407,7 +461,7 @@ class GuestRepositoryTest {
         Pageable pageable = PageRequest.of(0, 10);
 
         // Act
-        Page<Guest> result = guestRepository.advancedSearch(null, null, null, true, pageable);
+        Page<Guest> result = guestRepository.advancedSearch(null, "", null, null, true, pageable);
 
         // Assert
         assertNotNull(result);
@@ -420,7 +474,7 @@ class GuestRepositoryTest {
         Pageable pageable = PageRequest.of(0, 10);
 
         // Act
-        Page<Guest> result = guestRepository.advancedSearch("John", "Window table", true, true, pageable);
+        Page<Guest> result = guestRepository.advancedSearch("John", "", "Window table", true, true, pageable);
 
         // Assert
         assertNotNull(result);
@@ -456,6 +510,25 @@ class GuestRepositoryTest {
         assertEquals(2, result.getContent().size());
     }
 
+    @Test
+    void findKeysetPage_SeeksPastPreviousPage() {
+        // Arrange
+        GuestSearchRequest filters = new GuestSearchRequest();
+        List<Guest> firstPage = guestRepository.findKeysetPage(filters, GuestSortField.FIRST_NAME, true, null, null, 2);
+        Guest last = firstPage.get(firstPage.size() - 1);
+
+        // Act
+        List<Guest> nextPage = guestRepository.findKeysetPage(filters, GuestSortField.FIRST_NAME, true,
+                last.getFirstName(), last.getId(), 2);
+        List<Guest> descending = guestRepository.findKeysetPage(filters, GuestSortField.FIRST_NAME, false,
+                last.getFirstName(), last.getId(), 2);
+
+        // Assert
+        assertEquals(List.of(testGuest3.getId(), testGuest2.getId()), firstPage.stream().map(Guest::getId).toList());
+        assertEquals(List.of(testGuest1.getId()), nextPage.stream().map(Guest::getId).toList());
+        assertEquals(List.of(testGuest3.getId()), descending.stream().map(Guest::getId).toList());
+    }
+
     @Test
     void complexSearch_AllFilters_Success() {
         // Arrange
@@ -478,6 +551,20 @@ class GuestRepositoryTest {
         assertEquals(testGuest1.getId(), result.getContent().get(0).getId());
     }
 
+    @Test
+    void complexSearch_ByFormattedPhone_MatchesDigits() {
+        // Arrange
+        Pageable pageable = PageRequest.of(0, 10);
+
+        // Act
+        Page<Guest> result = guestRepository.complexSearch("+1 (122) 334", null, null, null, null, null, pageable);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(1, result.getContent().size());
+        assertEquals(testGuest3.getId(), result.getContent().get(0).getId());
+    }
+
     @Test
     void complexSearch_NullFilters_ReturnsAll() {
         // Arrange
@@ -0,0 +1,147 @@
+package com.restaurant.vip.repository;
+
+import com.restaurant.vip.entity.PreferenceTagCategory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreferenceTagDictionaryTest {
+
+    private JdbcDataSource dataSource;
+    private Connection keepAlive;
+    private PreferenceTagDictionary dictionary;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:preference_tags_" + System.nanoTime());
+        keepAlive = dataSource.getConnection();
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("CREATE TABLE preference_tags (" +
+                    "id INTEGER AUTO_INCREMENT PRIMARY KEY, " +
+                    "category VARCHAR(20) NOT NULL, " +
+                    "label VARCHAR(1000) NOT NULL, " +
+                    "created_at TIMESTAMP, " +
+                    "UNIQUE (category, label))");
+        }
+        dictionary = new PreferenceTagDictionary(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        keepAlive.close();
+    }
+
+    @Test
+    void encode_CreatesMissingTagsInOrderWithoutDuplicates() {
+        // Act
+        Integer[] ids = dictionary.encode(PreferenceTagCategory.DIETARY, Arrays.asList("Vegan", " Gluten-free ", "Vegan", "", null));
+
+        // Assert
+        assertEquals(2, ids.length);
+        assertEquals(List.of("Vegan", "Gluten-free"), dictionary.decode(PreferenceTagCategory.DIETARY, ids));
+        assertArrayEquals(ids, dictionary.encode(PreferenceTagCategory.DIETARY, List.of("Vegan", "Gluten-free")));
+    }
+
+    @Test
+    void encode_SameLabelInOtherCategory_GetsOwnId() {
+        // Act
+        Integer[] dietary = dictionary.encode(PreferenceTagCategory.DIETARY, List.of("Sparkling"));
+        Integer[] drink = dictionary.encode(PreferenceTagCategory.DRINK, List.of("Sparkling"));
+
+        // Assert
+        assertNotEquals(dietary[0], drink[0]);
+    }
+
+    @Test
+    void lookup_SkipsUnknownLabelsWithoutCreatingThem() {
+        // Arrange
+        Integer[] vegan = dictionary.encode(PreferenceTagCategory.DIETARY, List.of("Vegan"));
+
+        // Act
+        Integer[] ids = dictionary.lookup(PreferenceTagCategory.DIETARY, List.of("Vegan", "Pescatarian"));
+
+        // Assert
+        assertArrayEquals(vegan, ids);
+        assertEquals(0, dictionary.lookup(PreferenceTagCategory.DIETARY, List.of("Pescatarian")).length);
+        assertEquals(0, dictionary.lookup(PreferenceTagCategory.DRINK, List.of("Vegan")).length);
+    }
+
+    @Test
+    void decode_TagCreatedByAnotherInstance_ReloadsDictionary() {
+        // Arrange
+        dictionary.encode(PreferenceTagCategory.DRINK, List.of("Red wine"));
+        PreferenceTagDictionary otherInstance = new PreferenceTagDictionary(dataSource);
+        Integer[] ids = otherInstance.encode(PreferenceTagCategory.DRINK, List.of("Red wine", "Negroni"));
+
+        // Act
+        List<String> labels = dictionary.decode(PreferenceTagCategory.DRINK, ids);
+
+        // Assert
+        assertEquals(List.of("Red wine", "Negroni"), labels);
+    }
+
+    @Test
+    void encode_LabelCreatedConcurrently_ReusesExistingId() {
+        // Arrange: both instances have loaded the dictionary before either creates the tag
+        dictionary.lookup(PreferenceTagCategory.DRINK, List.of("Negroni"));
+        PreferenceTagDictionary otherInstance = new PreferenceTagDictionary(dataSource);
+        otherInstance.lookup(PreferenceTagCategory.DRINK, List.of("Negroni"));
+        Integer[] created = otherInstance.encode(PreferenceTagCategory.DRINK, List.of("Negroni"));
+
+        // Act
+        Integer[] ids = dictionary.encode(PreferenceTagCategory.DRINK, List.of("Negroni"));
+
+        // Assert
+        assertArrayEquals(created, ids);
+    }
+
+    @Test
+    void encode_InRolledBackTransaction_DoesNotCacheTag() {
+        // Arrange
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        // Act
+        List<String> labelsInTransaction = transaction.execute(status -> {
+            Integer[] created = dictionary.encode(PreferenceTagCategory.DIETARY, List.of("Vegan"));
+            status.setRollbackOnly();
+            return dictionary.decode(PreferenceTagCategory.DIETARY, created);
+        });
+
+        // Assert
+        assertEquals(List.of("Vegan"), labelsInTransaction);
+        assertEquals(0, dictionary.lookup(PreferenceTagCategory.DIETARY, List.of("Vegan")).length);
+        Integer[] ids = dictionary.encode(PreferenceTagCategory.DIETARY, List.of("Vegan"));
+        assertEquals(List.of("Vegan"), new PreferenceTagDictionary(dataSource).decode(PreferenceTagCategory.DIETARY, ids));
+    }
+
+    @Test
+    void encode_InCommittedTransaction_CachesTagAfterCommit() {
+        // Arrange
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        // Act
+        Integer[] ids = transaction.execute(status -> dictionary.encode(PreferenceTagCategory.DRINK, List.of("Negroni")));
+
+        // Assert
+        assertArrayEquals(ids, dictionary.lookup(PreferenceTagCategory.DRINK, List.of("Negroni")));
+    }
+
+    @Test
+    void decode_NullOrEmpty_ReturnsEmptyList() {
+        // Act & Assert
+        assertTrue(dictionary.decode(PreferenceTagCategory.DIETARY, null).isEmpty());
+        assertTrue(dictionary.decode(PreferenceTagCategory.DIETARY, new Integer[0]).isEmpty());
+    }
+}
@@ -1,5 +1,6 @@
 package com.restaurant.vip.repository;
 
+import com.restaurant.vip.dto.VisitTimelineEntry;
 import com.restaurant.vip.entity.Guest;
 import com.restaurant.vip.entity.Staff;
 import com.restaurant.vip.entity.StaffRole;
@@ -127,6 +128,55 @@ class VisitRepositoryTest {
         assertEquals(visit1.getId(), result.getContent().get(0).getId()); // Most recent visit
     }
 
+    @Test
+    void findTimeline_SeeksPastCursorPosition() {
+        // Act
+        List<VisitTimelineEntry> firstPage = visitRepository.findTimeline(testGuest1.getId(), false, PageRequest.of(0, 1));
+        VisitTimelineEntry last = firstPage.get(0);
+        List<VisitTimelineEntry> nextPage = visitRepository.findTimelineAfter(testGuest1.getId(), false,
+                last.getVisitDate(), last.getVisitTime(), last.getId(), PageRequest.of(0, 1));
+
+        // Assert
+        assertEquals(visit1.getId(), last.getId());
+        assertEquals("John Staff", last.getStaffName());
+        assertEquals(1, nextPage.size());
+        assertEquals(visit2.getId(), nextPage.get(0).getId());
+    }
+
+    @Test
+    void findTimeline_SeeksPastVisitAtSameDateAndTime() {
+        // Arrange
+        Visit sameTime = new Visit(testGuest1, testStaff, visit1.getVisitDate(), visit1.getVisitTime());
+        sameTime = entityManager.persistAndFlush(sameTime);
+
+        // Act
+        List<VisitTimelineEntry> nextPage = visitRepository.findTimelineAfter(testGuest1.getId(), false,
+                sameTime.getVisitDate(), sameTime.getVisitTime(), sameTime.getId(), PageRequest.of(0, 10));
+
+        // Assert
+        assertEquals(visit1.getId(), nextPage.get(0).getId());
+        assertEquals(visit2.getId(), nextPage.get(1).getId());
+        assertEquals(2, nextPage.size());
+    }
+
+    @Test
+    void findTimeline_NotesOnly_SkipsVisitsWithoutNotes() {
+        // Arrange
+        Visit withoutNotes = new Visit(entityManager.find(Guest.class, testGuest1.getId()),
+                entityManager.find(Staff.class, testStaff.getId()), LocalDate.now().minusDays(3), LocalTime.of(12, 0));
+        withoutNotes.setServiceNotes("   ");
+        entityManager.persistAndFlush(withoutNotes);
+
+        // Act
+        List<VisitTimelineEntry> all = visitRepository.findTimeline(testGuest1.getId(), false, PageRequest.of(0, 10));
+        List<VisitTimelineEntry> withNotes = visitRepository.findTimeline(testGuest1.getId(), true, PageRequest.of(0, 10));
+
+        // Assert
+        assertEquals(3, all.size());
+        assertEquals(2, withNotes.size());
+        assertTrue(withNotes.stream().allMatch(VisitTimelineEntry::isHasNotes));
+    }
+
     @Test
     void findByStaffIdOrderByVisitDateDescVisitTimeDesc_Success() {
         // Act
@@ -0,0 +1,212 @@
+package com.restaurant.vip.search;
+
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.event.GuestChangedEvent;
+import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.search.GuestFacetIndex.Facet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GuestFacetIndexTest {
+
+    @Mock
+    private GuestRepository guestRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private GuestFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        index = new GuestFacetIndex(guestRepository, meterRegistry);
+    }
+
+    @Test
+    void match_BeforeRebuild_ReturnsEmptyForFallback() {
+        // Act & Assert
+        assertTrue(index.match(selection(List.of("Vegan"), null, null)).isEmpty());
+        assertTrue(index.count(selection(null, null, null)).isEmpty());
+        assertFalse(index.isReady());
+    }
+
+    @Test
+    void match_ValuesWithinFacet_AreOred() {
+        // Arrange
+        rebuildWithSampleGuests();
+
+        // Act
+        RoaringBitmap result = index.match(selection(List.of("Vegan", "Gluten-free"), null, null)).orElseThrow();
+
+        // Assert
+        assertArrayEquals(new int[] {1, 2, 3}, result.toArray());
+    }
+
+    @Test
+    void match_AcrossFacets_IsAnded() {
+        // Arrange
+        rebuildWithSampleGuests();
+
+        // Act
+        RoaringBitmap result = index.match(selection(List.of("Vegan"), List.of("Red wine"), "Window")).orElseThrow();
+
+        // Assert
+        assertArrayEquals(new int[] {1}, result.toArray());
+    }
+
+    @Test
+    void match_UnknownValue_MatchesNothing() {
+        // Arrange
+        rebuildWithSampleGuests();
+
+        // Act
+        RoaringBitmap result = index.match(selection(List.of("Pescatarian"), null, null)).orElseThrow();
+
+        // Assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void match_UntrimmedAndRepeatedLabels_MatchAsStored() {
+        // Arrange
+        rebuildWithSampleGuests();
+
+        // Act
+        RoaringBitmap result = index.match(selection(List.of(" Vegan ", "Vegan", ""), List.of("Red wine "), null)).orElseThrow();
+
+        // Assert
+        assertArrayEquals(new int[] {1}, result.toArray());
+    }
+
+    @Test
+    void match_BlankLabelsOnly_MatchesNothing() {
+        // Arrange
+        rebuildWithSampleGuests();
+
+        // Act
+        RoaringBitmap result = index.match(selection(Arrays.asList(" ", null), null, null)).orElseThrow();
+
+        // Assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void count_WithoutSelection_CountsEveryValue() {
+        // Arrange
+        rebuildWithSampleGuests();
+
+        // Act
+        GuestFacetIndex.FacetCounts counts = index.count(selection(null, null, null)).orElseThrow();
+
+        // Assert
+        assertEquals(4, counts.getTotal());
+        assertEquals(orderedCounts("Vegan", 2, "Gluten-free", 1), counts.getCounts(Facet.DIETARY_RESTRICTION));
+        assertEquals(orderedCounts("Red wine", 2, "Beer", 1), counts.getCounts(Facet.FAVORITE_DRINK));
+        assertEquals(orderedCounts("Window", 2, "Patio", 1), counts.getCounts(Facet.SEATING_PREFERENCE));
+    }
+
+    @Test
+    void count_IgnoresOwnFacetSelection() {
+        // Arrange
+        rebuildWithSampleGuests();
+
+        // Act
+        GuestFacetIndex.FacetCounts counts = index.count(selection(List.of("Vegan"), null, null)).orElseThrow();
+
+        // Assert
+        assertEquals(2, counts.getTotal());
+        // Dietary counts are not narrowed by the dietary selection itself
+        assertEquals(orderedCounts("Vegan", 2, "Gluten-free", 1), counts.getCounts(Facet.DIETARY_RESTRICTION));
+        // Other facets are counted within the Vegan guests only
+        assertEquals(orderedCounts("Beer", 1, "Red wine", 1), counts.getCounts(Facet.FAVORITE_DRINK));
+        assertEquals(orderedCounts("Window", 2), counts.getCounts(Facet.SEATING_PREFERENCE));
+    }
+
+    @Test
+    void onGuestChanged_AppliesUpsertsAndRemovals() {
+        // Arrange
+        rebuildWithSampleGuests();
+        Guest changed = guest(1L, List.of("Gluten-free"), List.of(), "Patio");
+        Guest created = guest(5L, List.of(" Vegan", "Vegan"), List.of("Beer"), null);
+
+        // Act
+        index.onGuestChanged(GuestChangedEvent.updated(changed, changed.getPhoneNormalized()));
+        index.onGuestChanged(GuestChangedEvent.created(created));
+        index.onGuestChanged(GuestChangedEvent.removed(2L));
+
+        // Assert
+        assertArrayEquals(new int[] {5}, index.match(selection(List.of("Vegan"), null, null)).orElseThrow().toArray());
+        assertArrayEquals(new int[] {1, 3}, index.match(selection(List.of("Gluten-free"), null, null)).orElseThrow().toArray());
+        assertArrayEquals(new int[] {1, 3}, index.match(selection(null, null, "Patio")).orElseThrow().toArray());
+        assertEquals(4, index.count(selection(null, null, null)).orElseThrow().getTotal());
+    }
+
+    @Test
+    void rebuild_ReportsSizeMetrics() {
+        // Act
+        rebuildWithSampleGuests();
+
+        // Assert
+        assertEquals(6.0, meterRegistry.get("guest.facets.values").gauge().value());
+        assertTrue(meterRegistry.get("guest.facets.estimated.bytes").gauge().value() > 0);
+        assertEquals(1.0, meterRegistry.get("guest.facets.ready").gauge().value());
+    }
+
+    private void rebuildWithSampleGuests() {
+        List<Object[]> keys = rows(
+                new Object[] {1L, "Window", List.of("Vegan"), List.of("Red wine")},
+                new Object[] {2L, "Window", List.of("Vegan"), List.of("Beer")},
+                new Object[] {3L, "Patio", List.of("Gluten-free"), List.of()},
+                new Object[] {4L, null, List.of(), List.of("Red wine")});
+        when(guestRepository.findFacetKeysAfter(eq(0L), any(Pageable.class))).thenReturn(keys);
+        index.rebuild();
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    private static Map<Facet, List<String>> selection(List<String> dietary, List<String> drinks, String seating) {
+        Map<Facet, List<String>> selection = new EnumMap<>(Facet.class);
+        selection.put(Facet.DIETARY_RESTRICTION, dietary);
+        selection.put(Facet.FAVORITE_DRINK, drinks);
+        selection.put(Facet.SEATING_PREFERENCE, seating == null ? null : List.of(seating));
+        return selection;
+    }
+
+    private static Map<String, Integer> orderedCounts(Object... valuesAndCounts) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < valuesAndCounts.length; i += 2) {
+            counts.put((String) valuesAndCounts[i], (Integer) valuesAndCounts[i + 1]);
+        }
+        return counts;
+    }
+
+    private static Guest guest(Long id, List<String> dietary, List<String> drinks, String seating) {
+        Guest guest = new Guest();
+        guest.setId(id);
+        guest.setFirstName("Guest" + id);
+        guest.setDietaryRestrictions(dietary);
+        guest.setFavoriteDrinks(drinks);
+        guest.setSeatingPreference(seating);
+        return guest;
+    }
+}
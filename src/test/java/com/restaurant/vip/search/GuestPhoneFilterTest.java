@@ -0,0 +1,186 @@
+package com.restaurant.vip.search;
+
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.event.GuestChangedEvent;
+import com.restaurant.vip.repository.GuestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GuestPhoneFilterTest {
+
+    @Mock
+    private GuestRepository guestRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private GuestPhoneFilter filter;
+    private AtomicInteger lookups;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new GuestPhoneFilter(guestRepository, meterRegistry, 0.01, 1000);
+        lookups = new AtomicInteger();
+    }
+
+    @Test
+    void probe_BeforeRebuild_LooksUpEveryNumber() {
+        // Act
+        Optional<Long> result = filter.probe("+15551234567", this::lookup);
+
+        // Assert
+        assertEquals(Optional.of(1L), result);
+        assertEquals(1, lookups.get());
+        assertFalse(filter.isReady());
+    }
+
+    @Test
+    void probe_KnownNumber_LooksUpGuest() {
+        // Arrange
+        rebuildWith(row(1L, "+15551234567"), row(2L, "+15559876543"));
+
+        // Act
+        Optional<Long> result = filter.probe("+15551234567", this::lookup);
+
+        // Assert
+        assertEquals(Optional.of(1L), result);
+        assertEquals(1, lookups.get());
+        assertEquals(1.0, meterRegistry.get("guest.phone.filter.checks").tag("result", "found").counter().count());
+    }
+
+    @Test
+    void probe_UnknownNumber_RuledOutWithoutLookup() {
+        // Arrange
+        rebuildWith(row(1L, "+15551234567"), row(2L, "+15559876543"));
+
+        // Act
+        Optional<Long> result = filter.probe("+15550001111", this::lookup);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        assertEquals(0, lookups.get());
+        assertEquals(1.0, meterRegistry.get("guest.phone.filter.checks").tag("result", "ruled_out").counter().count());
+    }
+
+    @Test
+    void onGuestChanged_CreatedAndDeletedGuests_UpdateFilter() {
+        // Arrange
+        rebuildWith(row(1L, "+15551234567"));
+        Guest created = guest(2L, "+15559876543");
+        Guest deleted = guest(1L, "+15551234567");
+        deleted.softDelete();
+
+        // Act
+        filter.onGuestChanged(GuestChangedEvent.created(created));
+        filter.onGuestChanged(GuestChangedEvent.updated(deleted, "+15551234567"));
+
+        // Assert
+        assertTrue(filter.probe("+15559876543", this::lookup).isPresent());
+        assertTrue(filter.probe("+15551234567", this::lookup).isEmpty());
+        assertEquals(1, lookups.get());
+        assertEquals(1.0, meterRegistry.get("guest.phone.filter.entries").gauge().value());
+    }
+
+    @Test
+    void onGuestChanged_EditsKeepingNumber_AddNothing() {
+        // Arrange
+        rebuildWith(row(1L, "+15551234567"));
+        Guest edited = guest(1L, "+15551234567");
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            filter.onGuestChanged(GuestChangedEvent.updated(edited, "+15551234567"));
+        }
+        edited.softDelete();
+        filter.onGuestChanged(GuestChangedEvent.updated(edited, "+15551234567"));
+
+        // Assert: one add and one remove, so the deleted number is ruled out again
+        assertTrue(filter.probe("+15551234567", this::lookup).isEmpty());
+        assertEquals(0, lookups.get());
+        assertEquals(0.0, meterRegistry.get("guest.phone.filter.entries").gauge().value());
+    }
+
+    @Test
+    void onGuestChanged_ChangedNumber_AddsNewNumber() {
+        // Arrange
+        rebuildWith(row(1L, "+15551234567"));
+        Guest changed = guest(1L, "+15559876543");
+
+        // Act
+        filter.onGuestChanged(GuestChangedEvent.updated(changed, "+15551234567"));
+
+        // Assert
+        assertTrue(filter.probe("+15559876543", this::lookup).isPresent());
+        assertEquals(2.0, meterRegistry.get("guest.phone.filter.entries").gauge().value());
+    }
+
+    @Test
+    void onGuestChanged_DeletedBeforeRebuild_KeepsNumber() {
+        // Arrange
+        rebuildWith(row(1L, "+15551234567"));
+        Guest deleted = guest(1L, "+15551234567");
+        deleted.setDeletedAt(LocalDateTime.now().minusMinutes(5));
+
+        // Act
+        filter.onGuestChanged(GuestChangedEvent.updated(deleted, "+15551234567"));
+
+        // Assert
+        filter.probe("+15551234567", this::lookup);
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void rebuild_ReportsSizeAndFalsePositiveRate() {
+        // Arrange
+        rebuildWith(row(1L, "+15551234567"), row(2L, "+15559876543"), row(3L, null));
+
+        // Assert
+        assertTrue(filter.isReady());
+        assertEquals(2.0, meterRegistry.get("guest.phone.filter.entries").gauge().value());
+        assertTrue(meterRegistry.get("guest.phone.filter.estimated.bytes").gauge().value() > 0);
+        assertTrue(meterRegistry.get("guest.phone.filter.false.positive.rate").gauge().value() < 0.01);
+    }
+
+    private Optional<Long> lookup(String phoneNormalized) {
+        lookups.incrementAndGet();
+        return "+15551234567".equals(phoneNormalized) ? Optional.of(1L)
+                : "+15559876543".equals(phoneNormalized) ? Optional.of(2L) : Optional.empty();
+    }
+
+    private void rebuildWith(Object[]... rows) {
+        List<Object[]> batch = new ArrayList<>(List.of(rows));
+        when(guestRepository.count()).thenReturn((long) rows.length);
+        when(guestRepository.findPhoneKeysAfter(eq(0L), any(Pageable.class))).thenReturn(batch);
+        filter.rebuild();
+    }
+
+    private static Object[] row(Long id, String phoneNormalized) {
+        return new Object[] {id, phoneNormalized};
+    }
+
+    private static Guest guest(Long id, String phone) {
+        Guest guest = new Guest();
+        guest.setId(id);
+        guest.setFirstName("Jane");
+        guest.setLastName("Doe");
+        guest.setPhone(phone);
+        guest.refreshDerivedColumns();
+        return guest;
+    }
+}
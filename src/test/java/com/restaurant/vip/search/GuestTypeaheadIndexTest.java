@@ -0,0 +1,215 @@
+package com.restaurant.vip.search;
+
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.event.GuestChangedEvent;
+import com.restaurant.vip.repository.GuestRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GuestTypeaheadIndexTest {
+
+    @Mock
+    private GuestRepository guestRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private GuestTypeaheadIndex index;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        index = new GuestTypeaheadIndex(guestRepository, meterRegistry, 1000);
+    }
+
+    @Test
+    void search_BeforeRebuild_ReturnsEmptyForFallback() {
+        // Act
+        Optional<List<Long>> result = index.search("john");
+
+        // Assert
+        assertTrue(result.isEmpty());
+        assertFalse(index.isReady());
+    }
+
+    @Test
+    void search_ByNamePrefix_RanksExactTokenFirst() {
+        // Arrange
+        rebuildWith(
+            row(1L, "Johnathan", "Smith"),
+            row(2L, "John", "Doe"),
+            row(3L, "Maria", "Johnson")
+        );
+
+        // Act
+        List<Long> result = index.search("john").orElseThrow();
+
+        // Assert
+        assertEquals(List.of(2L, 1L, 3L), result);
+    }
+
+    @Test
+    void search_MultipleWords_RequiresEveryWord() {
+        // Arrange
+        rebuildWith(
+            row(1L, "John", "Smith"),
+            row(2L, "John", "Doe")
+        );
+
+        // Act
+        List<Long> result = index.search("jo sm").orElseThrow();
+
+        // Assert
+        assertEquals(List.of(1L), result);
+    }
+
+    @Test
+    void search_WithDigits_FallsBackToDatabase() {
+        // Arrange
+        rebuildWith(row(1L, "John", "Smith"));
+
+        // Act & Assert - the database phone match finds digits anywhere in a number
+        assertTrue(index.search("4567").isEmpty());
+        assertTrue(index.search("(555) 123").isEmpty());
+        assertTrue(index.search("john 555").isEmpty());
+    }
+
+    @Test
+    void search_IgnoresCaseAndAccents() {
+        // Arrange
+        rebuildWith(row(1L, "José", "Núñez-García"));
+
+        // Act & Assert
+        assertEquals(List.of(1L), index.search("JOSE").orElseThrow());
+        assertEquals(List.of(1L), index.search("garc").orElseThrow());
+    }
+
+    @Test
+    void search_ReturnsEveryMatch() {
+        // Arrange
+        rebuildWith(
+            row(1L, "Ann", "A"),
+            row(2L, "Ann", "B"),
+            row(3L, "Anna", "C")
+        );
+
+        // Act
+        List<Long> result = index.search("ann").orElseThrow();
+
+        // Assert
+        assertEquals(List.of(1L, 2L, 3L), result);
+    }
+
+    @Test
+    void onGuestChanged_AppliesUpsertsAndRemovals() {
+        // Arrange
+        rebuildWith(row(1L, "John", "Smith"));
+        Guest renamed = guest(1L, "Jonas", "Smith");
+        Guest created = guest(2L, "Jane", "Doe");
+
+        // Act
+        index.onGuestChanged(GuestChangedEvent.updated(renamed, renamed.getPhoneNormalized()));
+        index.onGuestChanged(GuestChangedEvent.created(created));
+
+        // Assert
+        assertTrue(index.search("john").orElseThrow().isEmpty());
+        assertEquals(List.of(1L), index.search("jonas").orElseThrow());
+        assertEquals(List.of(2L), index.search("jane").orElseThrow());
+
+        // Act
+        index.onGuestChanged(GuestChangedEvent.removed(2L));
+
+        // Assert
+        assertTrue(index.search("jane").orElseThrow().isEmpty());
+    }
+
+    @Test
+    void rebuild_ReplaysChangesCommittedWhileReading() {
+        // Arrange: a guest is created while the rebuild reads its first batch
+        rebuildWith(row(1L, "John", "Smith"));
+        when(guestRepository.findSearchKeysAfter(eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            index.onGuestChanged(GuestChangedEvent.created(guest(2L, "Jane", "Doe")));
+            return new ArrayList<>(List.<Object[]>of(row(1L, "John", "Smith")));
+        });
+
+        // Act
+        index.rebuild();
+
+        // Assert
+        assertTrue(index.isReady());
+        assertEquals(List.of(2L), index.search("jane").orElseThrow());
+        assertEquals(List.of(1L), index.search("john").orElseThrow());
+    }
+
+    @Test
+    void rebuild_OverBudget_DisablesIndex() {
+        // Arrange
+        index = new GuestTypeaheadIndex(guestRepository, meterRegistry, 1);
+
+        // Act
+        rebuildWith(row(1L, "John", "Smith"));
+
+        // Assert
+        assertFalse(index.isReady());
+        assertTrue(index.search("john").isEmpty());
+    }
+
+    @Test
+    void retryIfDisabled_RebuildsOnceTheGuestsFit() {
+        // Arrange
+        index = new GuestTypeaheadIndex(guestRepository, meterRegistry, 2);
+        rebuildWith(row(1L, "John", "Smith"), row(2L, "Jane", "Doe"));
+        when(guestRepository.findSearchKeysAfter(eq(0L), any(Pageable.class)))
+            .thenReturn(new ArrayList<>(List.<Object[]>of(row(1L, "John", "Smith"))));
+
+        // Act
+        index.retryIfDisabled();
+
+        // Assert
+        assertTrue(index.isReady());
+        assertEquals(List.of(1L), index.search("john").orElseThrow());
+    }
+
+    @Test
+    void rebuild_ReportsSizeMetrics() {
+        // Act
+        rebuildWith(row(1L, "John", "Smith"));
+
+        // Assert
+        assertEquals(1.0, meterRegistry.get("guest.typeahead.guests").gauge().value());
+        // 2 name tokens
+        assertEquals(2.0, meterRegistry.get("guest.typeahead.postings").gauge().value());
+        assertEquals(1.0, meterRegistry.get("guest.typeahead.ready").gauge().value());
+    }
+
+    private void rebuildWith(Object[]... rows) {
+        List<Object[]> batch = new ArrayList<>(List.of(rows));
+        when(guestRepository.findSearchKeysAfter(eq(0L), any(Pageable.class))).thenReturn(batch);
+        index.rebuild();
+    }
+
+    private static Object[] row(Long id, String firstName, String lastName) {
+        return new Object[] {id, firstName, lastName};
+    }
+
+    private static Guest guest(Long id, String firstName, String lastName) {
+        Guest guest = new Guest();
+        guest.setId(id);
+        guest.setFirstName(firstName);
+        guest.setLastName(lastName);
+        return guest;
+    }
+}
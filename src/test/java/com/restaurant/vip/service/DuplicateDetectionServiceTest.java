@@ -5,25 +5,29 @@ import com.restaurant.vip.dto.GuestCreateRequest;
 import com.restaurant.vip.dto.GuestResponse;
 import com.restaurant.vip.dto.GuestUpdateRequest;
 import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.GuestVisitStats;
 import com.restaurant.vip.entity.Staff;
 import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.search.GuestPhoneFilter;
+import com.restaurant.vip.util.GuestMatchKeys;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -33,6 +37,12 @@ class DuplicateDetectionServiceTest {
     @Mock
     private GuestRepository guestRepository;
 
+    @Mock
+    private GuestPhoneFilter phoneFilter;
+
+    @Mock
+    private GuestVisitStatsService visitStatsService;
+
     @InjectMocks
     private DuplicateDetectionService duplicateDetectionService;
 
@@ -43,6 +53,10 @@ class DuplicateDetectionServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Phone filter not ruling anything out: every check reaches the repository
+        lenient().when(phoneFilter.probe(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<String, Optional<?>>>getArgument(1).apply(invocation.getArgument(0)));
+
         // Setup test staff
         testStaff = new Staff();
         testStaff.setId(1L);
@@ -78,7 +92,7 @@ class DuplicateDetectionServiceTest {
     @Test
     void checkExactDuplicate_Exists_ReturnsTrue() {
         // Arrange
-        when(guestRepository.findByPhone("+1234567890")).thenReturn(Optional.of(existingGuest));
+        when(guestRepository.findByPhoneNormalized("+1234567890")).thenReturn(Optional.of(existingGuest));
 
         // Act
         DuplicateCheckResponse result = duplicateDetectionService.checkExactDuplicate("+1234567890");
@@ -91,13 +105,13 @@ class DuplicateDetectionServiceTest {
         assertNotNull(result.getExistingGuest());
         assertEquals(existingGuest.getId(), result.getExistingGuest().getId());
 
-        verify(guestRepository).findByPhone("+1234567890");
+        verify(guestRepository).findByPhoneNormalized("+1234567890");
     }
 
     @Test
     void checkExactDuplicate_NotExists_ReturnsFalse() {
         // Arrange
-        when(guestRepository.findByPhone("+1987654321")).thenReturn(Optional.empty());
+        when(guestRepository.findByPhoneNormalized("+1987654321")).thenReturn(Optional.empty());
 
         // Act
         DuplicateCheckResponse result = duplicateDetectionService.checkExactDuplicate("+1987654321");
@@ -109,14 +123,13 @@ class DuplicateDetectionServiceTest {
         assertEquals("No guest found with this phone number", result.getMessage());
         assertNull(result.getExistingGuest());
 
-        verify(guestRepository).findByPhone("+1987654321");
+        verify(guestRepository).findByPhoneNormalized("+1987654321");
     }
 
     @Test
     void checkExactDuplicateForUpdate_Exists_ReturnsTrue() {
         // Arrange
-        when(guestRepository.existsByPhoneAndIdNot("+1234567890", 2L)).thenReturn(true);
-        when(guestRepository.findByPhone("+1234567890")).thenReturn(Optional.of(existingGuest));
+        when(guestRepository.findByPhoneNormalized("+1234567890")).thenReturn(Optional.of(existingGuest));
 
         // Act
         DuplicateCheckResponse result = duplicateDetectionService.checkExactDuplicateForUpdate("+1234567890", 2L);
@@ -128,14 +141,13 @@ class DuplicateDetectionServiceTest {
         assertTrue(result.getMessage().contains("Another guest"));
         assertNotNull(result.getExistingGuest());
 
-        verify(guestRepository).existsByPhoneAndIdNot("+1234567890", 2L);
-        verify(guestRepository).findByPhone("+1234567890");
+        verify(guestRepository).findByPhoneNormalized("+1234567890");
     }
 
     @Test
     void checkExactDuplicateForUpdate_NotExists_ReturnsFalse() {
         // Arrange
-        when(guestRepository.existsByPhoneAndIdNot("+1987654321", 1L)).thenReturn(false);
+        when(guestRepository.findByPhoneNormalized("+1987654321")).thenReturn(Optional.empty());
 
         // Act
         DuplicateCheckResponse result = duplicateDetectionService.checkExactDuplicateForUpdate("+1987654321", 1L);
@@ -146,8 +158,7 @@ class DuplicateDetectionServiceTest {
         assertFalse(result.isExists());
         assertEquals("No other guest found with this phone number", result.getMessage());
 
-        verify(guestRepository).existsByPhoneAndIdNot("+1987654321", 1L);
-        verify(guestRepository, never()).findByPhone(anyString());
+        verify(guestRepository).findByPhoneNormalized("+1987654321");
     }
 
     @Test
@@ -156,18 +167,13 @@ class DuplicateDetectionServiceTest {
         Guest similarGuest = new Guest();
         similarGuest.setId(2L);
         similarGuest.setFirstName("Jane");
-        similarGuest.setLastName("Doe"); // Different last name but similar first name
+        similarGuest.setLastName("Smyth"); // Spelling variant of the last name
         similarGuest.setPhone("+1111111111");
         similarGuest.setCreatedBy(testStaff);
         similarGuest.setCreatedAt(LocalDateTime.now());
 
-        Page<Guest> nameMatches = new PageImpl<>(Arrays.asList(similarGuest));
-        Page<Guest> phoneMatches = new PageImpl<>(Arrays.asList());
-
-        when(guestRepository.searchByName(eq("Jane Smith"), any(PageRequest.class)))
-                .thenReturn(nameMatches);
-        when(guestRepository.searchByPhone(anyString(), any(PageRequest.class)))
-                .thenReturn(phoneMatches);
+        when(guestRepository.findDuplicateCandidates(any(String[].class), eq("1987654321"), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(similarGuest));
 
         // Act
         List<GuestResponse> result = duplicateDetectionService.findPotentialDuplicates(createRequest);
@@ -177,8 +183,83 @@ class DuplicateDetectionServiceTest {
         assertEquals(1, result.size());
         assertEquals(similarGuest.getId(), result.get(0).getId());
 
-        verify(guestRepository).searchByName(eq("Jane Smith"), any(PageRequest.class));
-        verify(guestRepository).searchByPhone(anyString(), any(PageRequest.class));
+        verify(guestRepository).findDuplicateCandidates(
+                aryEq(GuestMatchKeys.forLookup("Jane", "Smith")), eq("1987654321"), any(PageRequest.class));
+    }
+
+    @Test
+    void findPotentialDuplicates_PhoneticVariants_RankedBySimilarity() {
+        // Arrange
+        createRequest.setFirstName("John");
+        Guest jon = new Guest();
+        jon.setId(5L);
+        jon.setFirstName("Jon");
+        jon.setLastName("Smyth");
+        jon.setPhone("+1222222222");
+        Guest john = new Guest();
+        john.setId(6L);
+        john.setFirstName("John");
+        john.setLastName("Smith");
+        john.setPhone("+1333333333");
+
+        when(guestRepository.findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(jon, john));
+
+        // Act
+        List<GuestResponse> result = duplicateDetectionService.findPotentialDuplicates(createRequest);
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(john.getId(), result.get(0).getId());
+        assertEquals(jon.getId(), result.get(1).getId());
+    }
+
+    @Test
+    void findPotentialDuplicates_ReadsVisitCountsInOneLookup() {
+        // Arrange
+        Guest smyth = new Guest();
+        smyth.setId(5L);
+        smyth.setFirstName("Jane");
+        smyth.setLastName("Smyth");
+        smyth.setPhone("+1222222222");
+        Guest smith = new Guest();
+        smith.setId(6L);
+        smith.setFirstName("Jane");
+        smith.setLastName("Smith");
+        smith.setPhone("+1333333333");
+        GuestVisitStats stats = new GuestVisitStats(6L);
+        stats.setTotalVisits(4);
+
+        when(guestRepository.findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(smyth, smith));
+        when(visitStatsService.getStats(List.of(6L, 5L))).thenReturn(Map.of(6L, stats));
+
+        // Act
+        List<GuestResponse> result = duplicateDetectionService.findPotentialDuplicates(createRequest);
+
+        // Assert
+        assertEquals(4, result.get(0).getVisitCount());
+        assertEquals(0, result.get(1).getVisitCount());
+        verify(visitStatsService).getStats(anyCollection());
+    }
+
+    @Test
+    void findPotentialDuplicates_DissimilarName_Excluded() {
+        // Arrange
+        Guest otherGuest = new Guest();
+        otherGuest.setId(7L);
+        otherGuest.setFirstName("Jane");
+        otherGuest.setLastName("Doe");
+        otherGuest.setPhone("+1444444444");
+
+        when(guestRepository.findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(otherGuest));
+
+        // Act
+        List<GuestResponse> result = duplicateDetectionService.findPotentialDuplicates(createRequest);
+
+        // Assert
+        assertTrue(result.isEmpty());
     }
 
     @Test
@@ -192,13 +273,8 @@ class DuplicateDetectionServiceTest {
         phoneGuest.setCreatedBy(testStaff);
         phoneGuest.setCreatedAt(LocalDateTime.now());
 
-        Page<Guest> nameMatches = new PageImpl<>(Arrays.asList());
-        Page<Guest> phoneMatches = new PageImpl<>(Arrays.asList(phoneGuest));
-
-        when(guestRepository.searchByName(eq("Jane Smith"), any(PageRequest.class)))
-                .thenReturn(nameMatches);
-        when(guestRepository.searchByPhone(eq("1987654321"), any(PageRequest.class)))
-                .thenReturn(phoneMatches);
+        when(guestRepository.findDuplicateCandidates(any(String[].class), eq("1987654321"), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(phoneGuest));
 
         // Act
         List<GuestResponse> result = duplicateDetectionService.findPotentialDuplicates(createRequest);
@@ -208,19 +284,14 @@ class DuplicateDetectionServiceTest {
         assertEquals(1, result.size());
         assertEquals(phoneGuest.getId(), result.get(0).getId());
 
-        verify(guestRepository).searchByName(eq("Jane Smith"), any(PageRequest.class));
-        verify(guestRepository).searchByPhone(eq("1987654321"), any(PageRequest.class));
+        verify(guestRepository).findDuplicateCandidates(any(String[].class), eq("1987654321"), any(PageRequest.class));
     }
 
     @Test
     void findPotentialDuplicates_NoDuplicates_ReturnsEmpty() {
         // Arrange
-        Page<Guest> emptyPage = new PageImpl<>(Arrays.asList());
-
-        when(guestRepository.searchByName(eq("Jane Smith"), any(PageRequest.class)))
-                .thenReturn(emptyPage);
-        when(guestRepository.searchByPhone(anyString(), any(PageRequest.class)))
-                .thenReturn(emptyPage);
+        when(guestRepository.findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList());
 
         // Act
         List<GuestResponse> result = duplicateDetectionService.findPotentialDuplicates(createRequest);
@@ -229,8 +300,7 @@ class DuplicateDetectionServiceTest {
         assertNotNull(result);
         assertTrue(result.isEmpty());
 
-        verify(guestRepository).searchByName(eq("Jane Smith"), any(PageRequest.class));
-        verify(guestRepository).searchByPhone(anyString(), any(PageRequest.class));
+        verify(guestRepository).findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class));
     }
 
     @Test
@@ -244,13 +314,8 @@ class DuplicateDetectionServiceTest {
         exactPhoneMatch.setCreatedBy(testStaff);
         exactPhoneMatch.setCreatedAt(LocalDateTime.now());
 
-        Page<Guest> nameMatches = new PageImpl<>(Arrays.asList(exactPhoneMatch));
-        Page<Guest> phoneMatches = new PageImpl<>(Arrays.asList());
-
-        when(guestRepository.searchByName(eq("Jane Smith"), any(PageRequest.class)))
-                .thenReturn(nameMatches);
-        when(guestRepository.searchByPhone(anyString(), any(PageRequest.class)))
-                .thenReturn(phoneMatches);
+        when(guestRepository.findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(exactPhoneMatch));
 
         // Act
         List<GuestResponse> result = duplicateDetectionService.findPotentialDuplicates(createRequest);
@@ -259,8 +324,7 @@ class DuplicateDetectionServiceTest {
         assertNotNull(result);
         assertTrue(result.isEmpty()); // Should be empty because exact phone match is excluded
 
-        verify(guestRepository).searchByName(eq("Jane Smith"), any(PageRequest.class));
-        verify(guestRepository).searchByPhone(anyString(), any(PageRequest.class));
+        verify(guestRepository).findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class));
     }
 
     @Test
@@ -268,16 +332,14 @@ class DuplicateDetectionServiceTest {
         // Arrange
         Guest similarGuest = new Guest();
         similarGuest.setId(2L);
-        similarGuest.setFirstName("Jane");
-        similarGuest.setLastName("Doe");
+        similarGuest.setFirstName("Jayne");
+        similarGuest.setLastName("Smith");
         similarGuest.setPhone("+1111111111");
         similarGuest.setCreatedBy(testStaff);
         similarGuest.setCreatedAt(LocalDateTime.now());
 
-        Page<Guest> nameMatches = new PageImpl<>(Arrays.asList(similarGuest));
-
-        when(guestRepository.searchByName(eq("Jane Smith"), any(PageRequest.class)))
-                .thenReturn(nameMatches);
+        when(guestRepository.findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(similarGuest));
 
         // Act
         List<GuestResponse> result = duplicateDetectionService.findPotentialDuplicatesForUpdate(updateRequest, 1L);
@@ -287,7 +349,7 @@ class DuplicateDetectionServiceTest {
         assertEquals(1, result.size());
         assertEquals(similarGuest.getId(), result.get(0).getId());
 
-        verify(guestRepository).searchByName(eq("Jane Smith"), any(PageRequest.class));
+        verify(guestRepository).findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class));
     }
 
     @Test
@@ -301,10 +363,8 @@ class DuplicateDetectionServiceTest {
         currentGuest.setCreatedBy(testStaff);
         currentGuest.setCreatedAt(LocalDateTime.now());
 
-        Page<Guest> nameMatches = new PageImpl<>(Arrays.asList(currentGuest));
-
-        when(guestRepository.searchByName(eq("Jane Smith"), any(PageRequest.class)))
-                .thenReturn(nameMatches);
+        when(guestRepository.findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(currentGuest));
 
         // Act
         List<GuestResponse> result = duplicateDetectionService.findPotentialDuplicatesForUpdate(updateRequest, 1L);
@@ -313,14 +373,14 @@ class DuplicateDetectionServiceTest {
         assertNotNull(result);
         assertTrue(result.isEmpty()); // Should be empty because current guest is excluded
 
-        verify(guestRepository).searchByName(eq("Jane Smith"), any(PageRequest.class));
+        verify(guestRepository).findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class));
     }
 
     @Test
     void comprehensiveDuplicateCheck_ExactDuplicateExists_ReturnsExactMatch() {
         // Arrange
         createRequest.setPhone("+1234567890"); // Same as existing guest
-        when(guestRepository.findByPhone("+1234567890")).thenReturn(Optional.of(existingGuest));
+        when(guestRepository.findByPhoneNormalized("+1234567890")).thenReturn(Optional.of(existingGuest));
 
         // Act
         DuplicateCheckResponse result = duplicateDetectionService.comprehensiveDuplicateCheck(createRequest);
@@ -331,31 +391,26 @@ class DuplicateDetectionServiceTest {
         assertTrue(result.getMessage().contains("already exists"));
         assertNotNull(result.getExistingGuest());
 
-        verify(guestRepository).findByPhone("+1234567890");
+        verify(guestRepository).findByPhoneNormalized("+1234567890");
         // Should not check for potential duplicates if exact duplicate exists
-        verify(guestRepository, never()).searchByName(anyString(), any(PageRequest.class));
+        verify(guestRepository, never()).findDuplicateCandidates(any(), any(), any());
     }
 
     @Test
     void comprehensiveDuplicateCheck_PotentialDuplicatesFound() {
         // Arrange
-        when(guestRepository.findByPhone("+1987654321")).thenReturn(Optional.empty());
+        when(guestRepository.findByPhoneNormalized("+1987654321")).thenReturn(Optional.empty());
         
         Guest potentialDuplicate = new Guest();
         potentialDuplicate.setId(2L);
         potentialDuplicate.setFirstName("Jane");
-        potentialDuplicate.setLastName("Doe");
+        potentialDuplicate.setLastName("Smithe");
         potentialDuplicate.setPhone("+1111111111");
         potentialDuplicate.setCreatedBy(testStaff);
         potentialDuplicate.setCreatedAt(LocalDateTime.now());
 
-        Page<Guest> nameMatches = new PageImpl<>(Arrays.asList(potentialDuplicate));
-        Page<Guest> phoneMatches = new PageImpl<>(Arrays.asList());
-
-        when(guestRepository.searchByName(eq("Jane Smith"), any(PageRequest.class)))
-                .thenReturn(nameMatches);
-        when(guestRepository.searchByPhone(anyString(), any(PageRequest.class)))
-                .thenReturn(phoneMatches);
+        when(guestRepository.findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(potentialDuplicate));
 
         // Act
         DuplicateCheckResponse result = duplicateDetectionService.comprehensiveDuplicateCheck(createRequest);
@@ -367,22 +422,16 @@ class DuplicateDetectionServiceTest {
         assertNotNull(result.getExistingGuest());
         assertEquals(potentialDuplicate.getId(), result.getExistingGuest().getId());
 
-        verify(guestRepository).findByPhone("+1987654321");
-        verify(guestRepository).searchByName(eq("Jane Smith"), any(PageRequest.class));
-        verify(guestRepository).searchByPhone(anyString(), any(PageRequest.class));
+        verify(guestRepository).findByPhoneNormalized("+1987654321");
+        verify(guestRepository).findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class));
     }
 
     @Test
     void comprehensiveDuplicateCheck_NoDuplicatesFound() {
         // Arrange
-        when(guestRepository.findByPhone("+1987654321")).thenReturn(Optional.empty());
-        
-        Page<Guest> emptyPage = new PageImpl<>(Arrays.asList());
-
-        when(guestRepository.searchByName(eq("Jane Smith"), any(PageRequest.class)))
-                .thenReturn(emptyPage);
-        when(guestRepository.searchByPhone(anyString(), any(PageRequest.class)))
-                .thenReturn(emptyPage);
+        when(guestRepository.findByPhoneNormalized("+1987654321")).thenReturn(Optional.empty());
+        when(guestRepository.findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList());
 
         // Act
         DuplicateCheckResponse result = duplicateDetectionService.comprehensiveDuplicateCheck(createRequest);
@@ -393,9 +442,8 @@ class DuplicateDetectionServiceTest {
         assertEquals("No duplicates found", result.getMessage());
         assertNull(result.getExistingGuest());
 
-        verify(guestRepository).findByPhone("+1987654321");
-        verify(guestRepository).searchByName(eq("Jane Smith"), any(PageRequest.class));
-        verify(guestRepository).searchByPhone(anyString(), any(PageRequest.class));
+        verify(guestRepository).findByPhoneNormalized("+1987654321");
+        verify(guestRepository).findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class));
     }
 
     @Test
@@ -411,13 +459,8 @@ class DuplicateDetectionServiceTest {
         similarGuest.setCreatedBy(testStaff);
         similarGuest.setCreatedAt(LocalDateTime.now());
 
-        Page<Guest> nameMatches = new PageImpl<>(Arrays.asList(similarGuest));
-        Page<Guest> phoneMatches = new PageImpl<>(Arrays.asList());
-
-        when(guestRepository.searchByName(eq("Jane"), any(PageRequest.class)))
-                .thenReturn(nameMatches);
-        when(guestRepository.searchByPhone(anyString(), any(PageRequest.class)))
-                .thenReturn(phoneMatches);
+        when(guestRepository.findDuplicateCandidates(any(String[].class), anyString(), any(PageRequest.class)))
+                .thenReturn(Arrays.asList(similarGuest));
 
         // Act
         List<GuestResponse> result = duplicateDetectionService.findPotentialDuplicates(createRequest);
@@ -427,6 +470,8 @@ class DuplicateDetectionServiceTest {
         assertEquals(1, result.size());
         assertEquals(similarGuest.getId(), result.get(0).getId());
 
-        verify(guestRepository).searchByName(eq("Jane"), any(PageRequest.class));
+        // Looks up first-name-only keys
+        verify(guestRepository).findDuplicateCandidates(
+                aryEq(GuestMatchKeys.forLookup("Jane", null)), anyString(), any(PageRequest.class));
     }
-}
\ No newline at end of file
+}
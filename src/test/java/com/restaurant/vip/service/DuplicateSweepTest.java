@@ -0,0 +1,125 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.dto.DuplicateClusterResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateSweepTest {
+
+    private ForkJoinPool pool;
+    private DuplicateSweep sweep;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+        sweep = new DuplicateSweep(pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void nameBlock_SimilarNames_FormCluster() {
+        // Act
+        sweep.beginPass(false);
+        sweep.add("JN:SM0", 1L, "John", "Smith", "+15550000001");
+        sweep.add("JN:SM0", 2L, "Jon", "Smyth", "+15550000002");
+        sweep.add("JN:SM0", 3L, "Jean", "Smart", "+15550000003");
+        sweep.endPass();
+        List<DuplicateClusterResponse> clusters = sweep.clusters();
+
+        // Assert
+        assertEquals(1, clusters.size());
+        assertEquals(List.of(1L, 2L), memberIds(clusters.get(0)));
+        assertEquals(1, clusters.get(0).getRank());
+        assertEquals(3, sweep.getPairsCompared());
+        assertEquals(1, sweep.getBlocksScored());
+    }
+
+    @Test
+    void phoneBlock_LinksAllGuestsWithSharedPhoneKey() {
+        // Act
+        sweep.beginPass(true);
+        sweep.add("5551234567", 4L, "Alice", "Brown", "+15551234567");
+        sweep.add("5551234567", 9L, "Bob", "Green", "5551234567");
+        sweep.add("5551234567", 12L, "Carol", "White", "(555) 123-4567");
+        sweep.add("5559999999", 20L, "Dan", "Black", "+15559999999");
+        sweep.endPass();
+        List<DuplicateClusterResponse> clusters = sweep.clusters();
+
+        // Assert
+        assertEquals(1, clusters.size());
+        assertEquals(List.of(4L, 9L, 12L), memberIds(clusters.get(0)));
+        assertEquals(1.0, clusters.get(0).getScore());
+    }
+
+    @Test
+    void clusters_LinkedAcrossPasses_MergedAndRanked() {
+        // Act
+        sweep.beginPass(false);
+        sweep.add("ANN:LS", 1L, "Anne", "Lee", "+15550000001");
+        sweep.add("ANN:LS", 2L, "Ann", "Lee", "+15550000002");
+        sweep.add("MR:KRS", 7L, "Mary", "Cruz", "+15550000007");
+        sweep.add("MR:KRS", 8L, "Marie", "Cruz", "+15550000008");
+        sweep.endPass();
+        sweep.beginPass(true);
+        sweep.add("5550000002", 2L, "Ann", "Lee", "+15550000002");
+        sweep.add("5550000002", 5L, "A", "Lee-Park", "5550000002");
+        sweep.endPass();
+        List<DuplicateClusterResponse> clusters = sweep.clusters();
+
+        // Assert
+        assertEquals(2, clusters.size());
+        assertEquals(List.of(1L, 2L, 5L), memberIds(clusters.get(0)));
+        assertEquals(1.0, clusters.get(0).getScore());
+        assertEquals(List.of(7L, 8L), memberIds(clusters.get(1)));
+        assertEquals(2, clusters.get(1).getRank());
+    }
+
+    @Test
+    void largeBlock_ComparesWithinWindowAcrossSegments() {
+        // Arrange: a block longer than one segment, with a near-duplicate straddling the segment boundary
+        int size = DuplicateSweep.MAX_BLOCK_ROWS + 10;
+        long straddling = DuplicateSweep.MAX_BLOCK_ROWS - 1;
+
+        // Act
+        sweep.beginPass(false);
+        for (long id = 0; id < size; id++) {
+            String lastName = id == straddling + 1 ? "Name" + straddling : "Name" + id;
+            sweep.add("BIG", id + 1, "Guest" + id, lastName, "+1555" + id);
+        }
+        sweep.endPass();
+        List<DuplicateClusterResponse> clusters = sweep.clusters();
+
+        // Assert
+        assertTrue(clusters.stream().anyMatch(cluster ->
+                memberIds(cluster).containsAll(List.of(straddling + 1, straddling + 2))));
+        assertTrue(sweep.getPairsCompared() <= (long) (size + DuplicateSweep.WINDOW) * DuplicateSweep.WINDOW);
+        assertEquals(size, sweep.getRowsScanned());
+    }
+
+    @Test
+    void singletonBlocks_NoClusters() {
+        // Act
+        sweep.beginPass(false);
+        sweep.add("A", 1L, "Anne", "Lee", null);
+        sweep.add("B", 2L, "Bob", "Stone", null);
+        sweep.endPass();
+
+        // Assert
+        assertTrue(sweep.clusters().isEmpty());
+        assertEquals(0, sweep.getPairsCompared());
+    }
+
+    private static List<Long> memberIds(DuplicateClusterResponse cluster) {
+        return cluster.getGuests().stream().map(DuplicateClusterResponse.Member::getId).toList();
+    }
+}
@@ -0,0 +1,96 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.dto.GuestCardResponse;
+import com.restaurant.vip.dto.GuestResponse;
+import com.restaurant.vip.dto.PagedResponse;
+import com.restaurant.vip.dto.VisitResponse;
+import com.restaurant.vip.dto.VisitTimelineEntry;
+import com.restaurant.vip.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GuestCardServiceTest {
+
+    @Mock
+    private GuestService guestService;
+
+    @Mock
+    private VisitService visitService;
+
+    private GuestCardService guestCardService;
+
+    @BeforeEach
+    void setUp() {
+        guestCardService = new GuestCardService(guestService, visitService, 10, 4, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        guestCardService.shutdown();
+    }
+
+    @Test
+    void getGuestCard_RunsReadsConcurrentlyAndCombinesThem() {
+        // Arrange: every read waits until all four have started, which only succeeds if they overlap
+        CountDownLatch started = new CountDownLatch(4);
+        GuestResponse guest = new GuestResponse();
+        guest.setId(1L);
+        VisitResponse recentVisit = new VisitResponse();
+        recentVisit.setId(10L);
+        PagedResponse<VisitTimelineEntry> notedVisits = new PagedResponse<>(List.of(), 10, true, "next", -1);
+        Map<String, Object> statistics = Map.of("totalVisits", 2L);
+        when(guestService.getGuestProfile(1L)).thenAnswer(afterAllStarted(started, guest));
+        when(visitService.getRecentGuestVisits(1L, 5)).thenAnswer(afterAllStarted(started, List.of(recentVisit)));
+        when(visitService.getGuestVisitStatistics(1L)).thenAnswer(afterAllStarted(started, statistics));
+        when(visitService.getGuestVisitTimeline(1L, null, 10, true)).thenAnswer(afterAllStarted(started, notedVisits));
+
+        // Act
+        GuestCardResponse card = guestCardService.getGuestCard(1L, 5);
+
+        // Assert
+        assertSame(guest, card.getGuest());
+        assertEquals(List.of(recentVisit), card.getRecentVisits());
+        assertEquals(statistics, card.getStatistics());
+        assertSame(notedVisits, card.getVisitsWithNotes());
+        verify(guestService, never()).getGuestById(any());
+    }
+
+    @Test
+    void getGuestCard_UnknownGuest_ThrowsResourceNotFound() {
+        // Arrange
+        when(guestService.getGuestProfile(99L)).thenThrow(new ResourceNotFoundException("Guest", "id", 99L));
+        lenient().when(visitService.getGuestVisitStatistics(99L))
+                .thenThrow(new ResourceNotFoundException("Guest not found with ID: 99"));
+        lenient().when(visitService.getGuestVisitTimeline(99L, null, 10, true))
+                .thenThrow(new ResourceNotFoundException("Guest not found with ID: 99"));
+
+        // Act & Assert
+        ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
+                () -> guestCardService.getGuestCard(99L, 5));
+        assertTrue(exception.getMessage().contains("Guest"));
+    }
+
+    private static <T> Answer<T> afterAllStarted(CountDownLatch started, T result) {
+        return invocation -> {
+            started.countDown();
+            if (!started.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Card reads did not run concurrently");
+            }
+            return result;
+        };
+    }
+}
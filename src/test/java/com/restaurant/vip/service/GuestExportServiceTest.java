@@ -0,0 +1,223 @@
+package com.restaurant.vip.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.restaurant.vip.entity.Staff;
+import com.restaurant.vip.repository.PreferenceTagDictionary;
+import com.restaurant.vip.repository.StaffRepository;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GuestExportServiceTest {
+
+    private static final long MILLION = 1_000_000L;
+
+    @Mock
+    private StaffRepository staffRepository;
+
+    @Mock
+    private AuditLogService auditLogService;
+
+    @Mock
+    private SecurityContext securityContext;
+
+    @Mock
+    private Authentication authentication;
+
+    private GuestExportService guestExportService;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = dataSource("jdbc:h2:mem:export-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        createPreferenceTags(jdbcTemplate);
+        jdbcTemplate.execute("CREATE TABLE guests (id BIGINT PRIMARY KEY, first_name VARCHAR(100), " +
+                "last_name VARCHAR(100), phone VARCHAR(20), email VARCHAR(255), seating_preference VARCHAR(100), " +
+                "dietary_tag_ids INTEGER ARRAY, drink_tag_ids INTEGER ARRAY, birthday DATE, anniversary DATE, " +
+                "notes VARCHAR(1000), created_at TIMESTAMP, deleted_at TIMESTAMP)");
+        jdbcTemplate.execute("INSERT INTO guests VALUES " +
+                "(1, 'Jane', 'Smith', '+15552345678', NULL, 'Window', ARRAY[1, 2], ARRAY[], DATE '1990-05-15', " +
+                "NULL, 'Prefers the corner, away from the door', TIMESTAMP '2024-01-01 12:00:00', NULL), " +
+                "(2, 'Gone', 'Guest', '+15553456789', NULL, NULL, ARRAY[], ARRAY[], NULL, NULL, NULL, " +
+                "TIMESTAMP '2024-01-02 12:00:00', TIMESTAMP '2024-02-01 12:00:00'), " +
+                "(3, 'John', 'Doe', '+15554567890', 'john.doe', NULL, ARRAY[], ARRAY[3], NULL, " +
+                "DATE '2015-06-20', NULL, TIMESTAMP '2024-01-03 12:00:00', NULL)");
+        guestExportService = service(dataSource, staffRepository, auditLogService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void exportGuests_Csv_WritesActiveGuestsAndAuditsExport() throws IOException {
+        // Arrange
+        Staff manager = new Staff();
+        manager.setId(1L);
+        SecurityContextHolder.setContext(securityContext);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("manager@restaurant.com");
+        when(staffRepository.findByEmail("manager@restaurant.com")).thenReturn(Optional.of(manager));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        guestExportService.exportGuests(GuestFileFormat.CSV, false).writeTo(output);
+
+        // Assert
+        String csv = output.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.startsWith("id,firstName,lastName,phone,email,seatingPreference,dietaryRestrictions," +
+                "favoriteDrinks,birthday,anniversary,notes,createdAt\n"));
+
+        List<Map<String, String>> rows = new CsvMapper().readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .<Map<String, String>>readValues(csv)
+                .readAll();
+        assertEquals(2, rows.size());
+        assertEquals("1", rows.get(0).get("id"));
+        assertEquals("Vegetarian;Nut allergy", rows.get(0).get("dietaryRestrictions"));
+        assertEquals("", rows.get(0).get("favoriteDrinks"));
+        assertEquals("1990-05-15", rows.get(0).get("birthday"));
+        assertEquals("Prefers the corner, away from the door", rows.get(0).get("notes"));
+        assertEquals("3", rows.get(1).get("id"));
+        assertEquals("Wine", rows.get(1).get("favoriteDrinks"));
+        assertEquals("2015-06-20", rows.get(1).get("anniversary"));
+
+        verify(auditLogService).logDataExport(manager, "guests", 2);
+    }
+
+    @Test
+    void export_GzippedNdjson_WritesOneGuestPerLine() throws IOException {
+        // Arrange
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        long rows = guestExportService.export(output, GuestFileFormat.NDJSON, true);
+
+        // Assert
+        assertEquals(2, rows);
+        String ndjson;
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            ndjson = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = ndjson.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(ndjson.endsWith("\n"));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode jane = objectMapper.readTree(lines[0]);
+        assertEquals("Jane", jane.get("firstName").asText());
+        assertTrue(jane.get("email").isNull());
+        assertEquals(List.of("Vegetarian", "Nut allergy"),
+                objectMapper.convertValue(jane.get("dietaryRestrictions"), List.class));
+        assertEquals("2024-01-01T12:00", jane.get("createdAt").asText());
+        assertEquals(3L, objectMapper.readTree(lines[1]).get("id").asLong());
+    }
+
+    @Test
+    void export_MillionGuests_RunsInSmallHeap(@TempDir Path databaseDir) throws Exception {
+        // Arrange: a JVM with a heap far smaller than a million buffered rows would need
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        Process process = new ProcessBuilder(java.toString(), "-Xmx64m",
+                "-cp", System.getProperty("java.class.path"),
+                MillionGuestExport.class.getName(), databaseDir.resolve("guests").toString(), String.valueOf(MILLION))
+                .redirectErrorStream(true)
+                .start();
+
+        // Act
+        boolean finished = process.waitFor(5, TimeUnit.MINUTES);
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+
+        // Assert
+        assertTrue(finished, "Export did not finish");
+        assertEquals(0, process.exitValue(), output);
+        assertTrue(output.contains("rows=" + MILLION), output);
+    }
+
+    /**
+     * Exports generated guests as gzipped CSV into a stream that only counts bytes.
+     * Arguments: H2 database file path, number of guests.
+     */
+    static class MillionGuestExport {
+
+        public static void main(String[] args) throws IOException {
+            DataSource dataSource = dataSource("jdbc:h2:file:" + args[0] + ";LAZY_QUERY_EXECUTION=1");
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            createPreferenceTags(jdbcTemplate);
+            jdbcTemplate.execute("CREATE VIEW guests AS SELECT X AS id, CONCAT('Guest', X) AS first_name, " +
+                    "CONCAT('Number', X) AS last_name, CONCAT('+1555', LPAD(CAST(X AS VARCHAR), 7, '0')) AS phone, " +
+                    "CAST(NULL AS VARCHAR) AS email, 'Window' AS seating_preference, " +
+                    "ARRAY[1, 2] AS dietary_tag_ids, ARRAY[3] AS drink_tag_ids, DATE '1990-05-15' AS birthday, " +
+                    "CAST(NULL AS DATE) AS anniversary, 'Regular since 2019' AS notes, " +
+                    "TIMESTAMP '2024-01-01 12:00:00' AS created_at, CAST(NULL AS TIMESTAMP) AS deleted_at " +
+                    "FROM SYSTEM_RANGE(1, " + Long.parseLong(args[1]) + ")");
+
+            long[] bytes = {0};
+            OutputStream counting = new OutputStream() {
+                @Override
+                public void write(int b) {
+                    bytes[0]++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    bytes[0] += len;
+                }
+            };
+            long rows = service(dataSource, null, null).export(counting, GuestFileFormat.CSV, true);
+            System.out.println("rows=" + rows + " bytes=" + bytes[0]);
+        }
+    }
+
+    private static GuestExportService service(DataSource dataSource, StaffRepository staffRepository,
+                                              AuditLogService auditLogService) {
+        return new GuestExportService(dataSource, new DataSourceTransactionManager(dataSource),
+                new PreferenceTagDictionary(dataSource), staffRepository, auditLogService);
+    }
+
+    private static DataSource dataSource(String url) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url);
+        return dataSource;
+    }
+
+    private static void createPreferenceTags(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE preference_tags (id INTEGER PRIMARY KEY, category VARCHAR(20), " +
+                "label VARCHAR(255), created_at TIMESTAMP)");
+        jdbcTemplate.execute("INSERT INTO preference_tags (id, category, label) VALUES " +
+                "(1, 'DIETARY', 'Vegetarian'), (2, 'DIETARY', 'Nut allergy'), (3, 'DRINK', 'Wine')");
+    }
+}
@@ -0,0 +1,163 @@
+package com.restaurant.vip.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.vip.dto.GuestImportResponse;
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.Staff;
+import com.restaurant.vip.event.GuestChangedEvent;
+import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.repository.StaffRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GuestImportServiceTest {
+
+    @Mock
+    private GuestRepository guestRepository;
+
+    @Mock
+    private StaffRepository staffRepository;
+
+    @Mock
+    private AuditLogService auditLogService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private SecurityContext securityContext;
+
+    @Mock
+    private Authentication authentication;
+
+    private GuestImportService guestImportService;
+    private Staff testStaff;
+    private List<List<Guest>> savedChunks;
+
+    @BeforeEach
+    void setUp() {
+        guestImportService = new GuestImportService(guestRepository, staffRepository, auditLogService,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper().findAndRegisterModules(),
+                transactionManager, eventPublisher, 2);
+
+        testStaff = new Staff();
+        testStaff.setId(1L);
+        testStaff.setEmail("manager@restaurant.com");
+
+        SecurityContextHolder.setContext(securityContext);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("manager@restaurant.com");
+        when(staffRepository.findByEmail("manager@restaurant.com")).thenReturn(Optional.of(testStaff));
+
+        // Assign ids the way the pooled generator would and remember each chunk
+        savedChunks = new ArrayList<>();
+        AtomicLong nextId = new AtomicLong(100);
+        lenient().when(guestRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Guest> chunk = new ArrayList<>(invocation.getArgument(0));
+            chunk.forEach(guest -> guest.setId(nextId.getAndIncrement()));
+            savedChunks.add(chunk);
+            return chunk;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void importGuests_Csv_WritesValidRowsInChunks() throws IOException {
+        // Arrange
+        String csv = "firstName,lastName,phone,dietaryRestrictions,birthday\n" +
+                " Jane ,Smith,+15552345678,Vegetarian; Nut allergy,1990-05-15\n" +
+                "John,Doe,+15553456789,,\n" +
+                "\"Ann, Marie\",Lee,+15554567890,Vegan,\n";
+
+        // Act
+        GuestImportResponse result = guestImportService.importGuests(stream(csv), GuestFileFormat.CSV);
+
+        // Assert
+        assertEquals(3, result.getTotalRows());
+        assertEquals(3, result.getImportedCount());
+        assertEquals(2, savedChunks.size());
+        assertEquals(List.of(1, 2, 3), result.getRows().stream().map(GuestImportResponse.RowResult::getRow).toList());
+
+        Guest jane = savedChunks.get(0).get(0);
+        assertEquals("Jane", jane.getFirstName());
+        assertEquals(List.of("Vegetarian", "Nut allergy"), jane.getDietaryRestrictions());
+        assertEquals(LocalDate.of(1990, 5, 15), jane.getBirthday());
+        assertEquals(testStaff, jane.getCreatedBy());
+        assertEquals("Ann, Marie", savedChunks.get(1).get(0).getFirstName());
+
+        verify(guestRepository, times(2)).flush();
+        verify(eventPublisher, times(2)).publishEvent(any(GuestChangedEvent.class));
+        verify(auditLogService).logGuestImport(testStaff, "CSV", 3, 3, 0, 0);
+    }
+
+    @Test
+    void importGuests_Ndjson_ReportsDuplicatesAndRejectedRows() throws IOException {
+        // Arrange
+        String ndjson = "{\"firstName\":\"Jane\",\"lastName\":\"Smith\",\"phone\":\"+15552345678\"}\n" +
+                "{\"firstName\":\"Janet\",\"lastName\":\"Smith\",\"phone\":\"5552345678\"}\n" +
+                "\n" +
+                "{\"firstName\":\"John\",\"lastName\":\"Doe\",\"phone\":\"+15559876543\"}\n" +
+                "{\"lastName\":\"Nobody\",\"phone\":\"+15553456789\"}\n" +
+                "{\"firstName\":\"Broken\",\n";
+        List<Object[]> existing = new ArrayList<>();
+        existing.add(new Object[] {"+15559876543", 7L});
+        when(guestRepository.findIdsByPhoneNormalizedIn(anyCollection())).thenReturn(existing);
+
+        // Act
+        GuestImportResponse result = guestImportService.importGuests(stream(ndjson), GuestFileFormat.NDJSON);
+
+        // Assert
+        assertEquals(5, result.getTotalRows());
+        assertEquals(1, result.getImportedCount());
+        assertEquals(2, result.getDuplicateCount());
+        assertEquals(2, result.getInvalidCount());
+
+        List<GuestImportResponse.RowResult> rows = result.getRows();
+        assertEquals(GuestImportService.IMPORTED, rows.get(0).getStatus());
+        assertEquals(100L, rows.get(0).getGuestId());
+        assertEquals(GuestImportService.DUPLICATE_IN_FILE, rows.get(1).getStatus());
+        assertEquals(GuestImportService.DUPLICATE_EXISTING, rows.get(2).getStatus());
+        assertEquals(7L, rows.get(2).getGuestId());
+        assertEquals(GuestImportService.INVALID, rows.get(3).getStatus());
+        assertTrue(rows.get(3).getMessage().contains("firstName"));
+        assertEquals(GuestImportService.INVALID, rows.get(4).getStatus());
+
+        assertEquals("+15552345678", savedChunks.get(0).get(0).getPhone());
+        verify(auditLogService).logGuestImport(testStaff, "NDJSON", 5, 1, 2, 2);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,23 +1,45 @@
 package com.restaurant.vip.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.restaurant.vip.dto.*;
 import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.GuestVisitStats;
 import com.restaurant.vip.entity.Staff;
 import com.restaurant.vip.entity.StaffRole;
+import com.restaurant.vip.event.GuestChangedEvent;
 import com.restaurant.vip.exception.DuplicateGuestException;
+import com.restaurant.vip.exception.FacetIndexUnavailableException;
+import com.restaurant.vip.exception.InvalidCursorException;
+import com.restaurant.vip.exception.InvalidMergeException;
+import com.restaurant.vip.exception.InvalidPatchException;
+import com.restaurant.vip.exception.PreconditionFailedException;
 import com.restaurant.vip.exception.ResourceNotFoundException;
 import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.repository.GuestSortField;
 import com.restaurant.vip.repository.StaffRepository;
+import com.restaurant.vip.repository.VisitRepository;
+import com.restaurant.vip.search.GuestFacetIndex;
+import com.restaurant.vip.search.GuestPhoneFilter;
+import com.restaurant.vip.search.GuestTypeaheadIndex;
+import com.restaurant.vip.util.CursorCodec;
+import com.restaurant.vip.util.MonthDayWindow;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -25,9 +47,14 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -50,6 +77,33 @@ class GuestServiceTest {
 
     @Mock
     private DuplicateDetectionService duplicateDetectionService;
+    
+    @Mock
+    private VisitRepository visitRepository;
+
+    @Mock
+    private GuestVisitStatsService visitStatsService;
+
+    @Mock
+    private VisitRollupService visitRollupService;
+
+    @Mock
+    private GuestTypeaheadIndex typeaheadIndex;
+    
+    @Mock
+    private GuestFacetIndex facetIndex;
+
+    @Mock
+    private GuestPhoneFilter phoneFilter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
 
     @Mock
     private SecurityContext securityContext;
@@ -67,6 +121,10 @@ class GuestServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Phone filter not ruling anything out: every check reaches the repository
+        lenient().when(phoneFilter.probe(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<String, Optional<?>>>getArgument(1).apply(invocation.getArgument(0)));
+
         // Setup test staff
         testStaff = new Staff();
         testStaff.setId(1L);
@@ -115,9 +173,11 @@ class GuestServiceTest {
     @Test
     void createGuest_Success() {
         // Arrange
-        when(guestRepository.existsByPhone(createRequest.getPhone())).thenReturn(false);
         when(staffRepository.findByEmail("test@restaurant.com")).thenReturn(Optional.of(testStaff));
-        when(guestRepository.save(any(Guest.class))).thenReturn(testGuest);
+        when(guestRepository.insertUnlessPhoneTaken(any(Guest.class))).thenAnswer(invocation -> {
+            invocation.<Guest>getArgument(0).setId(testGuest.getId());
+            return Optional.empty();
+        });
 
         // Act
         GuestResponse result = guestService.createGuest(createRequest);
@@ -125,28 +185,50 @@ class GuestServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(testGuest.getId(), result.getId());
-        assertEquals(testGuest.getFirstName(), result.getFirstName());
-        assertEquals(testGuest.getLastName(), result.getLastName());
-        assertEquals(testGuest.getPhone(), result.getPhone());
+        assertEquals(createRequest.getFirstName(), result.getFirstName());
+        assertEquals(createRequest.getLastName(), result.getLastName());
+        assertEquals(createRequest.getPhone(), result.getPhone());
 
-        verify(guestRepository).existsByPhone(createRequest.getPhone());
-        verify(guestRepository).save(any(Guest.class));
-        verify(auditLogService).logAction(eq("CREATE_GUEST"), anyString(), eq(testGuest.getId()), eq(testStaff.getId()));
+        verify(guestRepository).insertUnlessPhoneTaken(any(Guest.class));
+        verify(guestRepository, never()).existsByPhone(anyString());
+        verify(guestRepository, never()).save(any(Guest.class));
     }
 
     @Test
     void createGuest_DuplicatePhone_ThrowsException() {
         // Arrange
-        when(guestRepository.existsByPhone(createRequest.getPhone())).thenReturn(true);
-        when(guestRepository.findByPhone(createRequest.getPhone())).thenReturn(Optional.of(testGuest));
+        when(staffRepository.findByEmail("test@restaurant.com")).thenReturn(Optional.of(testStaff));
+        when(guestRepository.insertUnlessPhoneTaken(any(Guest.class))).thenReturn(Optional.of(testGuest.getId()));
 
         // Act & Assert
-        assertThrows(DuplicateGuestException.class, () -> guestService.createGuest(createRequest));
+        DuplicateGuestException exception = assertThrows(DuplicateGuestException.class,
+                () -> guestService.createGuest(createRequest));
+        assertEquals(testGuest.getId(), exception.getExistingGuestId());
 
-        verify(guestRepository).existsByPhone(createRequest.getPhone());
+        verify(guestRepository).insertUnlessPhoneTaken(any(Guest.class));
+        verify(guestRepository, never()).findByPhone(anyString());
         verify(guestRepository, never()).save(any(Guest.class));
     }
 
+    @Test
+    void createGuest_TokenPrincipal_UsesStaffReferenceWithoutLookup() {
+        // Arrange
+        when(authentication.getPrincipal()).thenReturn(
+                new StaffPrincipal(1L, "test@restaurant.com", StaffRole.SERVER, "John", "Doe"));
+        when(staffRepository.getReferenceById(1L)).thenReturn(testStaff);
+        when(guestRepository.insertUnlessPhoneTaken(any(Guest.class))).thenAnswer(invocation -> {
+            invocation.<Guest>getArgument(0).setId(testGuest.getId());
+            return Optional.empty();
+        });
+
+        // Act
+        guestService.createGuest(createRequest);
+
+        // Assert
+        verify(staffRepository, never()).findByEmail(anyString());
+        verify(auditLogService).logGuestCreated(eq(testStaff), any(Guest.class));
+    }
+
     @Test
     void getGuestById_Success() {
         // Arrange
@@ -165,6 +247,32 @@ class GuestServiceTest {
         verify(auditLogService).logAction(eq("VIEW_GUEST"), anyString(), eq(testGuest.getId()), eq(testStaff.getId()));
     }
 
+    @Test
+    void getGuestsByIds_ReturnsRequestOrderAndMissingIdsWithOneAuditEntry() {
+        // Arrange
+        Guest secondGuest = new Guest();
+        secondGuest.setId(2L);
+        secondGuest.setFirstName("Zoe");
+        secondGuest.setPhone("+1987654321");
+        when(guestRepository.findAllByIdIn(new Long[] {2L, 99L, 1L}))
+                .thenReturn(Arrays.asList(testGuest, secondGuest));
+        when(visitStatsService.getStats(Arrays.asList(2L, 1L))).thenReturn(new HashMap<>());
+        when(staffRepository.findByEmail("test@restaurant.com")).thenReturn(Optional.of(testStaff));
+
+        // Act
+        GuestBatchResponse result = guestService.getGuestsByIds(Arrays.asList(2L, 99L, 1L, 2L));
+
+        // Assert
+        assertEquals(Arrays.asList(2L, 1L),
+                result.getGuests().stream().map(GuestResponse::getId).collect(Collectors.toList()));
+        assertEquals(List.of(99L), result.getMissingIds());
+
+        verify(guestRepository, never()).findById(any());
+        verify(visitStatsService, times(1)).getStats(anyList());
+        verify(auditLogService, times(1)).logGuestsAccessed(testStaff, Arrays.asList(2L, 1L), 3);
+        verify(auditLogService, never()).logAction(anyString(), anyString(), anyLong(), anyLong());
+    }
+
     @Test
     void getGuestById_NotFound_ThrowsException() {
         // Arrange
@@ -181,7 +289,6 @@ class GuestServiceTest {
     void updateGuest_Success() {
         // Arrange
         when(guestRepository.findById(1L)).thenReturn(Optional.of(testGuest));
-        when(guestRepository.existsByPhoneAndIdNot(updateRequest.getPhone(), 1L)).thenReturn(false);
         when(staffRepository.findByEmail("test@restaurant.com")).thenReturn(Optional.of(testStaff));
         when(guestRepository.save(any(Guest.class))).thenReturn(testGuest);
 
@@ -202,11 +309,7 @@ class GuestServiceTest {
         // Arrange
         updateRequest.setPhone("+9876543210"); // Different phone
         when(guestRepository.findById(1L)).thenReturn(Optional.of(testGuest));
-        when(guestRepository.existsByPhoneAndIdNot(updateRequest.getPhone(), 1L)).thenReturn(true);
-        
-        Guest duplicateGuest = new Guest();
-        duplicateGuest.setId(2L);
-        when(guestRepository.findByPhone(updateRequest.getPhone())).thenReturn(Optional.of(duplicateGuest));
+        when(guestRepository.findIdByPhoneNormalized("+9876543210")).thenReturn(Optional.of(2L));
 
         // Act & Assert
         assertThrows(DuplicateGuestException.class, () -> guestService.updateGuest(1L, updateRequest));
@@ -215,6 +318,140 @@ class GuestServiceTest {
         verify(guestRepository, never()).save(any(Guest.class));
     }
 
+    @Test
+    void updateGuest_MatchingVersion_SavesAndReturnsVersion() {
+        // Arrange
+        testGuest.setVersion(3L);
+        when(guestRepository.findById(1L)).thenReturn(Optional.of(testGuest));
+        when(staffRepository.findByEmail("test@restaurant.com")).thenReturn(Optional.of(testStaff));
+        when(guestRepository.save(any(Guest.class))).thenReturn(testGuest);
+
+        // Act
+        GuestResponse result = guestService.updateGuest(1L, updateRequest, 3L);
+
+        // Assert
+        assertEquals(3L, result.getVersion());
+        verify(guestRepository).save(testGuest);
+        verify(guestRepository).flush();
+    }
+
+    @Test
+    void updateGuest_StaleVersion_ThrowsPreconditionFailed() {
+        // Arrange
+        testGuest.setVersion(4L);
+        when(guestRepository.findById(1L)).thenReturn(Optional.of(testGuest));
+
+        // Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> guestService.updateGuest(1L, updateRequest, 3L));
+
+        verify(guestRepository, never()).save(any(Guest.class));
+        verify(auditLogService, never()).logGuestUpdated(any(), any(), any());
+    }
+
+    @Test
+    void getGuestVersion_ReadsVersionOnly() {
+        // Arrange
+        when(guestRepository.findVersionById(1L)).thenReturn(Optional.of(5L));
+
+        // Act
+        Optional<Long> result = guestService.getGuestVersion(1L);
+
+        // Assert
+        assertEquals(Optional.of(5L), result);
+        verify(guestRepository, never()).findById(any());
+        verify(auditLogService, never()).logGuestAccessed(any(), any());
+    }
+
+    @Test
+    void patchGuest_NotesOnly_LeavesOtherFieldsAndTagsUntouched() throws Exception {
+        // Arrange
+        List<String> dietaryRestrictions = new ArrayList<>(List.of("Vegetarian"));
+        testGuest.setDietaryRestrictions(dietaryRestrictions);
+        testGuest.setSeatingPreference("Window table");
+        when(guestRepository.findById(1L)).thenReturn(Optional.of(testGuest));
+        when(staffRepository.findByEmail("test@restaurant.com")).thenReturn(Optional.of(testStaff));
+        when(guestRepository.save(any(Guest.class))).thenReturn(testGuest);
+
+        // Act
+        GuestResponse result = guestService.patchGuest(1L,
+                objectMapper.readTree("{\"notes\": \"Celebrating a promotion\"}"), null);
+
+        // Assert
+        assertEquals("Celebrating a promotion", result.getNotes());
+        assertEquals("Window table", testGuest.getSeatingPreference());
+        assertEquals("jane@example.com", testGuest.getEmail());
+        assertSame(dietaryRestrictions, testGuest.getDietaryRestrictions());
+        verify(guestRepository, never()).findIdByPhoneNormalized(anyString());
+        verify(guestRepository).flush();
+        verify(eventPublisher).publishEvent(any(GuestChangedEvent.class));
+    }
+
+    @Test
+    void patchGuest_Tags_AppliedAsDiffAndNullClears() throws Exception {
+        // Arrange
+        testGuest.setDietaryRestrictions(new ArrayList<>(List.of("Vegetarian", "Nut allergy")));
+        List<String> favoriteDrinks = new ArrayList<>(List.of("Red wine"));
+        testGuest.setFavoriteDrinks(favoriteDrinks);
+        testGuest.setSeatingPreference("Patio");
+        when(guestRepository.findById(1L)).thenReturn(Optional.of(testGuest));
+        when(staffRepository.findByEmail("test@restaurant.com")).thenReturn(Optional.of(testStaff));
+        when(guestRepository.save(any(Guest.class))).thenReturn(testGuest);
+
+        // Act
+        guestService.patchGuest(1L, objectMapper.readTree("{\"dietaryRestrictions\": [\"Gluten free\", " +
+                "\"Nut allergy\"], \"favoriteDrinks\": [\"Red wine\"], \"seatingPreference\": null}"), null);
+
+        // Assert
+        assertEquals(List.of("Nut allergy", "Gluten free"), testGuest.getDietaryRestrictions());
+        assertSame(favoriteDrinks, testGuest.getFavoriteDrinks());
+        assertNull(testGuest.getSeatingPreference());
+    }
+
+    @Test
+    void patchGuest_NothingChanged_WritesAndAnnouncesNothing() throws Exception {
+        // Arrange
+        testGuest.setDietaryRestrictions(new ArrayList<>(List.of("Vegetarian")));
+        testGuest.setNotes("Regular");
+        when(guestRepository.findById(1L)).thenReturn(Optional.of(testGuest));
+
+        // Act
+        GuestResponse result = guestService.patchGuest(1L,
+                objectMapper.readTree("{\"notes\": \"Regular\", \"dietaryRestrictions\": [\"Vegetarian\"]}"), null);
+
+        // Assert
+        assertEquals("Regular", result.getNotes());
+        verify(guestRepository, never()).save(any(Guest.class));
+        verify(auditLogService, never()).logGuestUpdated(any(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any(GuestChangedEvent.class));
+    }
+
+    @Test
+    void patchGuest_ClearingRequiredField_ThrowsConstraintViolation() throws Exception {
+        // Arrange
+        when(guestRepository.findById(1L)).thenReturn(Optional.of(testGuest));
+
+        // Act & Assert
+        assertThrows(ConstraintViolationException.class,
+                () -> guestService.patchGuest(1L, objectMapper.readTree("{\"firstName\": null}"), null));
+
+        assertEquals("Jane", testGuest.getFirstName());
+        verify(guestRepository, never()).save(any(Guest.class));
+    }
+
+    @Test
+    void patchGuest_UnknownField_ThrowsInvalidPatch() throws Exception {
+        // Arrange
+        when(guestRepository.findById(1L)).thenReturn(Optional.of(testGuest));
+
+        // Act & Assert
+        assertThrows(InvalidPatchException.class,
+                () -> guestService.patchGuest(1L, objectMapper.readTree("{\"vipLevel\": \"GOLD\"}"), null));
+        assertThrows(InvalidPatchException.class,
+                () -> guestService.patchGuest(1L, objectMapper.readTree("[]"), null));
+
+        verify(guestRepository, never()).save(any(Guest.class));
+    }
+
     @Test
     void deleteGuest_Success() {
         // Arrange
@@ -231,6 +468,64 @@ class GuestServiceTest {
         verify(auditLogService).logAction(eq("DELETE_GUEST"), anyString(), eq(testGuest.getId()), eq(testStaff.getId()));
     }
 
+    @Test
+    void mergeGuests_MovesVisitsUnionsTagsAndSoftDeletesDuplicate() {
+        // Arrange
+        testGuest.setDietaryRestrictions(new ArrayList<>(List.of("Vegetarian")));
+        testGuest.setFavoriteDrinks(new ArrayList<>(List.of("Red wine")));
+        Guest duplicate = new Guest();
+        duplicate.setId(2L);
+        duplicate.setFirstName("Jane");
+        duplicate.setLastName("Smyth");
+        duplicate.setPhone("+1234567891");
+        duplicate.setDietaryRestrictions(new ArrayList<>(List.of("Nut allergy", "Vegetarian")));
+        duplicate.setFavoriteDrinks(new ArrayList<>());
+        duplicate.setBirthday(LocalDate.of(1990, 5, 15));
+
+        when(staffRepository.findByEmail("test@restaurant.com")).thenReturn(Optional.of(testStaff));
+        when(guestRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(testGuest, duplicate));
+        when(visitRepository.reassignVisits(2L, 1L)).thenReturn(3);
+
+        // Act
+        GuestResponse result = guestService.mergeGuests(1L, 2L);
+
+        // Assert
+        assertEquals(1L, result.getId());
+        assertEquals(List.of("Vegetarian", "Nut allergy"), testGuest.getDietaryRestrictions());
+        assertEquals(List.of("Red wine"), testGuest.getFavoriteDrinks());
+        assertEquals(LocalDate.of(1990, 5, 15), testGuest.getBirthday());
+        assertEquals("jane@example.com", testGuest.getEmail());
+        assertTrue(duplicate.isDeleted());
+        assertFalse(testGuest.isDeleted());
+
+        verify(auditLogService).logGuestMerged(testStaff, testGuest, duplicate, 3);
+        verify(visitStatsService).refresh(1L);
+        verify(visitStatsService).refresh(2L);
+        verify(visitRollupService).moveGuest(2L, 1L);
+        verify(eventPublisher).publishEvent(argThat((GuestChangedEvent event) ->
+                event.getUpserted().equals(List.of(testGuest, duplicate))));
+    }
+
+    @Test
+    void mergeGuests_SameGuest_ThrowsException() {
+        // Act & Assert
+        assertThrows(InvalidMergeException.class, () -> guestService.mergeGuests(1L, 1L));
+        verify(guestRepository, never()).findAllByIdForUpdate(any());
+        verify(visitRepository, never()).reassignVisits(any(), any());
+    }
+
+    @Test
+    void mergeGuests_DuplicateNotFound_ThrowsException() {
+        // Arrange
+        when(staffRepository.findByEmail("test@restaurant.com")).thenReturn(Optional.of(testStaff));
+        when(guestRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(testGuest));
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> guestService.mergeGuests(1L, 2L));
+        verify(visitRepository, never()).reassignVisits(any(), any());
+        verify(eventPublisher, never()).publishEvent(any(GuestChangedEvent.class));
+    }
+
     @Test
     void searchGuests_SimpleSearch_Success() {
         // Arrange
@@ -244,7 +539,7 @@ class GuestServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Page<Guest> guestPage = new PageImpl<>(Arrays.asList(testGuest), pageable, 1);
         
-        when(guestRepository.searchByNameOrPhone("Jane", pageable)).thenReturn(guestPage);
+        when(guestRepository.trigramSearch("jane", "", pageable)).thenReturn(guestPage);
 
         // Act
         PagedResponse<GuestResponse> result = guestService.searchGuests(searchRequest);
@@ -254,7 +549,117 @@ class GuestServiceTest {
         assertEquals(1, result.getContent().size());
         assertEquals(testGuest.getId(), result.getContent().get(0).getId());
 
-        verify(guestRepository).searchByNameOrPhone("Jane", any(Pageable.class));
+        verify(guestRepository).trigramSearch("jane", "", pageable);
+    }
+
+    @Test
+    void searchGuests_LoadsVisitSummariesForWholePageInOneQuery() {
+        // Arrange
+        GuestSearchRequest searchRequest = new GuestSearchRequest();
+        searchRequest.setPage(0);
+        searchRequest.setSize(10);
+
+        Guest secondGuest = new Guest();
+        secondGuest.setId(2L);
+        secondGuest.setFirstName("Zoe");
+        secondGuest.setPhone("+1987654321");
+
+        Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "firstName"));
+        when(guestRepository.findAll(pageable))
+                .thenReturn(new PageImpl<>(Arrays.asList(testGuest, secondGuest), pageable, 2));
+        LocalDateTime lastVisit = LocalDateTime.of(2024, 3, 1, 19, 30);
+        GuestVisitStats stats = new GuestVisitStats(1L);
+        stats.setTotalVisits(3L);
+        stats.setLastVisitDate(lastVisit.toLocalDate());
+        stats.setLastVisitTime(lastVisit.toLocalTime());
+        when(visitStatsService.getStats(Arrays.asList(1L, 2L))).thenReturn(Map.of(1L, stats));
+
+        // Act
+        PagedResponse<GuestResponse> result = guestService.searchGuests(searchRequest);
+
+        // Assert
+        assertEquals(3, result.getContent().get(0).getVisitCount().intValue());
+        assertEquals(lastVisit, result.getContent().get(0).getLastVisit());
+        assertEquals(0, result.getContent().get(1).getVisitCount().intValue());
+        assertNull(result.getContent().get(1).getLastVisit());
+
+        verify(visitStatsService, times(1)).getStats(anyList());
+    }
+
+    @Test
+    void searchGuests_FirstCursorPage_ReturnsNextCursorWithoutCount() {
+        // Arrange
+        GuestSearchRequest searchRequest = new GuestSearchRequest();
+        searchRequest.setCursor("");
+        searchRequest.setSize(1);
+
+        Guest secondGuest = new Guest();
+        secondGuest.setId(2L);
+        secondGuest.setFirstName("Zoe");
+        secondGuest.setPhone("+1987654321");
+
+        when(guestRepository.findKeysetPage(searchRequest, GuestSortField.FIRST_NAME, true, null, null, 2))
+                .thenReturn(Arrays.asList(testGuest, secondGuest));
+
+        // Act
+        PagedResponse<GuestResponse> result = guestService.searchGuests(searchRequest);
+
+        // Assert
+        assertEquals(1, result.getContent().size());
+        assertEquals(testGuest.getId(), result.getContent().get(0).getId());
+        assertEquals(CursorCodec.encode("firstName", "ASC", "Jane", "1"), result.getNextCursor());
+        assertEquals(-1, result.getTotalElements());
+        assertTrue(result.isFirst());
+        assertFalse(result.isLast());
+
+        verify(guestRepository, never()).countMatching(any());
+    }
+
+    @Test
+    void searchGuests_WithCursor_SeeksPastCursorPosition() {
+        // Arrange
+        GuestSearchRequest searchRequest = new GuestSearchRequest();
+        searchRequest.setCursor(CursorCodec.encode("lastName", "DESC", "Smith", "1"));
+        searchRequest.setSortBy("lastName");
+        searchRequest.setSortDirection("DESC");
+        searchRequest.setSize(10);
+        searchRequest.setIncludeTotal(true);
+
+        when(guestRepository.findKeysetPage(searchRequest, GuestSortField.LAST_NAME, false, "Smith", 1L, 11))
+                .thenReturn(Arrays.asList(testGuest));
+        when(guestRepository.countMatching(searchRequest)).thenReturn(2L);
+
+        // Act
+        PagedResponse<GuestResponse> result = guestService.searchGuests(searchRequest);
+
+        // Assert
+        assertEquals(1, result.getContent().size());
+        assertNull(result.getNextCursor());
+        assertEquals(2, result.getTotalElements());
+        assertFalse(result.isFirst());
+        assertTrue(result.isLast());
+    }
+
+    @Test
+    void searchGuests_CursorFromDifferentSort_ThrowsException() {
+        // Arrange
+        GuestSearchRequest searchRequest = new GuestSearchRequest();
+        searchRequest.setCursor(CursorCodec.encode("lastName", "ASC", "Smith", "1"));
+        searchRequest.setSortBy("firstName");
+
+        // Act & Assert
+        assertThrows(InvalidCursorException.class, () -> guestService.searchGuests(searchRequest));
+        verify(guestRepository, never()).findKeysetPage(any(), any(), anyBoolean(), any(), any(), anyInt());
+    }
+
+    @Test
+    void searchGuests_MalformedCursor_ThrowsException() {
+        // Arrange
+        GuestSearchRequest searchRequest = new GuestSearchRequest();
+        searchRequest.setCursor("not a cursor");
+
+        // Act & Assert
+        assertThrows(InvalidCursorException.class, () -> guestService.searchGuests(searchRequest));
     }
 
     @Test
@@ -267,7 +672,11 @@ class GuestServiceTest {
         searchRequest.setSortBy("firstName");
         searchRequest.setSortDirection("ASC");
 
-        when(guestRepository.findGuestsWithUpcomingOccasions()).thenReturn(Arrays.asList(testGuest));
+        MonthDayWindow window = MonthDayWindow.of(LocalDate.now(), 30);
+        Pageable pageable = PageRequest.of(0, 10);
+        when(guestRepository.findGuestsWithUpcomingOccasions(window.getFirstFrom(), window.getFirstTo(),
+                window.getSecondFrom(), window.getSecondTo(), pageable))
+                .thenReturn(new PageImpl<>(Arrays.asList(testGuest), pageable, 1));
 
         // Act
         PagedResponse<GuestResponse> result = guestService.searchGuests(searchRequest);
@@ -275,8 +684,44 @@ class GuestServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
+        assertEquals(1, result.getTotalElements());
+
+        verify(guestRepository).findGuestsWithUpcomingOccasions(window.getFirstFrom(), window.getFirstTo(),
+                window.getSecondFrom(), window.getSecondTo(), pageable);
+    }
+
+    @Test
+    void searchGuests_FacetFiltersOnly_PagesFacetIndexMatches() {
+        // Arrange
+        GuestSearchRequest searchRequest = new GuestSearchRequest();
+        searchRequest.setDietaryRestrictions(Arrays.asList("Vegan"));
+        searchRequest.setSeatingPreference("Window");
+        searchRequest.setPage(0);
+        searchRequest.setSize(10);
 
-        verify(guestRepository).findGuestsWithUpcomingOccasions();
+        Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "firstName"));
+        when(facetIndex.match(any())).thenReturn(Optional.of(RoaringBitmap.bitmapOf(1, 7)));
+        when(guestRepository.findByIdIn(Arrays.asList(1L, 7L), pageable))
+                .thenReturn(new PageImpl<>(Arrays.asList(testGuest), pageable, 1));
+
+        // Act
+        PagedResponse<GuestResponse> result = guestService.searchGuests(searchRequest);
+
+        // Assert
+        assertEquals(1, result.getContent().size());
+        verify(guestRepository, never()).complexSearch(any(), any(), any(), any(), any(), any(), any());
+        verify(guestRepository, never()).advancedSearch(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void getFacetCounts_IndexNotReady_ThrowsException() {
+        // Arrange
+        GuestSearchRequest searchRequest = new GuestSearchRequest();
+        when(facetIndex.count(any())).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(FacetIndexUnavailableException.class, () -> guestService.getFacetCounts(searchRequest));
+        verifyNoInteractions(guestRepository);
     }
 
     @Test
@@ -301,20 +746,20 @@ class GuestServiceTest {
     @Test
     void existsByPhone_Success() {
         // Arrange
-        when(guestRepository.existsByPhone("+1234567890")).thenReturn(true);
+        when(guestRepository.findIdByPhoneNormalized("+1234567890")).thenReturn(Optional.of(1L));
 
         // Act
         boolean result = guestService.existsByPhone("+1234567890");
 
         // Assert
         assertTrue(result);
-        verify(guestRepository).existsByPhone("+1234567890");
+        verify(guestRepository).findIdByPhoneNormalized("+1234567890");
     }
 
     @Test
     void findByPhone_Success() {
         // Arrange
-        when(guestRepository.findByPhone("+1234567890")).thenReturn(Optional.of(testGuest));
+        when(guestRepository.findByPhoneNormalized("+1234567890")).thenReturn(Optional.of(testGuest));
 
         // Act
         Optional<GuestResponse> result = guestService.findByPhone("+1234567890");
@@ -323,7 +768,7 @@ class GuestServiceTest {
         assertTrue(result.isPresent());
         assertEquals(testGuest.getId(), result.get().getId());
 
-        verify(guestRepository).findByPhone("+1234567890");
+        verify(guestRepository).findByPhoneNormalized("+1234567890");
     }
 
     @Test
@@ -0,0 +1,112 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.GuestVisitStats;
+import com.restaurant.vip.entity.Staff;
+import com.restaurant.vip.entity.Visit;
+import com.restaurant.vip.repository.GuestRepository;
+import com.restaurant.vip.repository.GuestVisitStatsRepository;
+import com.restaurant.vip.repository.VisitRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GuestVisitStatsServiceTest {
+
+    @Mock
+    private GuestVisitStatsRepository statsRepository;
+
+    @Mock
+    private VisitRepository visitRepository;
+
+    @Mock
+    private GuestRepository guestRepository;
+
+    @InjectMocks
+    private GuestVisitStatsService visitStatsService;
+
+    private Visit lastVisit;
+
+    @BeforeEach
+    void setUp() {
+        Guest guest = new Guest();
+        guest.setId(1L);
+        Staff staff = new Staff();
+        staff.setId(7L);
+
+        lastVisit = new Visit(guest, staff, LocalDate.of(2024, 3, 1), LocalTime.of(19, 30));
+        lastVisit.setId(42L);
+        lastVisit.setTableNumber("A5");
+    }
+
+    @Test
+    void refresh_RecomputesStatisticsFromVisits() {
+        // Arrange
+        GuestVisitStats existing = new GuestVisitStats(1L);
+        existing.setTotalVisits(2L);
+        when(visitRepository.findLastVisitByGuestId(1L)).thenReturn(lastVisit);
+        when(statsRepository.findById(1L)).thenReturn(Optional.of(existing));
+        when(visitRepository.getGuestVisitStatistics(1L))
+                .thenReturn(new Object[] {3L, LocalDate.of(2024, 3, 1), LocalDate.of(2023, 6, 10), 2.5});
+
+        // Act
+        visitStatsService.refresh(1L);
+
+        // Assert
+        ArgumentCaptor<GuestVisitStats> saved = ArgumentCaptor.forClass(GuestVisitStats.class);
+        verify(statsRepository).save(saved.capture());
+        assertSame(existing, saved.getValue());
+        assertEquals(3L, existing.getTotalVisits());
+        assertEquals(LocalDate.of(2023, 6, 10), existing.getFirstVisitDate());
+        assertEquals(LocalDate.of(2024, 3, 1).atTime(19, 30), existing.getLastVisitAt());
+        assertEquals(2.5, existing.getAveragePartySize());
+        assertEquals(42L, existing.getLastVisitId());
+        assertEquals("A5", existing.getLastTableNumber());
+        assertEquals(7L, existing.getLastStaffId());
+    }
+
+    @Test
+    void refresh_GuestWithoutVisits_DeletesStatistics() {
+        // Arrange
+        GuestVisitStats existing = new GuestVisitStats(1L);
+        when(visitRepository.findLastVisitByGuestId(1L)).thenReturn(null);
+        when(statsRepository.findById(1L)).thenReturn(Optional.of(existing));
+
+        // Act
+        visitStatsService.refresh(1L);
+
+        // Assert
+        verify(statsRepository).delete(existing);
+        verify(statsRepository, never()).save(any());
+        verify(visitRepository, never()).getGuestVisitStatistics(any());
+    }
+
+    @Test
+    void repair_LocksGuestBeforeRecomputing() {
+        // Arrange
+        when(visitRepository.findLastVisitByGuestId(1L)).thenReturn(null);
+        when(statsRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // Act
+        visitStatsService.repair(1L);
+
+        // Assert
+        InOrder inOrder = inOrder(guestRepository, visitRepository);
+        inOrder.verify(guestRepository).incrementVersion(1L);
+        inOrder.verify(visitRepository).findLastVisitByGuestId(1L);
+    }
+}
@@ -0,0 +1,87 @@
+package com.restaurant.vip.service;
+
+import com.restaurant.vip.dto.DailyVisitVolume;
+import com.restaurant.vip.dto.VisitHeatmapResponse;
+import com.restaurant.vip.entity.VisitDailyRollup;
+import com.restaurant.vip.entity.VisitHourlyRollup;
+import com.restaurant.vip.repository.VisitRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VisitAnalyticsServiceTest {
+
+    @Mock
+    private VisitRollupRepository rollupRepository;
+
+    @InjectMocks
+    private VisitAnalyticsService analyticsService;
+
+    @Test
+    void getBusiestDays_MapsDailyRollups() {
+        // Arrange
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        LocalDate end = LocalDate.of(2024, 3, 31);
+        when(rollupRepository.findBusiestDays(start, end, PageRequest.of(0, 5)))
+                .thenReturn(List.of(new VisitDailyRollup(LocalDate.of(2024, 3, 9), 42L, 120L)));
+
+        // Act
+        List<DailyVisitVolume> result = analyticsService.getBusiestDays(start, end, 5);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(LocalDate.of(2024, 3, 9), result.get(0).getVisitDate());
+        assertEquals(42L, result.get(0).getVisitCount());
+        assertEquals(120L, result.get(0).getCoverCount());
+    }
+
+    @Test
+    void getVisitHeatmap_SumsHoursOfTheSameWeekday() {
+        // Arrange - two Saturdays and a Monday
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        LocalDate end = LocalDate.of(2024, 3, 31);
+        when(rollupRepository.findHourly(start, end)).thenReturn(List.of(
+                new VisitHourlyRollup(LocalDate.of(2024, 3, 9), 19, 10L, 30L),
+                new VisitHourlyRollup(LocalDate.of(2024, 3, 16), 19, 5L, 12L),
+                new VisitHourlyRollup(LocalDate.of(2024, 3, 11), 12, 3L, 4L)));
+
+        // Act
+        VisitHeatmapResponse result = analyticsService.getVisitHeatmap(start, end);
+
+        // Assert
+        assertEquals(2, result.getCells().size());
+        VisitHeatmapResponse.Cell monday = result.getCells().get(0);
+        assertEquals(DayOfWeek.MONDAY, monday.getDayOfWeek());
+        assertEquals(12, monday.getHour());
+        assertEquals(3L, monday.getVisitCount());
+        VisitHeatmapResponse.Cell saturday = result.getCells().get(1);
+        assertEquals(DayOfWeek.SATURDAY, saturday.getDayOfWeek());
+        assertEquals(19, saturday.getHour());
+        assertEquals(15L, saturday.getVisitCount());
+        assertEquals(42L, saturday.getCoverCount());
+    }
+
+    @Test
+    void getTopGuests_CoversWholeMonthsOfTheRange() {
+        // Arrange
+        when(rollupRepository.findTopGuests(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 1), PageRequest.of(0, 10)))
+                .thenReturn(List.of());
+
+        // Act
+        analyticsService.getTopGuests(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 3, 10), 10);
+
+        // Assert
+        verify(rollupRepository).findTopGuests(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 1), PageRequest.of(0, 10));
+    }
+}
@@ -2,18 +2,26 @@ package com.restaurant.vip.service;
 
 import com.restaurant.vip.dto.*;
 import com.restaurant.vip.entity.Guest;
+import com.restaurant.vip.entity.GuestVisitStats;
 import com.restaurant.vip.entity.Staff;
 import com.restaurant.vip.entity.StaffRole;
 import com.restaurant.vip.entity.Visit;
+import com.restaurant.vip.exception.InvalidCursorException;
+import com.restaurant.vip.exception.InvalidSearchQueryException;
 import com.restaurant.vip.exception.ResourceNotFoundException;
 import com.restaurant.vip.repository.GuestRepository;
 import com.restaurant.vip.repository.StaffRepository;
 import com.restaurant.vip.repository.VisitRepository;
+import com.restaurant.vip.util.CursorCodec;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -31,6 +39,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -51,6 +60,15 @@ class VisitServiceTest {
     @Mock
     private AuditLogService auditLogService;
 
+    @Mock
+    private GuestVisitStatsService visitStatsService;
+
+    @Mock
+    private VisitRollupService visitRollupService;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @Mock
     private SecurityContext securityContext;
 
@@ -148,6 +166,8 @@ class VisitServiceTest {
         verify(guestRepository).findById(1L);
         verify(visitRepository).save(any(Visit.class));
         verify(auditLogService).logVisitCreated(testStaff.getId(), testVisit.getId(), testGuest.getId());
+        verify(visitStatsService).refresh(testGuest.getId());
+        verify(visitRollupService).add(VisitRollupService.Contribution.of(testVisit));
     }
 
     @Test
@@ -163,12 +183,57 @@ class VisitServiceTest {
         verify(visitRepository, never()).save(any(Visit.class));
     }
 
+    @Test
+    void createVisits_ChecksAllGuestsWithOneQuery() {
+        // Arrange
+        VisitCreateRequest unknownGuest = new VisitCreateRequest(99L, LocalDate.now(), LocalTime.of(21, 0));
+        when(staffRepository.findByEmail("server@restaurant.com")).thenReturn(Optional.of(testStaff));
+        when(guestRepository.findAllByIdForUpdate(Set.of(1L, 99L))).thenReturn(List.of(testGuest));
+        when(visitRepository.saveAll(ArgumentMatchers.<Visit>anyList())).thenReturn(List.of(testVisit));
+
+        // Act
+        VisitBatchCreateResponse result = visitService.createVisits(List.of(createRequest, unknownGuest));
+
+        // Assert
+        assertEquals(1, result.getCreatedCount());
+        assertEquals(1, result.getRejectedCount());
+        assertEquals(VisitService.CREATED, result.getItems().get(0).getStatus());
+        assertEquals(testVisit.getId(), result.getItems().get(0).getVisitId());
+        assertEquals(VisitService.GUEST_NOT_FOUND, result.getItems().get(1).getStatus());
+        assertEquals(1, result.getItems().get(1).getIndex());
+
+        verify(guestRepository, never()).findById(any());
+        verify(visitStatsService).refresh(Set.of(testGuest.getId()));
+        verify(visitRollupService).addAll(List.of(VisitRollupService.Contribution.of(testVisit)));
+        verify(auditLogService).logVisitsCreated(testStaff.getId(), List.of(testVisit));
+    }
+
+    @Test
+    void createVisits_InvalidVisitIsReportedAndNotSaved() {
+        // Arrange
+        createRequest.setPartySize(0);
+        when(staffRepository.findByEmail("server@restaurant.com")).thenReturn(Optional.of(testStaff));
+
+        // Act
+        VisitBatchCreateResponse result = visitService.createVisits(List.of(createRequest));
+
+        // Assert
+        assertEquals(0, result.getCreatedCount());
+        assertEquals(VisitService.INVALID, result.getItems().get(0).getStatus());
+        assertTrue(result.getItems().get(0).getMessage().startsWith("partySize"));
+
+        verify(guestRepository, never()).findAllByIdForUpdate(any());
+        verify(visitRepository, never()).saveAll(any());
+        verify(auditLogService, never()).logVisitsCreated(any(), any());
+    }
+
     @Test
     void updateVisit_Success_OriginalStaff() {
         // Arrange
         when(staffRepository.findByEmail("server@restaurant.com")).thenReturn(Optional.of(testStaff));
         when(visitRepository.findById(1L)).thenReturn(Optional.of(testVisit));
         when(visitRepository.save(any(Visit.class))).thenReturn(testVisit);
+        VisitRollupService.Contribution before = VisitRollupService.Contribution.of(testVisit);
 
         // Act
         VisitResponse result = visitService.updateVisit(1L, updateRequest);
@@ -180,6 +245,9 @@ class VisitServiceTest {
         verify(visitRepository).findById(1L);
         verify(visitRepository).save(any(Visit.class));
         verify(auditLogService).logVisitUpdated(testStaff.getId(), 1L, testGuest.getId());
+        verify(visitStatsService).refresh(testGuest.getId());
+        verify(visitRollupService).replace(before, VisitRollupService.Contribution.of(testVisit));
+        assertNotEquals(before, VisitRollupService.Contribution.of(testVisit));
     }
 
     @Test
@@ -352,6 +420,28 @@ class VisitServiceTest {
         verify(visitRepository).findById(1L);
         verify(auditLogService).logVisitDeleted(managerStaff.getId(), 1L, testGuest.getId());
         verify(visitRepository).delete(testVisit);
+        verify(visitStatsService).refresh(testGuest.getId());
+        verify(visitRollupService).remove(VisitRollupService.Contribution.of(testVisit));
+    }
+
+    @Test
+    void deleteVisit_TokenPrincipal_UsesStaffReferenceWithoutLookup() {
+        // Arrange
+        Staff managerReference = mock(Staff.class);
+        when(managerReference.getId()).thenReturn(2L);
+        when(authentication.getPrincipal()).thenReturn(
+                new StaffPrincipal(2L, "manager@restaurant.com", StaffRole.MANAGER, "Mary", "Manager"));
+        when(staffRepository.getReferenceById(2L)).thenReturn(managerReference);
+        when(visitRepository.findById(1L)).thenReturn(Optional.of(testVisit));
+
+        // Act
+        visitService.deleteVisit(1L);
+
+        // Assert
+        verify(staffRepository, never()).findByEmail(anyString());
+        verify(managerReference, never()).getRole();
+        verify(auditLogService).logVisitDeleted(2L, 1L, testGuest.getId());
+        verify(visitRepository).delete(testVisit);
     }
 
     @Test
@@ -422,20 +512,33 @@ class VisitServiceTest {
     @Test
     void getGuestVisitCount_Success() {
         // Arrange
-        when(visitRepository.countByGuestId(1L)).thenReturn(5L);
+        when(visitStatsService.getStats(1L)).thenReturn(Optional.of(guestVisitStats(5L)));
 
         // Act
         long result = visitService.getGuestVisitCount(1L);
 
         // Assert
         assertEquals(5L, result);
-        verify(visitRepository).countByGuestId(1L);
+        verify(visitRepository, never()).countByGuestId(any());
+    }
+
+    @Test
+    void getGuestVisitCount_NoVisits_ReturnsZero() {
+        // Arrange
+        when(visitStatsService.getStats(1L)).thenReturn(Optional.empty());
+
+        // Act
+        long result = visitService.getGuestVisitCount(1L);
+
+        // Assert
+        assertEquals(0L, result);
     }
 
     @Test
     void getLastVisitForGuest_Success() {
         // Arrange
-        when(visitRepository.findLastVisitByGuestId(1L)).thenReturn(testVisit);
+        when(visitStatsService.getStats(1L)).thenReturn(Optional.of(guestVisitStats(1L)));
+        when(visitRepository.findById(1L)).thenReturn(Optional.of(testVisit));
 
         // Act
         VisitResponse result = visitService.getLastVisitForGuest(1L);
@@ -444,20 +547,20 @@ class VisitServiceTest {
         assertNotNull(result);
         assertEquals(testVisit.getId(), result.getId());
 
-        verify(visitRepository).findLastVisitByGuestId(1L);
+        verify(visitRepository, never()).findLastVisitByGuestId(any());
     }
 
     @Test
     void getLastVisitForGuest_NoVisits_ReturnsNull() {
         // Arrange
-        when(visitRepository.findLastVisitByGuestId(1L)).thenReturn(null);
+        when(visitStatsService.getStats(1L)).thenReturn(Optional.empty());
 
         // Act
         VisitResponse result = visitService.getLastVisitForGuest(1L);
 
         // Assert
         assertNull(result);
-        verify(visitRepository).findLastVisitByGuestId(1L);
+        verify(visitRepository, never()).findById(any());
     }
 
     @Test
@@ -466,6 +569,7 @@ class VisitServiceTest {
         when(guestRepository.findById(1L)).thenReturn(Optional.of(testGuest));
         when(visitRepository.findByGuestIdOrderByVisitDateDescVisitTimeDesc(1L))
                 .thenReturn(Arrays.asList(testVisit));
+        when(visitStatsService.getStats(1L)).thenReturn(Optional.of(guestVisitStats(1L)));
 
         // Act
         VisitHistoryResponse result = visitService.getGuestVisitHistory(1L);
@@ -475,6 +579,7 @@ class VisitServiceTest {
         assertEquals(1L, result.getGuestId());
         assertEquals("Alice Smith", result.getGuestName());
         assertEquals(1L, result.getTotalVisits());
+        assertEquals(testVisit.getVisitDate(), result.getLastVisitDate());
         assertEquals(1, result.getVisits().size());
 
         verify(guestRepository).findById(1L);
@@ -484,9 +589,11 @@ class VisitServiceTest {
     @Test
     void getGuestVisitStatistics_Success() {
         // Arrange
-        Object[] stats = {5L, LocalDate.now(), LocalDate.now().minusDays(30), 2.5};
+        GuestVisitStats stats = guestVisitStats(5L);
+        stats.setFirstVisitDate(LocalDate.now().minusDays(30));
+        stats.setAveragePartySize(2.5);
         when(guestRepository.existsById(1L)).thenReturn(true);
-        when(visitRepository.getGuestVisitStatistics(1L)).thenReturn(stats);
+        when(visitStatsService.getStats(1L)).thenReturn(Optional.of(stats));
 
         // Act
         Map<String, Object> result = visitService.getGuestVisitStatistics(1L);
@@ -497,9 +604,57 @@ class VisitServiceTest {
         assertEquals(LocalDate.now(), result.get("lastVisitDate"));
         assertEquals(LocalDate.now().minusDays(30), result.get("firstVisitDate"));
         assertEquals(2.5, result.get("averagePartySize"));
+        assertEquals("A5", result.get("lastTableNumber"));
 
         verify(guestRepository).existsById(1L);
-        verify(visitRepository).getGuestVisitStatistics(1L);
+        verify(visitRepository, never()).getGuestVisitStatistics(any());
+    }
+
+    @Test
+    void getGuestVisitTimeline_FirstPage_ReturnsCursorPastLastEntry() {
+        // Arrange
+        VisitTimelineEntry newest = timelineEntry(3L, LocalDate.of(2024, 3, 2));
+        VisitTimelineEntry middle = timelineEntry(2L, LocalDate.of(2024, 3, 1));
+        VisitTimelineEntry oldest = timelineEntry(1L, LocalDate.of(2024, 2, 1));
+        when(guestRepository.existsById(1L)).thenReturn(true);
+        when(visitRepository.findTimeline(1L, false, PageRequest.of(0, 3)))
+                .thenReturn(Arrays.asList(newest, middle, oldest));
+
+        // Act
+        PagedResponse<VisitTimelineEntry> result = visitService.getGuestVisitTimeline(1L, "", 2, false);
+
+        // Assert
+        assertEquals(Arrays.asList(newest, middle), result.getContent());
+        assertNotNull(result.getNextCursor());
+        assertArrayEquals(new String[] {"1", "all", "2024-03-01", "19:30", "2"},
+                CursorCodec.decode(result.getNextCursor(), 5));
+    }
+
+    @Test
+    void getGuestVisitTimeline_NextPage_SeeksFromCursor() {
+        // Arrange
+        String cursor = CursorCodec.encode("1", "notes", "2024-03-01", "19:30", "2");
+        VisitTimelineEntry oldest = timelineEntry(1L, LocalDate.of(2024, 2, 1));
+        when(visitRepository.findTimelineAfter(1L, true, LocalDate.of(2024, 3, 1), LocalTime.of(19, 30), 2L,
+                PageRequest.of(0, 3))).thenReturn(List.of(oldest));
+
+        // Act
+        PagedResponse<VisitTimelineEntry> result = visitService.getGuestVisitTimeline(1L, cursor, 2, true);
+
+        // Assert
+        assertEquals(List.of(oldest), result.getContent());
+        assertNull(result.getNextCursor());
+        verify(guestRepository, never()).existsById(any());
+    }
+
+    @Test
+    void getGuestVisitTimeline_CursorOfOtherGuest_ThrowsInvalidCursor() {
+        // Arrange
+        String cursor = CursorCodec.encode("2", "all", "2024-03-01", "19:30", "2");
+
+        // Act & Assert
+        assertThrows(InvalidCursorException.class, () -> visitService.getGuestVisitTimeline(1L, cursor, 20, false));
+        verifyNoInteractions(visitRepository);
     }
 
     @Test
@@ -518,6 +673,37 @@ class VisitServiceTest {
         verify(visitRepository).findRecentVisits(any(LocalDate.class));
     }
 
+    @Test
+    void searchVisitNotes_MapsRankedRows() {
+        // Arrange
+        Object[] row = {10L, 1L, "Jane", "Smith", java.sql.Date.valueOf("2024-03-01"),
+                java.sql.Time.valueOf("19:30:00"), 0.4f, "booked the <mark>window</mark> <mark>seat</mark>"};
+        Page<Object[]> rows = new PageImpl<>(List.<Object[]>of(row), PageRequest.of(0, 20), 1);
+        when(visitRepository.searchServiceNotes(eq("(window <-> seat)"), any(Pageable.class))).thenReturn(rows);
+
+        // Act
+        PagedResponse<VisitNoteSearchResult> result = visitService.searchVisitNotes("\"Window seat\"", 0, 20);
+
+        // Assert
+        assertEquals(1, result.getContent().size());
+        assertEquals(1, result.getTotalElements());
+        VisitNoteSearchResult match = result.getContent().get(0);
+        assertEquals(10L, match.getVisitId());
+        assertEquals(1L, match.getGuestId());
+        assertEquals("Jane Smith", match.getGuestName());
+        assertEquals(LocalDate.of(2024, 3, 1), match.getVisitDate());
+        assertEquals(LocalTime.of(19, 30), match.getVisitTime());
+        assertEquals(0.4, match.getRank(), 1e-6);
+        assertEquals("booked the <mark>window</mark> <mark>seat</mark>", match.getSnippet());
+    }
+
+    @Test
+    void searchVisitNotes_NoSearchableWords_ThrowsInvalidSearchQueryException() {
+        // Act & Assert
+        assertThrows(InvalidSearchQueryException.class, () -> visitService.searchVisitNotes(" -* ", 0, 20));
+        verifyNoInteractions(visitRepository);
+    }
+
     @Test
     void searchVisitsByNotes_Success() {
         // Arrange
@@ -583,4 +769,20 @@ class VisitServiceTest {
 
         verify(visitRepository).findById(1L);
     }
-}
\ No newline at end of file
+
+    private GuestVisitStats guestVisitStats(long totalVisits) {
+        GuestVisitStats stats = new GuestVisitStats(testGuest.getId());
+        stats.setTotalVisits(totalVisits);
+        stats.setFirstVisitDate(testVisit.getVisitDate());
+        stats.setLastVisitDate(testVisit.getVisitDate());
+        stats.setLastVisitTime(testVisit.getVisitTime());
+        stats.setLastVisitId(testVisit.getId());
+        stats.setLastTableNumber(testVisit.getTableNumber());
+        stats.setLastStaffId(testStaff.getId());
+        return stats;
+    }
+
+    private VisitTimelineEntry timelineEntry(Long id, LocalDate visitDate) {
+        return new VisitTimelineEntry(id, visitDate, LocalTime.of(19, 30), 2, "A5", "John", "Doe", null);
+    }
+}
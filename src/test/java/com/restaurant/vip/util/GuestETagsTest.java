@@ -0,0 +1,39 @@
+package com.restaurant.vip.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuestETagsTest {
+
+    @Test
+    void of_CombinesIdAndVersion() {
+        // Act & Assert
+        assertEquals("\"42-7\"", GuestETags.of(42L, 7L));
+    }
+
+    @Test
+    void matchesNoneMatch_ListedWeakOrAnyTag_Matches() {
+        // Arrange
+        String etag = GuestETags.of(42L, 7L);
+
+        // Act & Assert
+        assertTrue(GuestETags.matchesNoneMatch("\"42-7\"", etag));
+        assertTrue(GuestETags.matchesNoneMatch("\"42-6\", W/\"42-7\"", etag));
+        assertTrue(GuestETags.matchesNoneMatch("*", etag));
+        assertFalse(GuestETags.matchesNoneMatch("\"42-6\"", etag));
+        assertFalse(GuestETags.matchesNoneMatch(null, etag));
+    }
+
+    @Test
+    void versionFromIfMatch_ReadsStrongTagOfSameGuest() {
+        // Act & Assert
+        assertEquals(Optional.of(7L), GuestETags.versionFromIfMatch("\"42-7\"", 42L));
+        assertEquals(Optional.of(7L), GuestETags.versionFromIfMatch("\"41-3\", \"42-7\"", 42L));
+        assertTrue(GuestETags.versionFromIfMatch("W/\"42-7\"", 42L).isEmpty());
+        assertTrue(GuestETags.versionFromIfMatch("\"41-7\"", 42L).isEmpty());
+        assertTrue(GuestETags.versionFromIfMatch("\"42-x\"", 42L).isEmpty());
+    }
+}
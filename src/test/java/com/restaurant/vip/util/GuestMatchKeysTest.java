@@ -0,0 +1,68 @@
+package com.restaurant.vip.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuestMatchKeysTest {
+
+    @Test
+    void forLookup_SpellingVariant_SharesKeyWithStoredGuest() {
+        // Arrange
+        List<String> stored = Arrays.asList(GuestMatchKeys.forGuest("John", "Smith"));
+
+        // Act
+        String[] lookup = GuestMatchKeys.forLookup("Jon", "Smyth");
+
+        // Assert
+        assertTrue(Arrays.stream(lookup).anyMatch(stored::contains));
+    }
+
+    @Test
+    void forLookup_DifferentName_SharesNoKey() {
+        // Arrange
+        List<String> stored = Arrays.asList(GuestMatchKeys.forGuest("John", "Smith"));
+
+        // Act
+        String[] lookup = GuestMatchKeys.forLookup("Maria", "Garcia");
+
+        // Assert
+        assertTrue(Arrays.stream(lookup).noneMatch(stored::contains));
+    }
+
+    @Test
+    void forLookup_WithoutLastName_UsesFirstNameKeys() {
+        // Act
+        String[] lookup = GuestMatchKeys.forLookup("Jane", null);
+
+        // Assert
+        assertTrue(lookup.length > 0);
+        assertTrue(Arrays.stream(lookup).allMatch(key -> key.endsWith(":")));
+        assertTrue(Arrays.asList(GuestMatchKeys.forGuest("Jane", "Doe")).containsAll(Arrays.asList(lookup)));
+    }
+
+    @Test
+    void forGuest_WithoutNames_ReturnsNoKeys() {
+        // Assert
+        assertEquals(0, GuestMatchKeys.forGuest(null, "Smith").length);
+        assertEquals(0, GuestMatchKeys.forLookup(" ", null).length);
+    }
+
+    @Test
+    void phoneKey_KeepsLastTenDigits() {
+        // Assert
+        assertEquals("5551234567", GuestMatchKeys.phoneKey("+1 (555) 123-4567"));
+        assertEquals("5551234567", GuestMatchKeys.phoneKey("5551234567"));
+        assertEquals("1234567", GuestMatchKeys.phoneKey("123-4567"));
+    }
+
+    @Test
+    void phoneKey_NoDigits_ReturnsNull() {
+        // Assert
+        assertNull(GuestMatchKeys.phoneKey(null));
+        assertNull(GuestMatchKeys.phoneKey("n/a"));
+    }
+}
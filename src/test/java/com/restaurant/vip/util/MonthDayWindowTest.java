@@ -0,0 +1,54 @@
+package com.restaurant.vip.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonthDayWindowTest {
+
+    @Test
+    void of_WithinYear_UsesSingleRange() {
+        // Act
+        MonthDayWindow window = MonthDayWindow.of(LocalDate.of(2024, 5, 20), 30);
+
+        // Assert
+        assertEquals(520, window.getFirstFrom());
+        assertEquals(619, window.getFirstTo());
+        assertTrue(window.getSecondFrom() > window.getSecondTo());
+    }
+
+    @Test
+    void of_AcrossNewYear_SplitsIntoTwoRanges() {
+        // Act
+        MonthDayWindow window = MonthDayWindow.of(LocalDate.of(2023, 12, 20), 30);
+
+        // Assert
+        assertEquals(1220, window.getFirstFrom());
+        assertEquals(1231, window.getFirstTo());
+        assertEquals(101, window.getSecondFrom());
+        assertEquals(119, window.getSecondTo());
+    }
+
+    @Test
+    void of_EndingOnFeb28InCommonYear_IncludesLeapDay() {
+        // Act
+        MonthDayWindow window = MonthDayWindow.of(LocalDate.of(2023, 2, 21), 7);
+
+        // Assert
+        assertEquals(221, window.getFirstFrom());
+        assertEquals(229, window.getFirstTo());
+    }
+
+    @Test
+    void of_WholeYear_CoversEveryDay() {
+        // Act
+        MonthDayWindow window = MonthDayWindow.of(LocalDate.of(2024, 7, 1), 365);
+
+        // Assert
+        assertEquals(101, window.getFirstFrom());
+        assertEquals(1231, window.getFirstTo());
+        assertTrue(window.getSecondFrom() > window.getSecondTo());
+    }
+}
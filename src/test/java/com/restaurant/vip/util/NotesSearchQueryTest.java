@@ -0,0 +1,48 @@
+package com.restaurant.vip.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotesSearchQueryTest {
+
+    @Test
+    void toTsQuery_PlainTerms_RequiresEveryTerm() {
+        // Act & Assert
+        assertEquals("window & seat", NotesSearchQuery.toTsQuery("  Window   SEAT "));
+    }
+
+    @Test
+    void toTsQuery_QuotedWords_MatchAsPhrase() {
+        // Act & Assert
+        assertEquals("(window <-> seat) & anniversary",
+                NotesSearchQuery.toTsQuery("\"window seat\" anniversary"));
+    }
+
+    @Test
+    void toTsQuery_TrailingStar_MatchesByPrefix() {
+        // Act & Assert
+        assertEquals("propos:* & ring", NotesSearchQuery.toTsQuery("propos* ring"));
+    }
+
+    @Test
+    void toTsQuery_Punctuation_NeverReachesTheQuery() {
+        // Act & Assert
+        assertEquals("(gluten <-> free)", NotesSearchQuery.toTsQuery("gluten-free"));
+        assertEquals("shellfish", NotesSearchQuery.toTsQuery("shellfish!&|:()"));
+    }
+
+    @Test
+    void toTsQuery_UnclosedQuote_TreatsRestAsPhrase() {
+        // Act & Assert
+        assertEquals("nut & (no <-> sesame)", NotesSearchQuery.toTsQuery("nut \"no sesame"));
+    }
+
+    @Test
+    void toTsQuery_NoWords_ReturnsNull() {
+        // Act & Assert
+        assertNull(NotesSearchQuery.toTsQuery(null));
+        assertNull(NotesSearchQuery.toTsQuery("   "));
+        assertNull(NotesSearchQuery.toTsQuery("\"\" * -"));
+    }
+}
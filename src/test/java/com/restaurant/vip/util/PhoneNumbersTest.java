@@ -0,0 +1,40 @@
+package com.restaurant.vip.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhoneNumbersTest {
+
+    @Test
+    void toE164_NationalAndInternationalForms_Agree() {
+        // Act & Assert
+        assertEquals("+15551234567", PhoneNumbers.toE164("+15551234567"));
+        assertEquals("+15551234567", PhoneNumbers.toE164("5551234567"));
+        assertEquals("+15551234567", PhoneNumbers.toE164("(555) 123-4567"));
+        assertEquals("+15551234567", PhoneNumbers.toE164("+1 555 123 4567"));
+    }
+
+    @Test
+    void toE164_WithCountryCode_KeepsDigits() {
+        // Act & Assert
+        assertEquals("+447911123456", PhoneNumbers.toE164("+44 7911 123456"));
+        assertEquals("+1234567890", PhoneNumbers.toE164("+1234567890"));
+    }
+
+    @Test
+    void toE164_NoDigits_ReturnsNull() {
+        // Act & Assert
+        assertNull(PhoneNumbers.toE164(null));
+        assertNull(PhoneNumbers.toE164(""));
+        assertNull(PhoneNumbers.toE164("ext"));
+    }
+
+    @Test
+    void digits_StripsFormattingAndKeepsEmptyForText() {
+        // Act & Assert
+        assertEquals("1987654", PhoneNumbers.digits("+1 (987) 65-4"));
+        assertEquals("", PhoneNumbers.digits("Jane"));
+        assertEquals("", PhoneNumbers.digits(null));
+    }
+}
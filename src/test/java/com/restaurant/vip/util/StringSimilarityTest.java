@@ -0,0 +1,55 @@
+package com.restaurant.vip.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringSimilarityTest {
+
+    @Test
+    void jaroWinkler_KnownPairs_MatchReferenceScores() {
+        // Assert
+        assertEquals(0.961, StringSimilarity.jaroWinkler("MARTHA", "MARHTA"), 0.001);
+        assertEquals(0.840, StringSimilarity.jaroWinkler("DWAYNE", "DUANE"), 0.001);
+        assertEquals(0.813, StringSimilarity.jaroWinkler("DIXON", "DICKSONX"), 0.001);
+    }
+
+    @Test
+    void jaroWinkler_IdenticalAndDisjoint_ReturnsBounds() {
+        // Assert
+        assertEquals(1.0, StringSimilarity.jaroWinkler("Smith", "Smith"));
+        assertEquals(0.0, StringSimilarity.jaroWinkler("abc", "xyz"));
+    }
+
+    @Test
+    void levenshtein_CountsEdits() {
+        // Assert
+        assertEquals(3, StringSimilarity.levenshtein("kitten", "sitting"));
+        assertEquals(1, StringSimilarity.levenshtein("Smith", "Smyth"));
+        assertEquals(1, StringSimilarity.levenshtein("Jon", "John"));
+        assertEquals(4, StringSimilarity.levenshtein("", "Jane"));
+        assertEquals(0, StringSimilarity.levenshtein("", ""));
+    }
+
+    @Test
+    void similarity_IgnoresCase() {
+        // Assert
+        assertEquals(1.0, StringSimilarity.similarity("JANE", "jane"));
+        assertEquals(0, StringSimilarity.levenshtein("McDonald", "mcdonald"));
+    }
+
+    @Test
+    void similarity_SpellingVariants_ScoreHigh() {
+        // Assert
+        assertTrue(StringSimilarity.similarity("Jon", "John") > 0.85);
+        assertTrue(StringSimilarity.similarity("Smyth", "Smith") > 0.85);
+        assertTrue(StringSimilarity.similarity("Smith", "Doe") < 0.5);
+    }
+
+    @Test
+    void similarity_EmptyStrings_HandledWithoutError() {
+        // Assert
+        assertEquals(1.0, StringSimilarity.similarity("", ""));
+        assertEquals(0.0, StringSimilarity.similarity("", "Jane"));
+    }
+}